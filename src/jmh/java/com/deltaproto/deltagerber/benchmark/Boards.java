@@ -0,0 +1,154 @@
+package com.deltaproto.deltagerber.benchmark;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The benchmark corpus: the boards in {@code testdata} and the files of the
+ * {@code test-gerber-suite}, loaded into memory with a layer type per file.
+ * <p>
+ * Paths are relative to the project root (the working directory of the
+ * {@code benchmark} profile). Benchmarks run in forked JVMs, so override the
+ * root with {@code -jvmArgsAppend -Ddeltagerber.root=...} in {@code jmh.args}.
+ */
+final class Boards {
+
+    static final String DEPR = "depr";
+    static final String ARDUINO_UNO = "arduino-uno";
+    static final String TEST_SUITE = "test-gerber-suite";
+
+    private static final Path ROOT = Path.of(System.getProperty("deltagerber.root", "."));
+
+    // Layer type by file extension, covering the naming schemes used in the corpus
+    private static final Map<String, LayerType> LAYER_TYPES = Map.ofEntries(
+        Map.entry("gko", LayerType.OUTLINE),
+        Map.entry("gtl", LayerType.COPPER_TOP), Map.entry("cmp", LayerType.COPPER_TOP),
+        Map.entry("gbl", LayerType.COPPER_BOTTOM), Map.entry("sol", LayerType.COPPER_BOTTOM),
+        Map.entry("gts", LayerType.SOLDERMASK_TOP), Map.entry("stc", LayerType.SOLDERMASK_TOP),
+        Map.entry("gbs", LayerType.SOLDERMASK_BOTTOM), Map.entry("sts", LayerType.SOLDERMASK_BOTTOM),
+        Map.entry("gto", LayerType.SILKSCREEN_TOP), Map.entry("plc", LayerType.SILKSCREEN_TOP),
+        Map.entry("gbo", LayerType.SILKSCREEN_BOTTOM), Map.entry("pls", LayerType.SILKSCREEN_BOTTOM),
+        Map.entry("gtp", LayerType.PASTE_TOP), Map.entry("gbp", LayerType.PASTE_BOTTOM),
+        Map.entry("g1", LayerType.OTHER), Map.entry("g2", LayerType.OTHER), Map.entry("gm1", LayerType.OTHER),
+        Map.entry("gbr", LayerType.OTHER),
+        Map.entry("txt", LayerType.DRILL), Map.entry("drd", LayerType.DRILL), Map.entry("drl", LayerType.DRILL));
+
+    /** One source file of a board. */
+    static final class BoardFile {
+        final String name;
+        final String content;
+        final LayerType layerType;
+
+        BoardFile(String name, String content, LayerType layerType) {
+            this.name = name;
+            this.content = content;
+            this.layerType = layerType;
+        }
+
+        boolean isDrill() {
+            return layerType == LayerType.DRILL;
+        }
+    }
+
+    private Boards() {
+    }
+
+    /** The source files of {@code board}, sorted by name. */
+    static List<BoardFile> load(String board) throws IOException {
+        List<BoardFile> files = switch (board) {
+            case DEPR -> loadDirectory(ROOT.resolve("testdata/DEPR PR31 GBDR V04"));
+            case ARDUINO_UNO -> loadDirectory(ROOT.resolve("testdata/arduino-uno"));
+            case TEST_SUITE -> loadZip(ROOT.resolve("test-gerber-suite/test-gerber-suite.zip"));
+            default -> throw new IllegalArgumentException("Unknown board: " + board);
+        };
+        if (files.isEmpty()) {
+            throw new IllegalStateException("No files found for " + board + " under " + ROOT.toAbsolutePath());
+        }
+        files.sort(Comparator.comparing(f -> f.name));
+        return files;
+    }
+
+    /** Parse all files of a board into renderable layers. */
+    static List<MultiLayerSVGRenderer.Layer> parse(List<BoardFile> files) {
+        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+        for (BoardFile f : files) {
+            MultiLayerSVGRenderer.Layer layer = f.isDrill()
+                ? new MultiLayerSVGRenderer.Layer(f.name, new ExcellonParser().parse(f.content))
+                : new MultiLayerSVGRenderer.Layer(f.name, new GerberParser().parse(f.content));
+            layers.add(layer.setLayerType(f.layerType));
+        }
+        return layers;
+    }
+
+    static List<GerberDocument> gerberDocuments(List<MultiLayerSVGRenderer.Layer> layers) {
+        List<GerberDocument> docs = new ArrayList<>();
+        for (MultiLayerSVGRenderer.Layer layer : layers) {
+            if (layer.isGerber()) docs.add(layer.getGerberDoc());
+        }
+        return docs;
+    }
+
+    static List<DrillDocument> drillDocuments(List<MultiLayerSVGRenderer.Layer> layers) {
+        List<DrillDocument> docs = new ArrayList<>();
+        for (MultiLayerSVGRenderer.Layer layer : layers) {
+            if (layer.isDrill()) docs.add(layer.getDrillDoc());
+        }
+        return docs;
+    }
+
+    /** The layers a realistic top-side view uses: outline, top copper/mask/silk and drills. */
+    static List<MultiLayerSVGRenderer.Layer> topSide(List<MultiLayerSVGRenderer.Layer> layers) {
+        Set<LayerType> top = EnumSet.of(LayerType.OUTLINE, LayerType.COPPER_TOP, LayerType.SOLDERMASK_TOP,
+            LayerType.SILKSCREEN_TOP, LayerType.DRILL);
+        List<MultiLayerSVGRenderer.Layer> side = new ArrayList<>();
+        for (MultiLayerSVGRenderer.Layer layer : layers) {
+            if (top.contains(layer.getLayerType())) side.add(layer);
+        }
+        return side;
+    }
+
+    private static List<BoardFile> loadDirectory(Path dir) throws IOException {
+        List<BoardFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) paths::iterator) {
+                LayerType type = layerType(p.getFileName().toString());
+                if (type != null && Files.isRegularFile(p)) {
+                    files.add(new BoardFile(p.getFileName().toString(), Files.readString(p), type));
+                }
+            }
+        }
+        return files;
+    }
+
+    private static List<BoardFile> loadZip(Path zip) throws IOException {
+        List<BoardFile> files = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(zip); ZipInputStream entries = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = entries.getNextEntry()) != null) {
+                String name = entry.getName();
+                LayerType type = layerType(name);
+                if (entry.isDirectory() || name.startsWith("__MACOSX/") || type == null) continue;
+                files.add(new BoardFile(name, new String(entries.readAllBytes(), StandardCharsets.UTF_8), type));
+            }
+        }
+        return files;
+    }
+
+    private static LayerType layerType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? null : LAYER_TYPES.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
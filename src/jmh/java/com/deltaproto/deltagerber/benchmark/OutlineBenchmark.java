@@ -0,0 +1,61 @@
+package com.deltaproto.deltagerber.benchmark;
+
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chaining a board outline drawn as many tiny line segments, as curved boards
+ * and milling layers are often exported, into the realistic view's clip path.
+ * The draws go round a 160 mm circle in shuffled order and mixed directions,
+ * so each step has to find its continuation among all remaining segments.
+ * Time should grow linearly with the segment count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OutlineBenchmark {
+
+    @Param({"5000", "50000"})
+    public int segments;
+
+    private GerberDocument outline;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(1);
+        int r = 800000;  // 80 mm in 4.4 format
+        List<String> draws = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            long x0 = Math.round(r * Math.cos(2 * Math.PI * i / segments));
+            long y0 = Math.round(r * Math.sin(2 * Math.PI * i / segments));
+            long x1 = Math.round(r * Math.cos(2 * Math.PI * (i + 1) / segments));
+            long y1 = Math.round(r * Math.sin(2 * Math.PI * (i + 1) / segments));
+            draws.add(random.nextBoolean()
+                ? "X" + x0 + "Y" + y0 + "D02*\nX" + x1 + "Y" + y1 + "D01*\n"
+                : "X" + x1 + "Y" + y1 + "D02*\nX" + x0 + "Y" + y0 + "D01*\n");
+        }
+        Collections.shuffle(draws, random);
+
+        StringBuilder g = new StringBuilder("%FSLAX44Y44*%\n%MOMM*%\nG01*\n%ADD10C,0.1000*%\nD10*\n");
+        draws.forEach(g::append);
+        g.append("M02*\n");
+        outline = new GerberParser().parse(g.toString());
+    }
+
+    @Benchmark
+    public String chainOutline() {
+        // A new renderer each time, so the fragment cache doesn't answer
+        return new MultiLayerSVGRenderer().renderOutlinePath(outline);
+    }
+}
@@ -0,0 +1,59 @@
+package com.deltaproto.deltagerber.benchmark;
+
+import com.deltaproto.deltagerber.lexer.GerberLexer;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing and parsing of every file of a board. Each invocation processes the
+ * whole board, so scores are per board, not per file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ParseBenchmark {
+
+    @Param({Boards.DEPR, Boards.ARDUINO_UNO, Boards.TEST_SUITE})
+    public String board;
+
+    private final List<String> gerberFiles = new ArrayList<>();
+    private final List<String> drillFiles = new ArrayList<>();
+
+    @Setup
+    public void load() throws IOException {
+        for (Boards.BoardFile f : Boards.load(board)) {
+            (f.isDrill() ? drillFiles : gerberFiles).add(f.content);
+        }
+    }
+
+    @Benchmark
+    public void lexGerber(Blackhole bh) {
+        for (String content : gerberFiles) {
+            bh.consume(new GerberLexer().tokenize(content));
+        }
+    }
+
+    @Benchmark
+    public void parseGerber(Blackhole bh) {
+        for (String content : gerberFiles) {
+            bh.consume(new GerberParser().parse(content));
+        }
+    }
+
+    @Benchmark
+    public void parseExcellon(Blackhole bh) {
+        for (String content : drillFiles) {
+            bh.consume(new ExcellonParser().parse(content));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.deltaproto.deltagerber.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reports the peak heap usage of each iteration, which {@code -prof gc} does
+ * not: allocation rate says how much garbage a stage makes, peak heap says
+ * how large an input fits in a given {@code -Xmx}.
+ * <p>
+ * Before each iteration the heap is collected and the pool peaks are reset.
+ * {@code heap.peak} is the sum of the heap pool peaks afterwards, an upper
+ * bound because pools need not peak at the same moment. {@code heap.peak.growth}
+ * subtracts the heap in use when the iteration started, i.e. the benchmark state.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    private long baseline;
+
+    public PeakHeapProfiler() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                heapPools.add(pool);
+            }
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Peak heap usage per iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        System.gc();
+        baseline = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            baseline += pool.getUsage().getUsed();
+            pool.resetPeakUsage();
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+                                                       IterationParams iterationParams, IterationResult result) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return List.of(
+            new ScalarResult("heap.peak", peak, "bytes", AggregationPolicy.MAX),
+            new ScalarResult("heap.peak.growth", Math.max(0, peak - baseline), "bytes", AggregationPolicy.MAX));
+    }
+}
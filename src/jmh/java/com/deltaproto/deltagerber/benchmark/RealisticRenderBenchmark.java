@@ -0,0 +1,53 @@
+package com.deltaproto.deltagerber.benchmark;
+
+import com.deltaproto.deltagerber.renderer.raster.Java2DRenderer;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Realistic top-side rendering, as SVG and as a thumbnail PNG rasterized by
+ * Batik and drawn by Java2D. Only boards with an outline layer can be rendered this way, so the
+ * {@code test-gerber-suite} is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true"})
+public class RealisticRenderBenchmark {
+
+    @Param({Boards.DEPR, Boards.ARDUINO_UNO})
+    public String board;
+
+    @Param({"400"})
+    public int widthPx;
+
+    private List<MultiLayerSVGRenderer.Layer> layers;
+    private List<MultiLayerSVGRenderer.Layer> topLayers;
+
+    @Setup
+    public void load() throws IOException {
+        layers = Boards.parse(Boards.load(board));
+        topLayers = Boards.topSide(layers);
+    }
+
+    @Benchmark
+    public String renderRealistic() {
+        return new MultiLayerSVGRenderer().renderRealistic(topLayers);
+    }
+
+    @Benchmark
+    public byte[] renderRealisticSidePng() {
+        return new MultiLayerSVGRenderer().renderRealisticSidePng(layers, MultiLayerSVGRenderer.Side.TOP, widthPx);
+    }
+
+    @Benchmark
+    public byte[] renderRealisticSidePngJava2D() {
+        return new Java2DRenderer().renderRealisticSidePng(layers, MultiLayerSVGRenderer.Side.TOP, widthPx);
+    }
+}
@@ -0,0 +1,49 @@
+package com.deltaproto.deltagerber.benchmark;
+
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SVG generation from parsed documents: each Gerber layer on its own and all
+ * layers combined. Renderers are created per invocation without a fragment
+ * cache, so every call renders from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RenderBenchmark {
+
+    @Param({Boards.DEPR, Boards.ARDUINO_UNO, Boards.TEST_SUITE})
+    public String board;
+
+    private List<MultiLayerSVGRenderer.Layer> layers;
+    private List<GerberDocument> gerberDocs;
+
+    @Setup
+    public void load() throws IOException {
+        layers = Boards.parse(Boards.load(board));
+        gerberDocs = Boards.gerberDocuments(layers);
+    }
+
+    @Benchmark
+    public void svgRenderer(Blackhole bh) {
+        for (GerberDocument doc : gerberDocs) {
+            bh.consume(new SVGRenderer().render(doc));
+        }
+    }
+
+    @Benchmark
+    public String multiLayerRender() {
+        return new MultiLayerSVGRenderer().render(layers);
+    }
+}
@@ -0,0 +1,57 @@
+package com.deltaproto.deltagerber.benchmark;
+
+import com.deltaproto.deltagerber.SyntheticBoard;
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and render time of a {@link SyntheticBoard} at 1x (about 50 KB of
+ * Gerber) up to 1000x (about 60 MB). Each operation is timed once per
+ * iteration; time should grow linearly with scale, so a ratio well above 10
+ * between neighbouring scales points at a quadratic path. Peak heap comes
+ * from {@link PeakHeapProfiler}, which the {@code benchmark} profile enables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ScalingBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int scale;
+
+    private String gerber;
+    private String excellon;
+    private GerberDocument gerberDoc;
+
+    @Setup
+    public void generate() {
+        SyntheticBoard board = new SyntheticBoard().scaled(scale);
+        gerber = board.gerber();
+        excellon = board.excellon();
+        gerberDoc = new GerberParser().parse(gerber);
+    }
+
+    @Benchmark
+    public GerberDocument parseGerber() {
+        return new GerberParser().parse(gerber);
+    }
+
+    @Benchmark
+    public DrillDocument parseExcellon() {
+        return new ExcellonParser().parse(excellon);
+    }
+
+    @Benchmark
+    public String renderSvg() {
+        return new SVGRenderer().render(gerberDoc);
+    }
+}
@@ -0,0 +1,446 @@
+package com.deltaproto.deltagerber.cli;
+
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.raster.Java2DRenderer;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.web.GerberViewerServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+/**
+ * Headless batch conversion of Gerber projects into SVG and PNG previews.
+ * <p>
+ * Each input is a ZIP file or a directory. Directories are searched
+ * recursively: every ZIP inside is one board, and so is every directory that
+ * holds Gerber or drill files. Layers are classified with {@link LayerClassifier},
+ * as the web viewer does, and each board gets an output directory with:
+ * <pre>
+ * layers.svg             all layers combined (the viewer's layer view)
+ * top.svg, bottom.svg    realistic view of each side
+ * top.png, bottom.png    realistic thumbnail of each side
+ * </pre>
+ * Realistic outputs are left out for boards without an outline layer.
+ * <p>
+ * Boards run in parallel on a work-stealing {@link ForkJoinPool}, and each
+ * board forks its layer parses and renders, so idle workers help with the
+ * layers of a large board instead of waiting for it. A board that fails is
+ * reported and counted without affecting the others. After writing a board's
+ * outputs a marker file records the source's size and modification time; a
+ * restarted run skips boards whose marker matches.
+ */
+public final class BatchConvertCommand {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchConvertCommand.class);
+
+    /** Written last into each board's output directory. */
+    static final String DONE_MARKER = ".converted";
+
+    private static final String USAGE = String.join("\n",
+        "Usage: java -jar delta-gerber.jar convert [options] <zip-or-directory>...",
+        "  --output DIR      output directory (default: previews)",
+        "  --threads N       worker threads (default: number of CPUs)",
+        "  --formats LIST    comma-separated outputs: svg, realistic, png (default: all)",
+        "  --png-width N     thumbnail width in pixels (default 800)",
+        "  --no-resume       convert every board, including ones a previous run finished");
+
+    /** The kinds of output written for each board. */
+    public enum Output {
+        /** {@code layers.svg} */
+        SVG,
+        /** {@code top.svg} and {@code bottom.svg} */
+        REALISTIC,
+        /** {@code top.png} and {@code bottom.png} */
+        PNG
+    }
+
+    /** Outcome of a run. */
+    public static final class Summary {
+        public final int converted;
+        public final int skipped;
+        public final List<String> failures;
+
+        Summary(int converted, int skipped, List<String> failures) {
+            this.converted = converted;
+            this.skipped = skipped;
+            this.failures = failures;
+        }
+    }
+
+    private Path outputDir = Path.of("previews");
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Set<Output> outputs = EnumSet.allOf(Output.class);
+    private int pngWidth = 800;
+    private boolean resume = true;
+    private PrintStream console = System.out;
+
+    public BatchConvertCommand setOutputDir(Path outputDir) {
+        this.outputDir = outputDir;
+        return this;
+    }
+
+    public BatchConvertCommand setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+        this.threads = threads;
+        return this;
+    }
+
+    public BatchConvertCommand setOutputs(Set<Output> outputs) {
+        if (outputs.isEmpty()) throw new IllegalArgumentException("at least one output format is required");
+        this.outputs = EnumSet.copyOf(outputs);
+        return this;
+    }
+
+    public BatchConvertCommand setPngWidth(int pngWidth) {
+        if (pngWidth < 1 || pngWidth > 4000) throw new IllegalArgumentException("PNG width must be 1-4000");
+        this.pngWidth = pngWidth;
+        return this;
+    }
+
+    /** Whether to skip boards a previous run finished (default {@code true}). */
+    public BatchConvertCommand setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /** Where progress lines and failures are printed (default {@code System.out}). */
+    public BatchConvertCommand setConsole(PrintStream console) {
+        this.console = console;
+        return this;
+    }
+
+    /**
+     * Convert every board found under {@code inputs}.
+     *
+     * @throws IllegalArgumentException if an input is neither a ZIP file nor a directory
+     */
+    public Summary run(List<Path> inputs) throws IOException {
+        List<Board> boards = findBoards(inputs);
+        Progress progress = new Progress(boards.size());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<Boolean>> tasks = new ArrayList<>();
+            for (Board board : boards) {
+                tasks.add(pool.submit(() -> convert(board, progress)));
+            }
+            for (ForkJoinTask<Boolean> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return progress.finish();
+    }
+
+    /** One project to convert: a ZIP file, or a directory of layer files. */
+    private static final class Board {
+        final String name;
+        final Path source;
+        final boolean zip;
+
+        Board(String name, Path source, boolean zip) {
+            this.name = name;
+            this.source = source;
+            this.zip = zip;
+        }
+
+        /** Files of a directory board; a ZIP board is its own single file. */
+        List<Path> sourceFiles() throws IOException {
+            return zip ? List.of(source) : ProjectFiles.list(source);
+        }
+
+        /** Size and newest modification time of the source, to detect changes since the last run. */
+        String stamp() throws IOException {
+            long size = 0;
+            long modified = 0;
+            for (Path p : sourceFiles()) {
+                size += Files.size(p);
+                modified = Math.max(modified, Files.getLastModifiedTime(p).toMillis());
+            }
+            return size + " " + modified;
+        }
+
+        long size() throws IOException {
+            long size = 0;
+            for (Path p : sourceFiles()) size += Files.size(p);
+            return size;
+        }
+    }
+
+    private List<Board> findBoards(List<Path> inputs) throws IOException {
+        List<Board> boards = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                Path base = input.toAbsolutePath().normalize();
+                try (Stream<Path> walk = Files.walk(base)) {
+                    for (Path p : walk.sorted().toList()) {
+                        if (Files.isRegularFile(p) && ProjectFiles.isZip(p)) {
+                            boards.add(new Board(boardName(base, p), p, true));
+                        } else if (Files.isDirectory(p) && hasLayerFiles(p)) {
+                            boards.add(new Board(boardName(base, p), p, false));
+                        }
+                    }
+                }
+            } else if (Files.isRegularFile(input) && ProjectFiles.isZip(input)) {
+                boards.add(new Board(stripZip(input.getFileName().toString()), input, true));
+            } else {
+                throw new IllegalArgumentException("Not a ZIP file or directory: " + input);
+            }
+        }
+        // A project is often archived both as a directory and as a ZIP next to it
+        Set<String> names = new HashSet<>();
+        List<Board> unique = new ArrayList<>();
+        for (Board board : boards) {
+            String name = board.name;
+            for (int n = 2; !names.add(name); n++) {
+                name = board.name + "-" + n;
+            }
+            unique.add(name.equals(board.name) ? board : new Board(name, board.source, board.zip));
+        }
+        return unique;
+    }
+
+    /**
+     * Convert one board, reporting the outcome to {@code progress}. Any failure
+     * is contained here so that it cannot affect other boards.
+     */
+    private boolean convert(Board board, Progress progress) {
+        try {
+            Path target = outputDir.resolve(board.name);
+            Path marker = target.resolve(DONE_MARKER);
+            String stamp = board.stamp();
+            if (resume && Files.exists(marker) && Files.readString(marker).equals(stamp)) {
+                progress.skipped();
+                return true;
+            }
+            List<MultiLayerSVGRenderer.Layer> layers = parseLayers(ProjectFiles.read(board.source));
+            if (layers.isEmpty()) {
+                throw new IOException("no Gerber or drill files");
+            }
+            Files.createDirectories(target);
+            Files.deleteIfExists(marker);
+            render(layers, target);
+            Files.writeString(marker, stamp);
+            progress.converted(board.size());
+            return true;
+        } catch (Exception | StackOverflowError e) {
+            Throwable cause = e instanceof RuntimeException && e.getCause() != null ? e.getCause() : e;
+            log.debug("Failed to convert {}", board.name, cause);
+            progress.failed(board.name, cause);
+            return false;
+        }
+    }
+
+    /** Parse all files in parallel; files that fail to parse are dropped, as in the viewer. */
+    private static List<MultiLayerSVGRenderer.Layer> parseLayers(List<Map.Entry<String, String>> files) {
+        List<ForkJoinTask<MultiLayerSVGRenderer.Layer>> tasks = new ArrayList<>();
+        for (Map.Entry<String, String> file : files) {
+            tasks.add(ForkJoinTask.adapt(() -> parseLayer(file.getKey(), file.getValue())));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+        for (ForkJoinTask<MultiLayerSVGRenderer.Layer> task : tasks) {
+            MultiLayerSVGRenderer.Layer layer = task.join();
+            if (layer != null) layers.add(layer);
+        }
+        return layers;
+    }
+
+    private static MultiLayerSVGRenderer.Layer parseLayer(String name, String content) {
+        LayerClassifier.FileType fileType = LayerClassifier.detectFileType(name, content);
+        if (fileType == LayerClassifier.FileType.UNKNOWN) return null;
+        LayerType layerType = LayerClassifier.detectLayerType(name, fileType, content);
+        try {
+            MultiLayerSVGRenderer.Layer layer = fileType == LayerClassifier.FileType.DRILL
+                ? new MultiLayerSVGRenderer.Layer(name, new ExcellonParser().parse(content))
+                : new MultiLayerSVGRenderer.Layer(name, new GerberParser().parse(content));
+            return layer.setColor(GerberViewerServer.getLayerColor(name)).setOpacity(0.85).setLayerType(layerType);
+        } catch (Exception e) {
+            log.warn("Failed to parse {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Render the selected outputs as parallel subtasks. */
+    private void render(List<MultiLayerSVGRenderer.Layer> layers, Path target) {
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+        if (outputs.contains(Output.SVG)) {
+            tasks.add(write(target.resolve("layers.svg"), () -> svgBytes(new MultiLayerSVGRenderer().render(layers))));
+        }
+        for (MultiLayerSVGRenderer.Side side : MultiLayerSVGRenderer.Side.values()) {
+            String prefix = side.name().toLowerCase(Locale.ROOT);
+            boolean top = side == MultiLayerSVGRenderer.Side.TOP;
+            if (outputs.contains(Output.REALISTIC)) {
+                tasks.add(write(target.resolve(prefix + ".svg"),
+                    () -> svgBytes(GerberViewerServer.renderRealisticSide(layers, top))));
+            }
+            if (outputs.contains(Output.PNG)) {
+                tasks.add(write(target.resolve(prefix + ".png"),
+                    () -> new Java2DRenderer().renderRealisticSidePng(layers, side, pngWidth)));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /** A task writing the rendered bytes to {@code file}, or nothing if the render is {@code null}. */
+    private static ForkJoinTask<Void> write(Path file, Callable<byte[]> render) {
+        return ForkJoinTask.adapt(() -> {
+            byte[] data = render.call();
+            if (data != null) {
+                Files.write(file, data);
+            } else {
+                Files.deleteIfExists(file);
+            }
+            return null;
+        });
+    }
+
+    private static byte[] svgBytes(String svg) {
+        return svg != null ? svg.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /** Counts outcomes and prints a throughput line at most once a second, and a final one. */
+    private final class Progress {
+        private final int total;
+        private final long startNanos = System.nanoTime();
+        private final List<String> failures = new ArrayList<>();
+        private int converted;
+        private int skipped;
+        private long convertedBytes;
+        private long lastPrintNanos;
+
+        Progress(int total) {
+            this.total = total;
+            console.printf(Locale.ROOT, "Converting %d boards with %d threads into %s%n", total, threads, outputDir);
+        }
+
+        synchronized void converted(long bytes) {
+            converted++;
+            convertedBytes += bytes;
+            maybePrint();
+        }
+
+        synchronized void skipped() {
+            skipped++;
+            maybePrint();
+        }
+
+        synchronized void failed(String board, Throwable cause) {
+            String failure = board + ": " + (cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            failures.add(failure);
+            console.println("FAILED " + failure);
+            maybePrint();
+        }
+
+        synchronized Summary finish() {
+            print();
+            if (!failures.isEmpty()) {
+                console.printf(Locale.ROOT, "%d boards failed:%n", failures.size());
+                failures.forEach(f -> console.println("  " + f));
+            }
+            return new Summary(converted, skipped, List.copyOf(failures));
+        }
+
+        private void maybePrint() {
+            long now = System.nanoTime();
+            if (now - lastPrintNanos >= 1_000_000_000L) {
+                lastPrintNanos = now;
+                print();
+            }
+        }
+
+        private void print() {
+            double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+            console.printf(Locale.ROOT, "[%d/%d] %d converted, %d skipped, %d failed | %.1f boards/s, %.2f MB/s%n",
+                converted + skipped + failures.size(), total, converted, skipped, failures.size(),
+                converted / seconds, convertedBytes / seconds / (1024 * 1024));
+        }
+    }
+
+    private static boolean hasLayerFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.anyMatch(p -> Files.isRegularFile(p) && isLayerFileName(p));
+        }
+    }
+
+    /** Gerber or drill by extension; content-based detection happens after reading. */
+    private static boolean isLayerFileName(Path p) {
+        String name = p.getFileName().toString();
+        return !name.startsWith(".")
+            && LayerClassifier.detectFileType(name, "") != LayerClassifier.FileType.UNKNOWN;
+    }
+
+    private static String stripZip(String name) {
+        return ProjectFiles.isZip(Path.of(name)) ? name.substring(0, name.length() - 4) : name;
+    }
+
+    /** Output path of a board: its path below the input directory, or the directory's own name. */
+    private static String boardName(Path base, Path board) {
+        String relative = base.relativize(board).toString().replace('\\', '/');
+        return relative.isEmpty() ? base.getFileName().toString() : stripZip(relative);
+    }
+
+    /** Entry point for {@code convert}: exit code 0 if all boards converted, 1 if some failed, 2 on bad usage. */
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.US);
+        System.exit(execute(args));
+    }
+
+    static int execute(String[] args) {
+        BatchConvertCommand command = new BatchConvertCommand();
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--output" -> command.setOutputDir(Path.of(args[++i]));
+                    case "--threads" -> command.setThreads(Integer.parseInt(args[++i]));
+                    case "--formats" -> command.setOutputs(parseOutputs(args[++i]));
+                    case "--png-width" -> command.setPngWidth(Integer.parseInt(args[++i]));
+                    case "--no-resume" -> command.setResume(false);
+                    case "-h", "--help" -> {
+                        System.out.println(USAGE);
+                        return 0;
+                    }
+                    default -> {
+                        if (arg.startsWith("-")) throw new IllegalArgumentException("Unknown option: " + arg);
+                        inputs.add(Path.of(arg));
+                    }
+                }
+            }
+            if (inputs.isEmpty()) throw new IllegalArgumentException("No input ZIP files or directories given");
+            return command.run(inputs).failures.isEmpty() ? 0 : 1;
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid arguments: " + String.join(" ", args));
+            System.err.println(USAGE);
+            return 2;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Conversion failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static Set<Output> parseOutputs(String list) {
+        Set<Output> outputs = EnumSet.noneOf(Output.class);
+        for (String name : list.split(",")) {
+            outputs.add(Output.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        }
+        return outputs;
+    }
+}
@@ -0,0 +1,124 @@
+package com.deltaproto.deltagerber.cli;
+
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detects file and layer types from file names and content, the same way the
+ * web viewer does in the browser ({@code detectFileType}/{@code detectPcbLayerType}
+ * in {@code index.html}), so batch output matches what a user sees after upload.
+ */
+public final class LayerClassifier {
+
+    /** Kind of file, as sent in the {@code fileType} field of the layer protocol. */
+    public enum FileType {
+        GERBER, DRILL, UNKNOWN;
+
+        /** Lower-case protocol name: {@code gerber}, {@code drill} or {@code unknown}. */
+        public String protocolName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final List<String> DRILL_EXTENSIONS = List.of(".drl", ".xln", ".exc", ".ncd", ".drd");
+    private static final List<String> GERBER_EXTENSIONS = List.of(".gbr", ".ger", ".gtl", ".gbl", ".gts", ".gbs",
+        ".gto", ".gbo", ".gtp", ".gbp", ".gm1", ".gko", ".g1", ".g2", ".g3", ".cmp", ".sol", ".stc", ".sts", ".plc",
+        ".pls");
+
+    private static final Pattern FILE_FUNCTION = Pattern.compile("%TF\\.FileFunction,([^*%]+)\\*");
+    private static final Pattern NPTH_NAME = Pattern.compile("-npth(?:[-_.]|$)|nonplated.*drl|npth.*drl");
+    private static final Pattern PTH_NAME = Pattern.compile("-pth(?:[-_.]|$)|[-_.]drl\\.|drill\\.gbr$");
+    private static final Pattern OUTLINE_NAME = Pattern.compile("\\.gko$|\\.gm\\d*$|edge|outline|boardoutline|profile");
+    private static final Pattern COORDINATES = Pattern.compile("X\\d+Y\\d+");
+    private static final Pattern D01 = Pattern.compile("D01\\b");
+    private static final Pattern D02 = Pattern.compile("D02\\b");
+
+    private LayerClassifier() {
+    }
+
+    /** Gerber, drill or unknown, from the extension and, failing that, the content. */
+    public static FileType detectFileType(String name, String content) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (DRILL_EXTENSIONS.stream().anyMatch(lower::endsWith)) return FileType.DRILL;
+        if (lower.endsWith(".txt") && (content.contains("M48") || content.contains("T01C")
+                || content.contains("METRIC") || content.contains("INCH"))) return FileType.DRILL;
+        if (content.contains("M48") || content.contains("T01C")) return FileType.DRILL;
+        if (content.contains("%FS") || content.contains("%MO")
+                || content.contains("G04") || content.contains("%ADD")) return FileType.GERBER;
+        if (GERBER_EXTENSIONS.stream().anyMatch(lower::endsWith)) return FileType.GERBER;
+        return FileType.UNKNOWN;
+    }
+
+    /**
+     * The PCB layer a file belongs to. The Gerber X2 {@code TF.FileFunction}
+     * attribute wins over the file name for drill data; {@code content} may be
+     * {@code null} when only the name is known.
+     */
+    public static LayerType detectLayerType(String name, FileType fileType, String content) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (fileType == FileType.DRILL) return LayerType.DRILL;
+
+        // KiCad (and other EDAs) emit drill data as Gerber X2 with a .gbr extension
+        if (content != null) {
+            Matcher ff = FILE_FUNCTION.matcher(content);
+            if (ff.find()) {
+                List<String> parts = Arrays.stream(ff.group(1).split(",")).map(String::trim).toList();
+                // KiCad's NPTH export omits the trailing "Drill" token
+                if (parts.contains("NPTH")) return LayerType.DRILL_NON_PLATED;
+                if (parts.contains("PTH")) return LayerType.DRILL_PLATED;
+                if (parts.contains("Drill") || parts.contains("Route")) {
+                    if (parts.contains("NonPlated")) return LayerType.DRILL_NON_PLATED;
+                    if (parts.contains("Plated")) return LayerType.DRILL_PLATED;
+                    return LayerType.DRILL;
+                }
+            }
+        }
+        if (NPTH_NAME.matcher(lower).find()) return LayerType.DRILL_NON_PLATED;
+        if (PTH_NAME.matcher(lower).find()) return LayerType.DRILL_PLATED;
+
+        if (OUTLINE_NAME.matcher(lower).find()) {
+            if (content == null) return LayerType.OUTLINE;
+            if (!COORDINATES.matcher(content).find()) return LayerType.OTHER;
+            // A connected outline has more draws (D01) than moves (D02); disconnected
+            // corner markers have at least as many moves as draws
+            long d01 = D01.matcher(content).results().count();
+            long d02 = D02.matcher(content).results().count();
+            if (d01 > 0 && d02 >= d01) return LayerType.OTHER;
+            return LayerType.OUTLINE;
+        }
+        if (matches(lower, "gtl", "f_cu", "f.cu", "top_copper", "copper_top") || lower.endsWith(".cmp")) {
+            return LayerType.COPPER_TOP;
+        }
+        if (matches(lower, "gbl", "b_cu", "b.cu", "bottom_copper", "copper_bottom") || lower.endsWith(".sol")) {
+            return LayerType.COPPER_BOTTOM;
+        }
+        if (matches(lower, "gts", "f_mask", "f.mask", "soldermask_top", "top_mask") || lower.endsWith(".stc")) {
+            return LayerType.SOLDERMASK_TOP;
+        }
+        if (matches(lower, "gbs", "b_mask", "b.mask", "soldermask_bottom", "bottom_mask") || lower.endsWith(".sts")) {
+            return LayerType.SOLDERMASK_BOTTOM;
+        }
+        if (matches(lower, "gto", "f_silks", "f.silkscreen", "silkscreen_top", "top_silk") || lower.endsWith(".plc")) {
+            return LayerType.SILKSCREEN_TOP;
+        }
+        if (matches(lower, "gbo", "b_silks", "b.silkscreen", "silkscreen_bottom", "bottom_silk")
+                || lower.endsWith(".pls")) {
+            return LayerType.SILKSCREEN_BOTTOM;
+        }
+        if (matches(lower, "gtp", "f_paste")) return LayerType.PASTE_TOP;
+        if (matches(lower, "gbp", "b_paste")) return LayerType.PASTE_BOTTOM;
+        return LayerType.OTHER;
+    }
+
+    private static boolean matches(String lower, String... fragments) {
+        for (String fragment : fragments) {
+            if (lower.contains(fragment)) return true;
+        }
+        return false;
+    }
+}
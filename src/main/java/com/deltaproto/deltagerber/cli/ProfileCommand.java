@@ -0,0 +1,371 @@
+package com.deltaproto.deltagerber.cli;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
+import com.deltaproto.deltagerber.renderer.raster.Java2DRenderer;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.web.GerberViewerServer;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Breaks down where time and memory go for one project, to answer "the viewer
+ * is slow on my board" without guessing.
+ * <p>
+ * The project is parsed and rendered through the same entry points the server
+ * uses: every file through {@link GerberParser} or {@link ExcellonParser}, then
+ * the combined layer view, both realistic sides and a top thumbnail PNG drawn
+ * by {@link Java2DRenderer}. A {@link PipelineListener} samples wall time, CPU
+ * time and allocated bytes of the calling thread around every stage and render
+ * section. After warm-up the measured iterations are averaged into one row per
+ * layer or view and stage:
+ * <pre>
+ * layer / view        stage      calls   wall ms    cpu ms   alloc MB    objects  output KB
+ * board.GTL           lex            1     12.31     12.10       8.20      40123
+ * board.GTL           parse          1     20.02     19.87      11.90       5012
+ * board.GTL           defs           3      0.41      0.40       0.10                  6.2
+ * realistic top       svg            1     80.12     79.50      60.31                812.0
+ * </pre>
+ * Sections (defs, masks, bodies, outline) are attributed to the layer they
+ * were generated from and are part of their view's {@code svg} row. With
+ * {@code --jfr} the measured iterations are also recorded with JFR's
+ * {@code profile} settings, including the pipeline's own events.
+ */
+public final class ProfileCommand {
+
+    private static final String USAGE = String.join("\n",
+        "Usage: java -jar delta-gerber.jar profile [options] <project.zip-or-directory>",
+        "  --warmup N       warm-up iterations, not reported (default 3)",
+        "  --iterations N   measured iterations, averaged (default 5)",
+        "  --png-width N    thumbnail width in pixels (default 400)",
+        "  --jfr FILE       also write a JFR recording of the measured iterations");
+
+    private static final List<String> STAGE_ORDER =
+        List.of("lex", "parse", "defs", "masks", "bodies", "outline", "svg", "rasterize");
+
+    private int warmup = 3;
+    private int iterations = 5;
+    private int pngWidth = 400;
+    private Path jfrFile;
+    private PrintStream console = System.out;
+
+    public ProfileCommand setWarmup(int warmup) {
+        if (warmup < 0) throw new IllegalArgumentException("warmup must not be negative");
+        this.warmup = warmup;
+        return this;
+    }
+
+    public ProfileCommand setIterations(int iterations) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be at least 1");
+        this.iterations = iterations;
+        return this;
+    }
+
+    public ProfileCommand setPngWidth(int pngWidth) {
+        if (pngWidth < 1 || pngWidth > 4000) throw new IllegalArgumentException("PNG width must be 1-4000");
+        this.pngWidth = pngWidth;
+        return this;
+    }
+
+    /** Also record the measured iterations with JFR into {@code jfrFile} ({@code null} for none). */
+    public ProfileCommand setJfrFile(Path jfrFile) {
+        this.jfrFile = jfrFile;
+        return this;
+    }
+
+    public ProfileCommand setConsole(PrintStream console) {
+        this.console = console;
+        return this;
+    }
+
+    /** Profile a project ZIP or directory and print the report. */
+    public void run(Path project) throws IOException {
+        List<Map.Entry<String, String>> files = ProjectFiles.read(project);
+        long inputBytes = files.stream().mapToLong(f -> f.getValue().length()).sum();
+        console.printf(Locale.ROOT, "Profiling %s: %d files, %.2f MB, %d warm-up + %d measured iterations%n",
+            project.getFileName(), files.size(), inputBytes / (1024.0 * 1024), warmup, iterations);
+
+        Recorder recorder = new Recorder();
+        for (int i = 0; i < warmup; i++) {
+            iteration(files, recorder);
+        }
+        Recording recording = startRecording();
+        recorder.recording = true;
+        try {
+            for (int i = 0; i < iterations; i++) {
+                iteration(files, recorder);
+            }
+        } finally {
+            recorder.recording = false;
+            if (recording != null) {
+                recording.stop();
+                recording.dump(jfrFile);
+                recording.close();
+            }
+        }
+        print(recorder);
+        if (recording != null) {
+            console.println("JFR recording written to " + jfrFile);
+        }
+    }
+
+    private Recording startRecording() throws IOException {
+        if (jfrFile == null) return null;
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("profile"));
+            recording.setName("delta-gerber profile");
+            recording.start();
+            return recording;
+        } catch (ParseException e) {
+            throw new IOException("Cannot load the JFR profile configuration", e);
+        }
+    }
+
+    /** Parse and render the project once, as the viewer would. */
+    private void iteration(List<Map.Entry<String, String>> files, Recorder recorder) {
+        recorder.documentLayers.clear();
+        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+        for (Map.Entry<String, String> file : files) {
+            String name = file.getKey();
+            String content = file.getValue();
+            LayerClassifier.FileType fileType = LayerClassifier.detectFileType(name, content);
+            if (fileType == LayerClassifier.FileType.UNKNOWN) continue;
+            recorder.scope = name;
+            try {
+                MultiLayerSVGRenderer.Layer layer;
+                if (fileType == LayerClassifier.FileType.DRILL) {
+                    DrillDocument doc = new ExcellonParser().setListener(recorder).parse(content);
+                    recorder.documentLayers.put(doc, name);
+                    layer = new MultiLayerSVGRenderer.Layer(name, doc);
+                } else {
+                    GerberDocument doc = new GerberParser().setListener(recorder).parse(content);
+                    recorder.documentLayers.put(doc, name);
+                    layer = new MultiLayerSVGRenderer.Layer(name, doc);
+                }
+                layers.add(layer.setColor(GerberViewerServer.getLayerColor(name)).setOpacity(0.85)
+                    .setLayerType(LayerClassifier.detectLayerType(name, fileType, content)));
+            } catch (Exception e) {
+                if (recorder.skipped.add(name)) {
+                    console.println("Skipping " + name + ": " + e.getMessage());
+                }
+            }
+        }
+
+        recorder.scope = "layers view";
+        new MultiLayerSVGRenderer().setListener(recorder).render(layers);
+        recorder.scope = "realistic top";
+        GerberViewerServer.renderRealisticSide(layers, true, null, recorder);
+        recorder.scope = "realistic bottom";
+        GerberViewerServer.renderRealisticSide(layers, false, null, recorder);
+        recorder.scope = "top thumbnail";
+        new Java2DRenderer().setListener(recorder)
+            .renderRealisticSidePng(layers, MultiLayerSVGRenderer.Side.TOP, pngWidth);
+    }
+
+    /** Totals of one layer-or-view and stage over the measured iterations. */
+    private static final class Row {
+        final String scope;
+        final String stage;
+        long calls;
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;
+        long objects;
+        long output;
+
+        Row(String scope, String stage) {
+            this.scope = scope;
+            this.stage = stage;
+        }
+
+        void add(Row other) {
+            calls += other.calls;
+            wallNanos += other.wallNanos;
+            cpuNanos += other.cpuNanos;
+            allocatedBytes += other.allocatedBytes;
+            objects += other.objects;
+            output += other.output;
+        }
+    }
+
+    /**
+     * Samples the current thread at the start and end of every stage and
+     * section; stages and sections nest, so open samples are kept on a stack.
+     */
+    private static final class Recorder implements PipelineListener {
+        private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private final Deque<long[]> open = new ArrayDeque<>();
+        final Map<String, Row> rows = new LinkedHashMap<>();
+        final Map<Object, String> documentLayers = new IdentityHashMap<>();
+        final Set<String> skipped = new HashSet<>();
+        boolean recording;
+        String scope;
+
+        Row row(String scope, String stage) {
+            return rows.computeIfAbsent(scope + '\0' + stage, k -> new Row(scope, stage));
+        }
+
+        private void start() {
+            open.push(new long[] {threads.getCurrentThreadCpuTime(), threads.getCurrentThreadAllocatedBytes()});
+        }
+
+        private void finish(String scope, String stage, long nanos, long output) {
+            long[] startSample = open.pop();
+            if (!recording) return;
+            Row row = row(scope, stage);
+            row.calls++;
+            row.wallNanos += nanos;
+            row.cpuNanos += threads.getCurrentThreadCpuTime() - startSample[0];
+            row.allocatedBytes += threads.getCurrentThreadAllocatedBytes() - startSample[1];
+            row.output += output;
+        }
+
+        @Override
+        public void stageStarted(Stage stage) {
+            start();
+        }
+
+        @Override
+        public void stageFinished(Stage stage, long nanos) {
+            finish(scope, stageName(stage), nanos, 0);
+        }
+
+        @Override
+        public void sectionStarted(Section section) {
+            start();
+        }
+
+        @Override
+        public void sectionFinished(Section section, Object document, long nanos, long characters) {
+            finish(documentLayers.getOrDefault(document, scope), section.name().toLowerCase(Locale.ROOT),
+                nanos, characters);
+        }
+
+        @Override
+        public void tokensLexed(int tokens) {
+            if (recording) row(scope, "lex").objects += tokens;
+        }
+
+        @Override
+        public void objectsParsed(int objects) {
+            if (recording) row(scope, "parse").objects += objects;
+        }
+
+        @Override
+        public void bytesEmitted(Stage stage, long bytes) {
+            if (recording) row(scope, stageName(stage)).output += bytes;
+        }
+
+        private static String stageName(Stage stage) {
+            return stage == Stage.SVG_RENDER ? "svg" : stage.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private void print(Recorder recorder) {
+        // Layers in file order, then views; each with its stages in pipeline order
+        List<String> scopes = new ArrayList<>();
+        for (Row row : recorder.rows.values()) {
+            if (!scopes.contains(row.scope)) scopes.add(row.scope);
+        }
+        int width = 12;
+        for (String scope : scopes) width = Math.max(width, Math.min(40, scope.length()));
+        String header = "%-" + width + "s  %-9s %6s %9s %9s %10s %10s %10s%n";
+        console.printf(Locale.ROOT, header,
+            "layer / view", "stage", "calls", "wall ms", "cpu ms", "alloc MB", "objects", "output KB");
+
+        Map<String, Row> totals = new LinkedHashMap<>();
+        for (String stage : STAGE_ORDER) totals.put(stage, new Row("total", stage));
+        for (String scope : scopes) {
+            for (String stage : STAGE_ORDER) {
+                Row row = recorder.rows.get(scope + '\0' + stage);
+                if (row == null) continue;
+                printRow(row, width);
+                totals.get(stage).add(row);
+            }
+        }
+        console.println();
+        for (Row total : totals.values()) {
+            if (total.calls > 0) printRow(total, width);
+        }
+        console.println("Averages per iteration. defs, masks, bodies and outline are included in svg;"
+            + " objects are tokens for lex and graphics objects for parse.");
+    }
+
+    private void printRow(Row row, int width) {
+        double n = iterations;
+        String scope = row.scope.length() > width ? "..." + row.scope.substring(row.scope.length() - width + 3)
+            : row.scope;
+        console.printf(Locale.ROOT, "%-" + width + "s  %-9s %6s %9.2f %9.2f %10.2f %10s %10s%n",
+            scope, row.stage,
+            format(row.calls / n, 1),
+            row.wallNanos / n / 1e6,
+            row.cpuNanos / n / 1e6,
+            row.allocatedBytes / n / (1024 * 1024),
+            row.objects > 0 ? String.valueOf(Math.round(row.objects / n)) : "",
+            row.output > 0 ? format(row.output / n / 1024, 1) : "");
+    }
+
+    private static String format(double value, int decimals) {
+        return value == Math.rint(value) ? String.valueOf((long) value)
+            : String.format(Locale.ROOT, "%." + decimals + "f", value);
+    }
+
+    /** Entry point for {@code profile}: exit code 0 on success, 1 on I/O errors, 2 on bad usage. */
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.US);
+        System.exit(execute(args));
+    }
+
+    static int execute(String[] args) {
+        ProfileCommand command = new ProfileCommand();
+        Path project = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--warmup" -> command.setWarmup(Integer.parseInt(args[++i]));
+                    case "--iterations" -> command.setIterations(Integer.parseInt(args[++i]));
+                    case "--png-width" -> command.setPngWidth(Integer.parseInt(args[++i]));
+                    case "--jfr" -> command.setJfrFile(Path.of(args[++i]));
+                    case "-h", "--help" -> {
+                        System.out.println(USAGE);
+                        return 0;
+                    }
+                    default -> {
+                        if (arg.startsWith("-") || project != null) {
+                            throw new IllegalArgumentException("Unexpected argument: " + arg);
+                        }
+                        project = Path.of(arg);
+                    }
+                }
+            }
+            if (project == null) throw new IllegalArgumentException("No project ZIP or directory given");
+            if (!Files.exists(project)) throw new IllegalArgumentException("Not found: " + project);
+            command.run(project);
+            return 0;
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid arguments: " + String.join(" ", args));
+            System.err.println(USAGE);
+            return 2;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Profiling failed: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.deltaproto.deltagerber.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the files of a project, given as a ZIP or a directory. Hidden files
+ * and macOS {@code __MACOSX} metadata are skipped; classification is left to
+ * {@link LayerClassifier}.
+ */
+final class ProjectFiles {
+
+    private ProjectFiles() {
+    }
+
+    static boolean isZip(Path p) {
+        return p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    /**
+     * Regular files directly in {@code dir}, all of them since drill files are
+     * often only recognizable by content.
+     */
+    static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Files::isRegularFile)
+                .filter(p -> !p.getFileName().toString().startsWith(".")).sorted().toList();
+        }
+    }
+
+    /** Name and content of every file of a ZIP or directory project, in name order. */
+    static List<Map.Entry<String, String>> read(Path project) throws IOException {
+        List<Map.Entry<String, String>> files = new ArrayList<>();
+        if (Files.isDirectory(project)) {
+            for (Path p : list(project)) {
+                files.add(Map.entry(p.getFileName().toString(), Files.readString(p)));
+            }
+            return files;
+        }
+        try (ZipFile zipFile = new ZipFile(project.toFile())) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                String path = entry.getName();
+                String fileName = path.substring(path.lastIndexOf('/') + 1);
+                if (entry.isDirectory() || path.contains("__MACOSX/") || fileName.startsWith(".")) continue;
+                byte[] data = zipFile.getInputStream(entry).readAllBytes();
+                files.add(Map.entry(fileName, new String(data, StandardCharsets.UTF_8)));
+            }
+        }
+        files.sort(Map.Entry.comparingByKey());
+        return files;
+    }
+}
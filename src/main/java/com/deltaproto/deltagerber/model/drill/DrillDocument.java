@@ -1,6 +1,7 @@
 package com.deltaproto.deltagerber.model.drill;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.SpatialIndex;
 import com.deltaproto.deltagerber.model.gerber.Unit;
 
 import java.util.ArrayList;
@@ -24,17 +25,20 @@ public class DrillDocument {
     private final List<DrillOperation> operations = new ArrayList<>();
     private final List<String> comments = new ArrayList<>();
 
-    private BoundingBox boundingBox;
+    // Computed lazily; volatile so documents shared between render threads see a complete box
+    private volatile BoundingBox boundingBox;
+    private volatile SpatialIndex spatialIndex;
 
     public DrillDocument() {
     }
 
     public BoundingBox calculateBoundingBox() {
-        boundingBox = new BoundingBox();
+        BoundingBox bbox = new BoundingBox();
         for (DrillOperation op : operations) {
-            boundingBox.include(op.getBoundingBox());
+            bbox.include(op.getBoundingBox());
         }
-        return boundingBox;
+        boundingBox = bbox;
+        return bbox;
     }
 
     public BoundingBox getBoundingBox() {
@@ -42,6 +46,23 @@ public class DrillDocument {
         return boundingBox;
     }
 
+    /**
+     * Index of the operations' extents, for renderers that draw only part of
+     * the document. Built on first use; the operations must not change afterwards.
+     */
+    public SpatialIndex getSpatialIndex() {
+        SpatialIndex index = spatialIndex;
+        if (index == null) {
+            List<BoundingBox> bounds = new ArrayList<>(operations.size());
+            for (DrillOperation op : operations) {
+                bounds.add(op.getBoundingBox());
+            }
+            index = new SpatialIndex(bounds);
+            spatialIndex = index;
+        }
+        return index;
+    }
+
     public void addTool(Tool tool) {
         tools.put(tool.getNumber(), tool);
     }
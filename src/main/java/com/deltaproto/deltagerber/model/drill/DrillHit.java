@@ -30,13 +30,6 @@ public class DrillHit extends DrillOperation {
         return new BoundingBox(x - r, y - r, x + r, y + r);
     }
 
-    @Override
-    public String toSvg() {
-        return String.format(java.util.Locale.US,
-            "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"currentColor\"/>",
-            x, y, tool.getDiameter() / 2);
-    }
-
     @Override
     public String toString() {
         return String.format("DrillHit[%.4f, %.4f, T%d]", x, y, tool.getNumber());
@@ -1,6 +1,11 @@
 package com.deltaproto.deltagerber.model.drill;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.RenderTraversal;
+import com.deltaproto.deltagerber.renderer.svg.SvgMarkupWriter;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgRenderBackend;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
 
 /**
  * Base class for drill operations (hits and slots).
@@ -25,5 +30,17 @@ public abstract class DrillOperation {
     /**
      * Generate SVG for this operation.
      */
-    public abstract String toSvg();
+    public String toSvg() {
+        StringBuilder svg = new StringBuilder();
+        writeSvg(SvgMarkupWriter.compact(svg));
+        return svg.toString();
+    }
+
+    /**
+     * Write the SVG for this operation to {@code out}.
+     * @see SvgRenderBackend
+     */
+    public void writeSvg(SvgWriter out) {
+        RenderTraversal.operation(this, new SvgRenderBackend(out, SvgOptions.exact()));
+    }
 }
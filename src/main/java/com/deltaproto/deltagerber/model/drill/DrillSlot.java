@@ -47,15 +47,6 @@ public class DrillSlot extends DrillOperation {
         return bbox;
     }
 
-    @Override
-    public String toSvg() {
-        // Render slot as a path with M/L commands (line with round caps)
-        return String.format(java.util.Locale.US,
-            "<path d=\"M %.6f %.6f L %.6f %.6f\" " +
-            "stroke=\"currentColor\" stroke-width=\"%.6f\" stroke-linecap=\"round\" fill=\"none\"/>",
-            startX, startY, endX, endY, tool.getDiameter());
-    }
-
     @Override
     public String toString() {
         return String.format("DrillSlot[%.4f,%.4f -> %.4f,%.4f, T%d]",
@@ -3,6 +3,7 @@ package com.deltaproto.deltagerber.model.gerber;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
 import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
 import com.deltaproto.deltagerber.model.gerber.attribute.FileAttribute;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
 import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
 
 import java.util.ArrayList;
@@ -25,7 +26,9 @@ public class GerberDocument {
     private final List<GraphicsObject> objects = new ArrayList<>();
     private final List<String> warnings = new ArrayList<>();
 
-    private BoundingBox boundingBox;
+    // Computed lazily; volatile so documents shared between render threads see a complete box
+    private volatile BoundingBox boundingBox;
+    private volatile SpatialIndex spatialIndex;
 
     public GerberDocument() {
     }
@@ -34,11 +37,12 @@ public class GerberDocument {
      * Calculate the bounding box of all graphics objects.
      */
     public BoundingBox calculateBoundingBox() {
-        boundingBox = new BoundingBox();
+        BoundingBox bbox = new BoundingBox();
         for (GraphicsObject obj : objects) {
-            boundingBox.include(obj.getBoundingBox());
+            bbox.include(obj.getBoundingBox());
         }
-        return boundingBox;
+        boundingBox = bbox;
+        return bbox;
     }
 
     /**
@@ -195,6 +199,40 @@ public class GerberDocument {
         return boundingBox;
     }
 
+    /**
+     * Index of the objects' extents, for renderers that draw only part of the
+     * document. Built on first use; the objects must not change afterwards.
+     */
+    public SpatialIndex getSpatialIndex() {
+        SpatialIndex index = spatialIndex;
+        if (index == null) {
+            List<BoundingBox> bounds = new ArrayList<>(objects.size());
+            for (GraphicsObject obj : objects) {
+                bounds.add(paintedBounds(obj));
+            }
+            index = new SpatialIndex(bounds);
+            spatialIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * The object's bounding box, widened for transformed flashes: their box is
+     * the untransformed aperture's, so use the circle the aperture can turn in.
+     */
+    private static BoundingBox paintedBounds(GraphicsObject obj) {
+        if (obj instanceof Flash flash && (flash.getRotation() != 0 || flash.getScale() != 1.0
+                || flash.isMirrorX() || flash.isMirrorY())) {
+            BoundingBox ap = flash.getAperture().getBoundingBox();
+            if (!ap.isValid()) return ap;
+            double rx = Math.max(Math.abs(ap.getMinX()), Math.abs(ap.getMaxX()));
+            double ry = Math.max(Math.abs(ap.getMinY()), Math.abs(ap.getMaxY()));
+            double r = Math.hypot(rx, ry) * Math.abs(flash.getScale());
+            return new BoundingBox(flash.getX() - r, flash.getY() - r, flash.getX() + r, flash.getY() + r);
+        }
+        return obj.getBoundingBox();
+    }
+
     public List<String> getWarnings() {
         return warnings;
     }
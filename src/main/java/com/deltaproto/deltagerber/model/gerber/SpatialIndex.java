@@ -0,0 +1,161 @@
+package com.deltaproto.deltagerber.model.gerber;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Uniform grid over the bounding boxes of a document's objects, answering which
+ * objects may touch a rectangle. Renderers that draw a small window of a large
+ * document (map tiles, say) use it to skip everything outside.
+ * <p>
+ * Queries return object indices as a {@link BitSet}, so callers iterate the
+ * selection in document order and the painter's model is preserved. Objects
+ * spanning many cells are kept in a separate list and tested directly; objects
+ * without a valid box are always selected. Instances are immutable and safe to
+ * share between threads.
+ */
+public final class SpatialIndex {
+
+    // Aim for a handful of objects per cell; finer grids cost more memory than they save
+    private static final int OBJECTS_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_AXIS = 1024;
+    // Objects covering more cells than this are tested on every query instead
+    private static final int MAX_CELLS_PER_OBJECT = 16;
+
+    private final int size;
+    private final double[] boxes;     // minX, minY, maxX, maxY per object
+    private final double originX;
+    private final double originY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;    // objects of cell c are cellObjects[cellStart[c] .. cellStart[c + 1])
+    private final int[] cellObjects;
+    private final int[] unbinned;     // large objects, and those without a valid box
+
+    /**
+     * @param bounds the extent of each object, in document order
+     */
+    public SpatialIndex(List<BoundingBox> bounds) {
+        size = bounds.size();
+        boxes = new double[size * 4];
+        BoundingBox extent = new BoundingBox();
+        for (int i = 0; i < size; i++) {
+            BoundingBox box = bounds.get(i);
+            if (box != null && box.isValid()) {
+                boxes[4 * i] = box.getMinX();
+                boxes[4 * i + 1] = box.getMinY();
+                boxes[4 * i + 2] = box.getMaxX();
+                boxes[4 * i + 3] = box.getMaxY();
+                extent.include(box);
+            } else {
+                boxes[4 * i] = Double.NaN;
+            }
+        }
+
+        double width = Math.max(extent.getWidth(), 1e-9);
+        double height = Math.max(extent.getHeight(), 1e-9);
+        double cells = Math.max(1.0, (double) size / OBJECTS_PER_CELL);
+        columns = clamp((int) Math.round(Math.sqrt(cells * width / height)));
+        rows = clamp((int) Math.round(cells / columns));
+        originX = extent.isValid() ? extent.getMinX() : 0;
+        originY = extent.isValid() ? extent.getMinY() : 0;
+        cellWidth = width / columns;
+        cellHeight = height / rows;
+
+        // Two passes: count per cell, then fill
+        cellStart = new int[columns * rows + 1];
+        int unbinnedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (isUnbinned(i)) {
+                unbinnedCount++;
+                continue;
+            }
+            for (int r = row(boxes[4 * i + 1]), r1 = row(boxes[4 * i + 3]); r <= r1; r++) {
+                for (int c = column(boxes[4 * i]), c1 = column(boxes[4 * i + 2]); c <= c1; c++) {
+                    cellStart[r * columns + c + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellObjects = new int[cellStart[columns * rows]];
+        unbinned = new int[unbinnedCount];
+        int[] fill = new int[columns * rows];
+        unbinnedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (isUnbinned(i)) {
+                unbinned[unbinnedCount++] = i;
+                continue;
+            }
+            for (int r = row(boxes[4 * i + 1]), r1 = row(boxes[4 * i + 3]); r <= r1; r++) {
+                for (int c = column(boxes[4 * i]), c1 = column(boxes[4 * i + 2]); c <= c1; c++) {
+                    int cell = r * columns + c;
+                    cellObjects[cellStart[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+    }
+
+    /** Number of objects indexed. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indices of the objects whose box intersects the given rectangle (edges
+     * included), plus those without a valid box.
+     */
+    public BitSet query(double minX, double minY, double maxX, double maxY) {
+        BitSet selected = new BitSet(size);
+        for (int i : unbinned) {
+            if (Double.isNaN(boxes[4 * i]) || intersects(i, minX, minY, maxX, maxY)) {
+                selected.set(i);
+            }
+        }
+        int c0 = column(minX);
+        int c1 = column(maxX);
+        int r0 = row(minY);
+        int r1 = row(maxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * columns + c;
+                for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++) {
+                    int i = cellObjects[k];
+                    if (!selected.get(i) && intersects(i, minX, minY, maxX, maxY)) {
+                        selected.set(i);
+                    }
+                }
+            }
+        }
+        return selected;
+    }
+
+    private boolean isUnbinned(int i) {
+        if (Double.isNaN(boxes[4 * i])) return true;
+        long cells = (long) (column(boxes[4 * i + 2]) - column(boxes[4 * i]) + 1)
+            * (row(boxes[4 * i + 3]) - row(boxes[4 * i + 1]) + 1);
+        return cells > MAX_CELLS_PER_OBJECT;
+    }
+
+    private boolean intersects(int i, double minX, double minY, double maxX, double maxY) {
+        return boxes[4 * i] <= maxX && boxes[4 * i + 2] >= minX
+            && boxes[4 * i + 1] <= maxY && boxes[4 * i + 3] >= minY;
+    }
+
+    // Coordinates outside the grid clamp to its border cells, which is
+    // conservative for queries reaching past the document's extent
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - originX) / cellWidth)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - originY) / cellHeight)));
+    }
+
+    private static int clamp(int cells) {
+        return Math.max(1, Math.min(MAX_CELLS_PER_AXIS, cells));
+    }
+}
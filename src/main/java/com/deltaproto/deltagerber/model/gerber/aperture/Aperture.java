@@ -1,7 +1,13 @@
 package com.deltaproto.deltagerber.model.gerber.aperture;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgMarkupWriter;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
 
 /**
  * Base class for all aperture types.
@@ -43,5 +49,30 @@ public abstract class Aperture {
      * @param options output options (exact or polygonized)
      * @return SVG element string for the defs section
      */
-    public abstract String toSvgDef(String id, SvgOptions options);
+    public String toSvgDef(String id, SvgOptions options) {
+        StringBuilder svg = new StringBuilder();
+        writeSvgDef(SvgMarkupWriter.compact(svg), id, options);
+        return svg.toString();
+    }
+
+    /**
+     * Write the SVG definition for this aperture, one element with the given id.
+     * @see #toSvgDef(String, SvgOptions)
+     */
+    public abstract void writeSvgDef(SvgWriter out, String id, SvgOptions options);
+
+    /**
+     * The aperture as a Java2D shape centered at the origin, in mm, for raster
+     * rendering. Holes are cut out with the even-odd rule.
+     */
+    public abstract Shape toShape();
+
+    /** {@code shape} with a round hole of the given diameter at the origin. */
+    protected static Shape withHole(Shape shape, double holeDiameter) {
+        double hr = holeDiameter / 2;
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+        path.append(shape, false);
+        path.append(new Ellipse2D.Double(-hr, -hr, holeDiameter, holeDiameter), false);
+        return path;
+    }
 }
@@ -3,6 +3,10 @@ package com.deltaproto.deltagerber.model.gerber.aperture;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
 
 /**
  * Circle aperture (template code 'C').
@@ -50,7 +54,7 @@ public class CircleAperture extends Aperture {
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
+    public void writeSvgDef(SvgWriter out, String id, SvgOptions options) {
         double r = diameter / 2;
 
         if (options.isPolygonize()) {
@@ -58,12 +62,11 @@ public class CircleAperture extends Aperture {
             String pathData;
             if (hasHole()) {
                 double hr = holeDiameter / 2;
-                pathData = SvgPathUtils.annulusPath(0, 0, r, hr, options.getCircleSegments());
+                pathData = SvgPathUtils.annulusPath(0, 0, r, hr, options);
             } else {
-                pathData = SvgPathUtils.circlePath(0, 0, r, options.getCircleSegments());
+                pathData = SvgPathUtils.circlePath(0, 0, r, options);
             }
-            return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                id, pathData);
+            out.start("path").attr("id", id).attr("d", pathData).attr("fill-rule", "evenodd").end();
         } else {
             // Exact mode: use native SVG elements
             if (hasHole()) {
@@ -75,16 +78,20 @@ public class CircleAperture extends Aperture {
                     "M %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 Z",    // Inner CCW
                     r, r, r, -r, r, r, r,
                     hr, hr, hr, -hr, hr, hr, hr);
-                return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                    id, pathData);
+                out.start("path").attr("id", id).attr("d", pathData).attr("fill-rule", "evenodd").end();
             } else {
-                return String.format(java.util.Locale.US,
-                    "<circle id=\"%s\" cx=\"0\" cy=\"0\" r=\"%.6f\"/>",
-                    id, r);
+                out.start("circle").attr("id", id).attr("cx", "0").attr("cy", "0").attr("r", r).end();
             }
         }
     }
 
+    @Override
+    public Shape toShape() {
+        double r = diameter / 2;
+        Shape circle = new Ellipse2D.Double(-r, -r, diameter, diameter);
+        return hasHole() ? withHole(circle, holeDiameter) : circle;
+    }
+
     @Override
     public String toString() {
         if (hasHole()) {
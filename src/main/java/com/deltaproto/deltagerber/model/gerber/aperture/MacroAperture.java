@@ -4,7 +4,10 @@ import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroPrimitive;
 import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
 
+import java.awt.Shape;
+import java.awt.geom.Area;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -55,24 +58,57 @@ public class MacroAperture extends Aperture {
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
-        StringBuilder svg = new StringBuilder();
-        svg.append(String.format("<g id=\"%s\">", id));
+    public void writeSvgDef(SvgWriter out, String id, SvgOptions options) {
+        out.start("g").attr("id", id);
+        // Primitives render fill="currentColor" (the sentinel used for defs).
+        // In SVG, currentColor reads the CSS `color` property — not `fill` — so
+        // fill="white" on a <use> element does NOT cascade into the shapes.
+        // Dropping the fill attribute lets shapes inherit fill from the <use>,
+        // which is the correct behaviour for both normal rendering and mask contexts
+        // (sm-mask uses fill="black", cf-mask uses fill="white").
+        SvgWriter primitives = new SvgWriter() {
+            @Override
+            public SvgWriter start(String name) {
+                out.start(name);
+                return this;
+            }
 
-        for (MacroPrimitive primitive : template.getPrimitives()) {
-            String primSvg = primitive.toSvg(evaluatedVariables, options, unitFactor);
-            if (primSvg != null && !primSvg.isEmpty()) {
-                // Primitives render fill="currentColor" (the sentinel used for defs).
-                // In SVG, currentColor reads the CSS `color` property — not `fill` — so
-                // fill="white" on a <use> element does NOT cascade into the shapes.
-                // Removing the fill attribute lets shapes inherit fill from the <use>,
-                // which is the correct behaviour for both normal rendering and mask contexts
-                // (sm-mask uses fill="black", cf-mask uses fill="white").
-                svg.append(primSvg.replace(" fill=\"currentColor\"", ""));
+            @Override
+            public SvgWriter attr(String name, String value) {
+                if (!("fill".equals(name) && "currentColor".equals(value))) {
+                    out.attr(name, value);
+                }
+                return this;
             }
+
+            @Override
+            public SvgWriter end() {
+                out.end();
+                return this;
+            }
+        };
+        for (MacroPrimitive primitive : template.getPrimitives()) {
+            primitive.writeSvg(primitives, evaluatedVariables, options, unitFactor);
         }
+        out.end();
+    }
 
-        svg.append("</g>");
-        return svg.toString();
+    /**
+     * Exposed primitives are added and exposure-off primitives cut away from
+     * what the earlier primitives built up, in template order.
+     */
+    @Override
+    public Shape toShape() {
+        Area area = new Area();
+        for (MacroPrimitive primitive : template.getPrimitives()) {
+            Shape shape = primitive.toShape(evaluatedVariables, unitFactor);
+            if (shape == null) continue;
+            if (primitive.isExposed(evaluatedVariables)) {
+                area.add(new Area(shape));
+            } else {
+                area.subtract(new Area(shape));
+            }
+        }
+        return area;
     }
 }
@@ -3,6 +3,10 @@ package com.deltaproto.deltagerber.model.gerber.aperture;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+
+import java.awt.Shape;
+import java.awt.geom.RoundRectangle2D;
 
 /**
  * Obround (stadium/discorectangle) aperture (template code 'O').
@@ -53,19 +57,18 @@ public class ObroundAperture extends Aperture {
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
+    public void writeSvgDef(SvgWriter out, String id, SvgOptions options) {
         double hw = width / 2;
         double hh = height / 2;
         double r = Math.min(hw, hh);
 
         if (options.isPolygonize()) {
             // Polygonized mode: approximate arcs with line segments
-            String pathData = SvgPathUtils.obroundPath(0, 0, width, height);
+            String pathData = SvgPathUtils.obroundPath(0, 0, width, height, options);
             if (hasHole()) {
-                pathData = pathData + " " + reverseCirclePath(0, 0, holeDiameter / 2, options.getCircleSegments());
+                pathData = pathData + " " + SvgPathUtils.reverseCirclePath(0, 0, holeDiameter / 2, options);
             }
-            return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                id, pathData);
+            out.start("path").attr("id", id).attr("d", pathData).attr("fill-rule", "evenodd").end();
         } else {
             // Exact mode: use SVG arc commands
             StringBuilder path = new StringBuilder();
@@ -95,31 +98,18 @@ public class ObroundAperture extends Aperture {
                 path.append(String.format(java.util.Locale.US,
                     " M %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 Z",
                     hr, hr, hr, -hr, hr, hr, hr));
-                return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                    id, path);
+                out.start("path").attr("id", id).attr("d", path.toString()).attr("fill-rule", "evenodd").end();
             } else {
-                return String.format("<path id=\"%s\" d=\"%s\"/>", id, path);
+                out.start("path").attr("id", id).attr("d", path.toString()).end();
             }
         }
     }
 
-    /**
-     * Generate a circle path in reverse (counter-clockwise) for hole cutouts.
-     */
-    private String reverseCirclePath(double cx, double cy, double radius, int segments) {
-        StringBuilder path = new StringBuilder();
-        for (int i = segments - 1; i >= 0; i--) {
-            double angle = 2 * Math.PI * i / segments;
-            double x = cx + radius * Math.cos(angle);
-            double y = cy + radius * Math.sin(angle);
-            if (i == segments - 1) {
-                path.append(String.format(java.util.Locale.US, "M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(java.util.Locale.US, " L %.6f %.6f", x, y));
-            }
-        }
-        path.append(" Z");
-        return path.toString();
+    @Override
+    public Shape toShape() {
+        double d = Math.min(width, height);
+        Shape obround = new RoundRectangle2D.Double(-width / 2, -height / 2, width, height, d, d);
+        return hasHole() ? withHole(obround, holeDiameter) : obround;
     }
 
     @Override
@@ -3,6 +3,10 @@ package com.deltaproto.deltagerber.model.gerber.aperture;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+
+import java.awt.Shape;
+import java.awt.geom.Path2D;
 
 /**
  * Regular polygon aperture (template code 'P').
@@ -63,7 +67,7 @@ public class PolygonAperture extends Aperture {
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
+    public void writeSvgDef(SvgWriter out, String id, SvgOptions options) {
         double r = outerDiameter / 2;
         double rotRad = Math.toRadians(rotation);
 
@@ -82,10 +86,9 @@ public class PolygonAperture extends Aperture {
             String pathData = SvgPathUtils.polygonPath(0, 0, outerDiameter, numVertices, rotation);
             if (hasHole()) {
                 double hr = holeDiameter / 2;
-                pathData = pathData + " " + reverseCirclePath(0, 0, hr, options.getCircleSegments());
+                pathData = pathData + " " + SvgPathUtils.reverseCirclePath(0, 0, hr, options);
             }
-            return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                id, pathData);
+            out.start("path").attr("id", id).attr("d", pathData).attr("fill-rule", "evenodd").end();
         } else {
             // Exact mode
             if (hasHole()) {
@@ -105,33 +108,28 @@ public class PolygonAperture extends Aperture {
                 pathData.append(String.format(java.util.Locale.US,
                     "M %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 Z",
                     hr, hr, hr, -hr, hr, hr, hr));
-                return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                    id, pathData);
+                out.start("path").attr("id", id).attr("d", pathData.toString()).attr("fill-rule", "evenodd").end();
             } else {
-                return String.format(java.util.Locale.US,
-                    "<polygon id=\"%s\" points=\"%s\"/>",
-                    id, points);
+                out.start("polygon").attr("id", id).attr("points", points.toString()).end();
             }
         }
     }
 
-    /**
-     * Generate a circle path in reverse (counter-clockwise) for hole cutouts.
-     */
-    private String reverseCirclePath(double cx, double cy, double radius, int segments) {
-        StringBuilder path = new StringBuilder();
-        for (int i = segments - 1; i >= 0; i--) {
-            double angle = 2 * Math.PI * i / segments;
-            double x = cx + radius * Math.cos(angle);
-            double y = cy + radius * Math.sin(angle);
-            if (i == segments - 1) {
-                path.append(String.format(java.util.Locale.US, "M %.6f %.6f", x, y));
+    @Override
+    public Shape toShape() {
+        double r = outerDiameter / 2;
+        double rotRad = Math.toRadians(rotation);
+        Path2D.Double polygon = new Path2D.Double();
+        for (int i = 0; i < numVertices; i++) {
+            double angle = rotRad + (2 * Math.PI * i / numVertices);
+            if (i == 0) {
+                polygon.moveTo(r * Math.cos(angle), r * Math.sin(angle));
             } else {
-                path.append(String.format(java.util.Locale.US, " L %.6f %.6f", x, y));
+                polygon.lineTo(r * Math.cos(angle), r * Math.sin(angle));
             }
         }
-        path.append(" Z");
-        return path.toString();
+        polygon.closePath();
+        return hasHole() ? withHole(polygon, holeDiameter) : polygon;
     }
 
     @Override
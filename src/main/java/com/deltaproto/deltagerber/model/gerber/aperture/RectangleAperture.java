@@ -3,6 +3,10 @@ package com.deltaproto.deltagerber.model.gerber.aperture;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
 
 /**
  * Rectangle aperture (template code 'R').
@@ -53,7 +57,7 @@ public class RectangleAperture extends Aperture {
     }
 
     @Override
-    public String toSvgDef(String id, SvgOptions options) {
+    public void writeSvgDef(SvgWriter out, String id, SvgOptions options) {
         double hw = width / 2;
         double hh = height / 2;
 
@@ -61,12 +65,11 @@ public class RectangleAperture extends Aperture {
             // Polygonized mode: use path approximations
             String pathData;
             if (hasHole()) {
-                pathData = SvgPathUtils.rectangleWithHolePath(0, 0, width, height, holeDiameter);
+                pathData = SvgPathUtils.rectangleWithHolePath(0, 0, width, height, holeDiameter, options);
             } else {
                 pathData = SvgPathUtils.rectanglePath(0, 0, width, height);
             }
-            return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                id, pathData);
+            out.start("path").attr("id", id).attr("d", pathData).attr("fill-rule", "evenodd").end();
         } else {
             // Exact mode: use native SVG elements
             if (hasHole()) {
@@ -78,16 +81,20 @@ public class RectangleAperture extends Aperture {
                     "M %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 A %.6f %.6f 0 1 0 %.6f 0 Z",  // Circle CCW
                     -hw, -hh, hw, -hh, hw, hh, -hw, hh,
                     hr, hr, hr, -hr, hr, hr, hr);
-                return String.format("<path id=\"%s\" d=\"%s\" fill-rule=\"evenodd\"/>",
-                    id, pathData);
+                out.start("path").attr("id", id).attr("d", pathData).attr("fill-rule", "evenodd").end();
             } else {
-                return String.format(java.util.Locale.US,
-                    "<rect id=\"%s\" x=\"%.6f\" y=\"%.6f\" width=\"%.6f\" height=\"%.6f\"/>",
-                    id, -hw, -hh, width, height);
+                out.start("rect").attr("id", id)
+                    .attr("x", -hw).attr("y", -hh).attr("width", width).attr("height", height).end();
             }
         }
     }
 
+    @Override
+    public Shape toShape() {
+        Shape rect = new Rectangle2D.Double(-width / 2, -height / 2, width, height);
+        return hasHole() ? withHole(rect, holeDiameter) : rect;
+    }
+
     @Override
     public String toString() {
         return String.format("RectangleAperture[D%d, %.4fx%.4f]",
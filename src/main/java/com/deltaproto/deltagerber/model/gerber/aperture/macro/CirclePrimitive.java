@@ -3,7 +3,9 @@ package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
-import java.util.Locale;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
 import java.util.Map;
 
 /**
@@ -27,7 +29,7 @@ public class CirclePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
+    public void writeSvg(SvgWriter out, Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
         double exp = exposure.evaluate(variables);
         double d = diameter.evaluate(variables) * unitFactor;
         double cx = centerX.evaluate(variables) * unitFactor;
@@ -49,10 +51,10 @@ public class CirclePrimitive implements MacroPrimitive {
         String fill = exp >= 1 ? options.getDarkColor() : options.getClearColor();
 
         if (options.isPolygonize()) {
-            String pathData = SvgPathUtils.circlePath(cx, cy, r, options.getCircleSegments());
-            return String.format("<path d=\"%s\" fill=\"%s\"/>", pathData, fill);
+            String pathData = SvgPathUtils.circlePath(cx, cy, r, options);
+            out.start("path").attr("d", pathData).attr("fill", fill).end();
         } else {
-            return String.format(Locale.US, "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"%s\"/>", cx, cy, r, fill);
+            out.start("circle").attr("cx", cx).attr("cy", cy).attr("r", r).attr("fill", fill).end();
         }
     }
 
@@ -77,6 +79,26 @@ public class CirclePrimitive implements MacroPrimitive {
         return new BoundingBox(cx - r, cy - r, cx + r, cy + r);
     }
 
+    @Override
+    public Shape toShape(Map<Integer, Double> variables, double unitFactor) {
+        double d = diameter.evaluate(variables) * unitFactor;
+        double cx = centerX.evaluate(variables) * unitFactor;
+        double cy = centerY.evaluate(variables) * unitFactor;
+        double rot = rotation.evaluate(variables);
+
+        if (rot != 0) {
+            double radians = Math.toRadians(rot);
+            double cos = Math.cos(radians);
+            double sin = Math.sin(radians);
+            double newX = cx * cos - cy * sin;
+            double newY = cx * sin + cy * cos;
+            cx = newX;
+            cy = newY;
+        }
+
+        return new Ellipse2D.Double(cx - d / 2, cy - d / 2, d, d);
+    }
+
     @Override
     public boolean isExposed(Map<Integer, Double> variables) {
         return exposure.evaluate(variables) >= 1;
@@ -1,7 +1,11 @@
 package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.svg.SvgMarkupWriter;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+
+import java.awt.Shape;
 import java.util.Map;
 
 /**
@@ -35,7 +39,24 @@ public interface MacroPrimitive {
      * @param unitFactor Factor to multiply dimensional values by (e.g. 25.4 for inch-to-mm)
      * @return SVG path commands or shape elements
      */
-    String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor);
+    default String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
+        StringBuilder svg = new StringBuilder();
+        writeSvg(SvgMarkupWriter.compact(svg), variables, options, unitFactor);
+        return svg.toString();
+    }
+
+    /**
+     * Write the SVG elements of this primitive, nothing if it has no area.
+     * @see #toSvg(Map, SvgOptions, double)
+     */
+    void writeSvg(SvgWriter out, Map<Integer, Double> variables, SvgOptions options, double unitFactor);
+
+    /**
+     * The primitive as a Java2D shape in aperture coordinates, in mm, for raster
+     * rendering. Exposure is left to the caller.
+     * @return the shape, or {@code null} if the primitive has no area
+     */
+    Shape toShape(Map<Integer, Double> variables, double unitFactor);
 
     /**
      * Get the bounding box with no unit conversion.
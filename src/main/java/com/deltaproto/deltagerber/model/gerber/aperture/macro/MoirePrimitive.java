@@ -3,6 +3,12 @@ package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
 import java.util.Map;
 
 /**
@@ -36,7 +42,7 @@ public class MoirePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
+    public void writeSvg(SvgWriter out, Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
         double cx = centerX.evaluate(variables) * unitFactor;
         double cy = centerY.evaluate(variables) * unitFactor;
         double od = outerDiameter.evaluate(variables) * unitFactor;
@@ -56,11 +62,11 @@ public class MoirePrimitive implements MacroPrimitive {
                 double innerRadius = Math.max(0, outerRadius - thick);
 
                 if (innerRadius > 0) {
-                    String ringPath = SvgPathUtils.annulusPath(cx, cy, outerRadius, innerRadius, options.getCircleSegments());
+                    String ringPath = SvgPathUtils.annulusPath(cx, cy, outerRadius, innerRadius, options);
                     if (pathData.length() > 0) pathData.append(" ");
                     pathData.append(ringPath);
                 } else {
-                    String circlePath = SvgPathUtils.circlePath(cx, cy, outerRadius, options.getCircleSegments());
+                    String circlePath = SvgPathUtils.circlePath(cx, cy, outerRadius, options);
                     if (pathData.length() > 0) pathData.append(" ");
                     pathData.append(circlePath);
                 }
@@ -78,20 +84,16 @@ public class MoirePrimitive implements MacroPrimitive {
                 pathData.append(vBarPath);
             }
 
-            StringBuilder svg = new StringBuilder();
             if (rot != 0) {
-                svg.append(String.format(java.util.Locale.US, "<g transform=\"rotate(%.6f %.6f %.6f)\">", rot, cx, cy));
-                svg.append(String.format(java.util.Locale.US, "<path d=\"%s\" fill=\"black\" fill-rule=\"evenodd\"/>", pathData));
-                svg.append("</g>");
-            } else {
-                svg.append(String.format(java.util.Locale.US, "<path d=\"%s\" fill=\"black\" fill-rule=\"evenodd\"/>", pathData));
+                out.start("g").attr("transform", rotate(rot, cx, cy));
+            }
+            out.start("path").attr("d", pathData.toString()).attr("fill", "black").attr("fill-rule", "evenodd").end();
+            if (rot != 0) {
+                out.end();
             }
-            return svg.toString();
         } else {
-            StringBuilder svg = new StringBuilder();
-
             if (rot != 0) {
-                svg.append(String.format(java.util.Locale.US, "<g transform=\"rotate(%.6f %.6f %.6f)\">", rot, cx, cy));
+                out.start("g").attr("transform", rotate(rot, cx, cy));
             }
 
             double outerRadius = od / 2;
@@ -101,13 +103,10 @@ public class MoirePrimitive implements MacroPrimitive {
                 double innerRadius = Math.max(0, outerRadius - thick);
 
                 if (innerRadius > 0) {
-                    svg.append(String.format(java.util.Locale.US,
-                        "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"black\"/>", cx, cy, outerRadius));
-                    svg.append(String.format(java.util.Locale.US,
-                        "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"white\"/>", cx, cy, innerRadius));
+                    out.start("circle").attr("cx", cx).attr("cy", cy).attr("r", outerRadius).attr("fill", "black").end();
+                    out.start("circle").attr("cx", cx).attr("cy", cy).attr("r", innerRadius).attr("fill", "white").end();
                 } else {
-                    svg.append(String.format(java.util.Locale.US,
-                        "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"black\"/>", cx, cy, outerRadius));
+                    out.start("circle").attr("cx", cx).attr("cy", cy).attr("r", outerRadius).attr("fill", "black").end();
                 }
 
                 outerRadius = outerRadius - pitch;
@@ -116,22 +115,22 @@ public class MoirePrimitive implements MacroPrimitive {
             if (crossThick > 0 && crossLen > 0) {
                 double hw = crossLen / 2;
                 double hh = crossThick / 2;
-                svg.append(String.format(java.util.Locale.US,
-                    "<rect x=\"%.6f\" y=\"%.6f\" width=\"%.6f\" height=\"%.6f\" fill=\"black\"/>",
-                    cx - hw, cy - hh, crossLen, crossThick));
-                svg.append(String.format(java.util.Locale.US,
-                    "<rect x=\"%.6f\" y=\"%.6f\" width=\"%.6f\" height=\"%.6f\" fill=\"black\"/>",
-                    cx - hh, cy - hw, crossThick, crossLen));
+                out.start("rect").attr("x", cx - hw).attr("y", cy - hh)
+                    .attr("width", crossLen).attr("height", crossThick).attr("fill", "black").end();
+                out.start("rect").attr("x", cx - hh).attr("y", cy - hw)
+                    .attr("width", crossThick).attr("height", crossLen).attr("fill", "black").end();
             }
 
             if (rot != 0) {
-                svg.append("</g>");
+                out.end();
             }
-
-            return svg.toString();
         }
     }
 
+    private static String rotate(double rot, double cx, double cy) {
+        return String.format(java.util.Locale.US, "rotate(%.6f %.6f %.6f)", rot, cx, cy);
+    }
+
     @Override
     public BoundingBox getBoundingBox(Map<Integer, Double> variables, double unitFactor) {
         double cx = centerX.evaluate(variables) * unitFactor;
@@ -144,6 +143,44 @@ public class MoirePrimitive implements MacroPrimitive {
         return new BoundingBox(cx - r, cy - r, cx + r, cy + r);
     }
 
+    @Override
+    public Shape toShape(Map<Integer, Double> variables, double unitFactor) {
+        double cx = centerX.evaluate(variables) * unitFactor;
+        double cy = centerY.evaluate(variables) * unitFactor;
+        double od = outerDiameter.evaluate(variables) * unitFactor;
+        double thick = ringThickness.evaluate(variables) * unitFactor;
+        double gap = ringGap.evaluate(variables) * unitFactor;
+        int rings = (int) maxRings.evaluate(variables);
+        double crossThick = crosshairThickness.evaluate(variables) * unitFactor;
+        double crossLen = crosshairLength.evaluate(variables) * unitFactor;
+        double rot = rotation.evaluate(variables);
+
+        Area moire = new Area();
+        double outerRadius = od / 2;
+        double pitch = thick + gap;
+        for (int i = 0; i < rings && outerRadius > 0; i++) {
+            double innerRadius = Math.max(0, outerRadius - thick);
+            Area ring = new Area(new Ellipse2D.Double(
+                cx - outerRadius, cy - outerRadius, 2 * outerRadius, 2 * outerRadius));
+            if (innerRadius > 0) {
+                ring.subtract(new Area(new Ellipse2D.Double(
+                    cx - innerRadius, cy - innerRadius, 2 * innerRadius, 2 * innerRadius)));
+            }
+            moire.add(ring);
+            outerRadius = outerRadius - pitch;
+        }
+
+        if (crossThick > 0 && crossLen > 0) {
+            moire.add(new Area(new Rectangle2D.Double(cx - crossLen / 2, cy - crossThick / 2, crossLen, crossThick)));
+            moire.add(new Area(new Rectangle2D.Double(cx - crossThick / 2, cy - crossLen / 2, crossThick, crossLen)));
+        }
+
+        if (rot != 0) {
+            moire.transform(AffineTransform.getRotateInstance(Math.toRadians(rot), cx, cy));
+        }
+        return moire;
+    }
+
     @Override
     public boolean isExposed(Map<Integer, Double> variables) {
         return true;
@@ -3,6 +3,9 @@ package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -44,7 +47,7 @@ public class OutlinePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
+    public void writeSvg(SvgWriter out, Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
         double exp = exposure.evaluate(variables);
         double rot = rotation.evaluate(variables);
 
@@ -72,14 +75,14 @@ public class OutlinePrimitive implements MacroPrimitive {
 
         if (options.isPolygonize()) {
             String pathData = SvgPathUtils.outlinePath(points, true);
-            return String.format(java.util.Locale.US, "<path d=\"%s\" fill=\"%s\"/>", pathData, fill);
+            out.start("path").attr("d", pathData).attr("fill", fill).end();
         } else {
             StringBuilder pointsStr = new StringBuilder();
             for (int i = 0; i < points.size() - 1; i++) {
                 if (i > 0) pointsStr.append(" ");
                 pointsStr.append(String.format(java.util.Locale.US, "%.6f,%.6f", points.get(i)[0], points.get(i)[1]));
             }
-            return String.format(java.util.Locale.US, "<polygon points=\"%s\" fill=\"%s\"/>", pointsStr, fill);
+            out.start("polygon").attr("points", pointsStr.toString()).attr("fill", fill).end();
         }
     }
 
@@ -109,6 +112,33 @@ public class OutlinePrimitive implements MacroPrimitive {
         return bbox;
     }
 
+    @Override
+    public Shape toShape(Map<Integer, Double> variables, double unitFactor) {
+        double rot = rotation.evaluate(variables);
+        double radians = Math.toRadians(rot);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+
+        int numPoints = Math.min(verticesX.size(), verticesY.size());
+        if (numPoints < 3) {
+            return null;
+        }
+        Path2D.Double path = new Path2D.Double();
+        for (int i = 0; i < numPoints; i++) {
+            double x = verticesX.get(i).evaluate(variables) * unitFactor;
+            double y = verticesY.get(i).evaluate(variables) * unitFactor;
+            double rx = x * cos - y * sin;
+            double ry = x * sin + y * cos;
+            if (i == 0) {
+                path.moveTo(rx, ry);
+            } else {
+                path.lineTo(rx, ry);
+            }
+        }
+        path.closePath();
+        return path;
+    }
+
     @Override
     public boolean isExposed(Map<Integer, Double> variables) {
         return exposure.evaluate(variables) >= 1;
@@ -3,6 +3,9 @@ package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
 import java.util.Map;
 
 /**
@@ -29,7 +32,7 @@ public class PolygonPrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
+    public void writeSvg(SvgWriter out, Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
         double exp = exposure.evaluate(variables);
         int n = (int) vertexCount.evaluate(variables);
         double cx = centerX.evaluate(variables) * unitFactor;
@@ -41,7 +44,7 @@ public class PolygonPrimitive implements MacroPrimitive {
 
         if (options.isPolygonize()) {
             String pathData = SvgPathUtils.polygonPath(cx, cy, d, n, rot);
-            return String.format(java.util.Locale.US, "<path d=\"%s\" fill=\"%s\"/>", pathData, fill);
+            out.start("path").attr("d", pathData).attr("fill", fill).end();
         } else {
             double r = d / 2;
             double rotRad = Math.toRadians(rot);
@@ -53,7 +56,7 @@ public class PolygonPrimitive implements MacroPrimitive {
                 if (i > 0) points.append(" ");
                 points.append(String.format(java.util.Locale.US, "%.6f,%.6f", x, y));
             }
-            return String.format(java.util.Locale.US, "<polygon points=\"%s\" fill=\"%s\"/>", points, fill);
+            out.start("polygon").attr("points", points.toString()).attr("fill", fill).end();
         }
     }
 
@@ -80,6 +83,34 @@ public class PolygonPrimitive implements MacroPrimitive {
         return bbox;
     }
 
+    @Override
+    public Shape toShape(Map<Integer, Double> variables, double unitFactor) {
+        int n = (int) vertexCount.evaluate(variables);
+        double cx = centerX.evaluate(variables) * unitFactor;
+        double cy = centerY.evaluate(variables) * unitFactor;
+        double d = diameter.evaluate(variables) * unitFactor;
+        double rot = rotation.evaluate(variables);
+        if (n < 3) {
+            return null;
+        }
+
+        double r = d / 2;
+        double rotRad = Math.toRadians(rot);
+        Path2D.Double path = new Path2D.Double();
+        for (int i = 0; i < n; i++) {
+            double angle = rotRad + (2 * Math.PI * i / n);
+            double x = cx + r * Math.cos(angle);
+            double y = cy + r * Math.sin(angle);
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+        path.closePath();
+        return path;
+    }
+
     @Override
     public boolean isExposed(Map<Integer, Double> variables) {
         return exposure.evaluate(variables) >= 1;
@@ -3,6 +3,12 @@ package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
 import java.util.Map;
 
 /**
@@ -30,7 +36,7 @@ public class ThermalPrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
+    public void writeSvg(SvgWriter out, Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
         double cx = centerX.evaluate(variables) * unitFactor;
         double cy = centerY.evaluate(variables) * unitFactor;
         double od = outerDiameter.evaluate(variables) * unitFactor;
@@ -39,28 +45,24 @@ public class ThermalPrimitive implements MacroPrimitive {
         double rot = rotation.evaluate(variables);
 
         if (options.isPolygonize()) {
-            String pathData = SvgPathUtils.thermalPath(cx, cy, od, id, gap, rot, options.getCircleSegments());
-            return String.format(java.util.Locale.US, "<path d=\"%s\" fill=\"%s\"/>", pathData, options.getDarkColor());
+            String pathData = SvgPathUtils.thermalPath(cx, cy, od, id, gap, rot, options);
+            out.start("path").attr("d", pathData).attr("fill", options.getDarkColor()).end();
         } else {
             double or = od / 2;
             double ir = id / 2;
             double hw = gap / 2;
             double rotRad = Math.toRadians(rot);
 
-            StringBuilder svg = new StringBuilder();
             String clipId = String.format(java.util.Locale.US, "thermal-clip-%.0f-%.0f", cx * 1000, cy * 1000);
 
-            svg.append(String.format("<defs><clipPath id=\"%s\">", clipId));
-            svg.append(String.format(java.util.Locale.US,
-                "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\"/>", cx, cy, or));
-            svg.append("</clipPath></defs>");
+            out.start("defs").start("clipPath").attr("id", clipId);
+            out.start("circle").attr("cx", cx).attr("cy", cy).attr("r", or).end();
+            out.end().end();
 
-            svg.append(String.format("<g clip-path=\"url(#%s)\">", clipId));
+            out.start("g").attr("clip-path", "url(#" + clipId + ")");
 
-            svg.append(String.format(java.util.Locale.US,
-                "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"%s\"/>", cx, cy, or, options.getDarkColor()));
-            svg.append(String.format(java.util.Locale.US,
-                "<circle cx=\"%.6f\" cy=\"%.6f\" r=\"%.6f\" fill=\"%s\"/>", cx, cy, ir, options.getClearColor()));
+            out.start("circle").attr("cx", cx).attr("cy", cy).attr("r", or).attr("fill", options.getDarkColor()).end();
+            out.start("circle").attr("cx", cx).attr("cy", cy).attr("r", ir).attr("fill", options.getClearColor()).end();
 
             for (int i = 0; i < 4; i++) {
                 double angle = rotRad + (Math.PI / 2) * i;
@@ -81,14 +83,15 @@ public class ThermalPrimitive implements MacroPrimitive {
                     cornersY[j] = cy + corners[j][0] * sin + corners[j][1] * cos;
                 }
 
-                svg.append(String.format(java.util.Locale.US,
-                    "<polygon points=\"%.6f,%.6f %.6f,%.6f %.6f,%.6f %.6f,%.6f\" fill=\"%s\"/>",
-                    cornersX[0], cornersY[0], cornersX[1], cornersY[1],
-                    cornersX[2], cornersY[2], cornersX[3], cornersY[3], options.getClearColor()));
+                out.start("polygon")
+                    .attr("points", String.format(java.util.Locale.US, "%.6f,%.6f %.6f,%.6f %.6f,%.6f %.6f,%.6f",
+                        cornersX[0], cornersY[0], cornersX[1], cornersY[1],
+                        cornersX[2], cornersY[2], cornersX[3], cornersY[3]))
+                    .attr("fill", options.getClearColor())
+                    .end();
             }
 
-            svg.append("</g>");
-            return svg.toString();
+            out.end();
         }
     }
 
@@ -102,6 +105,27 @@ public class ThermalPrimitive implements MacroPrimitive {
         return new BoundingBox(cx - r, cy - r, cx + r, cy + r);
     }
 
+    /** The ring with its four gaps cut out. */
+    @Override
+    public Shape toShape(Map<Integer, Double> variables, double unitFactor) {
+        double cx = centerX.evaluate(variables) * unitFactor;
+        double cy = centerY.evaluate(variables) * unitFactor;
+        double od = outerDiameter.evaluate(variables) * unitFactor;
+        double id = innerDiameter.evaluate(variables) * unitFactor;
+        double gap = gapWidth.evaluate(variables) * unitFactor;
+        double rotRad = Math.toRadians(rotation.evaluate(variables));
+
+        Area thermal = new Area(new Ellipse2D.Double(cx - od / 2, cy - od / 2, od, od));
+        thermal.subtract(new Area(new Ellipse2D.Double(cx - id / 2, cy - id / 2, id, id)));
+        Rectangle2D gapRect = new Rectangle2D.Double(-od / 2, -gap / 2, od, gap);
+        for (int i = 0; i < 4; i++) {
+            AffineTransform at = AffineTransform.getTranslateInstance(cx, cy);
+            at.rotate(rotRad + (Math.PI / 2) * i);
+            thermal.subtract(new Area(at.createTransformedShape(gapRect)));
+        }
+        return thermal;
+    }
+
     @Override
     public boolean isExposed(Map<Integer, Double> variables) {
         return true;
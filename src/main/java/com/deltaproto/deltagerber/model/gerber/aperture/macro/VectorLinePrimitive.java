@@ -2,6 +2,9 @@ package com.deltaproto.deltagerber.model.gerber.aperture.macro;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
 import java.util.Locale;
 import java.util.Map;
 
@@ -31,7 +34,7 @@ public class VectorLinePrimitive implements MacroPrimitive {
     }
 
     @Override
-    public String toSvg(Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
+    public void writeSvg(SvgWriter out, Map<Integer, Double> variables, SvgOptions options, double unitFactor) {
         double exp = exposure.evaluate(variables);
         double w = width.evaluate(variables) * unitFactor;
         double sx = startX.evaluate(variables) * unitFactor;
@@ -44,7 +47,7 @@ public class VectorLinePrimitive implements MacroPrimitive {
         double dy = ey - sy;
         double len = Math.sqrt(dx * dx + dy * dy);
         if (len == 0) {
-            return "";
+            return;
         }
 
         double px = -dy / len;
@@ -77,14 +80,14 @@ public class VectorLinePrimitive implements MacroPrimitive {
                 "M %.6f %.6f L %.6f %.6f L %.6f %.6f L %.6f %.6f Z",
                 cornersX[0], cornersY[0], cornersX[1], cornersY[1],
                 cornersX[2], cornersY[2], cornersX[3], cornersY[3]);
-            return String.format(Locale.US, "<path d=\"%s\" fill=\"%s\"/>", pathData, fill);
+            out.start("path").attr("d", pathData).attr("fill", fill).end();
         } else {
             StringBuilder points = new StringBuilder();
             for (int i = 0; i < 4; i++) {
                 if (i > 0) points.append(" ");
                 points.append(String.format(Locale.US, "%.6f,%.6f", cornersX[i], cornersY[i]));
             }
-            return String.format(Locale.US, "<polygon points=\"%s\" fill=\"%s\"/>", points, fill);
+            out.start("polygon").attr("points", points.toString()).attr("fill", fill).end();
         }
     }
 
@@ -134,6 +137,54 @@ public class VectorLinePrimitive implements MacroPrimitive {
         return bbox;
     }
 
+    @Override
+    public Shape toShape(Map<Integer, Double> variables, double unitFactor) {
+        double w = width.evaluate(variables) * unitFactor;
+        double sx = startX.evaluate(variables) * unitFactor;
+        double sy = startY.evaluate(variables) * unitFactor;
+        double ex = endX.evaluate(variables) * unitFactor;
+        double ey = endY.evaluate(variables) * unitFactor;
+        double rot = rotation.evaluate(variables);
+
+        double dx = ex - sx;
+        double dy = ey - sy;
+        double len = Math.sqrt(dx * dx + dy * dy);
+        if (len == 0) {
+            return null;
+        }
+
+        double px = -dy / len;
+        double py = dx / len;
+        double hw = w / 2;
+
+        double[] cornersX = {
+            sx + px * hw, ex + px * hw, ex - px * hw, sx - px * hw
+        };
+        double[] cornersY = {
+            sy + py * hw, ey + py * hw, ey - py * hw, sy - py * hw
+        };
+
+        if (rot != 0) {
+            double radians = Math.toRadians(rot);
+            double cos = Math.cos(radians);
+            double sin = Math.sin(radians);
+            for (int i = 0; i < 4; i++) {
+                double newX = cornersX[i] * cos - cornersY[i] * sin;
+                double newY = cornersX[i] * sin + cornersY[i] * cos;
+                cornersX[i] = newX;
+                cornersY[i] = newY;
+            }
+        }
+
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(cornersX[0], cornersY[0]);
+        for (int i = 1; i < 4; i++) {
+            path.lineTo(cornersX[i], cornersY[i]);
+        }
+        path.closePath();
+        return path;
+    }
+
     @Override
     public boolean isExposed(Map<Integer, Double> variables) {
         return exposure.evaluate(variables) >= 1;
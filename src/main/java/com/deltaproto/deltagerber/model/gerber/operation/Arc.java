@@ -1,13 +1,11 @@
 package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
-import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
-import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
-import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
-import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 
-import java.util.Locale;
+import java.awt.Shape;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
 
 /**
  * Arc operation (D01 with circular interpolation).
@@ -66,89 +64,42 @@ public class Arc extends GraphicsObject {
         return bounds;
     }
 
-    @Override
-    public String toSvg(SvgOptions options) {
-        String color = polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
-        double strokeWidth = 0;
-        if (aperture instanceof CircleAperture) {
-            strokeWidth = ((CircleAperture) aperture).getDiameter();
+    /**
+     * The path the aperture is stroked along, as a Java2D shape in mm: the
+     * whole circle when start and end coincide.
+     */
+    public Shape toShape() {
+        double dx = endX - startX;
+        double dy = endY - startY;
+        if (Math.sqrt(dx * dx + dy * dy) < 0.0001) {
+            double r = getRadius();
+            return new Ellipse2D.Double(centerX - r, centerY - r, 2 * r, 2 * r);
         }
+        return arcShape(startX, startY, endX, endY, centerX, centerY, clockwise);
+    }
 
-        if (options.isPolygonize()) {
-            // Polygonized mode: path-based stroked arc (filled polygon approximation)
-            String pathData = SvgPathUtils.strokedArcPath(
-                startX, startY, endX, endY, centerX, centerY, clockwise, strokeWidth);
-            return String.format("<path d=\"%s\" fill=\"%s\"/>", pathData, color);
+    /**
+     * A circular arc from start to end around the center. Sweeps of zero come out
+     * as full circles, as in {@link Contour#toSvgPath}.
+     */
+    static Arc2D arcShape(double startX, double startY, double endX, double endY,
+                          double centerX, double centerY, boolean clockwise) {
+        double dx = startX - centerX;
+        double dy = startY - centerY;
+        double r = Math.sqrt(dx * dx + dy * dy);
+        double startAngle = Math.atan2(dy, dx);
+        double endAngle = Math.atan2(endY - centerY, endX - centerX);
+        double sweep;
+        if (clockwise) {
+            sweep = startAngle - endAngle;
+            if (sweep <= 0) sweep += 2 * Math.PI;
         } else {
-            // Exact mode: use native SVG path with arc commands
-            double radius = getRadius();
-
-            // Check for full circle (start == end)
-            double dx = endX - startX;
-            double dy = endY - startY;
-            boolean isFullCircle = Math.sqrt(dx * dx + dy * dy) < 0.0001;
-
-            if (isFullCircle) {
-                // Full circle: SVG arc can't represent this in one arc, use two half-arcs
-                // Calculate the opposite point on the circle
-                double oppositeX = 2 * centerX - startX;
-                double oppositeY = 2 * centerY - startY;
-
-                // sweepFlag: 0=CCW, 1=CW in SVG coordinates
-                // With Y-flip, visual direction inverts, so:
-                // Gerber CW needs SVG CCW (0), Gerber CCW needs SVG CW (1)
-                int sweepFlag;
-                if (options.isFlipY()) {
-                    sweepFlag = clockwise ? 0 : 1;
-                } else {
-                    sweepFlag = clockwise ? 1 : 0;
-                }
-
-                // Two half-arcs
-                String pathData = String.format(Locale.US,
-                    "M %.6f %.6f A %.6f %.6f 0 0 %d %.6f %.6f A %.6f %.6f 0 0 %d %.6f %.6f",
-                    startX, startY,
-                    radius, radius, sweepFlag, oppositeX, oppositeY,
-                    radius, radius, sweepFlag, startX, startY);
-
-                return String.format(Locale.US,
-                    "<path d=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"%.6f\" stroke-linecap=\"round\"/>",
-                    pathData, color, strokeWidth);
-            }
-
-            // Calculate sweep angle to determine large-arc-flag
-            double startAngle = Math.atan2(startY - centerY, startX - centerX);
-            double endAngle = Math.atan2(endY - centerY, endX - centerX);
-            double sweep;
-            if (clockwise) {
-                sweep = startAngle - endAngle;
-                if (sweep <= 0) sweep += 2 * Math.PI;
-            } else {
-                sweep = endAngle - startAngle;
-                if (sweep <= 0) sweep += 2 * Math.PI;
-            }
-            int largeArcFlag = sweep > Math.PI ? 1 : 0;
-            // sweepFlag: 0=CCW, 1=CW in SVG coordinates
-            // With Y-flip transform, visual direction is inverted:
-            // - SVG CCW (sweep=0) appears CW after flip
-            // - SVG CW (sweep=1) appears CCW after flip
-            // So for flipY: Gerber CW needs SVG CCW (0), Gerber CCW needs SVG CW (1)
-            int sweepFlag;
-            if (options.isFlipY()) {
-                sweepFlag = clockwise ? 0 : 1;
-            } else {
-                sweepFlag = clockwise ? 1 : 0;
-            }
-
-            // SVG path with arc: M start, A radius radius x-axis-rotation large-arc-flag sweep-flag end
-            String pathData = String.format(Locale.US,
-                "M %.6f %.6f A %.6f %.6f 0 %d %d %.6f %.6f",
-                startX, startY, radius, radius, largeArcFlag, sweepFlag, endX, endY);
-
-            return String.format(Locale.US,
-                "<path d=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"%.6f\" stroke-linecap=\"round\"/>",
-                pathData, color, strokeWidth);
+            sweep = endAngle - startAngle;
+            if (sweep <= 0) sweep += 2 * Math.PI;
         }
+        // Arc2D angles grow clockwise on a Y-up plane, the opposite of Gerber's
+        return new Arc2D.Double(centerX - r, centerY - r, 2 * r, 2 * r,
+            -Math.toDegrees(startAngle), Math.toDegrees(clockwise ? sweep : -sweep), Arc2D.OPEN);
     }
 
     @Override
@@ -2,6 +2,7 @@ package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -99,19 +100,8 @@ public class Contour {
 
                 if (options.isPolygonize()) {
                     // Polygonized mode: approximate arc with line segments
-                    int arcSegments = Math.max(8, (int) (sweep * r * 10));
-                    for (int i = 1; i <= arcSegments; i++) {
-                        double t = (double) i / arcSegments;
-                        double angle;
-                        if (seg.isClockwise()) {
-                            angle = startAngle - sweep * t;
-                        } else {
-                            angle = startAngle + sweep * t;
-                        }
-                        double x = seg.getCenterX() + r * Math.cos(angle);
-                        double y = seg.getCenterY() + r * Math.sin(angle);
-                        path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-                    }
+                    SvgPathUtils.appendArc(path, seg.getCenterX(), seg.getCenterY(), r, startAngle,
+                        seg.isClockwise() ? -sweep : sweep, options.arcSegments(r, sweep));
                 } else {
                     // Exact mode: use SVG arc command
                     int largeArcFlag = sweep > Math.PI ? 1 : 0;
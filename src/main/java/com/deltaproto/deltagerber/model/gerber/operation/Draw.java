@@ -1,14 +1,7 @@
 package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
-import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
-import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
-import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
-import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
-import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
-
-import java.util.Locale;
 
 /**
  * Draw operation (D01 with linear interpolation) - draws a line with aperture.
@@ -61,31 +54,6 @@ public class Draw extends GraphicsObject {
         return bounds;
     }
 
-    @Override
-    public String toSvg(SvgOptions options) {
-        String color = polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
-        double strokeWidth = 0;
-        if (aperture instanceof CircleAperture) {
-            strokeWidth = ((CircleAperture) aperture).getDiameter();
-        } else if (aperture instanceof RectangleAperture) {
-            // Use max dimension as stroke width (approximation for non-rotated lines)
-            RectangleAperture rect = (RectangleAperture) aperture;
-            strokeWidth = Math.max(rect.getWidth(), rect.getHeight());
-        }
-
-        if (options.isPolygonize()) {
-            // Polygonized mode: path-based stroked line (rectangle with round caps)
-            String pathData = SvgPathUtils.strokedLinePath(startX, startY, endX, endY, strokeWidth);
-            return String.format("<path d=\"%s\" fill=\"%s\"/>", pathData, color);
-        } else {
-            // Exact mode: use native SVG line with stroke
-            return String.format(Locale.US,
-                "<line x1=\"%.6f\" y1=\"%.6f\" x2=\"%.6f\" y2=\"%.6f\" " +
-                "stroke=\"%s\" stroke-width=\"%.6f\" stroke-linecap=\"round\"/>",
-                startX, startY, endX, endY, color, strokeWidth);
-        }
-    }
-
     @Override
     public GraphicsObject translate(double offsetX, double offsetY) {
         Draw translated = new Draw(
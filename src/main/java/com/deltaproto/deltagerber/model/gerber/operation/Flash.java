@@ -1,11 +1,7 @@
 package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
-import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
-import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
-
-import java.util.Locale;
 
 /**
  * Flash operation (D03) - places aperture at a point.
@@ -50,6 +46,24 @@ public class Flash extends GraphicsObject {
         return aperture;
     }
 
+    /** Rotation from LR, in degrees counter-clockwise. */
+    public double getRotation() {
+        return rotation;
+    }
+
+    /** Scale factor from LS. */
+    public double getScale() {
+        return scale;
+    }
+
+    public boolean isMirrorX() {
+        return mirrorX;
+    }
+
+    public boolean isMirrorY() {
+        return mirrorY;
+    }
+
     @Override
     public BoundingBox getBoundingBox() {
         BoundingBox apBounds = aperture.getBoundingBox();
@@ -61,52 +75,6 @@ public class Flash extends GraphicsObject {
         );
     }
 
-    @Override
-    public String toSvg(SvgOptions options) {
-        // Flash uses <use> elements referencing aperture definitions.
-        // Fill color is set on the <use> element based on polarity, so it
-        // inherits into the aperture def shapes (which have no explicit fill).
-        String color = polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
-
-        // Build transform string for rotation, scaling, mirroring
-        StringBuilder transform = new StringBuilder();
-
-        // Translate to position first
-        transform.append(String.format(Locale.US, "translate(%.6f,%.6f)", x, y));
-
-        // Apply mirroring (before rotation)
-        if (mirrorX || mirrorY) {
-            double scaleX = mirrorX ? -1 : 1;
-            double scaleY = mirrorY ? -1 : 1;
-            transform.append(String.format(Locale.US, " scale(%.1f,%.1f)", scaleX, scaleY));
-        }
-
-        // Apply rotation
-        if (rotation != 0) {
-            transform.append(String.format(Locale.US, " rotate(%.6f)", rotation));
-        }
-
-        // Apply scaling
-        if (scale != 1.0) {
-            transform.append(String.format(Locale.US, " scale(%.6f)", scale));
-        }
-
-        // Get aperture ID prefix from options (allows multi-layer SVGs with unique IDs)
-        String prefix = options.getApertureIdPrefix();
-
-        // If we have transforms other than position, use transform attribute
-        if (rotation != 0 || scale != 1.0 || mirrorX || mirrorY) {
-            return String.format(Locale.US,
-                "<use href=\"#%s%d\" fill=\"%s\" transform=\"%s\"/>",
-                prefix, aperture.getDCode(), color, transform.toString());
-        } else {
-            // Simple case: just position
-            return String.format(Locale.US,
-                "<use href=\"#%s%d\" x=\"%.6f\" y=\"%.6f\" fill=\"%s\"/>",
-                prefix, aperture.getDCode(), x, y, color);
-        }
-    }
-
     @Override
     public GraphicsObject translate(double offsetX, double offsetY) {
         Flash translated = new Flash(x + offsetX, y + offsetY, aperture, rotation, scale, mirrorX, mirrorY);
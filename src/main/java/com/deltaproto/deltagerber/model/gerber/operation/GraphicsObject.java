@@ -2,7 +2,11 @@ package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.renderer.RenderTraversal;
+import com.deltaproto.deltagerber.renderer.svg.SvgMarkupWriter;
+import com.deltaproto.deltagerber.renderer.svg.SvgRenderBackend;
 import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgWriter;
 
 /**
  * Base class for graphics objects produced by Gerber operations.
@@ -33,8 +37,21 @@ public abstract class GraphicsObject {
 
     /**
      * Generate SVG representation with specified options.
+     * @return the markup, empty if the object draws nothing
      */
-    public abstract String toSvg(SvgOptions options);
+    public String toSvg(SvgOptions options) {
+        StringBuilder svg = new StringBuilder(160);
+        writeSvg(SvgMarkupWriter.compact(svg), options);
+        return svg.toString();
+    }
+
+    /**
+     * Write the SVG elements of this object, nothing if it draws nothing.
+     * @see SvgRenderBackend
+     */
+    public void writeSvg(SvgWriter out, SvgOptions options) {
+        RenderTraversal.object(this, new SvgRenderBackend(out, options));
+    }
 
     /**
      * Create a translated copy of this object.
@@ -1,9 +1,9 @@
 package com.deltaproto.deltagerber.model.gerber.operation;
 
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
-import com.deltaproto.deltagerber.model.gerber.Polarity;
-import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
 
+import java.awt.Shape;
+import java.awt.geom.Path2D;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,22 +34,26 @@ public class Region extends GraphicsObject {
         return bounds;
     }
 
-    @Override
-    public String toSvg(SvgOptions options) {
-        if (contours.isEmpty()) {
-            return "";
-        }
-
-        StringBuilder path = new StringBuilder();
+    /** The filled area as a Java2D shape in mm, with the even-odd rule. */
+    public Shape toShape() {
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
         for (Contour contour : contours) {
-            path.append(contour.toSvgPath(options));
-            path.append(" ");
+            path.moveTo(contour.getStartX(), contour.getStartY());
+            double currentX = contour.getStartX();
+            double currentY = contour.getStartY();
+            for (Contour.ContourSegment seg : contour.getSegments()) {
+                if (seg.isArc()) {
+                    path.append(Arc.arcShape(currentX, currentY, seg.getX(), seg.getY(),
+                        seg.getCenterX(), seg.getCenterY(), seg.isClockwise()), true);
+                } else {
+                    path.lineTo(seg.getX(), seg.getY());
+                }
+                currentX = seg.getX();
+                currentY = seg.getY();
+            }
+            path.closePath();
         }
-
-        String color = polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
-        return String.format(
-            "<path d=\"%s\" fill=\"%s\" fill-rule=\"evenodd\"/>",
-            path.toString().trim(), color);
+        return path;
     }
 
     @Override
@@ -2,11 +2,14 @@ package com.deltaproto.deltagerber.parser;
 
 import com.deltaproto.deltagerber.model.drill.*;
 import com.deltaproto.deltagerber.model.gerber.Unit;
+import com.deltaproto.deltagerber.pipeline.GerberParseEvent;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -17,6 +20,9 @@ public class ExcellonParser {
 
     private static final Logger log = LoggerFactory.getLogger(ExcellonParser.class);
 
+    // Lines processed between checks for an interrupt
+    private static final int INTERRUPT_CHECK_MASK = 1023;
+
     private DrillDocument document;
     private Tool currentTool;
     private double currentX = 0;
@@ -27,6 +33,7 @@ public class ExcellonParser {
     private double routeStartX = 0;
     private double routeStartY = 0;
     private InterpolationMode interpolationMode = InterpolationMode.LINEAR;
+    private PipelineListener listener = PipelineListener.NONE;
 
     // Cadence Allegro holesize-based tool tracking
     private final List<Tool> holesizeTools = new ArrayList<>();
@@ -73,9 +80,25 @@ public class ExcellonParser {
     // FILE_FORMAT comment (e.g. ;FILE_FORMAT=4:4) - used by Altium and others
     private static final Pattern FILE_FORMAT_COMMENT = Pattern.compile("FILE_FORMAT\\s*=\\s*(\\d):(\\d)");
 
+    /**
+     * Receive stage timings and operation counts of subsequent parses.
+     */
+    public ExcellonParser setListener(PipelineListener listener) {
+        this.listener = listener != null ? listener : PipelineListener.NONE;
+        return this;
+    }
+
+    /**
+     * Parse an Excellon drill file.
+     *
+     * @throws CancellationException if the thread is interrupted while parsing
+     */
     public DrillDocument parse(String content) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         log.trace("Starting Excellon parse, content length: {} chars", content.length());
+        listener.stageStarted(PipelineListener.Stage.PARSE);
+        GerberParseEvent event = new GerberParseEvent();
+        event.begin();
 
         // Strip UTF-8 BOM if present
         if (content.startsWith("\uFEFF")) {
@@ -99,7 +122,11 @@ public class ExcellonParser {
         String[] lines = content.split("\n");
         log.trace("Processing {} lines", lines.length);
 
+        int processed = 0;
         for (String line : lines) {
+            if ((++processed & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Excellon parse interrupted");
+            }
             line = line.trim();
             if (line.isEmpty()) continue;
 
@@ -109,8 +136,17 @@ public class ExcellonParser {
         // All coordinates and tool diameters have been normalized to mm during parsing
         document.setUnit(Unit.MM);
 
+        long elapsed = System.nanoTime() - startTime;
+        event.end();
+        if (event.shouldCommit()) {
+            event.format = "excellon";
+            event.objects = document.getOperations().size();
+            event.commit();
+        }
         log.trace("Excellon parse complete in {}ms: {} operations, {} tools",
-            System.currentTimeMillis() - startTime, document.getOperations().size(), document.getTools().size());
+            elapsed / 1_000_000, document.getOperations().size(), document.getTools().size());
+        listener.objectsParsed(document.getOperations().size());
+        listener.stageFinished(PipelineListener.Stage.PARSE, elapsed);
 
         return document;
     }
@@ -8,10 +8,14 @@ import com.deltaproto.deltagerber.model.gerber.aperture.*;
 import com.deltaproto.deltagerber.model.gerber.aperture.macro.MacroTemplate;
 import com.deltaproto.deltagerber.model.gerber.attribute.FileAttribute;
 import com.deltaproto.deltagerber.model.gerber.operation.*;
+import com.deltaproto.deltagerber.pipeline.GerberLexEvent;
+import com.deltaproto.deltagerber.pipeline.GerberParseEvent;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -22,6 +26,9 @@ public class GerberParser {
 
     private static final Logger log = LoggerFactory.getLogger(GerberParser.class);
 
+    // Tokens processed between checks for an interrupt
+    private static final int INTERRUPT_CHECK_MASK = 1023;
+
     private GerberDocument document;
     private CoordinateFormat coordFormat;
     private Unit unit = Unit.MM;
@@ -38,6 +45,8 @@ public class GerberParser {
     private Region currentRegion;
     private Contour currentContour;
 
+    private PipelineListener listener = PipelineListener.NONE;
+
     // Aperture transformation state (LR, LS, LM)
     private double loadRotation = 0;       // Rotation in degrees
     private double loadScaling = 1.0;      // Scale factor
@@ -53,8 +62,21 @@ public class GerberParser {
     private static final Pattern COORD_I = Pattern.compile("I([+-]?\\d+)");
     private static final Pattern COORD_J = Pattern.compile("J([+-]?\\d+)");
 
+    /**
+     * Receive stage timings, counts and warnings of subsequent parses.
+     */
+    public GerberParser setListener(PipelineListener listener) {
+        this.listener = listener != null ? listener : PipelineListener.NONE;
+        return this;
+    }
+
+    /**
+     * Parse a Gerber file.
+     *
+     * @throws CancellationException if the thread is interrupted while parsing
+     */
     public GerberDocument parse(String content) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         log.trace("Starting Gerber parse, content length: {} chars", content.length());
 
         // Strip UTF-8 BOM if present
@@ -65,26 +87,61 @@ public class GerberParser {
         document = new GerberDocument();
         GerberLexer lexer = new GerberLexer();
 
-        long lexStart = System.currentTimeMillis();
+        listener.stageStarted(PipelineListener.Stage.LEX);
+        GerberLexEvent lexEvent = new GerberLexEvent();
+        lexEvent.begin();
+        long lexStart = System.nanoTime();
         List<Token> tokens = lexer.tokenize(content);
-        log.trace("Lexer produced {} tokens in {}ms", tokens.size(), System.currentTimeMillis() - lexStart);
-
-        long parseStart = System.currentTimeMillis();
+        long lexNanos = System.nanoTime() - lexStart;
+        lexEvent.end();
+        if (lexEvent.shouldCommit()) {
+            lexEvent.characters = content.length();
+            lexEvent.tokens = tokens.size();
+            lexEvent.commit();
+        }
+        log.trace("Lexer produced {} tokens in {}ms", tokens.size(), lexNanos / 1_000_000);
+        listener.tokensLexed(tokens.size());
+        listener.stageFinished(PipelineListener.Stage.LEX, lexNanos);
+
+        listener.stageStarted(PipelineListener.Stage.PARSE);
+        GerberParseEvent parseEvent = new GerberParseEvent();
+        parseEvent.begin();
+        long parseStart = System.nanoTime();
+        int processed = 0;
         for (Token token : tokens) {
+            if ((++processed & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Gerber parse interrupted");
+            }
             processToken(token);
         }
-        log.trace("Token processing took {}ms", System.currentTimeMillis() - parseStart);
 
         // All coordinates and dimensions have been normalized to mm during parsing.
         // Set the document unit to MM so downstream code knows the data is in mm.
         document.setUnit(Unit.MM);
+        long parseNanos = System.nanoTime() - parseStart;
+        parseEvent.end();
+        if (parseEvent.shouldCommit()) {
+            parseEvent.format = "gerber";
+            parseEvent.objects = document.getObjects().size();
+            parseEvent.warnings = document.getWarnings().size();
+            parseEvent.commit();
+        }
+        log.trace("Token processing took {}ms", parseNanos / 1_000_000);
+        listener.objectsParsed(document.getObjects().size());
+        listener.stageFinished(PipelineListener.Stage.PARSE, parseNanos);
 
         log.trace("Gerber parse complete in {}ms: {} objects, {} apertures",
-            System.currentTimeMillis() - startTime, document.getObjects().size(), document.getApertures().size());
+            (System.nanoTime() - startTime) / 1_000_000, document.getObjects().size(), document.getApertures().size());
 
         return document;
     }
 
+    /** Record a warning on the document and report it to the listener. */
+    private void warn(String message) {
+        document.addWarning(message);
+        listener.warning(PipelineListener.Stage.PARSE, message);
+    }
+
     private void processToken(Token token) {
         switch (token.getType()) {
             case FORMAT_SPEC -> parseFormatSpec(token);
@@ -156,13 +213,13 @@ public class GerberParser {
             coordFormat = new CoordinateFormat(intDigits, decDigits, leadingZeroOmitted, absolute);
             document.setCoordinateFormat(coordFormat);
             if (ltFlag.isEmpty() || aiFlag.isEmpty()) {
-                document.addWarning("Non-standard FS spec '" + content
+                warn("Non-standard FS spec '" + content
                     + "' — missing " + (ltFlag.isEmpty() ? "zero-suppression" : "")
                     + (ltFlag.isEmpty() && aiFlag.isEmpty() ? "/" : "")
                     + (aiFlag.isEmpty() ? "notation" : "") + " flag, assuming L/A");
             }
         } else {
-            document.addWarning("Failed to parse FS spec: " + content);
+            warn("Failed to parse FS spec: " + content);
         }
     }
 
@@ -380,7 +437,7 @@ public class GerberParser {
         // %IPPOS*% or %IPNEG*%
         // NEG inverts all polarities
         if (content.contains("NEG")) {
-            document.addWarning("Image polarity NEG detected — polarity inversion not fully supported");
+            warn("Image polarity NEG detected — polarity inversion not fully supported");
         }
         // POS is the default, no action needed
     }
@@ -395,7 +452,7 @@ public class GerberParser {
             double offsetA = Double.parseDouble(matcher.group(1));
             double offsetB = Double.parseDouble(matcher.group(2));
             if (offsetA != 0 || offsetB != 0) {
-                document.addWarning("Non-zero image offset detected: A=" + offsetA + " B=" + offsetB);
+                warn("Non-zero image offset detected: A=" + offsetA + " B=" + offsetB);
             }
         }
     }
@@ -438,7 +495,7 @@ public class GerberParser {
     private void parseBlockAperture(Token token) {
         String content = token.getContent();
         if (content.length() > 2 && content.contains("D")) {
-            document.addWarning("Block aperture (AB) not fully supported: " + content);
+            warn("Block aperture (AB) not fully supported: " + content);
         }
         // AB close (just "AB") is silently ignored
     }
@@ -0,0 +1,23 @@
+package com.deltaproto.deltagerber.pipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the tokenization of one Gerber file.
+ */
+@Name("com.deltaproto.deltagerber.GerberLex")
+@Label("Gerber Lex")
+@Category({"Delta Gerber", "Parsing"})
+@Description("Tokenization of one Gerber file")
+public class GerberLexEvent extends Event {
+
+    @Label("Characters")
+    public int characters;
+
+    @Label("Tokens")
+    public int tokens;
+}
@@ -0,0 +1,29 @@
+package com.deltaproto.deltagerber.pipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the parse of one file into a document: token processing for
+ * Gerber (lexing is a separate {@link GerberLexEvent}), the whole parse for Excellon.
+ */
+@Name("com.deltaproto.deltagerber.GerberParse")
+@Label("Gerber Parse")
+@Category({"Delta Gerber", "Parsing"})
+@Description("Parse of one Gerber or Excellon file into a document")
+public class GerberParseEvent extends Event {
+
+    @Label("Format")
+    @Description("\"gerber\" or \"excellon\"")
+    public String format;
+
+    @Label("Objects")
+    @Description("Graphics objects (Gerber) or drill operations (Excellon)")
+    public int objects;
+
+    @Label("Warnings")
+    public int warnings;
+}
@@ -0,0 +1,93 @@
+package com.deltaproto.deltagerber.pipeline;
+
+/**
+ * Callbacks from the parsers and renderers as a file moves through the pipeline.
+ * <p>
+ * Pass an implementation to {@code GerberParser}, {@code ExcellonParser},
+ * {@code SVGRenderer} or {@code MultiLayerSVGRenderer} via {@code setListener}.
+ * Every method has an empty default, so implementations only override what they
+ * need. Callbacks run synchronously on the thread doing the work; a listener
+ * shared between parsers or renderers used concurrently must be thread-safe.
+ * <p>
+ * Independently of any listener, each stage is also recorded as a JDK Flight
+ * Recorder event ({@link GerberLexEvent}, {@link GerberParseEvent},
+ * {@link SvgRenderEvent}, {@link RasterizeEvent}), which costs next to nothing
+ * while no recording is running.
+ */
+public interface PipelineListener {
+
+    /** Pipeline stages, in the order a file passes through them. */
+    enum Stage {
+        /** Tokenizing Gerber source. */
+        LEX,
+        /** Building a document from Gerber tokens or Excellon lines. */
+        PARSE,
+        /** Generating SVG from parsed documents. */
+        SVG_RENDER,
+        /** Rasterizing SVG, or drawing documents directly, to PNG. */
+        RASTERIZE
+    }
+
+    /**
+     * Parts of a {@code MultiLayerSVGRenderer} render, reported inside its
+     * {@link Stage#SVG_RENDER} stage so a slow render can be traced to a part
+     * and a layer.
+     */
+    enum Section {
+        /** Aperture {@code <defs>} of a layer. */
+        DEFS,
+        /** Clear-polarity masks, and soldermask and drill masks of realistic views. */
+        MASKS,
+        /** Layer content and drill hits. */
+        BODIES,
+        /** Chaining the board outline into a path. */
+        OUTLINE
+    }
+
+    /** Listener that ignores everything; the default of all parsers and renderers. */
+    PipelineListener NONE = new PipelineListener() {
+    };
+
+    default void stageStarted(Stage stage) {
+    }
+
+    /**
+     * @param nanos wall time the stage took
+     */
+    default void stageFinished(Stage stage, long nanos) {
+    }
+
+    /** Tokens the lexer produced for one file. */
+    default void tokensLexed(int tokens) {
+    }
+
+    /** Graphics objects (Gerber) or drill operations (Excellon) in a parsed document. */
+    default void objectsParsed(int objects) {
+    }
+
+    /**
+     * Output size of a stage: characters of SVG for {@link Stage#SVG_RENDER}
+     * (0 for a thumbnail built as a DOM), bytes of PNG for {@link Stage#RASTERIZE}.
+     */
+    default void bytesEmitted(Stage stage, long bytes) {
+    }
+
+    /** A section of the current SVG render is about to be generated. */
+    default void sectionStarted(Section section) {
+    }
+
+    /**
+     * A section was generated. Sections taken from a fragment cache are not
+     * generated and so not reported.
+     *
+     * @param document   the {@code GerberDocument} or {@code DrillDocument} it was generated from
+     * @param nanos      wall time it took
+     * @param characters length of the generated SVG, 0 if generated into a DOM
+     */
+    default void sectionFinished(Section section, Object document, long nanos, long characters) {
+    }
+
+    /** A non-fatal problem, e.g. a construct the parser only partly supports. */
+    default void warning(Stage stage, String message) {
+    }
+}
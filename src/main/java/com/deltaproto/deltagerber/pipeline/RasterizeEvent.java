@@ -0,0 +1,38 @@
+package com.deltaproto.deltagerber.pipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the rasterization of one SVG, or of documents directly, to PNG.
+ */
+@Name("com.deltaproto.deltagerber.Rasterize")
+@Label("Rasterize")
+@Category({"Delta Gerber", "Rendering"})
+@Description("Rasterization of one SVG, or of documents directly, to PNG")
+public class RasterizeEvent extends Event {
+
+    @Label("Width")
+    @Description("Requested width in pixels, 0 if derived from the height")
+    public int width;
+
+    @Label("Height")
+    @Description("Requested height in pixels, 0 if derived from the width")
+    public int height;
+
+    @Label("Backend")
+    @Description("batik for SVG rasterized by Batik, java2d for documents drawn directly")
+    public String backend;
+
+    @Label("SVG Characters")
+    @Description("Size of the rasterized SVG, 0 for the java2d backend and for Batik given a DOM")
+    public long svgCharacters;
+
+    @Label("PNG Size")
+    @DataAmount
+    public long pngBytes;
+}
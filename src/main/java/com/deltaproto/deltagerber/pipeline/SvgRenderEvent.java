@@ -0,0 +1,28 @@
+package com.deltaproto.deltagerber.pipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering one SVG render call.
+ */
+@Name("com.deltaproto.deltagerber.SvgRender")
+@Label("SVG Render")
+@Category({"Delta Gerber", "Rendering"})
+@Description("Generation of one SVG document or layer fragment")
+public class SvgRenderEvent extends Event {
+
+    @Label("Kind")
+    @Description("\"layer\", \"multilayer\", \"realistic\", \"thumbnail\" or \"fragment\"")
+    public String kind;
+
+    @Label("Layers")
+    public int layers;
+
+    @Label("Characters")
+    @Description("Length of the generated SVG, 0 for a thumbnail built as a DOM")
+    public long characters;
+}
@@ -0,0 +1,276 @@
+package com.deltaproto.deltagerber.renderer;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * How much detail an overview render keeps: features smaller than the output
+ * can show are dropped or merged before they are drawn, so a thumbnail of a
+ * dense board costs about as much as its pixels rather than its features.
+ * <p>
+ * The detail limit is a cell size in mm: the output's pixel size, or coarser
+ * when an element budget spreads at most that many cells over the document.
+ * {@link #apply} then rewrites a document's objects, keeping their order:
+ * <ul>
+ *   <li>Runs of at least {@value #MIN_TEXT_RUN} consecutive dark strokes, each
+ *   thinner than a cell and no longer than a few cells, that together stay
+ *   within a few cells of height (silkscreen text, typically) become a single
+ *   stroke through their bounds.</li>
+ *   <li>Clear objects smaller than a cell are dropped, so polarity groups made
+ *   only of them, and their masks, disappear.</li>
+ *   <li>Dark objects smaller than a cell are merged: the first one in each cell
+ *   is kept and the rest of that cell skipped, until a clear object may have
+ *   erased it.</li>
+ * </ul>
+ * Everything at least a cell in size is kept as it is. Instances are immutable.
+ */
+public final class LevelOfDetail {
+
+    /** Shortest run of strokes replaced by its bounds. */
+    public static final int MIN_TEXT_RUN = 4;
+
+    // A text stroke spans at most this many cells, and a run's shorter side too
+    private static final double TEXT_CELLS = 4;
+
+    private final double pixelSize;
+    private final int elementBudget;
+
+    private LevelOfDetail(double pixelSize, int elementBudget) {
+        if (!(pixelSize >= 0) || Double.isInfinite(pixelSize)) {
+            throw new IllegalArgumentException("pixelSize must be finite and non-negative: " + pixelSize);
+        }
+        if (elementBudget < 0) {
+            throw new IllegalArgumentException("elementBudget must not be negative: " + elementBudget);
+        }
+        this.pixelSize = pixelSize;
+        this.elementBudget = elementBudget;
+    }
+
+    /** Detail down to {@code mm}, the size of an output pixel. */
+    public static LevelOfDetail forPixelSize(double mm) {
+        return new LevelOfDetail(mm, 0);
+    }
+
+    /**
+     * Detail for an output of {@code pixels} across {@code extentMm} of the board.
+     *
+     * @throws IllegalArgumentException if {@code pixels} is not positive
+     */
+    public static LevelOfDetail forOutput(double extentMm, int pixels) {
+        if (pixels <= 0) {
+            throw new IllegalArgumentException("pixels must be positive: " + pixels);
+        }
+        return new LevelOfDetail(extentMm / pixels, 0);
+    }
+
+    /** Detail limited to about {@code budget} cells over a document's bounds. */
+    public static LevelOfDetail forElementBudget(int budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("budget must be positive: " + budget);
+        }
+        return new LevelOfDetail(0, budget);
+    }
+
+    /** The same detail, coarsened further where a document would exceed {@code budget} cells. */
+    public LevelOfDetail withElementBudget(int budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("budget must be positive: " + budget);
+        }
+        return new LevelOfDetail(pixelSize, budget);
+    }
+
+    /** Output pixel size in mm, or 0 if only a budget is set. */
+    public double getPixelSize() {
+        return pixelSize;
+    }
+
+    /** Element budget per document, or 0 for none. */
+    public int getElementBudget() {
+        return elementBudget;
+    }
+
+    /**
+     * The smallest feature size kept for a document with the given bounds:
+     * the pixel size, or the side of one budget cell if that is larger.
+     */
+    public double cellSize(BoundingBox extent) {
+        double cell = pixelSize;
+        if (elementBudget > 0 && extent != null && extent.isValid()) {
+            cell = Math.max(cell, Math.sqrt(extent.getWidth() * extent.getHeight() / elementBudget));
+        }
+        return cell;
+    }
+
+    /**
+     * The objects to draw at this level of detail, in document order.
+     *
+     * @param extent the document's bounds, for the element budget
+     * @return {@code objects} itself when nothing is below the detail limit
+     */
+    public List<GraphicsObject> apply(List<GraphicsObject> objects, BoundingBox extent) {
+        double cell = cellSize(extent);
+        if (!(cell > 0)) return objects;
+        Pass pass = new Pass(objects, cell);
+        pass.run();
+        return pass.changed ? pass.out : objects;
+    }
+
+    /** The objects of a document to draw at this level of detail. */
+    public List<GraphicsObject> apply(GerberDocument doc) {
+        return apply(doc.getObjects(), doc.getBoundingBox());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LevelOfDetail)) return false;
+        LevelOfDetail other = (LevelOfDetail) o;
+        return Double.compare(pixelSize, other.pixelSize) == 0 && elementBudget == other.elementBudget;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pixelSize, elementBudget);
+    }
+
+    @Override
+    public String toString() {
+        return "LevelOfDetail[pixelSize=" + pixelSize + ", elementBudget=" + elementBudget + "]";
+    }
+
+    /** One decimation of a document's objects. */
+    private static final class Pass {
+        private final List<GraphicsObject> objects;
+        private final double cell;
+        private final List<GraphicsObject> out;
+        private final Set<Long> occupied = new HashSet<>();
+        private boolean changed;
+
+        // The pending run of text strokes: objects[runStart, runEnd)
+        private int runStart;
+        private int runEnd;
+        private BoundingBox run;
+        private double runPen;
+
+        Pass(List<GraphicsObject> objects, double cell) {
+            this.objects = objects;
+            this.cell = cell;
+            this.out = new ArrayList<>(objects.size());
+        }
+
+        void run() {
+            for (int i = 0, n = objects.size(); i < n; i++) {
+                GraphicsObject obj = objects.get(i);
+                BoundingBox box = obj.getBoundingBox();
+                double pen = textPen(obj, box);
+                if (pen >= 0) {
+                    if (run != null && runEnd == i && fitsRun(box)) {
+                        run.include(box);
+                        runPen = Math.max(runPen, pen);
+                        runEnd = i + 1;
+                        continue;
+                    }
+                    flushRun();
+                    run = new BoundingBox(box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY());
+                    runPen = pen;
+                    runStart = i;
+                    runEnd = i + 1;
+                    continue;
+                }
+                flushRun();
+                add(obj, box);
+            }
+            flushRun();
+        }
+
+        /** Pen width of a dark stroke small enough to be text, or -1 if it isn't one. */
+        private double textPen(GraphicsObject obj, BoundingBox box) {
+            if (obj.getPolarity() != Polarity.DARK || !box.isValid()) return -1;
+            Aperture aperture;
+            if (obj instanceof Draw draw) {
+                aperture = draw.getAperture();
+            } else if (obj instanceof Arc arc) {
+                aperture = arc.getAperture();
+            } else {
+                return -1;
+            }
+            BoundingBox ap = aperture.getBoundingBox();
+            double pen = ap.isValid() ? Math.max(ap.getWidth(), ap.getHeight()) : 0;
+            if (pen >= cell || Math.max(box.getWidth(), box.getHeight()) > TEXT_CELLS * cell) return -1;
+            return pen;
+        }
+
+        private boolean fitsRun(BoundingBox box) {
+            double width = Math.max(run.getMaxX(), box.getMaxX()) - Math.min(run.getMinX(), box.getMinX());
+            double height = Math.max(run.getMaxY(), box.getMaxY()) - Math.min(run.getMinY(), box.getMinY());
+            return Math.min(width, height) <= TEXT_CELLS * cell;
+        }
+
+        private void flushRun() {
+            if (run == null) return;
+            if (runEnd - runStart >= MIN_TEXT_RUN) {
+                // A run smaller than a cell merges like any other small object
+                Draw stroke = boundingStroke(run, runPen);
+                add(stroke, stroke.getBoundingBox());
+                changed = true;
+            } else {
+                for (int i = runStart; i < runEnd; i++) {
+                    GraphicsObject obj = objects.get(i);
+                    add(obj, obj.getBoundingBox());
+                }
+            }
+            run = null;
+        }
+
+        /** A stroke along the longer side of the box, half as wide as the shorter. */
+        private static Draw boundingStroke(BoundingBox box, double pen) {
+            boolean horizontal = box.getWidth() >= box.getHeight();
+            double width = Math.max(pen, Math.min(box.getWidth(), box.getHeight()) / 2);
+            double half = Math.min(width, Math.max(box.getWidth(), box.getHeight())) / 2;
+            Draw stroke;
+            if (horizontal) {
+                stroke = new Draw(box.getMinX() + half, box.getCenterY(),
+                    box.getMaxX() - half, box.getCenterY(), new CircleAperture(0, width));
+            } else {
+                stroke = new Draw(box.getCenterX(), box.getMinY() + half,
+                    box.getCenterX(), box.getMaxY() - half, new CircleAperture(0, width));
+            }
+            stroke.setPolarity(Polarity.DARK);
+            return stroke;
+        }
+
+        private void add(GraphicsObject obj, BoundingBox box) {
+            if (!box.isValid() || Math.max(box.getWidth(), box.getHeight()) >= cell) {
+                out.add(obj);
+                if (obj.getPolarity() == Polarity.CLEAR) {
+                    occupied.clear();
+                }
+                return;
+            }
+            if (obj.getPolarity() == Polarity.DARK
+                    && occupied.add(cellKey(box.getCenterX(), box.getCenterY()))) {
+                out.add(obj);
+            } else {
+                changed = true;
+            }
+        }
+
+        private long cellKey(double x, double y) {
+            long column = (long) Math.floor(x / cell);
+            long row = (long) Math.floor(y / cell);
+            return (column << 32) ^ (row & 0xffffffffL);
+        }
+    }
+}
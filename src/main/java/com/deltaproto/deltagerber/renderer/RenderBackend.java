@@ -0,0 +1,54 @@
+package com.deltaproto.deltagerber.renderer;
+
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+
+/**
+ * Receives the geometry of parsed documents, one call per aperture and per
+ * object, for an output format to draw or encode.
+ * <p>
+ * {@link RenderTraversal} drives a backend through a document in a fixed
+ * order: first every aperture definition, then the objects in document order,
+ * each run of objects sharing a polarity between
+ * {@link #beginPolarityGroup} and {@link #endPolarityGroup}. Drill documents
+ * yield their hits and slots. A backend only has to implement the calls its
+ * format needs; the others do nothing.
+ *
+ * @see com.deltaproto.deltagerber.renderer.svg.SvgRenderBackend
+ * @see com.deltaproto.deltagerber.renderer.raster.Java2DRenderBackend
+ * @see com.deltaproto.deltagerber.renderer.geometry.BinaryGeometryBackend
+ */
+public interface RenderBackend {
+
+    /** An aperture of the document, before any object that uses it. */
+    default void apertureDef(Aperture aperture) {
+    }
+
+    /** Start of a run of consecutive objects with the given polarity. */
+    default void beginPolarityGroup(Polarity polarity) {
+    }
+
+    /** End of the run started by the matching {@link #beginPolarityGroup}. */
+    default void endPolarityGroup(Polarity polarity) {
+    }
+
+    void flash(Flash flash);
+
+    void draw(Draw draw);
+
+    void arc(Arc arc);
+
+    void region(Region region);
+
+    default void drillHit(DrillHit hit) {
+    }
+
+    default void slot(DrillSlot slot) {
+    }
+}
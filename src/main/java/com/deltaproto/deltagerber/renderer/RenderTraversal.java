@@ -0,0 +1,152 @@
+package com.deltaproto.deltagerber.renderer;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillOperation;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Walks parsed documents and hands their geometry to a {@link RenderBackend},
+ * in the order described there. This is the one place that dispatches on the
+ * kind of object, so every output format sees the same traversal.
+ * <p>
+ * A traversal stops with a {@link CancellationException} once its thread is
+ * interrupted, so a render abandoned on timeout doesn't keep the CPU busy.
+ */
+public final class RenderTraversal {
+
+    // Objects visited between checks for an interrupt
+    private static final int INTERRUPT_CHECK_MASK = 255;
+
+    private RenderTraversal() {
+    }
+
+    /** Aperture definitions, then all objects in polarity groups. */
+    public static void traverse(GerberDocument doc, RenderBackend backend) {
+        apertureDefs(doc, backend);
+        polarityGroups(doc.getObjects(), backend);
+    }
+
+    /** All hits and slots, in document order. */
+    public static void traverse(DrillDocument doc, RenderBackend backend) {
+        List<DrillOperation> operations = doc.getOperations();
+        for (int i = 0, n = operations.size(); i < n; i++) {
+            checkInterrupted(i);
+            operation(operations.get(i), backend);
+        }
+    }
+
+    /**
+     * Aperture definitions, then the selected objects in polarity groups, e.g.
+     * those a {@link com.deltaproto.deltagerber.model.gerber.SpatialIndex} query
+     * returned. Objects keep their document order.
+     */
+    public static void traverse(GerberDocument doc, RenderBackend backend, BitSet selected) {
+        apertureDefs(doc, backend);
+        polarityGroups(doc.getObjects(), backend, selected);
+    }
+
+    /** The selected hits and slots, in document order. */
+    public static void traverse(DrillDocument doc, RenderBackend backend, BitSet selected) {
+        List<DrillOperation> operations = doc.getOperations();
+        for (int i = selected.nextSetBit(0); i >= 0 && i < operations.size(); i = selected.nextSetBit(i + 1)) {
+            checkInterrupted(i);
+            operation(operations.get(i), backend);
+        }
+    }
+
+    public static void apertureDefs(GerberDocument doc, RenderBackend backend) {
+        for (Aperture aperture : doc.getApertures().values()) {
+            backend.apertureDef(aperture);
+        }
+    }
+
+    /** The objects with a polarity group around each run of the same polarity. */
+    public static void polarityGroups(List<GraphicsObject> objects, RenderBackend backend) {
+        Polarity current = null;
+        for (int i = 0, n = objects.size(); i < n; i++) {
+            checkInterrupted(i);
+            GraphicsObject obj = objects.get(i);
+            Polarity polarity = obj.getPolarity();
+            if (polarity != current) {
+                if (current != null) {
+                    backend.endPolarityGroup(current);
+                }
+                backend.beginPolarityGroup(polarity);
+                current = polarity;
+            }
+            object(obj, backend);
+        }
+        if (current != null) {
+            backend.endPolarityGroup(current);
+        }
+    }
+
+    /** The selected objects with a polarity group around each run of the same polarity. */
+    public static void polarityGroups(List<GraphicsObject> objects, RenderBackend backend, BitSet selected) {
+        Polarity current = null;
+        for (int i = selected.nextSetBit(0), n = objects.size(); i >= 0 && i < n; i = selected.nextSetBit(i + 1)) {
+            checkInterrupted(i);
+            GraphicsObject obj = objects.get(i);
+            Polarity polarity = obj.getPolarity();
+            if (polarity != current) {
+                if (current != null) {
+                    backend.endPolarityGroup(current);
+                }
+                backend.beginPolarityGroup(polarity);
+                current = polarity;
+            }
+            object(obj, backend);
+        }
+        if (current != null) {
+            backend.endPolarityGroup(current);
+        }
+    }
+
+    /** The objects without polarity groups, for callers that handle polarity themselves. */
+    public static void objects(List<GraphicsObject> objects, RenderBackend backend) {
+        for (int i = 0, n = objects.size(); i < n; i++) {
+            checkInterrupted(i);
+            object(objects.get(i), backend);
+        }
+    }
+
+    /** Every so many objects, stop if the thread has been interrupted. */
+    private static void checkInterrupted(int index) {
+        if ((index & INTERRUPT_CHECK_MASK) == INTERRUPT_CHECK_MASK && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Render interrupted");
+        }
+    }
+
+    public static void object(GraphicsObject obj, RenderBackend backend) {
+        if (obj instanceof Flash flash) {
+            backend.flash(flash);
+        } else if (obj instanceof Draw draw) {
+            backend.draw(draw);
+        } else if (obj instanceof Arc arc) {
+            backend.arc(arc);
+        } else if (obj instanceof Region region) {
+            backend.region(region);
+        }
+    }
+
+    public static void operation(DrillOperation op, RenderBackend backend) {
+        if (op instanceof DrillHit hit) {
+            backend.drillHit(hit);
+        } else if (op instanceof DrillSlot slot) {
+            backend.slot(slot);
+        }
+    }
+}
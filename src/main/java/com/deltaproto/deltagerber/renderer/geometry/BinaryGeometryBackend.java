@@ -0,0 +1,259 @@
+package com.deltaproto.deltagerber.renderer.geometry;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.renderer.RenderBackend;
+import com.deltaproto.deltagerber.renderer.RenderTraversal;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Encodes geometry as a compact binary stream, for clients that draw it
+ * themselves (a WebGL viewer, say) rather than parse SVG.
+ * <p>
+ * The stream is big-endian, as written by {@link DataOutputStream}. It starts
+ * with the int {@link #MAGIC} and the short {@link #VERSION}, followed by
+ * records of a tag byte and its fields, and ends with {@link #END}. Lengths and
+ * coordinates are 32-bit floats in millimetres, angles in degrees:
+ * <ul>
+ *   <li>{@link #APERTURE}: int D code, polygon of the shape around the origin</li>
+ *   <li>{@link #POLARITY}: byte 0 for dark, 1 for clear; applies to the
+ *   objects up to the next polarity record</li>
+ *   <li>{@link #FLASH}: int D code, x, y, rotation, scale, byte flags
+ *   (1 = mirror X, 2 = mirror Y)</li>
+ *   <li>{@link #LINE}: x1, y1, x2, y2, stroke width</li>
+ *   <li>{@link #ARC}: start x, y, end x, y, center x, y, stroke width, byte
+ *   1 if clockwise</li>
+ *   <li>{@link #REGION}: polygon</li>
+ *   <li>{@link #HIT}: x, y, diameter</li>
+ *   <li>{@link #SLOT}: x1, y1, x2, y2, diameter</li>
+ * </ul>
+ * A polygon is a byte fill rule (0 non-zero, 1 even-odd), an int ring count
+ * and for each ring an int point count and its x, y pairs. Curves are
+ * flattened to within the flatness given at construction. Lines and arcs are
+ * stroked with round caps; stroke widths follow the SVG output.
+ */
+public final class BinaryGeometryBackend implements RenderBackend {
+
+    public static final int MAGIC = 0x4447454F;  // "DGEO"
+    public static final short VERSION = 1;
+
+    public static final byte END = 0;
+    public static final byte APERTURE = 1;
+    public static final byte POLARITY = 2;
+    public static final byte FLASH = 3;
+    public static final byte LINE = 4;
+    public static final byte ARC = 5;
+    public static final byte REGION = 6;
+    public static final byte HIT = 7;
+    public static final byte SLOT = 8;
+
+    /** Default flatness of curves in polygons, in mm. */
+    public static final double DEFAULT_FLATNESS = 0.001;
+
+    private final DataOutputStream out;
+    private final double flatness;
+    private final float[] coords = new float[6];
+
+    /**
+     * Start a stream, writing its header.
+     *
+     * @param flatness maximum distance of flattened curves from the true ones, in mm
+     */
+    public BinaryGeometryBackend(OutputStream out, double flatness) {
+        this.out = new DataOutputStream(out);
+        this.flatness = flatness;
+        try {
+            this.out.writeInt(MAGIC);
+            this.out.writeShort(VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** The geometry of a Gerber document as a complete stream. */
+    public static byte[] encode(GerberDocument doc) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + doc.getObjects().size() * 24);
+        BinaryGeometryBackend backend = new BinaryGeometryBackend(bytes, DEFAULT_FLATNESS);
+        RenderTraversal.traverse(doc, backend);
+        backend.finish();
+        return bytes.toByteArray();
+    }
+
+    /** The hits and slots of a drill document as a complete stream. */
+    public static byte[] encode(DrillDocument doc) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + doc.getOperations().size() * 16);
+        BinaryGeometryBackend backend = new BinaryGeometryBackend(bytes, DEFAULT_FLATNESS);
+        RenderTraversal.traverse(doc, backend);
+        backend.finish();
+        return bytes.toByteArray();
+    }
+
+    /** End the stream and flush it. */
+    public void finish() {
+        try {
+            out.writeByte(END);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void apertureDef(Aperture aperture) {
+        try {
+            out.writeByte(APERTURE);
+            out.writeInt(aperture.getDCode());
+            polygon(aperture.toShape());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void beginPolarityGroup(Polarity polarity) {
+        try {
+            out.writeByte(POLARITY);
+            out.writeByte(polarity == Polarity.DARK ? 0 : 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flash(Flash flash) {
+        try {
+            out.writeByte(FLASH);
+            out.writeInt(flash.getAperture().getDCode());
+            floats(flash.getX(), flash.getY(), flash.getRotation(), flash.getScale());
+            out.writeByte((flash.isMirrorX() ? 1 : 0) | (flash.isMirrorY() ? 2 : 0));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void draw(Draw draw) {
+        double strokeWidth = 0;
+        if (draw.getAperture() instanceof CircleAperture circle) {
+            strokeWidth = circle.getDiameter();
+        } else if (draw.getAperture() instanceof RectangleAperture rect) {
+            strokeWidth = Math.max(rect.getWidth(), rect.getHeight());
+        }
+        try {
+            out.writeByte(LINE);
+            floats(draw.getStartX(), draw.getStartY(), draw.getEndX(), draw.getEndY(), strokeWidth);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void arc(Arc arc) {
+        double strokeWidth = arc.getAperture() instanceof CircleAperture circle ? circle.getDiameter() : 0;
+        try {
+            out.writeByte(ARC);
+            floats(arc.getStartX(), arc.getStartY(), arc.getEndX(), arc.getEndY(),
+                arc.getCenterX(), arc.getCenterY(), strokeWidth);
+            out.writeByte(arc.isClockwise() ? 1 : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void region(Region region) {
+        try {
+            out.writeByte(REGION);
+            polygon(region.toShape());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void drillHit(DrillHit hit) {
+        try {
+            out.writeByte(HIT);
+            floats(hit.getX(), hit.getY(), hit.getTool().getDiameter());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void slot(DrillSlot slot) {
+        try {
+            out.writeByte(SLOT);
+            floats(slot.getStartX(), slot.getStartY(), slot.getEndX(), slot.getEndY(),
+                slot.getTool().getDiameter());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void floats(double... values) throws IOException {
+        for (double value : values) {
+            out.writeFloat((float) value);
+        }
+    }
+
+    /**
+     * Write a shape as flattened rings. The counts come first, so the points
+     * are buffered per shape.
+     */
+    private void polygon(Shape shape) throws IOException {
+        PathIterator it = shape.getPathIterator(null, flatness);
+        out.writeByte(it.getWindingRule() == PathIterator.WIND_EVEN_ODD ? 1 : 0);
+        ByteArrayOutputStream ringBytes = new ByteArrayOutputStream();
+        DataOutputStream rings = new DataOutputStream(ringBytes);
+        ByteArrayOutputStream pointBytes = new ByteArrayOutputStream();
+        DataOutputStream points = new DataOutputStream(pointBytes);
+        int ringCount = 0;
+        int pointCount = 0;
+        for (; !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            if (type == PathIterator.SEG_MOVETO && pointCount > 0) {
+                ringCount += ring(rings, pointBytes, pointCount);
+                pointCount = 0;
+            }
+            if (type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_LINETO) {
+                points.writeFloat(coords[0]);
+                points.writeFloat(coords[1]);
+                pointCount++;
+            }
+        }
+        ringCount += ring(rings, pointBytes, pointCount);
+        out.writeInt(ringCount);
+        ringBytes.writeTo(out);
+    }
+
+    /** Move the buffered points into a ring, dropping rings too small to enclose anything. */
+    private static int ring(DataOutputStream rings, ByteArrayOutputStream pointBytes, int pointCount)
+            throws IOException {
+        int written = 0;
+        if (pointCount >= 3) {
+            rings.writeInt(pointCount);
+            pointBytes.writeTo(rings);
+            written = 1;
+        }
+        pointBytes.reset();
+        return written;
+    }
+}
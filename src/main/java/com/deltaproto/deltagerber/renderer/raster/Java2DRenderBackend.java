@@ -0,0 +1,132 @@
+package com.deltaproto.deltagerber.renderer.raster;
+
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.renderer.RenderBackend;
+
+import java.awt.BasicStroke;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.util.Map;
+
+/**
+ * Paints geometry into a {@link Graphics2D} that draws in Gerber coordinates,
+ * with the graphics' current color.
+ * <p>
+ * Shapes are filled and stroked as the SVG draws them: round-capped lines,
+ * rectangle apertures stroking with their larger side, even-odd regions.
+ * Given a composite per polarity, each polarity group switches to its
+ * composite (source-over to paint, destination-out to erase, say); without,
+ * everything is drawn with the graphics' current composite.
+ */
+public final class Java2DRenderBackend implements RenderBackend {
+
+    private final Graphics2D g;
+    private final Map<Aperture, Shape> apertureShapes;
+    private final Composite dark;
+    private final Composite clear;
+
+    /**
+     * @param apertureShapes cache of aperture shapes, shared between renders of
+     *                       documents with the same apertures
+     */
+    public Java2DRenderBackend(Graphics2D g, Map<Aperture, Shape> apertureShapes,
+                               Composite dark, Composite clear) {
+        this.g = g;
+        this.apertureShapes = apertureShapes;
+        this.dark = dark;
+        this.clear = clear;
+    }
+
+    /** A backend drawing everything with the graphics' current composite. */
+    public Java2DRenderBackend(Graphics2D g, Map<Aperture, Shape> apertureShapes) {
+        this(g, apertureShapes, null, null);
+    }
+
+    @Override
+    public void apertureDef(Aperture aperture) {
+        shape(aperture);
+    }
+
+    @Override
+    public void beginPolarityGroup(Polarity polarity) {
+        if (dark != null) {
+            g.setComposite(polarity == Polarity.DARK ? dark : clear);
+        }
+    }
+
+    @Override
+    public void flash(Flash flash) {
+        AffineTransform saved = g.getTransform();
+        g.translate(flash.getX(), flash.getY());
+        if (flash.isMirrorX() || flash.isMirrorY()) {
+            g.scale(flash.isMirrorX() ? -1 : 1, flash.isMirrorY() ? -1 : 1);
+        }
+        if (flash.getRotation() != 0) {
+            g.rotate(Math.toRadians(flash.getRotation()));
+        }
+        if (flash.getScale() != 1.0) {
+            g.scale(flash.getScale(), flash.getScale());
+        }
+        g.fill(shape(flash.getAperture()));
+        g.setTransform(saved);
+    }
+
+    @Override
+    public void draw(Draw draw) {
+        double strokeWidth = 0;
+        if (draw.getAperture() instanceof CircleAperture circle) {
+            strokeWidth = circle.getDiameter();
+        } else if (draw.getAperture() instanceof RectangleAperture rect) {
+            strokeWidth = Math.max(rect.getWidth(), rect.getHeight());
+        }
+        stroke(new Line2D.Double(draw.getStartX(), draw.getStartY(), draw.getEndX(), draw.getEndY()),
+            strokeWidth);
+    }
+
+    @Override
+    public void arc(Arc arc) {
+        double strokeWidth = arc.getAperture() instanceof CircleAperture circle ? circle.getDiameter() : 0;
+        stroke(arc.toShape(), strokeWidth);
+    }
+
+    @Override
+    public void region(Region region) {
+        g.fill(region.toShape());
+    }
+
+    @Override
+    public void drillHit(DrillHit hit) {
+        double d = hit.getTool().getDiameter();
+        g.fill(new Ellipse2D.Double(hit.getX() - d / 2, hit.getY() - d / 2, d, d));
+    }
+
+    @Override
+    public void slot(DrillSlot slot) {
+        stroke(new Line2D.Double(slot.getStartX(), slot.getStartY(), slot.getEndX(), slot.getEndY()),
+            slot.getTool().getDiameter());
+    }
+
+    private Shape shape(Aperture aperture) {
+        return apertureShapes.computeIfAbsent(aperture, Aperture::toShape);
+    }
+
+    /** Stroke with round caps and joins; a zero width paints nothing, as in SVG. */
+    private void stroke(Shape path, double strokeWidth) {
+        if (strokeWidth <= 0) return;
+        g.setStroke(new BasicStroke((float) strokeWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g.draw(path);
+    }
+}
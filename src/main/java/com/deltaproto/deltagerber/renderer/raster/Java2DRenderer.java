@@ -0,0 +1,574 @@
+package com.deltaproto.deltagerber.renderer.raster;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
+import com.deltaproto.deltagerber.pipeline.RasterizeEvent;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.renderer.LevelOfDetail;
+import com.deltaproto.deltagerber.renderer.RenderBackend;
+import com.deltaproto.deltagerber.renderer.RenderTraversal;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer.Layer;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer.Side;
+import com.deltaproto.deltagerber.renderer.svg.RenderFragmentCache;
+import org.apache.batik.parser.AWTPathProducer;
+import org.apache.batik.parser.ParseException;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the realistic board view straight into a {@link BufferedImage} with
+ * Java2D, for PNG thumbnails.
+ * <p>
+ * {@link MultiLayerSVGRenderer#renderRealisticSidePng} generates the realistic
+ * SVG and has Batik parse and rasterize it, which costs far more than the
+ * picture is worth at thumbnail size; masks are Batik's slowest path. This
+ * renderer draws the parsed documents instead, using the same layer stack and
+ * colors:
+ * <ul>
+ *   <li>Each layer is painted into its own buffer in document order; clear
+ *   polarity erases what the layer painted before it (the Gerber painter's
+ *   model that the SVG builds with nested masks).</li>
+ *   <li>The soldermask is the board outline with the soldermask objects cut
+ *   out; the copper finish is copper where the soldermask objects are.</li>
+ *   <li>The stack is clipped to the board outline, and drill hits and slots
+ *   are punched through it, leaving those pixels transparent.</li>
+ * </ul>
+ * The output matches Batik's rendering of the same view to within antialiasing
+ * differences at edges. Exposure-off macro primitives are cut out of their
+ * aperture as the Gerber specification says; the SVG paints them like
+ * exposed ones.
+ * <p>
+ * The same views, and the multi-layer view, can be rendered as the tiles of
+ * a {@link TilePyramid} for deep zoom; tiles draw only the objects that touch
+ * them.
+ * <p>
+ * By default, features smaller than a pixel are dropped or merged and dense
+ * silkscreen text is drawn as strokes through its bounds, as
+ * {@link LevelOfDetail} describes, so thumbnails and zoomed-out tiles cost
+ * about as much as their pixels rather than the board's feature count.
+ */
+public class Java2DRenderer {
+
+    private static final Color FR4 = Color.decode(MultiLayerSVGRenderer.FR4_COLOR);
+    private static final Color COPPER = Color.decode(MultiLayerSVGRenderer.COPPER_COLOR);
+    private static final Color COPPER_FINISH = Color.decode(MultiLayerSVGRenderer.COPPER_FINISH_COLOR);
+    private static final Color SOLDERMASK = Color.decode(MultiLayerSVGRenderer.SOLDERMASK_GREEN);
+    private static final Color SILKSCREEN = Color.decode(MultiLayerSVGRenderer.SILKSCREEN_WHITE);
+
+    private RenderFragmentCache fragmentCache;
+    private PipelineListener listener = PipelineListener.NONE;
+    private boolean levelOfDetail = true;
+    private final Map<Aperture, Shape> apertureShapes = new IdentityHashMap<>();
+
+    /** Share the board outline path with SVG renders using the same cache ({@code null} for none). */
+    public Java2DRenderer setFragmentCache(RenderFragmentCache cache) {
+        this.fragmentCache = cache;
+        return this;
+    }
+
+    /**
+     * Whether to drop detail smaller than a pixel of the output (default
+     * {@code true}); turn off to draw every object at any size.
+     */
+    public Java2DRenderer setLevelOfDetail(boolean enabled) {
+        this.levelOfDetail = enabled;
+        return this;
+    }
+
+    /**
+     * Receive timings and output sizes of subsequent renders, each reported as
+     * one {@link PipelineListener.Stage#RASTERIZE} stage.
+     */
+    public Java2DRenderer setListener(PipelineListener listener) {
+        this.listener = listener != null ? listener : PipelineListener.NONE;
+        return this;
+    }
+
+    /**
+     * Render a realistic view of the given side as a PNG thumbnail, with height
+     * auto-derived from the board's aspect ratio. The bottom side is mirrored
+     * to show the real underside.
+     *
+     * @see MultiLayerSVGRenderer#renderRealisticSidePng(List, Side, int)
+     */
+    public byte[] renderRealisticSidePng(List<Layer> layers, Side side, int widthPx) {
+        return renderRealisticSidePng(layers, side, widthPx, 0, true);
+    }
+
+    /**
+     * Render a realistic-view PNG, sized and mirrored like
+     * {@link MultiLayerSVGRenderer#renderRealisticSidePng(List, Side, int, int, boolean)}.
+     *
+     * @return PNG bytes, or {@code null} if the side couldn't be rendered
+     * @throws IllegalArgumentException if both dimensions are {@code <= 0}
+     */
+    public byte[] renderRealisticSidePng(List<Layer> layers, Side side,
+                                         int widthPx, int heightPx, boolean mirrorBottom) {
+        if (widthPx <= 0 && heightPx <= 0) {
+            throw new IllegalArgumentException(
+                "At least one of widthPx/heightPx must be positive");
+        }
+        listener.stageStarted(PipelineListener.Stage.RASTERIZE);
+        RasterizeEvent event = new RasterizeEvent();
+        event.begin();
+        long start = System.nanoTime();
+        BufferedImage image = renderRealisticSide(layers, side, widthPx, heightPx, mirrorBottom);
+        byte[] png = image != null ? encodePng(image) : null;
+        long elapsed = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.backend = "java2d";
+            event.width = Math.max(0, widthPx);
+            event.height = Math.max(0, heightPx);
+            event.pngBytes = png != null ? png.length : 0;
+            event.commit();
+        }
+        listener.bytesEmitted(PipelineListener.Stage.RASTERIZE, png != null ? png.length : 0);
+        listener.stageFinished(PipelineListener.Stage.RASTERIZE, elapsed);
+        return png;
+    }
+
+    /**
+     * Render a realistic view of the given side into an ARGB image. A dimension
+     * {@code <= 0} is derived from the other and the board's extent; when both
+     * are given the board is centered and letterboxed.
+     *
+     * @return the image, or {@code null} if the side couldn't be rendered
+     * @throws IllegalArgumentException if the outline layer is not a Gerber layer
+     */
+    public BufferedImage renderRealisticSide(List<Layer> layers, Side side,
+                                             int widthPx, int heightPx, boolean mirrorBottom) {
+        Stack stack = Stack.of(layers, side);
+        if (stack == null) return null;
+        Rectangle2D view = stack.view(layers);
+        if (view == null) return null;
+
+        double minX = view.getMinX();
+        double minY = view.getMinY();
+        double width = view.getWidth();
+        double height = view.getHeight();
+        if (widthPx <= 0) widthPx = Math.max(1, (int) Math.round(heightPx * width / height));
+        if (heightPx <= 0) heightPx = Math.max(1, (int) Math.round(widthPx * height / width));
+
+        // viewBox fitted with xMidYMid meet, then the viewport's Y flip and the
+        // optional mirror, as in the SVG
+        double scale = Math.min(widthPx / width, heightPx / height);
+        AffineTransform transform = new AffineTransform();
+        transform.translate((widthPx - width * scale) / 2, (heightPx - height * scale) / 2);
+        transform.scale(scale, scale);
+        transform.translate(-minX, -minY);
+        if (mirrorBottom && side == Side.BOTTOM) {
+            transform.translate(2 * minX + width, 0);
+            transform.scale(-1, 1);
+        }
+        transform.translate(0, 2 * minY + height);
+        transform.scale(1, -1);
+
+        return paintRealistic(stack, new Canvas(widthPx, heightPx, transform, null, detail(1 / scale)), view);
+    }
+
+    /**
+     * Render one tile of a {@link TilePyramid} as a PNG, reported to the
+     * listener like the thumbnails.
+     *
+     * @throws IllegalArgumentException if the pyramid has no such tile
+     */
+    public byte[] renderTilePng(List<Layer> layers, TilePyramid pyramid, int z, int x, int y) {
+        listener.stageStarted(PipelineListener.Stage.RASTERIZE);
+        RasterizeEvent event = new RasterizeEvent();
+        event.begin();
+        long start = System.nanoTime();
+        byte[] png = encodePng(renderTile(layers, pyramid, z, x, y));
+        long elapsed = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.backend = "java2d";
+            event.width = pyramid.getTileSize();
+            event.height = pyramid.getTileSize();
+            event.pngBytes = png.length;
+            event.commit();
+        }
+        listener.bytesEmitted(PipelineListener.Stage.RASTERIZE, png.length);
+        listener.stageFinished(PipelineListener.Stage.RASTERIZE, elapsed);
+        return png;
+    }
+
+    /**
+     * Render one tile of a {@link TilePyramid} into an ARGB image. Only the
+     * objects whose bounds touch the tile are drawn, found through each
+     * document's {@link com.deltaproto.deltagerber.model.gerber.SpatialIndex},
+     * so a deep-zoom tile costs about as much as the features it shows.
+     *
+     * @throws IllegalArgumentException if the pyramid has no such tile
+     */
+    public BufferedImage renderTile(List<Layer> layers, TilePyramid pyramid, int z, int x, int y) {
+        if (!pyramid.contains(z, x, y)) {
+            throw new IllegalArgumentException("No tile " + z + "/" + x + "/" + y
+                + " (max zoom " + pyramid.getMaxZoom() + ")");
+        }
+        int size = pyramid.getTileSize();
+        AffineTransform transform = pyramid.transform(z, x, y);
+        // A pixel of slack around the tile for antialiased edges
+        Rectangle2D window;
+        try {
+            window = transform.createInverse()
+                .createTransformedShape(new Rectangle2D.Double(-1, -1, size + 2, size + 2)).getBounds2D();
+        } catch (NoninvertibleTransformException e) {
+            throw new IllegalStateException(e);
+        }
+        Canvas canvas = new Canvas(size, size, transform, window, detail(1 / pyramid.scale(z)));
+        if (pyramid.getSide() == null) {
+            return paintLayers(layers, canvas);
+        }
+        Stack stack = Stack.of(layers, pyramid.getSide());
+        if (stack == null) return canvas.newImage();
+        return paintRealistic(stack, canvas, pyramid.getBounds());
+    }
+
+    /**
+     * Extent of the realistic view of a side: the outline's bounds (or all
+     * layers' when the outline is empty) plus the thumbnail margin.
+     *
+     * @return the extent, or {@code null} if the side couldn't be rendered
+     */
+    static Rectangle2D realisticView(List<Layer> layers, Side side) {
+        Stack stack = Stack.of(layers, side);
+        return stack != null ? stack.view(layers) : null;
+    }
+
+    /** The realistic stack of one side, painted in the canvas' coordinates. */
+    private BufferedImage paintRealistic(Stack stack, Canvas canvas, Rectangle2D view) {
+        Rectangle2D fullRect = new Rectangle2D.Double(view.getMinX() - 1, view.getMinY() - 1,
+            view.getWidth() + 2, view.getHeight() + 2);
+        Shape outline = outlineShape(stack.outline.getGerberDoc());
+
+        // 1. FR4 substrate
+        BufferedImage board = canvas.newImage();
+        Graphics2D g = canvas.graphics(board);
+        g.setColor(FR4);
+        g.fill(fullRect);
+        g.dispose();
+
+        // 2. Copper, then 3. the copper finish where the soldermask has openings
+        Map<Layer, BufferedImage> copperCoverage = new IdentityHashMap<>();
+        for (Layer layer : stack.copper) {
+            BufferedImage coverage = coverage(canvas, layer.getGerberDoc(), null);
+            copperCoverage.put(layer, coverage);
+            composite(board, tint(canvas, coverage, COPPER), AlphaComposite.SrcOver);
+        }
+        for (Layer copper : stack.copper) {
+            boolean top = copper.getLayerType() == LayerType.COPPER_TOP;
+            LayerType maskType = top ? LayerType.SOLDERMASK_TOP : LayerType.SOLDERMASK_BOTTOM;
+            Layer soldermask = stack.soldermask.stream()
+                .filter(l -> l.getLayerType() == maskType).findFirst().orElse(null);
+            if (soldermask == null) continue;
+            BufferedImage finish = tint(canvas, copperCoverage.get(copper), COPPER_FINISH);
+            composite(finish, coverage(canvas, soldermask.getGerberDoc(), null), AlphaComposite.DstIn);
+            composite(board, finish, AlphaComposite.SrcOver);
+        }
+
+        // 4. Soldermask with the silkscreen of its side on top, both only where
+        // the mask is present
+        for (Layer soldermask : stack.soldermask) {
+            boolean top = soldermask.getLayerType() == LayerType.SOLDERMASK_TOP;
+            BufferedImage group = canvas.newImage();
+            Graphics2D gg = canvas.graphics(group);
+            gg.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER,
+                (float) MultiLayerSVGRenderer.SOLDERMASK_DEFAULT_OPACITY));
+            gg.setColor(SOLDERMASK);
+            gg.fill(fullRect);
+            gg.dispose();
+            for (Layer silkscreen : stack.silkscreen) {
+                boolean silkTop = silkscreen.getLayerType() == LayerType.SILKSCREEN_TOP;
+                if (silkTop != top) continue;
+                BufferedImage coverage = coverage(canvas, silkscreen.getGerberDoc(), null);
+                composite(group, tint(canvas, coverage, SILKSCREEN), AlphaComposite.SrcOver);
+            }
+            // The mask is present on the board except where its dark objects open it
+            BufferedImage present = coverage(canvas, soldermask.getGerberDoc(),
+                outline != null ? outline : fullRect);
+            composite(group, present, AlphaComposite.DstIn);
+            composite(board, group, AlphaComposite.SrcOver);
+        }
+
+        // Clip to the board outline and punch the drill holes through everything
+        if (outline != null) {
+            BufferedImage clip = canvas.newImage();
+            Graphics2D cg = canvas.graphics(clip);
+            cg.setColor(Color.WHITE);
+            cg.fill(outline);
+            cg.dispose();
+            composite(board, clip, AlphaComposite.DstIn);
+        }
+        g = canvas.graphics(board);
+        g.setComposite(AlphaComposite.DstOut);
+        g.setColor(Color.WHITE);
+        Java2DRenderBackend punch = new Java2DRenderBackend(g, apertureShapes);
+        for (Layer layer : stack.drill) {
+            if (layer.isDrill()) {
+                paint(canvas, layer.getDrillDoc(), punch);
+            } else if (layer.isGerber()) {
+                paint(canvas, layer.getGerberDoc(), punch);
+            }
+        }
+        g.dispose();
+        return board;
+    }
+
+    /**
+     * The multi-layer view: each visible layer's coverage in its color, laid
+     * over the previous ones at the layer's opacity, as the SVG groups are.
+     */
+    private BufferedImage paintLayers(List<Layer> layers, Canvas canvas) {
+        BufferedImage image = canvas.newImage();
+        for (Layer layer : layers) {
+            if (!layer.isVisible()) continue;
+            BufferedImage coverage;
+            if (layer.isGerber()) {
+                coverage = coverage(canvas, layer.getGerberDoc(), null);
+            } else if (layer.isDrill()) {
+                coverage = canvas.newImage();
+                Graphics2D g = canvas.graphics(coverage);
+                g.setColor(Color.WHITE);
+                paint(canvas, layer.getDrillDoc(), new Java2DRenderBackend(g, apertureShapes));
+                g.dispose();
+            } else {
+                continue;
+            }
+            composite(image, tint(canvas, coverage, layerColor(layer)),
+                AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) layer.getOpacity()));
+        }
+        return image;
+    }
+
+    /** The layer's color; black, as in the SVG, when it has none or it isn't a hex color. */
+    private static Color layerColor(Layer layer) {
+        if (layer.getColor() == null) return Color.BLACK;
+        try {
+            return Color.decode(layer.getColor());
+        } catch (NumberFormatException e) {
+            return Color.BLACK;
+        }
+    }
+
+    /** The board outline in Gerber coordinates, or {@code null} if it has no path. */
+    private Shape outlineShape(GerberDocument outlineDoc) {
+        String path = new MultiLayerSVGRenderer().setFragmentCache(fragmentCache).setListener(listener)
+            .renderOutlinePath(outlineDoc);
+        if (path == null || path.isBlank()) return null;
+        try {
+            return AWTPathProducer.createShape(new StringReader(path), Path2D.WIND_NON_ZERO);
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Unreadable board outline path", e);
+        }
+    }
+
+    /**
+     * White coverage of a layer under the painter's model. Without a base, dark
+     * objects paint and clear objects erase; with one, the base is filled first
+     * and the roles swap, giving the inverse used for the soldermask.
+     */
+    private BufferedImage coverage(Canvas canvas, GerberDocument doc, Shape base) {
+        BufferedImage image = canvas.newImage();
+        Graphics2D g = canvas.graphics(image);
+        g.setColor(Color.WHITE);
+        Composite dark = AlphaComposite.SrcOver;
+        Composite clear = AlphaComposite.DstOut;
+        if (base != null) {
+            g.fill(base);
+            dark = AlphaComposite.DstOut;
+            clear = AlphaComposite.SrcOver;
+        }
+        paint(canvas, doc, new Java2DRenderBackend(g, apertureShapes, dark, clear));
+        g.dispose();
+        return image;
+    }
+
+    /** The level of detail for a given pixel size in mm, or {@code null} when it is turned off. */
+    private LevelOfDetail detail(double pixelSize) {
+        return levelOfDetail ? LevelOfDetail.forPixelSize(pixelSize) : null;
+    }
+
+    /**
+     * Traverse the document, or only the objects inside the canvas' window if
+     * it has one, at the canvas' level of detail.
+     */
+    private static void paint(Canvas canvas, GerberDocument doc, RenderBackend backend) {
+        Rectangle2D w = canvas.window;
+        if (canvas.lod == null) {
+            if (w == null) {
+                RenderTraversal.traverse(doc, backend);
+            } else {
+                RenderTraversal.traverse(doc, backend,
+                    doc.getSpatialIndex().query(w.getMinX(), w.getMinY(), w.getMaxX(), w.getMaxY()));
+            }
+            return;
+        }
+        List<GraphicsObject> objects = doc.getObjects();
+        if (w != null) {
+            BitSet selected = doc.getSpatialIndex().query(w.getMinX(), w.getMinY(), w.getMaxX(), w.getMaxY());
+            List<GraphicsObject> inside = new ArrayList<>(selected.cardinality());
+            for (int i = selected.nextSetBit(0); i >= 0 && i < objects.size(); i = selected.nextSetBit(i + 1)) {
+                inside.add(objects.get(i));
+            }
+            objects = inside;
+        }
+        RenderTraversal.apertureDefs(doc, backend);
+        RenderTraversal.polarityGroups(canvas.lod.apply(objects, doc.getBoundingBox()), backend);
+    }
+
+    private static void paint(Canvas canvas, DrillDocument doc, RenderBackend backend) {
+        Rectangle2D w = canvas.window;
+        if (w == null) {
+            RenderTraversal.traverse(doc, backend);
+        } else {
+            RenderTraversal.traverse(doc, backend,
+                doc.getSpatialIndex().query(w.getMinX(), w.getMinY(), w.getMaxX(), w.getMaxY()));
+        }
+    }
+
+    /** Draw {@code src} onto {@code dst} pixel for pixel with the given rule. */
+    private static void composite(BufferedImage dst, BufferedImage src, Composite rule) {
+        Graphics2D g = dst.createGraphics();
+        g.setComposite(rule);
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+    }
+
+    /** A copy of a white coverage image in the given color. */
+    private static BufferedImage tint(Canvas canvas, BufferedImage coverage, Color color) {
+        BufferedImage tinted = canvas.newImage();
+        Graphics2D g = tinted.createGraphics();
+        g.drawImage(coverage, 0, 0, null);
+        g.setComposite(AlphaComposite.SrcIn);
+        g.setColor(color);
+        g.fillRect(0, 0, tinted.getWidth(), tinted.getHeight());
+        g.dispose();
+        return tinted;
+    }
+
+    private static byte[] encodePng(BufferedImage image) {
+        // ImageIO's PNG writer expects non-premultiplied ARGB
+        BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = argb.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(16384, image.getWidth() * 32));
+        try {
+            ImageIO.write(argb, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("PNG encoding failed", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Pixel size and Gerber-to-pixel transform shared by the buffers of one
+     * render, the Gerber-space window outside of which nothing needs
+     * drawing ({@code null} to draw everything), and the level of detail
+     * ({@code null} for all of it).
+     */
+    private static final class Canvas {
+        final int width;
+        final int height;
+        final AffineTransform transform;
+        final Rectangle2D window;
+        final LevelOfDetail lod;
+
+        Canvas(int width, int height, AffineTransform transform, Rectangle2D window, LevelOfDetail lod) {
+            this.width = width;
+            this.height = height;
+            this.transform = transform;
+            this.window = window;
+            this.lod = lod;
+        }
+
+        BufferedImage newImage() {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+
+        /** Antialiased graphics drawing in Gerber coordinates. */
+        Graphics2D graphics(BufferedImage image) {
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setTransform(transform);
+            return g;
+        }
+    }
+
+    /** The layers of one side, sorted into the realistic stack as the SVG does. */
+    private static final class Stack {
+        Layer outline;
+        final List<Layer> copper = new ArrayList<>();
+        final List<Layer> soldermask = new ArrayList<>();
+        final List<Layer> silkscreen = new ArrayList<>();
+        final List<Layer> drill = new ArrayList<>();
+        final List<Layer> all;
+
+        private Stack(List<Layer> sideLayers) {
+            this.all = sideLayers;
+        }
+
+        /**
+         * @return the stack, or {@code null} if the side has nothing to show
+         * @throws IllegalArgumentException if the outline layer is not a Gerber layer
+         */
+        static Stack of(List<Layer> layers, Side side) {
+            List<Layer> sideLayers = MultiLayerSVGRenderer.filterForSide(layers, side);
+            if (sideLayers == null) return null;
+            Stack stack = new Stack(sideLayers);
+            for (Layer layer : sideLayers) {
+                switch (layer.getLayerType()) {
+                    case OUTLINE -> stack.outline = layer;
+                    case COPPER_TOP, COPPER_BOTTOM -> stack.copper.add(layer);
+                    case SOLDERMASK_TOP, SOLDERMASK_BOTTOM -> stack.soldermask.add(layer);
+                    case SILKSCREEN_TOP, SILKSCREEN_BOTTOM -> stack.silkscreen.add(layer);
+                    case DRILL, DRILL_PLATED, DRILL_NON_PLATED -> stack.drill.add(layer);
+                    default -> { }
+                }
+            }
+            if (stack.outline == null || !stack.outline.isGerber()) {
+                throw new IllegalArgumentException(
+                    "Realistic rendering requires a Gerber layer with LayerType.OUTLINE");
+            }
+            return stack;
+        }
+
+        /** Board bounds plus the thumbnail margin, or {@code null} if nothing has content. */
+        Rectangle2D view(List<Layer> layers) {
+            BoundingBox bounds = outline.getBoundingBox();
+            if (!bounds.isValid()) {
+                bounds = new BoundingBox();
+                for (Layer layer : all) {
+                    BoundingBox layerBounds = layer.getBoundingBox();
+                    if (layerBounds.isValid()) {
+                        bounds.extend(layerBounds);
+                    }
+                }
+            }
+            if (!bounds.isValid()) return null;
+            double margin = MultiLayerSVGRenderer.computeThumbnailMargin(layers);
+            return new Rectangle2D.Double(bounds.getMinX() - margin, bounds.getMinY() - margin,
+                bounds.getWidth() + 2 * margin, bounds.getHeight() + 2 * margin);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.deltaproto.deltagerber.renderer.raster;
+
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer.Layer;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer.Side;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+/**
+ * Tile grid of one view at every zoom level, for slippy-map style viewers.
+ * <p>
+ * The view's bounds are centered in a square "world". Zoom level 0 is that
+ * square as a single tile; each further level halves the tile extent, so level
+ * {@code z} has {@code 2^z} by {@code 2^z} tiles. Tile {@code (x, y)} counts
+ * from the top left, with Y growing downwards as in web maps; the Gerber Y axis
+ * is flipped to match, and the bottom realistic view is also mirrored in X like
+ * the thumbnails. Levels stop at {@link #getMaxZoom()}, where a pixel is about
+ * {@link #MIN_PIXEL_MM}.
+ */
+public final class TilePyramid {
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    /** Zooming in stops once a pixel is this small, in mm. */
+    public static final double MIN_PIXEL_MM = 0.001;
+
+    /** Hard cap on the zoom level, whatever the board size. */
+    public static final int MAX_ZOOM = 20;
+
+    private final Side side;
+    private final boolean mirrored;
+    private final Rectangle2D bounds;
+    private final int tileSize;
+    private final double worldLeft;
+    private final double worldTop;
+    private final double worldSize;
+    private final int maxZoom;
+
+    private TilePyramid(Side side, boolean mirrored, Rectangle2D bounds, int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize must be positive: " + tileSize);
+        }
+        this.side = side;
+        this.mirrored = mirrored;
+        this.bounds = bounds;
+        this.tileSize = tileSize;
+        this.worldSize = Math.max(bounds.getWidth(), bounds.getHeight());
+        this.worldLeft = bounds.getCenterX() - worldSize / 2;
+        this.worldTop = bounds.getCenterY() + worldSize / 2;
+        double levels = Math.log(worldSize / (tileSize * MIN_PIXEL_MM)) / Math.log(2);
+        this.maxZoom = Math.max(0, Math.min(MAX_ZOOM, (int) Math.ceil(levels)));
+    }
+
+    /**
+     * Tiles of the multi-layer view: every visible layer in its color and
+     * opacity, over the bounds {@link MultiLayerSVGRenderer#render} uses.
+     *
+     * @return the pyramid, or {@code null} if no layer has content
+     */
+    public static TilePyramid layers(List<Layer> layers) {
+        double[] vb = new MultiLayerSVGRenderer().computeViewBox(layers);
+        if (vb == null) return null;
+        return new TilePyramid(null, false, new Rectangle2D.Double(vb[0], vb[1], vb[2], vb[3]), DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Tiles of the realistic view of one side, over the bounds of the thumbnails.
+     *
+     * @return the pyramid, or {@code null} if the side couldn't be rendered
+     * @throws IllegalArgumentException if the layers have no Gerber outline layer
+     */
+    public static TilePyramid realistic(List<Layer> layers, Side side, boolean mirrorBottom) {
+        Rectangle2D view = Java2DRenderer.realisticView(layers, side);
+        if (view == null) return null;
+        return new TilePyramid(side, mirrorBottom && side == Side.BOTTOM, view, DEFAULT_TILE_SIZE);
+    }
+
+    /** The same view cut into tiles of another size. */
+    public TilePyramid withTileSize(int tileSize) {
+        return new TilePyramid(side, mirrored, bounds, tileSize);
+    }
+
+    /** The realistic side shown, or {@code null} for the multi-layer view. */
+    public Side getSide() {
+        return side;
+    }
+
+    public boolean isMirrored() {
+        return mirrored;
+    }
+
+    /** The view's extent in Gerber coordinates (mm). */
+    public Rectangle2D getBounds() {
+        return (Rectangle2D) bounds.clone();
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /** True if the tile exists in this pyramid. */
+    public boolean contains(int z, int x, int y) {
+        if (z < 0 || z > maxZoom) return false;
+        int tiles = 1 << z;
+        return x >= 0 && x < tiles && y >= 0 && y < tiles;
+    }
+
+    /** Pixels per mm at zoom level {@code z}. */
+    public double scale(int z) {
+        return tileSize * (double) (1 << z) / worldSize;
+    }
+
+    /** Transform from Gerber coordinates to the pixels of a tile. */
+    public AffineTransform transform(int z, int x, int y) {
+        double scale = scale(z);
+        AffineTransform transform = new AffineTransform();
+        transform.translate(-(double) x * tileSize, -(double) y * tileSize);
+        if (mirrored) {
+            transform.scale(-scale, -scale);
+            transform.translate(-(worldLeft + worldSize), -worldTop);
+        } else {
+            transform.scale(scale, -scale);
+            transform.translate(-worldLeft, -worldTop);
+        }
+        return transform;
+    }
+}
@@ -1,9 +1,9 @@
 package com.deltaproto.deltagerber.renderer.svg;
 
 import com.deltaproto.deltagerber.model.drill.DrillDocument;
-import com.deltaproto.deltagerber.model.drill.DrillOperation;
 import com.deltaproto.deltagerber.model.drill.Tool;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.renderer.RenderTraversal;
 
 /**
  * Renders Excellon drill documents to SVG format.
@@ -93,12 +93,7 @@ public class DrillSVGRenderer {
         }
 
         // Render all operations
-        for (DrillOperation op : doc.getOperations()) {
-            String opSvg = op.toSvg();
-            if (opSvg != null && !opSvg.isEmpty()) {
-                svg.append("  ").append(opSvg).append("\n");
-            }
-        }
+        RenderTraversal.traverse(doc, new SvgRenderBackend(SvgMarkupWriter.indented(svg, 1), SvgOptions.exact()));
 
         if (flipY) {
             svg.append("</g>\n");
@@ -1,7 +1,6 @@
 package com.deltaproto.deltagerber.renderer.svg;
 
 import com.deltaproto.deltagerber.model.drill.DrillDocument;
-import com.deltaproto.deltagerber.model.drill.DrillOperation;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.model.gerber.GerberDocument;
 import com.deltaproto.deltagerber.model.gerber.Polarity;
@@ -11,14 +10,21 @@ import com.deltaproto.deltagerber.model.gerber.operation.Contour;
 import com.deltaproto.deltagerber.model.gerber.operation.Draw;
 import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
 import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
+import com.deltaproto.deltagerber.pipeline.RasterizeEvent;
+import com.deltaproto.deltagerber.pipeline.SvgRenderEvent;
+import com.deltaproto.deltagerber.renderer.LevelOfDetail;
+import com.deltaproto.deltagerber.renderer.RenderTraversal;
 import org.apache.batik.transcoder.TranscoderException;
 import org.apache.batik.transcoder.TranscoderInput;
-import org.apache.batik.transcoder.TranscoderOutput;
-import org.apache.batik.transcoder.image.PNGTranscoder;
+import org.w3c.dom.svg.SVGDocument;
 
-import java.io.ByteArrayOutputStream;
 import java.io.StringReader;
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * Renders multiple Gerber and drill documents into a single multi-layer SVG.
@@ -44,9 +50,16 @@ public class MultiLayerSVGRenderer {
     /** Which side of the board to render for realistic/thumbnail output. */
     public enum Side { TOP, BOTTOM }
 
+    /** Shared by all renderers: thumbnails are typically rendered from a thread pool. */
+    private static final PngTranscoderPool TRANSCODERS =
+        new PngTranscoderPool(Runtime.getRuntime().availableProcessors());
+
     private double margin = 0.5;
     private boolean flipY = true;
     private SvgOptions svgOptions = SvgOptions.exact();
+    private boolean thumbnailLevelOfDetail = true;
+    private RenderFragmentCache fragmentCache;
+    private PipelineListener listener = PipelineListener.NONE;
 
     /**
      * A layer to be rendered, containing either a Gerber or Drill document.
@@ -131,10 +144,75 @@ public class MultiLayerSVGRenderer {
         return this;
     }
 
+    /**
+     * Whether {@link #renderRealisticSidePng} drops detail the PNG is too small
+     * to show (see {@link LevelOfDetail}), at the PNG's pixel size. Default
+     * {@code true}; a level of detail in the {@link #setSvgOptions SVG options}
+     * applies regardless.
+     */
+    public MultiLayerSVGRenderer setThumbnailLevelOfDetail(boolean enabled) {
+        this.thumbnailLevelOfDetail = enabled;
+        return this;
+    }
+
+    /**
+     * Share a fragment cache between renders. Aperture defs, polarity masks, layer
+     * bodies, the outline path and drill content are then generated once per
+     * document and reused by {@link #render}, {@link #renderRealistic} and the
+     * realistic-side/PNG variants — on this or any other renderer using the same cache.
+     * Pass {@code null} (the default) to disable caching.
+     */
+    public MultiLayerSVGRenderer setFragmentCache(RenderFragmentCache cache) {
+        this.fragmentCache = cache;
+        return this;
+    }
+
+    public RenderFragmentCache getFragmentCache() {
+        return fragmentCache;
+    }
+
+    /**
+     * Receive timings and output sizes of subsequent renders. Each public render
+     * call is reported as one {@link PipelineListener.Stage#SVG_RENDER} stage (the
+     * realistic-side and PNG variants as the realistic render they perform), and
+     * {@link #rasterizeThumbnail} as a {@link PipelineListener.Stage#RASTERIZE} stage.
+     * Within a render, each generated defs, mask, body and outline fragment is
+     * reported as a {@link PipelineListener.Section}.
+     */
+    public MultiLayerSVGRenderer setListener(PipelineListener listener) {
+        this.listener = listener != null ? listener : PipelineListener.NONE;
+        return this;
+    }
+
+    /** Run one SVG render as a pipeline stage: listener callbacks plus a JFR event. */
+    private <T> T svgStage(String kind, int layers, Supplier<T> render, ToLongFunction<T> characters) {
+        listener.stageStarted(PipelineListener.Stage.SVG_RENDER);
+        SvgRenderEvent event = new SvgRenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        T result = render.get();
+        long elapsed = System.nanoTime() - start;
+        event.end();
+        long size = result != null ? characters.applyAsLong(result) : 0;
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.layers = layers;
+            event.characters = size;
+            event.commit();
+        }
+        listener.bytesEmitted(PipelineListener.Stage.SVG_RENDER, size);
+        listener.stageFinished(PipelineListener.Stage.SVG_RENDER, elapsed);
+        return result;
+    }
+
     /**
      * Render multiple layers into a single SVG document.
      */
     public String render(List<Layer> layers) {
+        return svgStage("multilayer", layers != null ? layers.size() : 0, () -> renderLayers(layers), String::length);
+    }
+
+    private String renderLayers(List<Layer> layers) {
         if (layers == null || layers.isEmpty()) {
             return createEmptySvg();
         }
@@ -177,32 +255,19 @@ public class MultiLayerSVGRenderer {
         String maskRect = PolarityMaskHelper.createMaskRect(minX, minY, width, height, 1);
 
         int layerIndex = 0;
-        // Pre-compute polarity groups per layer (needed for both mask defs and rendering)
-        List<List<PolarityMaskHelper.PolarityGroup>> allLayerGroups = new ArrayList<>();
-
         for (Layer layer : layers) {
             if (layer.isGerber() && layer.getGerberDoc() != null) {
                 String aperturePrefix = "L" + layerIndex + "_ap";
                 // Aperture defs don't include fill — fill is set on <use> elements
                 svgOptions.setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
-                for (Aperture aperture : layer.getGerberDoc().getApertures().values()) {
-                    String def = aperture.toSvgDef(aperturePrefix + aperture.getDCode(), svgOptions);
-                    svg.append("  ").append(def).append("\n");
-                }
-
-                // Group objects by polarity and generate mask defs
-                List<PolarityMaskHelper.PolarityGroup> groups =
-                    PolarityMaskHelper.groupByPolarity(layer.getGerberDoc().getObjects());
-                allLayerGroups.add(groups);
+                svg.append(apertureDefs(layer.getGerberDoc(), aperturePrefix, svgOptions));
 
                 // Generate masks for clear polarity groups (black = hidden in mask)
                 String maskPrefix = "L" + layerIndex + "_cm";
                 SvgOptions maskOptions = svgOptions.copy();
                 maskOptions.setApertureIdPrefix(aperturePrefix);
                 maskOptions.setDarkColor("black").setClearColor("black");
-                PolarityMaskHelper.generateMaskDefs(svg, groups, maskPrefix, maskRect, maskOptions);
-            } else {
-                allLayerGroups.add(Collections.emptyList());
+                svg.append(maskDefs(layer.getGerberDoc(), maskPrefix, maskRect, maskOptions));
             }
             layerIndex++;
         }
@@ -233,15 +298,14 @@ public class MultiLayerSVGRenderer {
             if (layer.isGerber()) {
                 String aperturePrefix = "L" + layerIndex + "_ap";
                 String maskPrefix = "L" + layerIndex + "_cm";
-                List<PolarityMaskHelper.PolarityGroup> groups = allLayerGroups.get(layerIndex);
 
                 SvgOptions layerOptions = svgOptions.copy();
                 layerOptions.setApertureIdPrefix(aperturePrefix);
                 layerOptions.setDarkColor("currentColor").setClearColor("currentColor");
 
-                PolarityMaskHelper.renderWithMasks(svg, groups, maskPrefix, layerOptions);
+                svg.append(layerBody(layer.getGerberDoc(), maskPrefix, layerOptions));
             } else if (layer.isDrill()) {
-                renderDrillContent(svg, layer.getDrillDoc());
+                svg.append(drillBody(layer.getDrillDoc()));
             }
 
             svg.append("  </g>\n");
@@ -254,19 +318,103 @@ public class MultiLayerSVGRenderer {
         return svg.toString();
     }
 
+    /**
+     * One layer rendered on its own: the {@code <defs>} entries it needs and the
+     * content that goes inside its {@code <g class="layer">} group. Element IDs
+     * are derived from the prefix passed to {@link #renderLayerFragment}, and
+     * polarity masks cover the layer's own bounds, so a fragment doesn't depend
+     * on any other layer and can be cached and combined independently.
+     */
+    public static final class LayerFragment {
+        private final String defs;
+        private final String body;
+
+        LayerFragment(String defs, String body) {
+            this.defs = defs;
+            this.body = body;
+        }
+
+        public String getDefs() { return defs; }
+        public String getBody() { return body; }
+    }
+
+    /**
+     * Render a single layer as an independent fragment.
+     * <p>
+     * To assemble a multi-layer view from fragments, wrap all defs in one
+     * {@code <defs>} element and each body in a layer group inside the viewport
+     * group, using {@link #computeViewBox} for the shared viewBox — the same
+     * structure {@link #render} produces.
+     *
+     * @param idPrefix unique prefix for aperture and mask IDs (e.g. derived from a content hash)
+     */
+    public LayerFragment renderLayerFragment(Layer layer, String idPrefix) {
+        return svgStage("fragment", 1, () -> renderFragment(layer, idPrefix),
+            f -> f.getDefs().length() + f.getBody().length());
+    }
+
+    private LayerFragment renderFragment(Layer layer, String idPrefix) {
+        if (layer.isDrill()) {
+            return new LayerFragment("", drillBody(layer.getDrillDoc()));
+        }
+        GerberDocument doc = layer.getGerberDoc();
+        BoundingBox bounds = layer.getBoundingBox();
+        if (doc == null || !bounds.isValid()) {
+            return new LayerFragment("", "");
+        }
+        String aperturePrefix = idPrefix + "_ap";
+        String maskPrefix = idPrefix + "_cm";
+        String maskRect = PolarityMaskHelper.createMaskRect(
+            bounds.getMinX() - margin, bounds.getMinY() - margin,
+            bounds.getWidth() + 2 * margin, bounds.getHeight() + 2 * margin, 1);
+
+        SvgOptions apOptions = svgOptions.copy()
+            .setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
+        SvgOptions maskOptions = apOptions.copy()
+            .setApertureIdPrefix(aperturePrefix).setDarkColor("black").setClearColor("black");
+        SvgOptions layerOptions = apOptions.copy().setApertureIdPrefix(aperturePrefix);
+
+        String defs = apertureDefs(doc, aperturePrefix, apOptions)
+            + maskDefs(doc, maskPrefix, maskRect, maskOptions);
+        return new LayerFragment(defs, layerBody(doc, maskPrefix, layerOptions));
+    }
+
+    /**
+     * The viewBox {@link #render} would use for these layers: the union of all
+     * layer bounds plus the margin, as {@code [minX, minY, width, height]}, or
+     * {@code null} if no layer has content.
+     */
+    public double[] computeViewBox(List<Layer> layers) {
+        BoundingBox globalBounds = new BoundingBox();
+        for (Layer layer : layers) {
+            BoundingBox layerBounds = layer.getBoundingBox();
+            if (layerBounds.isValid()) {
+                globalBounds.extend(layerBounds);
+            }
+        }
+        if (!globalBounds.isValid()) {
+            return null;
+        }
+        return new double[] {
+            globalBounds.getMinX() - margin, globalBounds.getMinY() - margin,
+            globalBounds.getWidth() + 2 * margin, globalBounds.getHeight() + 2 * margin
+        };
+    }
+
     // Outline-chain tolerance (mm). Altium/other EDA tools sometimes emit
     // straight-edge endpoints that don't exactly meet the adjacent arc's
     // tangent point — observed gaps up to ~50 µm. 0.1 mm is still well below
     // typical PCB outline feature sizes (drills, slots, tabs are ≥0.3 mm).
     private static final double OUTLINE_CHAIN_TOLERANCE_MM = 0.1;
 
-    // Default realistic PCB colors (matches typical PCB viewer rendering)
-    private static final String FR4_COLOR = "#666666";           // Dark gray substrate
-    private static final String COPPER_COLOR = "#cccccc";         // Silver/gray copper under soldermask
-    private static final String COPPER_FINISH_COLOR = "#cc9933";  // Gold HASL/ENIG finish on exposed pads
-    private static final String SOLDERMASK_GREEN = "#004200";     // Dark green soldermask
-    private static final String SILKSCREEN_WHITE = "#ffffff";     // White silkscreen
-    private static final double SOLDERMASK_DEFAULT_OPACITY = 0.75;
+    // Default realistic PCB colors (matches typical PCB viewer rendering), public
+    // so the raster backend paints the same board
+    public static final String FR4_COLOR = "#666666";           // Dark gray substrate
+    public static final String COPPER_COLOR = "#cccccc";         // Silver/gray copper under soldermask
+    public static final String COPPER_FINISH_COLOR = "#cc9933";  // Gold HASL/ENIG finish on exposed pads
+    public static final String SOLDERMASK_GREEN = "#004200";     // Dark green soldermask
+    public static final String SILKSCREEN_WHITE = "#ffffff";     // White silkscreen
+    public static final double SOLDERMASK_DEFAULT_OPACITY = 0.75;
 
     /**
      * Render a realistic PCB view where layers are stacked as they appear on a real board.
@@ -293,9 +441,56 @@ public class MultiLayerSVGRenderer {
      * @throws IllegalArgumentException if no OUTLINE layer is provided
      */
     public String renderRealistic(List<Layer> layers) {
-        if (layers == null || layers.isEmpty()) {
+        return renderRealistic(layers, false);
+    }
+
+    private String renderRealistic(List<Layer> layers, boolean mirror) {
+        return svgStage("realistic", layers != null ? layers.size() : 0, () -> renderRealisticLayers(layers, mirror),
+            String::length);
+    }
+
+    private String renderRealisticLayers(List<Layer> layers, boolean mirror) {
+        StringBuilder svg = new StringBuilder();
+        // Depth -1: the realistic SVG doesn't indent the children of <svg>
+        if (!writeRealistic(SvgMarkupWriter.indented(svg, -1), layers, mirror)) {
             return createEmptySvg();
         }
+        svg.setLength(svg.length() - 1); // no newline after </svg>
+        return svg.toString();
+    }
+
+    /**
+     * Bounds of the realistic view before the margin: the outline's, or the
+     * union of all layers' when the outline is empty; {@code null} if nothing
+     * has content.
+     */
+    private static BoundingBox realisticBounds(Layer outlineLayer, List<Layer> layers) {
+        BoundingBox bounds = outlineLayer.getBoundingBox();
+        if (!bounds.isValid()) {
+            bounds = new BoundingBox();
+            for (Layer layer : layers) {
+                BoundingBox layerBounds = layer.getBoundingBox();
+                if (layerBounds.isValid()) {
+                    bounds.extend(layerBounds);
+                }
+            }
+        }
+        return bounds.isValid() ? bounds : null;
+    }
+
+    /**
+     * Write the realistic view. Into an {@link SvgMarkupWriter}, cached fragments
+     * are spliced in as markup; into any other writer every element is generated.
+     *
+     * @param mirror flip the view horizontally around the viewBox's vertical
+     *               centreline, turning the top-looking-down render of the
+     *               bottom side into the real underside view
+     * @return {@code false} if there was nothing to draw and nothing was written
+     */
+    private boolean writeRealistic(SvgWriter out, List<Layer> layers, boolean mirror) {
+        if (layers == null || layers.isEmpty()) {
+            return false;
+        }
 
         // Categorize layers by type
         Layer outlineLayer = null;
@@ -337,19 +532,9 @@ public class MultiLayerSVGRenderer {
         }
 
         // Use outline bounding box for viewBox (content is clipped to outline anyway)
-        BoundingBox globalBounds = outlineLayer.getBoundingBox();
-        if (!globalBounds.isValid()) {
-            // Fall back to union of all layers
-            globalBounds = new BoundingBox();
-            for (Layer layer : layers) {
-                BoundingBox layerBounds = layer.getBoundingBox();
-                if (layerBounds.isValid()) {
-                    globalBounds.extend(layerBounds);
-                }
-            }
-        }
-        if (!globalBounds.isValid()) {
-            return createEmptySvg();
+        BoundingBox globalBounds = realisticBounds(outlineLayer, layers);
+        if (globalBounds == null) {
+            return false;
         }
 
         double minX = globalBounds.getMinX() - margin;
@@ -357,43 +542,38 @@ public class MultiLayerSVGRenderer {
         double width = globalBounds.getWidth() + 2 * margin;
         double height = globalBounds.getHeight() + 2 * margin;
 
-        StringBuilder svg = new StringBuilder();
-
         // SVG header
-        svg.append(String.format(Locale.US,
-            "<svg xmlns=\"http://www.w3.org/2000/svg\" " +
-            "viewBox=\"%.6f %.6f %.6f %.6f\" " +
-            "preserveAspectRatio=\"xMidYMid meet\" " +
-            "stroke-linecap=\"round\" stroke-linejoin=\"round\" " +
-            "fill-rule=\"nonzero\">\n",
-            minX, minY, width, height));
+        out.start("svg")
+            .attr("xmlns", "http://www.w3.org/2000/svg")
+            .attr("viewBox", String.format(Locale.US, "%.6f %.6f %.6f %.6f", minX, minY, width, height))
+            .attr("preserveAspectRatio", "xMidYMid meet")
+            .attr("stroke-linecap", "round").attr("stroke-linejoin", "round")
+            .attr("fill-rule", "nonzero");
 
-        svg.append("<defs>\n");
+        out.start("defs");
 
         // Extract board outline path for clipPath and soldermask mask base
-        SvgOptions outlineOptions = svgOptions.copy().setFlipY(flipY);
-        String outlinePath = extractOutlinePath(outlineLayer.getGerberDoc(), outlineOptions);
+        String outlinePath = renderOutlinePath(outlineLayer.getGerberDoc());
         boolean hasOutlinePath = outlinePath != null && !outlinePath.isBlank();
 
         if (hasOutlinePath) {
-            svg.append("  <clipPath id=\"board-outline\">\n");
-            svg.append(String.format("    <path d=\"%s\"/>\n", outlinePath));
-            svg.append("  </clipPath>\n");
+            out.start("clipPath").attr("id", "board-outline");
+            out.start("path").attr("d", outlinePath).end();
+            out.end();
         }
 
         // Oversized rect covering the full viewbox (used for soldermask fill etc.)
-        String fullRectAttrs = String.format(Locale.US,
-            "x=\"%.6f\" y=\"%.6f\" width=\"%.6f\" height=\"%.6f\"",
-            minX - 1, minY - 1, width + 2, height + 2);
+        double[] fullRect = {minX - 1, minY - 1, width + 2, height + 2};
 
         // Mask base rect for polarity masks
         String maskRect = PolarityMaskHelper.createMaskRect(minX, minY, width, height, 1);
+        Consumer<SvgWriter> maskRectWriter =
+            rect -> PolarityMaskHelper.writeMaskRect(rect, minX, minY, width, height, 1);
 
-        // Assign unique aperture prefixes and collect polarity groups for all gerber layers
+        // Assign unique aperture prefixes for all gerber layers
         int layerIndex = 0;
         Map<Layer, String> aperturePrefixes = new LinkedHashMap<>();
         Map<Layer, Integer> layerIndexMap = new LinkedHashMap<>();
-        Map<Layer, List<PolarityMaskHelper.PolarityGroup>> polarityGroups = new LinkedHashMap<>();
 
         List<Layer> gerberLayers = new ArrayList<>();
         gerberLayers.addAll(copperLayers);
@@ -416,27 +596,17 @@ public class MultiLayerSVGRenderer {
             // Aperture definitions
             SvgOptions apOptions = svgOptions.copy()
                 .setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
-            for (Aperture aperture : layer.getGerberDoc().getApertures().values()) {
-                String def = aperture.toSvgDef(apPrefix + aperture.getDCode(), apOptions);
-                svg.append("  ").append(def).append("\n");
-            }
-
-            // Polarity groups
-            List<PolarityMaskHelper.PolarityGroup> groups =
-                PolarityMaskHelper.groupByPolarity(layer.getGerberDoc().getObjects());
-            polarityGroups.put(layer, groups);
+            apertureDefs(out, layer.getGerberDoc(), apPrefix, apOptions);
 
             layerIndex++;
         }
 
         // Polarity mask definitions for copper and silkscreen layers
         for (Layer layer : copperLayers) {
-            generatePolarityMaskDefs(svg, layer, aperturePrefixes, layerIndexMap,
-                polarityGroups, maskRect);
+            writePolarityMaskDefs(out, layer, aperturePrefixes, layerIndexMap, maskRect, maskRectWriter);
         }
         for (Layer layer : silkscreenLayers) {
-            generatePolarityMaskDefs(svg, layer, aperturePrefixes, layerIndexMap,
-                polarityGroups, maskRect);
+            writePolarityMaskDefs(out, layer, aperturePrefixes, layerIndexMap, maskRect, maskRectWriter);
         }
 
         // Soldermask masks (two per soldermask layer):
@@ -452,33 +622,23 @@ public class MultiLayerSVGRenderer {
                 .setApertureIdPrefix(apPrefix).setFlipY(flipY);
 
             // sm-mask: board outline white, soldermask objects black = where mask IS present
-            svg.append(String.format("  <mask id=\"%s\">\n", smMaskId));
+            out.start("mask").attr("id", smMaskId);
             if (hasOutlinePath) {
-                svg.append(String.format("    <path d=\"%s\" fill=\"white\"/>\n", outlinePath));
+                out.start("path").attr("d", outlinePath).attr("fill", "white").end();
             } else {
                 // No outline path — use full viewbox rect as mask base
-                svg.append(String.format("    <rect %s fill=\"white\"/>\n", fullRectAttrs));
+                rect(out, fullRect).attr("fill", "white").end();
             }
             smMaskOptions.setDarkColor("black").setClearColor("white");
-            for (GraphicsObject obj : layer.getGerberDoc().getObjects()) {
-                String objSvg = obj.toSvg(smMaskOptions);
-                if (objSvg != null && !objSvg.isEmpty()) {
-                    svg.append("    ").append(objSvg).append("\n");
-                }
-            }
-            svg.append("  </mask>\n");
+            objects(out, layer.getGerberDoc(), smMaskOptions, "    ");
+            out.end();
 
             // cf-mask: black background, soldermask objects white = where pads are EXPOSED
-            svg.append(String.format("  <mask id=\"%s\">\n", cfMaskId));
-            svg.append(String.format("    <rect %s fill=\"black\"/>\n", fullRectAttrs));
+            out.start("mask").attr("id", cfMaskId);
+            rect(out, fullRect).attr("fill", "black").end();
             smMaskOptions.setDarkColor("white").setClearColor("black");
-            for (GraphicsObject obj : layer.getGerberDoc().getObjects()) {
-                String objSvg = obj.toSvg(smMaskOptions);
-                if (objSvg != null && !objSvg.isEmpty()) {
-                    svg.append("    ").append(objSvg).append("\n");
-                }
-            }
-            svg.append("  </mask>\n");
+            objects(out, layer.getGerberDoc(), smMaskOptions, "    ");
+            out.end();
         }
 
         // Drill hole mask (mech-mask): white background + drill holes in black
@@ -486,56 +646,58 @@ public class MultiLayerSVGRenderer {
         // stroke-width="0" prevents the default 1-unit stroke from enlarging the holes
         boolean hasDrills = !drillLayers.isEmpty();
         if (hasDrills) {
-            svg.append("  <mask id=\"mech-mask\">\n");
-            svg.append(String.format("    <rect %s fill=\"white\"/>\n", fullRectAttrs));
+            out.start("mask").attr("id", "mech-mask");
+            rect(out, fullRect).attr("fill", "white").end();
             for (Layer layer : drillLayers) {
                 if (layer.isDrill()) {
-                    svg.append("    <g fill=\"black\" color=\"black\" stroke=\"none\" stroke-width=\"0\">\n");
-                    renderDrillContent(svg, layer.getDrillDoc());
-                    svg.append("    </g>\n");
+                    out.start("g").attr("fill", "black").attr("color", "black")
+                        .attr("stroke", "none").attr("stroke-width", "0");
+                    drillBody(out, layer.getDrillDoc());
+                    out.end();
                 } else if (layer.isGerber()) {
                     // Gerber X2 drill layer — render its flashes as solid black into the mask.
-                    svg.append("    <g fill=\"black\" color=\"black\" stroke=\"none\" stroke-width=\"0\">\n");
+                    out.start("g").attr("fill", "black").attr("color", "black")
+                        .attr("stroke", "none").attr("stroke-width", "0");
                     String apPrefix = aperturePrefixes.get(layer);
                     SvgOptions maskOpt = svgOptions.copy()
                         .setApertureIdPrefix(apPrefix)
                         .setDarkColor("black").setClearColor("black")
                         .setFlipY(flipY);
-                    for (GraphicsObject obj : layer.getGerberDoc().getObjects()) {
-                        String objSvg = obj.toSvg(maskOpt);
-                        if (objSvg != null && !objSvg.isEmpty()) {
-                            svg.append("      ").append(objSvg).append("\n");
-                        }
-                    }
-                    svg.append("    </g>\n");
+                    objects(out, layer.getGerberDoc(), maskOpt, "      ");
+                    out.end();
                 }
             }
-            svg.append("  </mask>\n");
+            out.end();
         }
 
-        svg.append("</defs>\n");
+        out.end(); // defs
 
-        // Viewport with Y-flip
+        // Viewport with Y-flip, mirrored around x = minX + width/2 when asked
+        String mirrorTransform = String.format(Locale.US, "translate(%.6f,0) scale(-1,1)", 2 * minX + width);
+        out.start("g").attr("id", "viewport");
         if (flipY) {
-            svg.append(String.format(Locale.US,
-                "<g id=\"viewport\" transform=\"translate(0, %.6f) scale(1,-1)\" stroke-width=\"0\">\n",
-                minY + height + minY));
+            String yFlip = String.format(Locale.US, "translate(0, %.6f) scale(1,-1)", minY + height + minY);
+            out.attr("transform", mirror ? mirrorTransform + " " + yFlip : yFlip);
+            out.attr("stroke-width", "0");
         } else {
-            svg.append("<g id=\"viewport\" stroke-width=\"0\">\n");
+            out.attr("stroke-width", "0");
+            if (mirror) {
+                out.attr("transform", mirrorTransform);
+            }
         }
 
         // --- Layer stack (matches typical PCB viewer rendering) ---
         // All content is clipped to board outline (if available), with drill holes punching through
-        String clipAttr = hasOutlinePath ? " clip-path=\"url(#board-outline)\"" : "";
-
+        out.start("g");
         if (hasDrills) {
-            svg.append(String.format("  <g mask=\"url(#mech-mask)\"%s>\n", clipAttr));
-        } else {
-            svg.append(String.format("  <g%s>\n", clipAttr));
+            out.attr("mask", "url(#mech-mask)");
+        }
+        if (hasOutlinePath) {
+            out.attr("clip-path", "url(#board-outline)");
         }
 
         // 1. FR4 substrate background
-        svg.append(String.format("    <rect %s fill=\"%s\"/>\n", fullRectAttrs, FR4_COLOR));
+        rect(out, fullRect).attr("fill", FR4_COLOR).end();
 
         // 2. Copper layer(s) — gray/silver, visible through semi-transparent soldermask
         // Always use realistic colors (layer color is for the "all layers" overlay view)
@@ -543,18 +705,16 @@ public class MultiLayerSVGRenderer {
             String copperColor = COPPER_COLOR;
             String apPrefix = aperturePrefixes.get(layer);
             String maskPrefix = "L" + layerIndexMap.get(layer) + "_cm";
-            List<PolarityMaskHelper.PolarityGroup> groups = polarityGroups.get(layer);
 
-            svg.append(String.format(
-                "    <g fill=\"%s\" color=\"%s\" stroke=\"none\" stroke-width=\"0\">\n",
-                copperColor, copperColor));
+            out.start("g").attr("fill", copperColor).attr("color", copperColor)
+                .attr("stroke", "none").attr("stroke-width", "0");
 
             SvgOptions layerOptions = svgOptions.copy()
                 .setApertureIdPrefix(apPrefix)
                 .setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
-            PolarityMaskHelper.renderWithMasks(svg, groups, maskPrefix, layerOptions);
+            layerBody(out, layer.getGerberDoc(), maskPrefix, layerOptions);
 
-            svg.append("    </g>\n");
+            out.end();
         }
 
         // 3. Copper finish — gold HASL/ENIG, same copper data but only at soldermask openings
@@ -572,19 +732,18 @@ public class MultiLayerSVGRenderer {
 
             String apPrefix = aperturePrefixes.get(copperLayer);
             String maskPrefix = "L" + layerIndexMap.get(copperLayer) + "_cm";
-            List<PolarityMaskHelper.PolarityGroup> groups = polarityGroups.get(copperLayer);
 
-            svg.append(String.format(
-                "    <g fill=\"%s\" color=\"%s\" stroke=\"none\" stroke-width=\"0\" " +
-                "mask=\"url(#%s)\">\n",
-                COPPER_FINISH_COLOR, COPPER_FINISH_COLOR, cfMaskId));
+            out.start("g").attr("fill", COPPER_FINISH_COLOR).attr("color", COPPER_FINISH_COLOR)
+                .attr("stroke", "none").attr("stroke-width", "0")
+                .attr("mask", "url(#" + cfMaskId + ")");
 
             SvgOptions layerOptions = svgOptions.copy()
                 .setApertureIdPrefix(apPrefix)
                 .setDarkColor("currentColor").setClearColor("currentColor").setFlipY(flipY);
-            PolarityMaskHelper.renderWithMasks(svg, groups, maskPrefix, layerOptions);
+            // Same options as the copper pass above, so the body is a cache hit
+            layerBody(out, copperLayer.getGerberDoc(), maskPrefix, layerOptions);
 
-            svg.append("    </g>\n");
+            out.end();
         }
 
         // 4. Soldermask (semi-transparent green with holes) + silkscreen inside
@@ -598,12 +757,11 @@ public class MultiLayerSVGRenderer {
             // opacity is for the "all layers" overlay view, not the realistic view
             double smOpacity = SOLDERMASK_DEFAULT_OPACITY;
 
-            svg.append(String.format("    <g mask=\"url(#%s)\">\n", smMaskId));
+            out.start("g").attr("mask", "url(#" + smMaskId + ")");
 
             // Soldermask fill
-            svg.append(String.format(Locale.US,
-                "      <rect %s fill=\"%s\" opacity=\"%.2f\"/>\n",
-                fullRectAttrs, smColor, smOpacity));
+            rect(out, fullRect).attr("fill", smColor)
+                .attr("opacity", String.format(Locale.US, "%.2f", smOpacity)).end();
 
             // Silkscreen inside soldermask (only renders where mask is present)
             for (Layer ssLayer : silkscreenLayers) {
@@ -613,47 +771,188 @@ public class MultiLayerSVGRenderer {
                 String ssColor = SILKSCREEN_WHITE;
                 String apPrefix = aperturePrefixes.get(ssLayer);
                 String maskPrefix = "L" + layerIndexMap.get(ssLayer) + "_cm";
-                List<PolarityMaskHelper.PolarityGroup> groups = polarityGroups.get(ssLayer);
 
-                svg.append(String.format(
-                    "      <g fill=\"%s\" color=\"%s\" stroke=\"none\" stroke-width=\"0\">\n",
-                    ssColor, ssColor));
+                out.start("g").attr("fill", ssColor).attr("color", ssColor)
+                    .attr("stroke", "none").attr("stroke-width", "0");
 
                 SvgOptions layerOptions = svgOptions.copy()
                     .setApertureIdPrefix(apPrefix)
                     .setDarkColor(ssColor).setClearColor(ssColor).setFlipY(flipY);
-                PolarityMaskHelper.renderWithMasks(svg, groups, maskPrefix, layerOptions);
+                layerBody(out, ssLayer.getGerberDoc(), maskPrefix, layerOptions);
 
-                svg.append("      </g>\n");
+                out.end();
             }
 
-            svg.append("    </g>\n");
+            out.end();
         }
 
-        svg.append("  </g>\n"); // close board-outline clip + mech-mask group
+        out.end(); // close board-outline clip + mech-mask group
 
-        svg.append("</g>\n");
-        svg.append("</svg>");
+        out.end(); // viewport
+        out.end(); // svg
+        return true;
+    }
 
-        return svg.toString();
+    /** Start a {@code <rect>} at {x, y, width, height}; the caller adds the fill and ends it. */
+    private static SvgWriter rect(SvgWriter out, double[] bounds) {
+        return out.start("rect")
+            .attr("x", bounds[0]).attr("y", bounds[1])
+            .attr("width", bounds[2]).attr("height", bounds[3]);
     }
 
     /**
-     * Generate polarity mask definitions for a layer using PolarityMaskHelper.
+     * Write polarity mask definitions for a layer using PolarityMaskHelper.
      */
-    private void generatePolarityMaskDefs(StringBuilder svg, Layer layer,
+    private void writePolarityMaskDefs(SvgWriter out, Layer layer,
             Map<Layer, String> aperturePrefixes, Map<Layer, Integer> layerIndexMap,
-            Map<Layer, List<PolarityMaskHelper.PolarityGroup>> polarityGroups,
-            String maskRect) {
+            String maskRect, Consumer<SvgWriter> maskRectWriter) {
         if (!layer.isGerber()) return;
         String apPrefix = aperturePrefixes.get(layer);
         String maskPrefix = "L" + layerIndexMap.get(layer) + "_cm";
-        List<PolarityMaskHelper.PolarityGroup> groups = polarityGroups.get(layer);
 
         SvgOptions maskOptions = svgOptions.copy()
             .setApertureIdPrefix(apPrefix)
             .setDarkColor("black").setClearColor("black").setFlipY(flipY);
-        PolarityMaskHelper.generateMaskDefs(svg, groups, maskPrefix, maskRect, maskOptions);
+        maskDefs(out, layer.getGerberDoc(), maskPrefix, maskRect, maskRectWriter, maskOptions);
+    }
+
+    // --- Cached fragments ---
+    // Each helper returns the exact text the uncached code path appended, so
+    // output is byte-identical with or without a fragment cache.
+
+    private String fragment(Object document, RenderFragmentCache.Kind kind, SvgOptions options,
+                            String extra, Supplier<String> generator) {
+        if (listener != PipelineListener.NONE) {
+            Supplier<String> uninstrumented = generator;
+            generator = () -> section(document, kind, uninstrumented);
+        }
+        if (fragmentCache == null) {
+            return generator.get();
+        }
+        return fragmentCache.get(document, kind, options, extra, generator);
+    }
+
+    /** Generate one fragment, reporting it to the listener as a section. */
+    private String section(Object document, RenderFragmentCache.Kind kind, Supplier<String> generator) {
+        PipelineListener.Section section = switch (kind) {
+            case APERTURE_DEFS -> PipelineListener.Section.DEFS;
+            case MASK_DEFS, OBJECTS -> PipelineListener.Section.MASKS;
+            case LAYER_BODY, DRILL_BODY -> PipelineListener.Section.BODIES;
+            case OUTLINE_PATH -> PipelineListener.Section.OUTLINE;
+        };
+        listener.sectionStarted(section);
+        long start = System.nanoTime();
+        String result = generator.get();
+        listener.sectionFinished(section, document, System.nanoTime() - start, result != null ? result.length() : 0);
+        return result;
+    }
+
+    private String apertureDefs(GerberDocument doc, String aperturePrefix, SvgOptions options) {
+        return fragment(doc, RenderFragmentCache.Kind.APERTURE_DEFS, options, aperturePrefix, () -> {
+            StringBuilder sb = new StringBuilder();
+            for (Aperture aperture : doc.getApertures().values()) {
+                String def = aperture.toSvgDef(aperturePrefix + aperture.getDCode(), options);
+                sb.append("  ").append(def).append("\n");
+            }
+            return sb.toString();
+        });
+    }
+
+    private String maskDefs(GerberDocument doc, String maskPrefix, String maskRect,
+                            SvgOptions maskOptions) {
+        return fragment(doc, RenderFragmentCache.Kind.MASK_DEFS, maskOptions,
+            maskPrefix + "|" + maskRect, () -> {
+                StringBuilder sb = new StringBuilder();
+                PolarityMaskHelper.generateMaskDefs(sb,
+                    PolarityMaskHelper.groupByPolarity(renderedObjects(doc, maskOptions)),
+                    maskPrefix, maskRect, maskOptions);
+                return sb.toString();
+            });
+    }
+
+    private String layerBody(GerberDocument doc, String maskPrefix, SvgOptions options) {
+        return fragment(doc, RenderFragmentCache.Kind.LAYER_BODY, options, maskPrefix, () -> {
+            StringBuilder sb = new StringBuilder();
+            PolarityMaskHelper.renderWithMasks(sb,
+                PolarityMaskHelper.groupByPolarity(renderedObjects(doc, options)), maskPrefix, options);
+            return sb.toString();
+        });
+    }
+
+    /** All objects of a document, one per line, without polarity handling. */
+    private String objects(GerberDocument doc, SvgOptions options, String indent) {
+        return fragment(doc, RenderFragmentCache.Kind.OBJECTS, options, indent, () -> {
+            StringBuilder sb = new StringBuilder();
+            RenderTraversal.objects(renderedObjects(doc, options),
+                new SvgRenderBackend(SvgMarkupWriter.indented(sb, indent.length() / 2), options));
+            return sb.toString();
+        });
+    }
+
+    /** The document's objects at the options' level of detail, if they set one. */
+    private static List<GraphicsObject> renderedObjects(GerberDocument doc, SvgOptions options) {
+        LevelOfDetail lod = options.getLevelOfDetail();
+        return lod != null ? lod.apply(doc) : doc.getObjects();
+    }
+
+    private String drillBody(DrillDocument doc) {
+        if (doc == null) return "";
+        return fragment(doc, RenderFragmentCache.Kind.DRILL_BODY, null, null, () -> {
+            StringBuilder sb = new StringBuilder();
+            renderDrillContent(sb, doc);
+            return sb.toString();
+        });
+    }
+
+    // Writer variants: into markup, the (cached) fragment text is spliced in;
+    // into a DOM, the same elements are generated directly, uncached.
+
+    private void fragment(SvgWriter out, Object document, RenderFragmentCache.Kind kind,
+                          Supplier<String> markup, Consumer<SvgWriter> elements) {
+        if (out instanceof SvgMarkupWriter writer) {
+            writer.raw(markup.get());
+        } else if (listener != PipelineListener.NONE) {
+            section(document, kind, () -> {
+                elements.accept(out);
+                return null;
+            });
+        } else {
+            elements.accept(out);
+        }
+    }
+
+    private void apertureDefs(SvgWriter out, GerberDocument doc, String aperturePrefix, SvgOptions options) {
+        fragment(out, doc, RenderFragmentCache.Kind.APERTURE_DEFS,
+            () -> apertureDefs(doc, aperturePrefix, options),
+            w -> RenderTraversal.apertureDefs(doc,
+                new SvgRenderBackend(w, options.copy().setApertureIdPrefix(aperturePrefix))));
+    }
+
+    private void maskDefs(SvgWriter out, GerberDocument doc, String maskPrefix, String maskRect,
+                          Consumer<SvgWriter> maskRectWriter, SvgOptions maskOptions) {
+        fragment(out, doc, RenderFragmentCache.Kind.MASK_DEFS,
+            () -> maskDefs(doc, maskPrefix, maskRect, maskOptions),
+            w -> PolarityMaskHelper.writeMaskDefs(w, PolarityMaskHelper.groupByPolarity(renderedObjects(doc, maskOptions)),
+                maskPrefix, maskRectWriter, maskOptions));
+    }
+
+    private void layerBody(SvgWriter out, GerberDocument doc, String maskPrefix, SvgOptions options) {
+        fragment(out, doc, RenderFragmentCache.Kind.LAYER_BODY,
+            () -> layerBody(doc, maskPrefix, options),
+            w -> PolarityMaskHelper.writeWithMasks(w, PolarityMaskHelper.groupByPolarity(renderedObjects(doc, options)),
+                maskPrefix, options));
+    }
+
+    private void objects(SvgWriter out, GerberDocument doc, SvgOptions options, String indent) {
+        fragment(out, doc, RenderFragmentCache.Kind.OBJECTS,
+            () -> objects(doc, options, indent),
+            w -> RenderTraversal.objects(renderedObjects(doc, options), new SvgRenderBackend(w, options)));
+    }
+
+    private void drillBody(SvgWriter out, DrillDocument doc) {
+        if (doc == null) return;
+        fragment(out, doc, RenderFragmentCache.Kind.DRILL_BODY,
+            () -> drillBody(doc), w -> RenderTraversal.traverse(doc, new SvgRenderBackend(w, SvgOptions.exact())));
     }
 
     /**
@@ -672,7 +971,8 @@ public class MultiLayerSVGRenderer {
      * — Altium sometimes emits straight-edge endpoints that don't exactly meet
      * the tangent point of the adjacent corner arc (observed gaps up to ~50 µm).
      * The tolerance is well below typical PCB feature sizes so it can't fuse
-     * distinct outline features together.
+     * distinct outline features together. Endpoints are looked up in an
+     * {@link EndpointGrid}, so chaining stays linear in the number of segments.
      */
     private String extractOutlinePath(GerberDocument outlineDoc, SvgOptions options) {
         List<GraphicsObject> objects = outlineDoc.getObjects();
@@ -708,6 +1008,7 @@ public class MultiLayerSVGRenderer {
         if (segments.isEmpty()) return "";
 
         double toleranceSq = OUTLINE_CHAIN_TOLERANCE_MM * OUTLINE_CHAIN_TOLERANCE_MM;
+        EndpointGrid endpoints = new EndpointGrid(segments, OUTLINE_CHAIN_TOLERANCE_MM);
         StringBuilder path = new StringBuilder();
 
         for (Segment seed : segments) {
@@ -734,20 +1035,11 @@ public class MultiLayerSVGRenderer {
             //      at least as well as snapping back to the start would.
             boolean leftToleranceBall = false;
             while (true) {
-                Segment next = null;
-                boolean reverse = false;
-                double bestSq = toleranceSq;
-                for (Segment s : segments) {
-                    if (s.used) continue;
-                    double d1 = distSq(s.startX, s.startY, headX, headY);
-                    if (d1 < bestSq) {
-                        bestSq = d1; next = s; reverse = false;
-                    }
-                    double d2 = distSq(s.endX, s.endY, headX, headY);
-                    if (d2 < bestSq) {
-                        bestSq = d2; next = s; reverse = true;
-                    }
-                }
+                int endpoint = endpoints.nearest(headX, headY, toleranceSq);
+                Segment next = endpoint < 0 ? null : segments.get(endpoint >> 1);
+                boolean reverse = (endpoint & 1) != 0;
+                double bestSq = endpoint < 0 ? toleranceSq
+                    : distSq(endpoints.x(endpoint), endpoints.y(endpoint), headX, headY);
                 double headDistSq = distSq(headX, headY, loopStartX, loopStartY);
                 if (leftToleranceBall && headDistSq <= toleranceSq
                         && (next == null || bestSq >= headDistSq)) {
@@ -769,6 +1061,16 @@ public class MultiLayerSVGRenderer {
         return path.toString().trim();
     }
 
+    /**
+     * The board outline as SVG path data in Gerber coordinates: the path
+     * realistic views clip to. Empty if the document has no regions, draws or arcs.
+     */
+    public String renderOutlinePath(GerberDocument outlineDoc) {
+        SvgOptions outlineOptions = svgOptions.copy().setFlipY(flipY);
+        return fragment(outlineDoc, RenderFragmentCache.Kind.OUTLINE_PATH,
+            outlineOptions, null, () -> extractOutlinePath(outlineDoc, outlineOptions));
+    }
+
     private static double distSq(double ax, double ay, double bx, double by) {
         double dx = ax - bx, dy = ay - by;
         return dx * dx + dy * dy;
@@ -834,17 +1136,99 @@ public class MultiLayerSVGRenderer {
         }
     }
 
-    private void renderDrillContent(StringBuilder svg, DrillDocument doc) {
-        if (doc == null) return;
+    /**
+     * Segment endpoints hashed on a grid with cells as wide as the chaining
+     * tolerance, so every endpoint within tolerance of a point lies in the 3×3
+     * cells around it. Endpoint {@code 2i} is the start of segment {@code i} and
+     * {@code 2i + 1} its end; used segments stay in the grid and are skipped.
+     */
+    private static final class EndpointGrid {
+        private final List<Segment> segments;
+        private final double cellSize;
+        private final Map<Long, Integer> cells = new HashMap<>();
+        private final int[] cellStart;      // endpoints of cell c are cellEndpoints[cellStart[c] .. cellStart[c + 1])
+        private final int[] cellEndpoints;
+
+        EndpointGrid(List<Segment> segments, double cellSize) {
+            this.segments = segments;
+            this.cellSize = cellSize;
+            int count = segments.size() * 2;
+            int[] cellOf = new int[count];
+            int[] starts = new int[count + 1];
+            for (int e = 0; e < count; e++) {
+                long key = key(index(x(e)), index(y(e)));
+                Integer cell = cells.get(key);
+                if (cell == null) {
+                    cell = cells.size();
+                    cells.put(key, cell);
+                }
+                cellOf[e] = cell;
+                starts[cell + 1]++;
+            }
+            for (int c = 0; c < cells.size(); c++) {
+                starts[c + 1] += starts[c];
+            }
+            cellStart = Arrays.copyOf(starts, cells.size() + 1);
+            cellEndpoints = new int[count];
+            // Filled in endpoint order, so each cell lists its endpoints ascending
+            for (int e = 0; e < count; e++) {
+                cellEndpoints[starts[cellOf[e]]++] = e;
+            }
+        }
+
+        double x(int endpoint) {
+            Segment s = segments.get(endpoint >> 1);
+            return (endpoint & 1) == 0 ? s.startX : s.endX;
+        }
+
+        double y(int endpoint) {
+            Segment s = segments.get(endpoint >> 1);
+            return (endpoint & 1) == 0 ? s.startY : s.endY;
+        }
 
-        for (DrillOperation op : doc.getOperations()) {
-            String opSvg = op.toSvg();
-            if (opSvg != null && !opSvg.isEmpty()) {
-                svg.append("    ").append(opSvg).append("\n");
+        /**
+         * The endpoint of an unused segment nearest to (x, y) and strictly closer
+         * than the tolerance, or -1. Ties go to the lowest endpoint, which is the
+         * one a scan of the segments in order, start before end, would pick.
+         */
+        int nearest(double x, double y, double toleranceSq) {
+            long column = index(x);
+            long row = index(y);
+            int best = -1;
+            double bestSq = toleranceSq;
+            for (long c = column - 1; c <= column + 1; c++) {
+                for (long r = row - 1; r <= row + 1; r++) {
+                    Integer cell = cells.get(key(c, r));
+                    if (cell == null) continue;
+                    for (int i = cellStart[cell], end = cellStart[cell + 1]; i < end; i++) {
+                        int e = cellEndpoints[i];
+                        if (segments.get(e >> 1).used) continue;
+                        double d = distSq(x(e), y(e), x, y);
+                        if (d < bestSq || (d == bestSq && best >= 0 && e < best)) {
+                            bestSq = d;
+                            best = e;
+                        }
+                    }
+                }
             }
+            return best;
+        }
+
+        private long index(double v) {
+            return (long) Math.floor(v / cellSize);
+        }
+
+        private static long key(long column, long row) {
+            return (column << 32) ^ (row & 0xffffffffL);
         }
     }
 
+    private void renderDrillContent(StringBuilder svg, DrillDocument doc) {
+        if (doc == null) return;
+
+        RenderTraversal.traverse(doc, new SvgRenderBackend(SvgMarkupWriter.indented(svg, 2), SvgOptions.exact()));
+    }
+
     /**
      * Render a single-side realistic SVG — the input layer list is automatically
      * filtered to the outline, drills, and the layers matching the requested side.
@@ -880,11 +1264,7 @@ public class MultiLayerSVGRenderer {
     public String renderRealisticSide(List<Layer> layers, Side side, boolean mirrorBottom) {
         List<Layer> sideLayers = filterForSide(layers, side);
         if (sideLayers == null) return null;
-        String svg = renderRealistic(sideLayers);
-        if (mirrorBottom && side == Side.BOTTOM) {
-            svg = applyHorizontalFlip(svg);
-        }
-        return svg;
+        return renderRealistic(sideLayers, mirrorBottom && side == Side.BOTTOM);
     }
 
     /**
@@ -957,36 +1337,134 @@ public class MultiLayerSVGRenderer {
             throw new IllegalArgumentException(
                 "At least one of widthPx/heightPx must be positive");
         }
+        LevelOfDetail lod = thumbnailLevelOfDetail ? thumbnailDetail(layers, side, widthPx, heightPx) : null;
+        SVGDocument document = withLevelOfDetail(lod, () -> renderThumbnailDocument(layers, side, mirrorBottom));
+        if (document == null) return null;
+        return rasterizeThumbnail(parseViewBoxValue(document.getRootElement().getAttribute("viewBox")),
+            widthPx, heightPx, (w, h) -> rasterizeDocumentToPng(document, w, h));
+    }
+
+    /**
+     * The SVG that {@link #renderRealisticSidePng} rasterizes: the realistic side
+     * view with a thumbnail margin. Together with {@link #rasterizeThumbnail} this
+     * lets callers time (or skip) the two steps separately.
+     * <p>
+     * {@link #renderRealisticSidePng} itself builds the same elements as a Batik
+     * DOM, without going through this text.
+     *
+     * @return the SVG, or {@code null} if the side couldn't be rendered
+     */
+    public String renderThumbnailSvg(List<Layer> layers, Side side, boolean mirrorBottom) {
+        return withThumbnailMargin(layers, () -> renderRealisticSide(layers, side, mirrorBottom));
+    }
+
+    /**
+     * The thumbnail of {@link #renderThumbnailSvg} as a Batik DOM, reported as one
+     * SVG stage of 0 characters.
+     */
+    private SVGDocument renderThumbnailDocument(List<Layer> layers, Side side, boolean mirrorBottom) {
+        List<Layer> sideLayers = filterForSide(layers, side);
+        if (sideLayers == null) return null;
+        boolean mirror = mirrorBottom && side == Side.BOTTOM;
+        return withThumbnailMargin(layers, () -> svgStage("thumbnail", sideLayers.size(), () -> {
+            SvgDomWriter out = new SvgDomWriter();
+            if (!writeRealistic(out, sideLayers, mirror)) {
+                out.start("svg").attr("viewBox", "0 0 1 1").end();
+            }
+            return out.getDocument();
+        }, document -> 0));
+    }
+
+    /**
+     * Level of detail at the pixel size of a thumbnail: the realistic view's
+     * extent, with the thumbnail margin, over the output dimensions.
+     *
+     * @return the level of detail, or {@code null} if the side has no view
+     */
+    private static LevelOfDetail thumbnailDetail(List<Layer> layers, Side side, int widthPx, int heightPx) {
+        List<Layer> sideLayers = filterForSide(layers, side);
+        if (sideLayers == null) return null;
+        Layer outline = sideLayers.stream()
+            .filter(l -> l.getLayerType() == LayerType.OUTLINE).findFirst().orElse(null);
+        if (outline == null) return null;
+        BoundingBox bounds = realisticBounds(outline, sideLayers);
+        if (bounds == null) return null;
+        double margin = computeThumbnailMargin(layers);
+        double width = bounds.getWidth() + 2 * margin;
+        double height = bounds.getHeight() + 2 * margin;
+        double pixelSize;
+        if (widthPx > 0 && heightPx > 0) {
+            pixelSize = Math.max(width / widthPx, height / heightPx);
+        } else {
+            pixelSize = widthPx > 0 ? width / widthPx : height / heightPx;
+        }
+        return LevelOfDetail.forPixelSize(pixelSize);
+    }
+
+    private <T> T withLevelOfDetail(LevelOfDetail lod, Supplier<T> render) {
+        if (lod == null) return render.get();
+        SvgOptions prevOptions = this.svgOptions;
+        this.svgOptions = prevOptions.copy().setLevelOfDetail(lod);
+        try {
+            return render.get();
+        } finally {
+            this.svgOptions = prevOptions;
+        }
+    }
+
+    private <T> T withThumbnailMargin(List<Layer> layers, Supplier<T> render) {
         // Thumbnails want a more generous, visible margin than the default 0.5 mm
         // used for overlay/DRC work — scale with board size so small and large
         // boards both get visible breathing room around the outline.
         double prevMargin = this.margin;
         this.margin = computeThumbnailMargin(layers);
-        String svg;
         try {
-            svg = renderRealisticSide(layers, side, mirrorBottom);
+            return render.get();
         } finally {
             this.margin = prevMargin;
         }
-        if (svg == null) return null;
+    }
+
+    /**
+     * Rasterize a {@link #renderThumbnailSvg thumbnail SVG} to PNG. A dimension
+     * {@code <= 0} is derived from the other and the SVG's viewBox.
+     *
+     * @throws IllegalArgumentException if both dimensions are {@code <= 0}
+     */
+    public byte[] rasterizeThumbnail(String svg, int widthPx, int heightPx) {
+        return rasterizeThumbnail(parseViewBox(svg), widthPx, heightPx, (w, h) -> rasterizeSvgToPng(svg, w, h));
+    }
 
+    private byte[] rasterizeThumbnail(double[] vb, int widthPx, int heightPx,
+                                      BiFunction<Integer, Integer, byte[]> rasterize) {
+        if (widthPx <= 0 && heightPx <= 0) {
+            throw new IllegalArgumentException(
+                "At least one of widthPx/heightPx must be positive");
+        }
         // Derive the missing dimension from the SVG's viewBox so the PNG's
         // aspect ratio exactly matches the board's X/Y extent (plus margin).
         // Passing both dimensions explicitly avoids any ambiguity in how
         // Batik resolves a single KEY_WIDTH/KEY_HEIGHT hint.
         if (widthPx <= 0 || heightPx <= 0) {
-            double[] vb = parseViewBox(svg);
             if (vb != null && vb[2] > 0 && vb[3] > 0) {
                 double aspect = vb[2] / vb[3];
                 if (widthPx <= 0)  widthPx  = Math.max(1, (int) Math.round(heightPx * aspect));
                 if (heightPx <= 0) heightPx = Math.max(1, (int) Math.round(widthPx / aspect));
             }
         }
-        return rasterizeSvgToPng(svg, widthPx, heightPx);
+        listener.stageStarted(PipelineListener.Stage.RASTERIZE);
+        long start = System.nanoTime();
+        byte[] png = rasterize.apply(widthPx, heightPx);
+        listener.bytesEmitted(PipelineListener.Stage.RASTERIZE, png.length);
+        listener.stageFinished(PipelineListener.Stage.RASTERIZE, System.nanoTime() - start);
+        return png;
     }
 
-    /** 3% of the max outline dimension, floored at 1.5 mm. */
-    private static double computeThumbnailMargin(List<Layer> layers) {
+    /**
+     * Margin around the board in thumbnails: 3% of the max outline dimension,
+     * floored at 1.5 mm.
+     */
+    public static double computeThumbnailMargin(List<Layer> layers) {
         BoundingBox bb = null;
         for (Layer l : layers) {
             if (l.getLayerType() == LayerType.OUTLINE) {
@@ -999,46 +1477,17 @@ public class MultiLayerSVGRenderer {
         return Math.max(1.5, maxDim * 0.03);
     }
 
-    /**
-     * Mirror the rendered SVG horizontally around the viewBox's vertical
-     * centreline. Used to turn the top-looking-down bottom-side render into the
-     * real underside view. Modifies the {@code #viewport} group's {@code transform}
-     * so downstream rasterisation sees a properly flipped image.
-     */
-    private static String applyHorizontalFlip(String svg) {
-        double[] vb = parseViewBox(svg);
-        if (vb == null) return svg;
-        // Mirror x around (minX + width/2): maps x -> 2*minX + width - x.
-        double tx = 2 * vb[0] + vb[2];
-        String mirror = String.format(Locale.US, "translate(%.6f,0) scale(-1,1)", tx);
-
-        int vpStart = svg.indexOf("<g id=\"viewport\"");
-        if (vpStart < 0) return svg;
-        int vpEnd = svg.indexOf('>', vpStart);
-        if (vpEnd < 0) return svg;
-        String vpTag = svg.substring(vpStart, vpEnd);
-
-        int txIdx = vpTag.indexOf("transform=\"");
-        String newVpTag;
-        if (txIdx >= 0) {
-            int txStart = txIdx + 11;
-            int txEnd = vpTag.indexOf('"', txStart);
-            if (txEnd < 0) return svg;
-            String existing = vpTag.substring(txStart, txEnd);
-            newVpTag = vpTag.substring(0, txStart) + mirror + " " + existing + vpTag.substring(txEnd);
-        } else {
-            newVpTag = vpTag + " transform=\"" + mirror + "\"";
-        }
-        return svg.substring(0, vpStart) + newVpTag + svg.substring(vpEnd);
-    }
-
     private static double[] parseViewBox(String svg) {
         int i = svg.indexOf("viewBox=\"");
         if (i < 0) return null;
         int start = i + 9;
         int end = svg.indexOf('"', start);
         if (end < 0) return null;
-        String[] parts = svg.substring(start, end).trim().split("\\s+");
+        return parseViewBoxValue(svg.substring(start, end));
+    }
+
+    private static double[] parseViewBoxValue(String viewBox) {
+        String[] parts = viewBox.trim().split("\\s+");
         if (parts.length != 4) return null;
         try {
             double[] out = new double[4];
@@ -1060,20 +1509,34 @@ public class MultiLayerSVGRenderer {
             throw new IllegalArgumentException(
                 "At least one of widthPx/heightPx must be positive");
         }
-        PNGTranscoder transcoder = new PNGTranscoder();
-        if (widthPx > 0)  transcoder.addTranscodingHint(PNGTranscoder.KEY_WIDTH,  (float) widthPx);
-        if (heightPx > 0) transcoder.addTranscodingHint(PNGTranscoder.KEY_HEIGHT, (float) heightPx);
         String batikSvg = makeBatikCompatible(svg);
-        TranscoderInput input = new TranscoderInput(new StringReader(batikSvg));
-        int buf = Math.max(widthPx, heightPx) * 32;
-        ByteArrayOutputStream out = new ByteArrayOutputStream(buf > 0 ? buf : 16384);
-        TranscoderOutput output = new TranscoderOutput(out);
+        return rasterize(new TranscoderInput(new StringReader(batikSvg)), widthPx, heightPx, svg.length());
+    }
+
+    /** Rasterise a document built by {@link SvgDomWriter}, with no SVG text in between. */
+    private static byte[] rasterizeDocumentToPng(SVGDocument document, int widthPx, int heightPx) {
+        return rasterize(new TranscoderInput(document), widthPx, heightPx, 0);
+    }
+
+    private static byte[] rasterize(TranscoderInput input, int widthPx, int heightPx, long svgCharacters) {
+        RasterizeEvent event = new RasterizeEvent();
+        event.begin();
+        byte[] png;
         try {
-            transcoder.transcode(input, output);
+            png = TRANSCODERS.transcode(input, widthPx, heightPx);
         } catch (TranscoderException e) {
             throw new RuntimeException("SVG→PNG rasterisation failed", e);
         }
-        return out.toByteArray();
+        event.end();
+        if (event.shouldCommit()) {
+            event.backend = "batik";
+            event.width = Math.max(0, widthPx);
+            event.height = Math.max(0, heightPx);
+            event.svgCharacters = svgCharacters;
+            event.pngBytes = png.length;
+            event.commit();
+        }
+        return png;
     }
 
     /** Width-only convenience overload — height follows aspect ratio. */
@@ -1108,7 +1571,11 @@ public class MultiLayerSVGRenderer {
         return out;
     }
 
-    private static List<Layer> filterForSide(List<Layer> allLayers, Side side) {
+    /**
+     * The outline, drills and the layers of one side, or {@code null} if there is
+     * no outline or nothing else to show with it.
+     */
+    public static List<Layer> filterForSide(List<Layer> allLayers, Side side) {
         List<Layer> out = new ArrayList<>();
         boolean hasOutline = false;
         for (Layer layer : allLayers) {
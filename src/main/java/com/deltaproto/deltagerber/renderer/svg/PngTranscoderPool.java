@@ -0,0 +1,82 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.TranscodingHints;
+import org.apache.batik.transcoder.image.PNGTranscoder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reusable Batik PNG transcoders for rasterizing thumbnails concurrently.
+ * <p>
+ * A transcoder serves one transcode at a time: it is taken from the pool, used
+ * and handed back. Under load more are created than the pool holds; the extra
+ * ones are dropped when handed back.
+ */
+final class PngTranscoderPool {
+
+    private final BlockingQueue<ReusableTranscoder> idle;
+
+    PngTranscoderPool(int capacity) {
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Transcode to PNG at the given size. A dimension {@code <= 0} is left for
+     * Batik to derive from the other.
+     */
+    byte[] transcode(TranscoderInput input, int widthPx, int heightPx) throws TranscoderException {
+        ReusableTranscoder transcoder = idle.poll();
+        if (transcoder == null) {
+            transcoder = new ReusableTranscoder();
+        }
+        byte[] png = transcoder.transcode(input, widthPx, heightPx);
+        // A transcoder that failed is not handed back
+        idle.offer(transcoder);
+        return png;
+    }
+
+    /**
+     * A PNG transcoder that lets go of the document after each transcode, so an
+     * idle one doesn't keep the last rendering reachable.
+     */
+    private static final class ReusableTranscoder extends PNGTranscoder {
+
+        byte[] transcode(TranscoderInput input, int widthPx, int heightPx) throws TranscoderException {
+            setSize(KEY_WIDTH, widthPx);
+            setSize(KEY_HEIGHT, heightPx);
+            int buf = Math.max(widthPx, heightPx) * 32;
+            ByteArrayOutputStream out = new ByteArrayOutputStream(buf > 0 ? buf : 16384);
+            try {
+                transcode(input, new TranscoderOutput(out));
+            } finally {
+                release();
+            }
+            return out.toByteArray();
+        }
+
+        private void setSize(TranscodingHints.Key key, int px) {
+            if (px > 0) {
+                addTranscodingHint(key, (float) px);
+            } else {
+                removeTranscodingHint(key);
+            }
+        }
+
+        /** Drop the GVT tree and bridge context, which hold on to the document. */
+        private void release() {
+            if (ctx != null) {
+                ctx.dispose();
+            }
+            ctx = null;
+            builder = null;
+            root = null;
+            curTxf = null;
+            curAOI = null;
+        }
+    }
+}
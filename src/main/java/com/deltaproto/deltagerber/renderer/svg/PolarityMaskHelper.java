@@ -2,10 +2,11 @@ package com.deltaproto.deltagerber.renderer.svg;
 
 import com.deltaproto.deltagerber.model.gerber.Polarity;
 import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.renderer.RenderTraversal;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * Shared helper for rendering Gerber polarity using SVG masks.
@@ -64,18 +65,25 @@ class PolarityMaskHelper {
      */
     static void generateMaskDefs(StringBuilder svg, List<PolarityGroup> groups,
                                   String maskPrefix, String maskRect, SvgOptions maskOptions) {
+        SvgMarkupWriter out = SvgMarkupWriter.indented(svg, 1);
+        writeMaskDefs(out, groups, maskPrefix, w -> out.raw("    " + maskRect + "\n"), maskOptions);
+    }
+
+    /**
+     * Writes the mask definitions of {@link #generateMaskDefs} as elements.
+     *
+     * @param maskRect writes the white background rect of each mask
+     */
+    static void writeMaskDefs(SvgWriter out, List<PolarityGroup> groups, String maskPrefix,
+                              Consumer<SvgWriter> maskRect, SvgOptions maskOptions) {
+        SvgRenderBackend backend = new SvgRenderBackend(out, maskOptions);
         int maskId = 0;
         for (PolarityGroup group : groups) {
             if (group.polarity == Polarity.CLEAR) {
-                svg.append(String.format("  <mask id=\"%s%d\">\n", maskPrefix, maskId));
-                svg.append("    ").append(maskRect).append("\n");
-                for (GraphicsObject obj : group.objects) {
-                    String objSvg = obj.toSvg(maskOptions);
-                    if (objSvg != null && !objSvg.isEmpty()) {
-                        svg.append("    ").append(objSvg).append("\n");
-                    }
-                }
-                svg.append("  </mask>\n");
+                out.start("mask").attr("id", maskPrefix + maskId);
+                maskRect.accept(out);
+                RenderTraversal.objects(group.objects, backend);
+                out.end();
                 maskId++;
             }
         }
@@ -114,10 +122,12 @@ class PolarityMaskHelper {
             }
         }
 
+        // Objects go one per line, at the indentation of the mask groups
+        SvgRenderBackend backend = new SvgRenderBackend(SvgMarkupWriter.indented(svg, 1), options);
         if (!hasClear) {
             // No clear groups — render all objects directly
             for (PolarityGroup group : groups) {
-                renderGroup(svg, group, options);
+                RenderTraversal.objects(group.objects, backend);
             }
             return;
         }
@@ -141,7 +151,7 @@ class PolarityMaskHelper {
         // Render dark groups and close masks at clear group positions
         for (PolarityGroup group : groups) {
             if (group.polarity == Polarity.DARK) {
-                renderGroup(svg, group, options);
+                RenderTraversal.objects(group.objects, backend);
             } else {
                 // Clear group — close the innermost open mask group
                 svg.append("  </g>\n");
@@ -156,22 +166,47 @@ class PolarityMaskHelper {
         }
     }
 
+    /**
+     * Writes the polarity groups as elements, nested in mask groups as in
+     * {@link #renderWithMasks}.
+     */
+    static void writeWithMasks(SvgWriter out, List<PolarityGroup> groups,
+                               String maskPrefix, SvgOptions options) {
+        int clearCount = 0;
+        for (PolarityGroup group : groups) {
+            if (group.polarity == Polarity.CLEAR) {
+                clearCount++;
+            }
+        }
+        for (int ci = clearCount - 1; ci >= 0; ci--) {
+            out.start("g").attr("mask", "url(#" + maskPrefix + ci + ")");
+        }
+        SvgRenderBackend backend = new SvgRenderBackend(out, options);
+        for (PolarityGroup group : groups) {
+            if (group.polarity == Polarity.DARK) {
+                RenderTraversal.objects(group.objects, backend);
+            } else {
+                out.end();
+            }
+        }
+    }
+
     /**
      * Creates the mask base rect string (white rect covering the viewbox + margin).
      */
     static String createMaskRect(double minX, double minY, double width, double height, double extraMargin) {
-        return String.format(Locale.US,
-            "<rect x=\"%.6f\" y=\"%.6f\" width=\"%.6f\" height=\"%.6f\" fill=\"white\"/>",
-            minX - extraMargin, minY - extraMargin,
-            width + 2 * extraMargin, height + 2 * extraMargin);
+        StringBuilder rect = new StringBuilder();
+        writeMaskRect(SvgMarkupWriter.compact(rect), minX, minY, width, height, extraMargin);
+        return rect.toString();
     }
 
-    private static void renderGroup(StringBuilder svg, PolarityGroup group, SvgOptions options) {
-        for (GraphicsObject obj : group.objects) {
-            String objSvg = obj.toSvg(options);
-            if (objSvg != null && !objSvg.isEmpty()) {
-                svg.append("  ").append(objSvg).append("\n");
-            }
-        }
+    /** Writes the mask base rect of {@link #createMaskRect}. */
+    static void writeMaskRect(SvgWriter out, double minX, double minY, double width, double height,
+                              double extraMargin) {
+        out.start("rect")
+            .attr("x", minX - extraMargin).attr("y", minY - extraMargin)
+            .attr("width", width + 2 * extraMargin).attr("height", height + 2 * extraMargin)
+            .attr("fill", "white")
+            .end();
     }
 }
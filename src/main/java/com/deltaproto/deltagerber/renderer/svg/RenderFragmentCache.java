@@ -0,0 +1,272 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU cache of rendered SVG fragments (aperture defs, polarity mask
+ * defs, layer bodies, outline paths, drill bodies) shared across renders.
+ * <p>
+ * A single viewer request renders the same documents three times — the combined
+ * multi-layer view and the realistic top and bottom views — and each of those
+ * regenerates identical aperture defs, layer bodies and the outline path. Sharing
+ * one cache between the renderers lets every fragment be generated once.
+ * <p>
+ * Fragments are keyed by document identity, fragment kind, a snapshot of the
+ * {@link SvgOptions} (colors, prefix, flipY, polygonize) and a kind-specific
+ * discriminator (mask prefix, mask rect, indent). Documents are held weakly so a
+ * cached fragment never keeps a parsed document alive on its own. The cache is
+ * bounded by the total number of characters held and evicts least-recently-used
+ * fragments first. All methods are thread-safe; generation runs outside the lock
+ * so concurrent renders don't serialize on each other, and a render that asks for
+ * a fragment another thread is already generating waits for that result instead
+ * of generating it again. If that generation is cancelled, the waiter generates
+ * the fragment itself. Fragments of a null document are generated but not cached.
+ */
+public class RenderFragmentCache {
+
+    /** Default capacity: 32M characters (~64 MB of fragment strings). */
+    public static final long DEFAULT_MAX_CHARS = 32L * 1024 * 1024;
+
+    /** The kind of fragment stored — part of the cache key. */
+    public enum Kind {
+        /** Aperture {@code <defs>} entries for one layer. */
+        APERTURE_DEFS,
+        /** Clear-polarity {@code <mask>} defs for one layer. */
+        MASK_DEFS,
+        /** Layer content rendered with polarity mask wrapping. */
+        LAYER_BODY,
+        /** Plain object list, e.g. soldermask objects inside an sm/cf mask. */
+        OBJECTS,
+        /** Board outline path data used for clipPath and soldermask base. */
+        OUTLINE_PATH,
+        /** Drill hits and slots of an Excellon document. */
+        DRILL_BODY
+    }
+
+    private final long maxChars;
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final HashMap<Key, CompletableFuture<String>> inFlight = new HashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private long totalChars;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public RenderFragmentCache() {
+        this(DEFAULT_MAX_CHARS);
+    }
+
+    /**
+     * @param maxChars maximum total fragment length (in characters) held before
+     *                 least-recently-used fragments are evicted
+     */
+    public RenderFragmentCache(long maxChars) {
+        if (maxChars <= 0) {
+            throw new IllegalArgumentException("maxChars must be positive: " + maxChars);
+        }
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Return the cached fragment for the given key, generating and storing it on a miss.
+     *
+     * @param document  the Gerber or drill document the fragment is derived from
+     * @param kind      fragment kind
+     * @param options   render options the fragment depends on (snapshotted), or null
+     * @param extra     kind-specific discriminator (mask prefix, rect, indent), or null
+     * @param generator produces the fragment on a miss
+     */
+    public String get(Object document, Kind kind, SvgOptions options, String extra,
+                      Supplier<String> generator) {
+        if (document == null) {
+            // Nothing to key on, and a null referent never equals another key
+            return generator.get();
+        }
+        Key lookup = new Key(document, kind, options, extra, null);
+        CompletableFuture<String> pending;
+        Key owner;
+        while (true) {
+            synchronized (this) {
+                String cached = entries.get(lookup);
+                if (cached != null) {
+                    hits++;
+                    return cached;
+                }
+                pending = inFlight.get(lookup);
+                if (pending == null) {
+                    misses++;
+                    pending = new CompletableFuture<>();
+                    owner = new Key(document, kind, options != null ? options.copy() : null, extra, null);
+                    inFlight.put(owner, pending);
+                    break;
+                }
+                hits++;
+            }
+            try {
+                return await(pending);
+            } catch (CancellationException e) {
+                // The render generating this fragment was cancelled: generate it here,
+                // unless this thread is the one being cancelled
+                if (Thread.currentThread().isInterrupted()) throw e;
+            }
+        }
+
+        String fragment;
+        try {
+            fragment = generator.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                inFlight.remove(owner, pending);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+
+        synchronized (this) {
+            inFlight.remove(owner, pending);
+            if (fragment.length() <= maxChars) {
+                purgeCollected();
+                Key key = new Key(document, kind, options != null ? options.copy() : null, extra, collected);
+                String previous = entries.put(key, fragment);
+                if (previous != null) {
+                    totalChars -= previous.length();
+                }
+                totalChars += fragment.length();
+                evictToCapacity();
+            }
+        }
+        pending.complete(fragment);
+        return fragment;
+    }
+
+    /** Wait for another thread's generation; interruptible, so deadlines reach waiters too. */
+    private static String await(CompletableFuture<String> pending) {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted waiting for a fragment");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new CompletionException(cause);
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /** Number of fragments currently cached. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Total length in characters of all cached fragments. */
+    public synchronized long getCharCount() {
+        return totalChars;
+    }
+
+    public long getMaxChars() {
+        return maxChars;
+    }
+
+    /**
+     * Drop all cached fragments. Renders waiting on a fragment still being generated
+     * are released and generate it themselves.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalChars = 0;
+        for (CompletableFuture<String> pending : inFlight.values()) {
+            pending.completeExceptionally(new CancellationException("Fragment cache cleared"));
+        }
+        inFlight.clear();
+    }
+
+    private void evictToCapacity() {
+        Iterator<Map.Entry<Key, String>> it = entries.entrySet().iterator();
+        while (totalChars > maxChars && it.hasNext()) {
+            Map.Entry<Key, String> eldest = it.next();
+            totalChars -= eldest.getValue().length();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /** Drop entries whose document has been garbage collected. */
+    private void purgeCollected() {
+        Object ref;
+        while ((ref = collected.poll()) != null) {
+            String removed = entries.remove(ref);
+            if (removed != null) {
+                totalChars -= removed.length();
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RenderFragmentCache[%d fragments, %d/%d chars, %d hits, %d misses]",
+            entries.size(), totalChars, maxChars, hits, misses);
+    }
+
+    /**
+     * Cache key holding the document weakly and comparing it by identity.
+     */
+    private static final class Key extends WeakReference<Object> {
+        private final int documentHash;
+        private final Kind kind;
+        private final SvgOptions options;
+        private final String extra;
+        private final int hash;
+
+        Key(Object document, Kind kind, SvgOptions options, String extra,
+            ReferenceQueue<Object> queue) {
+            super(document, queue);
+            this.documentHash = System.identityHashCode(document);
+            this.kind = kind;
+            this.options = options;
+            this.extra = extra;
+            this.hash = Objects.hash(documentHash, kind, options, extra);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            Object document = get();
+            return document != null
+                && document == other.get()
+                && kind == other.kind
+                && Objects.equals(options, other.options)
+                && Objects.equals(extra, other.extra);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.deltaproto.deltagerber.renderer.svg;
 import com.deltaproto.deltagerber.model.gerber.BoundingBox;
 import com.deltaproto.deltagerber.model.gerber.GerberDocument;
 import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
+import com.deltaproto.deltagerber.pipeline.SvgRenderEvent;
+import com.deltaproto.deltagerber.renderer.LevelOfDetail;
 
 import java.util.List;
 import java.util.Locale;
@@ -19,6 +22,7 @@ public class SVGRenderer {
     private double margin = 0;
     private Double fixedViewBoxSize = null;  // If set, use a fixed square viewBox centered on content
     private SvgOptions svgOptions = SvgOptions.exact();  // Default to exact mode
+    private PipelineListener listener = PipelineListener.NONE;
 
     public SVGRenderer() {
     }
@@ -95,7 +99,34 @@ public class SVGRenderer {
         return this;
     }
 
+    /**
+     * Receive the timing and output size of subsequent renders.
+     */
+    public SVGRenderer setListener(PipelineListener listener) {
+        this.listener = listener != null ? listener : PipelineListener.NONE;
+        return this;
+    }
+
     public String render(GerberDocument doc) {
+        listener.stageStarted(PipelineListener.Stage.SVG_RENDER);
+        SvgRenderEvent event = new SvgRenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String svg = renderDocument(doc);
+        long elapsed = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = "layer";
+            event.layers = 1;
+            event.characters = svg.length();
+            event.commit();
+        }
+        listener.bytesEmitted(PipelineListener.Stage.SVG_RENDER, svg.length());
+        listener.stageFinished(PipelineListener.Stage.SVG_RENDER, elapsed);
+        return svg;
+    }
+
+    private String renderDocument(GerberDocument doc) {
         BoundingBox bounds = doc.getBoundingBox();
         if (!bounds.isValid()) {
             return createEmptySvg();
@@ -140,8 +171,9 @@ public class SVGRenderer {
         }
 
         // Group objects by polarity transitions and generate masks for clear groups
+        LevelOfDetail lod = svgOptions.getLevelOfDetail();
         List<PolarityMaskHelper.PolarityGroup> groups =
-            PolarityMaskHelper.groupByPolarity(doc.getObjects());
+            PolarityMaskHelper.groupByPolarity(lod != null ? lod.apply(doc) : doc.getObjects());
         SvgOptions maskOptions = svgOptions.copy();
         maskOptions.setDarkColor("black").setClearColor("black");
         String maskRect = PolarityMaskHelper.createMaskRect(minX, minY, width, height, 1);
@@ -0,0 +1,66 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.util.SVGConstants;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * Builds a Batik {@link SVGDocument} from SVG elements, so a rendering can be
+ * rasterized without being serialized and parsed back.
+ * <p>
+ * Batik implements SVG 1.1, so {@code href} is set as {@code xlink:href}; the
+ * {@code xmlns} attribute is dropped since the elements are created in the SVG
+ * namespace.
+ */
+public final class SvgDomWriter implements SvgWriter {
+
+    private final SVGDocument document;
+    private Node current;
+
+    public SvgDomWriter() {
+        this.document = (SVGDocument) SVGDOMImplementation.getDOMImplementation()
+            .createDocument(SVGConstants.SVG_NAMESPACE_URI, SVGConstants.SVG_SVG_TAG, null);
+        this.current = document;
+    }
+
+    /** The document built so far. */
+    public SVGDocument getDocument() {
+        return document;
+    }
+
+    @Override
+    public SvgDomWriter start(String name) {
+        Element element;
+        if (current == document) {
+            // The document comes with its root element
+            element = document.getDocumentElement();
+            if (!element.getTagName().equals(name)) {
+                throw new IllegalStateException("Document element must be <svg>, not <" + name + ">");
+            }
+        } else {
+            element = document.createElementNS(SVGConstants.SVG_NAMESPACE_URI, name);
+            current.appendChild(element);
+        }
+        current = element;
+        return this;
+    }
+
+    @Override
+    public SvgDomWriter attr(String name, String value) {
+        Element element = (Element) current;
+        switch (name) {
+            case "xmlns" -> { }
+            case "href" -> element.setAttributeNS(SVGConstants.XLINK_NAMESPACE_URI, "xlink:href", value);
+            default -> element.setAttributeNS(null, name, value);
+        }
+        return this;
+    }
+
+    @Override
+    public SvgDomWriter end() {
+        current = current.getParentNode();
+        return this;
+    }
+}
@@ -0,0 +1,120 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import java.util.Arrays;
+
+/**
+ * Writes SVG elements as markup into a {@link StringBuilder}.
+ * <p>
+ * A compact writer puts everything on one line, as the model's {@code toSvg}
+ * methods return it. An indented writer puts each element on its own line,
+ * indented two spaces per level below {@code depth}, for whole documents.
+ */
+public final class SvgMarkupWriter implements SvgWriter {
+
+    private final StringBuilder out;
+    private final boolean indented;
+    private final int baseDepth;
+    private String[] open = new String[16];
+    private int depth;
+    /** Whether the last start tag still awaits its closing {@code >}. */
+    private boolean startTagOpen;
+
+    private SvgMarkupWriter(StringBuilder out, boolean indented, int baseDepth) {
+        this.out = out;
+        this.indented = indented;
+        this.baseDepth = baseDepth;
+    }
+
+    /** A writer putting all elements on one line. */
+    public static SvgMarkupWriter compact(StringBuilder out) {
+        return new SvgMarkupWriter(out, false, 0);
+    }
+
+    /** A writer putting each element on its own line, starting at the given nesting depth. */
+    public static SvgMarkupWriter indented(StringBuilder out, int depth) {
+        return new SvgMarkupWriter(out, true, depth);
+    }
+
+    /** Nesting depth of the next element, counting the base depth. */
+    public int depth() {
+        return baseDepth + depth;
+    }
+
+    /**
+     * Append markup produced by another writer (a cached fragment, say) at the
+     * current position. In an indented writer, the markup should be indented
+     * for {@link #depth()} and end with a newline.
+     */
+    public SvgMarkupWriter raw(CharSequence markup) {
+        closeStartTag();
+        out.append(markup);
+        return this;
+    }
+
+    @Override
+    public SvgMarkupWriter start(String name) {
+        closeStartTag();
+        if (indented) {
+            indent(depth());
+        }
+        out.append('<').append(name);
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, depth * 2);
+        }
+        open[depth++] = name;
+        startTagOpen = true;
+        return this;
+    }
+
+    @Override
+    public SvgMarkupWriter attr(String name, String value) {
+        out.append(' ').append(name).append("=\"").append(value).append('"');
+        return this;
+    }
+
+    @Override
+    public SvgMarkupWriter attr(String name, double value) {
+        out.append(' ').append(name).append("=\"");
+        SvgNumbers.append(out, value).append('"');
+        return this;
+    }
+
+    @Override
+    public SvgMarkupWriter end() {
+        String name = open[--depth];
+        if (startTagOpen) {
+            out.append("/>");
+            startTagOpen = false;
+        } else {
+            if (indented) {
+                indent(depth());
+            }
+            out.append("</").append(name).append('>');
+        }
+        if (indented) {
+            out.append('\n');
+        }
+        return this;
+    }
+
+    private void closeStartTag() {
+        if (startTagOpen) {
+            out.append('>');
+            if (indented) {
+                out.append('\n');
+            }
+            startTagOpen = false;
+        }
+    }
+
+    private void indent(int level) {
+        for (int i = 0; i < level; i++) {
+            out.append("  ");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Writes numbers the way the SVG output does throughout: {@code %.6f} in
+ * {@link Locale#US}, but without going through {@link Formatter} for the
+ * coordinates and sizes that make up nearly all of it.
+ * <p>
+ * The result is the same as {@code String.format(Locale.US, "%.6f", value)}:
+ * that rounds the shortest decimal representation half-up, which for values
+ * under 1000 can only differ from rounding {@code value * 1e6} when that lands
+ * close to a tie. Those values, and larger ones, are left to the formatter.
+ */
+public final class SvgNumbers {
+
+    private static final double FAST_LIMIT = 1e3;
+    /** Distance from a rounding tie, in millionths, below which the formatter decides. */
+    private static final double TIE_MARGIN = 1e-4;
+
+    private SvgNumbers() {
+    }
+
+    /** Append {@code value} with six decimals. */
+    public static StringBuilder append(StringBuilder out, double value) {
+        double abs = Math.abs(value);
+        if (!(abs < FAST_LIMIT)) {
+            return formatted(out, value);
+        }
+        double scaled = abs * 1e6;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) < TIE_MARGIN) {
+            return formatted(out, value);
+        }
+        long micros = (long) floor + (fraction > 0.5 ? 1 : 0);
+        if (Double.doubleToRawLongBits(value) < 0) {
+            // Like the formatter, keep the sign of values that round to zero
+            out.append('-');
+        }
+        out.append(micros / 1_000_000).append('.');
+        long fractionDigits = micros % 1_000_000;
+        for (long digit = 100_000; digit > 1 && fractionDigits < digit; digit /= 10) {
+            out.append('0');
+        }
+        return out.append(fractionDigits);
+    }
+
+    /** {@code value} with six decimals. */
+    public static String format(double value) {
+        return append(new StringBuilder(16), value).toString();
+    }
+
+    private static StringBuilder formatted(StringBuilder out, double value) {
+        return out.append(String.format(Locale.US, "%.6f", value));
+    }
+}
@@ -1,5 +1,9 @@
 package com.deltaproto.deltagerber.renderer.svg;
 
+import com.deltaproto.deltagerber.renderer.LevelOfDetail;
+
+import java.util.Objects;
+
 /**
  * Configuration options for SVG output generation.
  */
@@ -7,10 +11,12 @@ public class SvgOptions {
 
     private boolean polygonize = false;
     private int circleSegments = 32;
+    private double chordTolerance = 0;  // 0: fixed circle segments, arcs split by length
     private String darkColor = "#000000";
     private String clearColor = "#ffffff";
     private boolean flipY = true;  // Whether Y-axis is flipped (Gerber Y-up to SVG Y-down)
     private String apertureIdPrefix = "ap";  // Prefix for aperture IDs (allows multiple layers)
+    private LevelOfDetail levelOfDetail = null;  // Full detail unless set
 
     public SvgOptions() {
     }
@@ -43,6 +49,47 @@ public class SvgOptions {
         return this;
     }
 
+    /**
+     * Maximum distance in mm between a curve and the chords approximating it
+     * when polygonize is enabled, for example 0.001 for 1 µm. Segment counts
+     * then follow each circle's and arc's radius: few for small pads, more for
+     * large arcs. Default: 0, using {@link #getCircleSegments()} for every
+     * circle and about 10 segments per mm of arc length.
+     */
+    public double getChordTolerance() {
+        return chordTolerance;
+    }
+
+    public SvgOptions setChordTolerance(double chordTolerance) {
+        if (!(chordTolerance >= 0) || Double.isInfinite(chordTolerance)) {
+            throw new IllegalArgumentException("chordTolerance must be finite and non-negative: " + chordTolerance);
+        }
+        this.chordTolerance = chordTolerance;
+        return this;
+    }
+
+    public boolean hasChordTolerance() {
+        return chordTolerance > 0;
+    }
+
+    /**
+     * Segments for a polygonized circle of the given radius.
+     */
+    public int circleSegments(double radius) {
+        return chordTolerance > 0
+            ? SvgPathUtils.circleSegmentsForTolerance(radius, chordTolerance)
+            : circleSegments;
+    }
+
+    /**
+     * Segments for a polygonized arc of the given radius and sweep (radians).
+     */
+    public int arcSegments(double radius, double sweep) {
+        return chordTolerance > 0
+            ? SvgPathUtils.segmentsForTolerance(radius, sweep, chordTolerance)
+            : Math.max(8, (int) (sweep * radius * 10));
+    }
+
     /**
      * The fill color for dark (positive) polarity.
      */
@@ -94,6 +141,20 @@ public class SvgOptions {
         return this;
     }
 
+    /**
+     * Level of detail for overview renders: objects below it are dropped or
+     * merged before they are written (see {@link LevelOfDetail}).
+     * Default is {@code null}, writing every object.
+     */
+    public LevelOfDetail getLevelOfDetail() {
+        return levelOfDetail;
+    }
+
+    public SvgOptions setLevelOfDetail(LevelOfDetail levelOfDetail) {
+        this.levelOfDetail = levelOfDetail;
+        return this;
+    }
+
     /**
      * Create a copy of these options.
      */
@@ -101,13 +162,35 @@ public class SvgOptions {
         SvgOptions copy = new SvgOptions();
         copy.polygonize = this.polygonize;
         copy.circleSegments = this.circleSegments;
+        copy.chordTolerance = this.chordTolerance;
         copy.darkColor = this.darkColor;
         copy.clearColor = this.clearColor;
         copy.flipY = this.flipY;
         copy.apertureIdPrefix = this.apertureIdPrefix;
+        copy.levelOfDetail = this.levelOfDetail;
         return copy;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SvgOptions)) return false;
+        SvgOptions other = (SvgOptions) o;
+        return polygonize == other.polygonize
+            && circleSegments == other.circleSegments
+            && Double.compare(chordTolerance, other.chordTolerance) == 0
+            && flipY == other.flipY
+            && Objects.equals(darkColor, other.darkColor)
+            && Objects.equals(clearColor, other.clearColor)
+            && Objects.equals(apertureIdPrefix, other.apertureIdPrefix)
+            && Objects.equals(levelOfDetail, other.levelOfDetail);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(polygonize, circleSegments, chordTolerance, darkColor, clearColor, flipY, apertureIdPrefix, levelOfDetail);
+    }
+
     /**
      * Default options: exact native SVG elements.
      */
@@ -128,4 +211,11 @@ public class SvgOptions {
     public static SvgOptions polygonized(int segments) {
         return new SvgOptions().setPolygonize(true).setCircleSegments(segments);
     }
+
+    /**
+     * Polygonized with segment counts kept within a chord error, in mm.
+     */
+    public static SvgOptions polygonizedWithTolerance(double chordTolerance) {
+        return new SvgOptions().setPolygonize(true).setChordTolerance(chordTolerance);
+    }
 }
@@ -1,21 +1,60 @@
 package com.deltaproto.deltagerber.renderer.svg;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Utility class for generating SVG path data from geometric shapes.
  * Outputs path-based polygon approximations similar to professional Gerber viewers.
+ * <p>
+ * Curves are split into segments as the {@link SvgOptions} say: a fixed count per
+ * circle, or, with a {@link SvgOptions#setChordTolerance chord tolerance}, as many
+ * as keep every chord within that distance of the curve. Vertices come from
+ * unit-circle tables per segment count, rotated into place, and from incremental
+ * rotation for arcs of any other step, so no vertex costs a trigonometric call.
  */
 public class SvgPathUtils {
 
     private static final int CIRCLE_SEGMENTS = 32;  // Number of segments for circle approximation
 
+    /** Circles are split into at least this many segments under a chord tolerance. */
+    public static final int MIN_CIRCLE_SEGMENTS = 8;
+
+    /** Upper bound on the segments of one circle or arc under a chord tolerance. */
+    public static final int MAX_SEGMENTS = 8192;
+
+    // Options of the overloads without any: 32 segments per circle, arcs by length
+    private static final SvgOptions FIXED_SEGMENTS = new SvgOptions();
+
+    // Unit-circle tables (cos, sin interleaved) by segment count, built on first use
+    private static final AtomicReferenceArray<double[]> UNIT_CIRCLES = new AtomicReferenceArray<>(MAX_SEGMENTS + 1);
+
     private SvgPathUtils() {
         // Utility class
     }
 
+    /**
+     * Segments needed so that no chord of an arc of the given radius and sweep
+     * (radians) strays more than {@code tolerance} from it.
+     *
+     * @return at least 1, at most {@link #MAX_SEGMENTS}
+     */
+    public static int segmentsForTolerance(double radius, double sweep, double tolerance) {
+        if (!(radius > tolerance) || !(tolerance > 0)) return 1;
+        double step = 2 * Math.acos(1 - tolerance / radius);
+        double segments = Math.ceil(Math.abs(sweep) / step);
+        return (int) Math.max(1, Math.min(MAX_SEGMENTS, segments));
+    }
+
+    /**
+     * Segments for a full circle within {@code tolerance}: a multiple of 4, so
+     * halves and quarters split evenly, and at least {@link #MIN_CIRCLE_SEGMENTS}.
+     */
+    public static int circleSegmentsForTolerance(double radius, double tolerance) {
+        int segments = segmentsForTolerance(radius, 2 * Math.PI, tolerance);
+        return Math.max(MIN_CIRCLE_SEGMENTS, Math.min(MAX_SEGMENTS, (segments + 3) & ~3));
+    }
+
     /**
      * Generate a circle path approximated as a polygon.
      *
@@ -28,21 +67,31 @@ public class SvgPathUtils {
         return circlePath(cx, cy, radius, CIRCLE_SEGMENTS);
     }
 
+    /**
+     * Generate a circle path with the segments the options give for its radius.
+     */
+    public static String circlePath(double cx, double cy, double radius, SvgOptions options) {
+        return circlePath(cx, cy, radius, options.circleSegments(radius));
+    }
+
     /**
      * Generate a circle path approximated as a polygon with specified segments.
      */
     public static String circlePath(double cx, double cy, double radius, int segments) {
-        StringBuilder path = new StringBuilder();
-        for (int i = 0; i < segments; i++) {
-            double angle = 2 * Math.PI * i / segments;
-            double x = cx + radius * Math.cos(angle);
-            double y = cy + radius * Math.sin(angle);
-            if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
-        }
+        StringBuilder path = new StringBuilder(segments * 24);
+        circle(path, "M ", cx, cy, radius, segments, false);
+        path.append(" Z");
+        return path.toString();
+    }
+
+    /**
+     * Generate a circle path running counter to {@link #circlePath}, starting at
+     * its last vertex, for cutting holes with the even-odd rule.
+     */
+    public static String reverseCirclePath(double cx, double cy, double radius, SvgOptions options) {
+        int segments = options.circleSegments(radius);
+        StringBuilder path = new StringBuilder(segments * 24);
+        circle(path, "M ", cx, cy, radius, segments, true);
         path.append(" Z");
         return path.toString();
     }
@@ -55,36 +104,26 @@ public class SvgPathUtils {
         return annulusPath(cx, cy, outerRadius, innerRadius, CIRCLE_SEGMENTS);
     }
 
+    /**
+     * Generate an annulus with the segments the options give for its outer radius.
+     */
+    public static String annulusPath(double cx, double cy, double outerRadius, double innerRadius,
+                                     SvgOptions options) {
+        return annulusPath(cx, cy, outerRadius, innerRadius, options.circleSegments(outerRadius));
+    }
+
     /**
      * Generate an annulus with specified segments.
      */
     public static String annulusPath(double cx, double cy, double outerRadius, double innerRadius, int segments) {
-        StringBuilder path = new StringBuilder();
+        StringBuilder path = new StringBuilder(segments * 48);
 
         // Outer circle (clockwise)
-        for (int i = 0; i < segments; i++) {
-            double angle = 2 * Math.PI * i / segments;
-            double x = cx + outerRadius * Math.cos(angle);
-            double y = cy + outerRadius * Math.sin(angle);
-            if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
-        }
+        circle(path, "M ", cx, cy, outerRadius, segments, false);
         path.append(" Z");
 
         // Inner circle (counter-clockwise for hole)
-        for (int i = segments - 1; i >= 0; i--) {
-            double angle = 2 * Math.PI * i / segments;
-            double x = cx + innerRadius * Math.cos(angle);
-            double y = cy + innerRadius * Math.sin(angle);
-            if (i == segments - 1) {
-                path.append(String.format(Locale.US, " M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
-        }
+        circle(path, " M ", cx, cy, innerRadius, segments, true);
         path.append(" Z");
 
         return path.toString();
@@ -94,44 +133,36 @@ public class SvgPathUtils {
      * Generate a rectangle path.
      */
     public static String rectanglePath(double cx, double cy, double width, double height) {
-        double hw = width / 2;
-        double hh = height / 2;
-        return String.format(Locale.US,
-            "M %.6f %.6f L %.6f %.6f L %.6f %.6f L %.6f %.6f Z",
-            cx - hw, cy - hh,  // bottom-left
-            cx + hw, cy - hh,  // bottom-right
-            cx + hw, cy + hh,  // top-right
-            cx - hw, cy + hh); // top-left
+        StringBuilder path = new StringBuilder(100);
+        rectangle(path, cx, cy, width, height);
+        return path.toString();
     }
 
     /**
      * Generate a rectangle with a round hole.
      */
     public static String rectangleWithHolePath(double cx, double cy, double width, double height, double holeDiameter) {
-        StringBuilder path = new StringBuilder();
+        return rectangleWithHolePath(cx, cy, width, height, holeDiameter, CIRCLE_SEGMENTS);
+    }
+
+    /**
+     * Generate a rectangle with a round hole, segmented as the options give.
+     */
+    public static String rectangleWithHolePath(double cx, double cy, double width, double height,
+                                               double holeDiameter, SvgOptions options) {
+        return rectangleWithHolePath(cx, cy, width, height, holeDiameter,
+            options.circleSegments(holeDiameter / 2));
+    }
+
+    private static String rectangleWithHolePath(double cx, double cy, double width, double height,
+                                                double holeDiameter, int segments) {
+        StringBuilder path = new StringBuilder(100 + segments * 24);
 
         // Rectangle
-        double hw = width / 2;
-        double hh = height / 2;
-        path.append(String.format(Locale.US,
-            "M %.6f %.6f L %.6f %.6f L %.6f %.6f L %.6f %.6f Z",
-            cx - hw, cy - hh,
-            cx + hw, cy - hh,
-            cx + hw, cy + hh,
-            cx - hw, cy + hh));
+        rectangle(path, cx, cy, width, height);
 
         // Inner hole (counter-clockwise)
-        double hr = holeDiameter / 2;
-        for (int i = CIRCLE_SEGMENTS - 1; i >= 0; i--) {
-            double angle = 2 * Math.PI * i / CIRCLE_SEGMENTS;
-            double x = cx + hr * Math.cos(angle);
-            double y = cy + hr * Math.sin(angle);
-            if (i == CIRCLE_SEGMENTS - 1) {
-                path.append(String.format(Locale.US, " M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
-        }
+        circle(path, " M ", cx, cy, holeDiameter / 2, segments, true);
         path.append(" Z");
 
         return path.toString();
@@ -141,12 +172,21 @@ public class SvgPathUtils {
      * Generate an obround (stadium/pill shape) path.
      */
     public static String obroundPath(double cx, double cy, double width, double height) {
-        int semiSegments = CIRCLE_SEGMENTS / 2;
+        return obroundPath(cx, cy, width, height, CIRCLE_SEGMENTS);
+    }
 
-        double hw = width / 2;
-        double hh = height / 2;
+    /**
+     * Generate an obround path, its ends segmented as the options give.
+     */
+    public static String obroundPath(double cx, double cy, double width, double height, SvgOptions options) {
+        return obroundPath(cx, cy, width, height, options.circleSegments(Math.min(width, height) / 2));
+    }
+
+    private static String obroundPath(double cx, double cy, double width, double height, int circleSegments) {
+        int semiSegments = Math.max(1, circleSegments / 2);
+        int n = 2 * semiSegments;
 
-        StringBuilder path = new StringBuilder();
+        StringBuilder path = new StringBuilder(100 + n * 24);
 
         if (width >= height) {
             // Horizontal obround: semicircles on left and right
@@ -156,26 +196,16 @@ public class SvgPathUtils {
             double rightCenter = cx + flatLength / 2;
 
             // Start at bottom of right semicircle
-            path.append(String.format(Locale.US, "M %.6f %.6f", rightCenter, cy - radius));
+            vertex(path, "M ", rightCenter, cy - radius);
 
             // Right semicircle (bottom to top, clockwise)
-            for (int i = 1; i <= semiSegments; i++) {
-                double angle = -Math.PI / 2 + Math.PI * i / semiSegments;
-                double x = rightCenter + radius * Math.cos(angle);
-                double y = cy + radius * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
+            tableArc(path, " L ", rightCenter, cy, radius, -Math.PI / 2, n, 1, semiSegments, 1);
 
             // Top flat edge
-            path.append(String.format(Locale.US, " L %.6f %.6f", leftCenter, cy + radius));
+            vertex(path, " L ", leftCenter, cy + radius);
 
             // Left semicircle (top to bottom, clockwise)
-            for (int i = 1; i <= semiSegments; i++) {
-                double angle = Math.PI / 2 + Math.PI * i / semiSegments;
-                double x = leftCenter + radius * Math.cos(angle);
-                double y = cy + radius * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
+            tableArc(path, " L ", leftCenter, cy, radius, Math.PI / 2, n, 1, semiSegments, 1);
 
             // Bottom flat edge (implicit closure)
             path.append(" Z");
@@ -187,29 +217,19 @@ public class SvgPathUtils {
             double topCenter = cy + flatLength / 2;
 
             // Start at right of bottom semicircle
-            path.append(String.format(Locale.US, "M %.6f %.6f", cx + radius, bottomCenter));
+            vertex(path, "M ", cx + radius, bottomCenter);
 
             // Right edge
-            path.append(String.format(Locale.US, " L %.6f %.6f", cx + radius, topCenter));
+            vertex(path, " L ", cx + radius, topCenter);
 
             // Top semicircle (right to left)
-            for (int i = 1; i <= semiSegments; i++) {
-                double angle = 0 + Math.PI * i / semiSegments;
-                double x = cx + radius * Math.cos(angle);
-                double y = topCenter + radius * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
+            tableArc(path, " L ", cx, topCenter, radius, 0, n, 1, semiSegments, 1);
 
             // Left edge
-            path.append(String.format(Locale.US, " L %.6f %.6f", cx - radius, bottomCenter));
+            vertex(path, " L ", cx - radius, bottomCenter);
 
             // Bottom semicircle (left to right)
-            for (int i = 1; i <= semiSegments; i++) {
-                double angle = Math.PI + Math.PI * i / semiSegments;
-                double x = cx + radius * Math.cos(angle);
-                double y = bottomCenter + radius * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
+            tableArc(path, " L ", cx, bottomCenter, radius, Math.PI, n, 1, semiSegments, 1);
 
             path.append(" Z");
         }
@@ -228,19 +248,10 @@ public class SvgPathUtils {
      */
     public static String polygonPath(double cx, double cy, double outerDiameter,
                                      int vertices, double rotationDegrees) {
-        double radius = outerDiameter / 2;
-        double rotationRad = Math.toRadians(rotationDegrees);
-
-        StringBuilder path = new StringBuilder();
-        for (int i = 0; i < vertices; i++) {
-            double angle = rotationRad + 2 * Math.PI * i / vertices;
-            double x = cx + radius * Math.cos(angle);
-            double y = cy + radius * Math.sin(angle);
-            if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
+        StringBuilder path = new StringBuilder(vertices * 24 + 2);
+        if (vertices > 0) {
+            tableArc(path, "M ", cx, cy, outerDiameter / 2, Math.toRadians(rotationDegrees),
+                vertices, 0, vertices, 1);
         }
         path.append(" Z");
 
@@ -258,14 +269,10 @@ public class SvgPathUtils {
             return "";
         }
 
-        StringBuilder path = new StringBuilder();
+        StringBuilder path = new StringBuilder(points.size() * 24 + 2);
         for (int i = 0; i < points.size(); i++) {
             double[] pt = points.get(i);
-            if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", pt[0], pt[1]));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", pt[0], pt[1]));
-            }
+            vertex(path, i == 0 ? "M " : " L ", pt[0], pt[1]);
         }
         if (close) {
             path.append(" Z");
@@ -289,56 +296,67 @@ public class SvgPathUtils {
                                  double endX, double endY,
                                  double centerX, double centerY,
                                  boolean clockwise) {
-        double startRadius = Math.sqrt(Math.pow(startX - centerX, 2) + Math.pow(startY - centerY, 2));
-        double endRadius = Math.sqrt(Math.pow(endX - centerX, 2) + Math.pow(endY - centerY, 2));
-        double radius = (startRadius + endRadius) / 2;  // Average for imprecise arcs
+        return arcPath(startX, startY, endX, endY, centerX, centerY, clockwise, FIXED_SEGMENTS);
+    }
 
+    /**
+     * Generate an arc path with the segments the options give for its radius and sweep.
+     */
+    public static String arcPath(double startX, double startY,
+                                 double endX, double endY,
+                                 double centerX, double centerY,
+                                 boolean clockwise, SvgOptions options) {
+        double radius = averageRadius(startX, startY, endX, endY, centerX, centerY);  // Average for imprecise arcs
         double startAngle = Math.atan2(startY - centerY, startX - centerX);
-        double endAngle = Math.atan2(endY - centerY, endX - centerX);
-
-        // Calculate sweep angle
-        double sweep;
-        if (clockwise) {
-            sweep = startAngle - endAngle;
-            if (sweep <= 0) sweep += 2 * Math.PI;
-        } else {
-            sweep = endAngle - startAngle;
-            if (sweep <= 0) sweep += 2 * Math.PI;
-        }
-
-        // Number of segments based on arc length
-        int segments = Math.max(8, (int) (sweep * radius * 10));
-
-        StringBuilder path = new StringBuilder();
-        path.append(String.format(Locale.US, "M %.6f %.6f", startX, startY));
+        double sweep = sweep(startX, startY, endX, endY, centerX, centerY, clockwise);
+        int segments = options.arcSegments(radius, sweep);
 
-        for (int i = 1; i <= segments; i++) {
-            double t = (double) i / segments;
-            double angle;
-            if (clockwise) {
-                angle = startAngle - sweep * t;
-            } else {
-                angle = startAngle + sweep * t;
-            }
-            double x = centerX + radius * Math.cos(angle);
-            double y = centerY + radius * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-        }
+        StringBuilder path = new StringBuilder(segments * 24 + 24);
+        vertex(path, "M ", startX, startY);
+        appendArc(path, centerX, centerY, radius, startAngle, clockwise ? -sweep : sweep, segments);
 
         return path.toString();
     }
 
+    /**
+     * Append {@code " L x y"} for the {@code segments} vertices after the start
+     * of an arc, the last one at its end.
+     *
+     * @param startAngle angle of the arc's start, in radians
+     * @param sweep      signed sweep in radians, negative for clockwise
+     */
+    public static void appendArc(StringBuilder path, double centerX, double centerY, double radius,
+                                 double startAngle, double sweep, int segments) {
+        rotatingArc(path, " L ", centerX, centerY, radius, startAngle, sweep / segments, 1, segments, 1);
+    }
+
     /**
      * Generate a line path (just a simple line between two points).
      */
     public static String linePath(double x1, double y1, double x2, double y2) {
-        return String.format(Locale.US, "M %.6f %.6f L %.6f %.6f", x1, y1, x2, y2);
+        StringBuilder path = new StringBuilder(50);
+        vertex(path, "M ", x1, y1);
+        vertex(path, " L ", x2, y2);
+        return path.toString();
     }
 
     /**
      * Generate a stroked line as a rectangle path (with round caps approximated).
      */
     public static String strokedLinePath(double x1, double y1, double x2, double y2, double strokeWidth) {
+        return strokedLinePath(x1, y1, x2, y2, strokeWidth, CIRCLE_SEGMENTS);
+    }
+
+    /**
+     * Generate a stroked line, its caps segmented as the options give for the stroke.
+     */
+    public static String strokedLinePath(double x1, double y1, double x2, double y2, double strokeWidth,
+                                         SvgOptions options) {
+        return strokedLinePath(x1, y1, x2, y2, strokeWidth, options.circleSegments(strokeWidth / 2));
+    }
+
+    private static String strokedLinePath(double x1, double y1, double x2, double y2, double strokeWidth,
+                                          int circleSegments) {
         double hw = strokeWidth / 2;
         double dx = x2 - x1;
         double dy = y2 - y1;
@@ -346,7 +364,7 @@ public class SvgPathUtils {
 
         if (len == 0) {
             // Degenerate line - return a circle
-            return circlePath((x1 + x2) / 2, (y1 + y2) / 2, hw);
+            return circlePath((x1 + x2) / 2, (y1 + y2) / 2, hw, circleSegments);
         }
 
         // Unit perpendicular vector
@@ -356,39 +374,28 @@ public class SvgPathUtils {
         // Four corners of the rectangle
         double ax = x1 + px, ay = y1 + py;
         double bx = x2 + px, by = y2 + py;
-        double cx = x2 - px, cy = y2 - py;
         double dx2 = x1 - px, dy2 = y1 - py;
 
         // Add rounded end caps (semicircles)
-        StringBuilder path = new StringBuilder();
+        int semiSegments = Math.max(1, circleSegments / 2);
+        StringBuilder path = new StringBuilder(100 + semiSegments * 48);
 
         // Start cap (semicircle at x1,y1)
-        int semiSegments = CIRCLE_SEGMENTS / 2;
         double startAngle = Math.atan2(py, px);
 
-        path.append(String.format(Locale.US, "M %.6f %.6f", ax, ay));
+        vertex(path, "M ", ax, ay);
 
         // Line to end of first edge
-        path.append(String.format(Locale.US, " L %.6f %.6f", bx, by));
+        vertex(path, " L ", bx, by);
 
         // End cap semicircle
-        for (int i = 1; i <= semiSegments; i++) {
-            double angle = startAngle - Math.PI * i / semiSegments;
-            double x = x2 + hw * Math.cos(angle);
-            double y = y2 + hw * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-        }
+        tableArc(path, " L ", x2, y2, hw, startAngle, 2 * semiSegments, -1, semiSegments, -1);
 
         // Line to start of last edge
-        path.append(String.format(Locale.US, " L %.6f %.6f", dx2, dy2));
+        vertex(path, " L ", dx2, dy2);
 
         // Start cap semicircle
-        for (int i = 1; i <= semiSegments; i++) {
-            double angle = startAngle + Math.PI + Math.PI * i / semiSegments;
-            double x = x1 + hw * Math.cos(angle);
-            double y = y1 + hw * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-        }
+        tableArc(path, " L ", x1, y1, hw, startAngle + Math.PI, 2 * semiSegments, 1, semiSegments, 1);
 
         path.append(" Z");
 
@@ -402,92 +409,51 @@ public class SvgPathUtils {
                                         double endX, double endY,
                                         double centerX, double centerY,
                                         boolean clockwise, double strokeWidth) {
+        return strokedArcPath(startX, startY, endX, endY, centerX, centerY, clockwise, strokeWidth,
+            FIXED_SEGMENTS);
+    }
+
+    /**
+     * Generate a stroked arc, segmented as the options give for its outer edge
+     * and for its caps.
+     */
+    public static String strokedArcPath(double startX, double startY,
+                                        double endX, double endY,
+                                        double centerX, double centerY,
+                                        boolean clockwise, double strokeWidth, SvgOptions options) {
         double hw = strokeWidth / 2;
 
-        double startRadius = Math.sqrt(Math.pow(startX - centerX, 2) + Math.pow(startY - centerY, 2));
-        double endRadius = Math.sqrt(Math.pow(endX - centerX, 2) + Math.pow(endY - centerY, 2));
-        double radius = (startRadius + endRadius) / 2;
+        double radius = averageRadius(startX, startY, endX, endY, centerX, centerY);
 
         double outerR = radius + hw;
         double innerR = radius - hw;
 
         double startAngle = Math.atan2(startY - centerY, startX - centerX);
-        double endAngle = Math.atan2(endY - centerY, endX - centerX);
+        double sweep = sweep(startX, startY, endX, endY, centerX, centerY, clockwise);
 
-        // Calculate sweep angle
-        double sweep;
-        if (clockwise) {
-            sweep = startAngle - endAngle;
-            if (sweep <= 0) sweep += 2 * Math.PI;
-        } else {
-            sweep = endAngle - startAngle;
-            if (sweep <= 0) sweep += 2 * Math.PI;
-        }
+        // Number of segments based on arc length (legacy) or on the outer edge's chord error
+        int segments = options.hasChordTolerance()
+            ? options.arcSegments(outerR, sweep) : options.arcSegments(radius, sweep);
+        double step = (clockwise ? -sweep : sweep) / segments;
 
-        // Number of segments based on arc length
-        int segments = Math.max(8, (int) (sweep * radius * 10));
+        int semiSegments = Math.max(1, options.circleSegments(hw) / 2);
+        int n = 2 * semiSegments;
+        int dir = clockwise ? 1 : -1;
 
-        StringBuilder path = new StringBuilder();
+        StringBuilder path = new StringBuilder((2 * segments + n) * 24 + 8);
 
         // Outer arc
-        for (int i = 0; i <= segments; i++) {
-            double t = (double) i / segments;
-            double angle;
-            if (clockwise) {
-                angle = startAngle - sweep * t;
-            } else {
-                angle = startAngle + sweep * t;
-            }
-            double x = centerX + outerR * Math.cos(angle);
-            double y = centerY + outerR * Math.sin(angle);
-            if (i == 0) {
-                path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
-            } else {
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
-        }
+        rotatingArc(path, "M ", centerX, centerY, outerR, startAngle, step, 0, segments + 1, 1);
 
         // End cap semicircle
-        int semiSegments = CIRCLE_SEGMENTS / 2;
         double endCapAngle = clockwise ? startAngle - sweep : startAngle + sweep;
-        for (int i = 1; i <= semiSegments; i++) {
-            double angle;
-            if (clockwise) {
-                angle = endCapAngle + Math.PI * i / semiSegments;
-            } else {
-                angle = endCapAngle - Math.PI * i / semiSegments;
-            }
-            double x = endX + hw * Math.cos(angle);
-            double y = endY + hw * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-        }
+        tableArc(path, " L ", endX, endY, hw, endCapAngle, n, dir, semiSegments, dir);
 
         // Inner arc (reverse direction)
-        for (int i = segments; i >= 0; i--) {
-            double t = (double) i / segments;
-            double angle;
-            if (clockwise) {
-                angle = startAngle - sweep * t;
-            } else {
-                angle = startAngle + sweep * t;
-            }
-            double x = centerX + innerR * Math.cos(angle);
-            double y = centerY + innerR * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-        }
+        rotatingArc(path, " L ", centerX, centerY, innerR, startAngle, step, segments, segments + 1, -1);
 
         // Start cap semicircle
-        for (int i = 1; i < semiSegments; i++) {
-            double angle;
-            if (clockwise) {
-                angle = startAngle - Math.PI * i / semiSegments;
-            } else {
-                angle = startAngle + Math.PI * i / semiSegments;
-            }
-            double x = startX + hw * Math.cos(angle);
-            double y = startY + hw * Math.sin(angle);
-            path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-        }
+        tableArc(path, " L ", startX, startY, hw, startAngle, n, -dir, semiSegments - 1, -dir);
 
         path.append(" Z");
         return path.toString();
@@ -501,6 +467,16 @@ public class SvgPathUtils {
         return thermalPath(cx, cy, outerDiameter, innerDiameter, gapWidth, rotationDegrees, CIRCLE_SEGMENTS);
     }
 
+    /**
+     * Generate a thermal relief pattern, segmented as the options give for its outer diameter.
+     */
+    public static String thermalPath(double cx, double cy, double outerDiameter,
+                                     double innerDiameter, double gapWidth, double rotationDegrees,
+                                     SvgOptions options) {
+        return thermalPath(cx, cy, outerDiameter, innerDiameter, gapWidth, rotationDegrees,
+            options.circleSegments(outerDiameter / 2));
+    }
+
     /**
      * Generate a thermal relief pattern as a path with specified segments.
      */
@@ -514,44 +490,144 @@ public class SvgPathUtils {
         // Calculate gap angle
         double gapAngle = 2 * Math.asin(gapWidth / (2 * innerR));
 
-        StringBuilder path = new StringBuilder();
-        int segments = totalSegments / 4;  // Segments per quarter
+        int segments = Math.max(1, totalSegments / 4);  // Segments per quarter
+        StringBuilder path = new StringBuilder(4 * (2 * segments + 2) * 24);
 
         // Four arcs, each separated by gaps
+        double arcAngle = Math.PI / 2 - gapAngle;
+        double step = arcAngle / segments;
         for (int quadrant = 0; quadrant < 4; quadrant++) {
             double baseAngle = rotationRad + quadrant * Math.PI / 2 + gapAngle / 2;
-            double arcAngle = Math.PI / 2 - gapAngle;
 
             // Outer arc
-            for (int i = 0; i <= segments; i++) {
-                double angle = baseAngle + arcAngle * i / segments;
-                double x = cx + outerR * Math.cos(angle);
-                double y = cy + outerR * Math.sin(angle);
-                if (i == 0 && quadrant == 0) {
-                    path.append(String.format(Locale.US, "M %.6f %.6f", x, y));
-                } else if (i == 0) {
-                    path.append(String.format(Locale.US, " M %.6f %.6f", x, y));
-                } else {
-                    path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-                }
-            }
+            rotatingArc(path, quadrant == 0 ? "M " : " M ", cx, cy, outerR, baseAngle, step, 0, segments + 1, 1);
 
-            // Line to inner arc
-            double endAngle = baseAngle + arcAngle;
-            path.append(String.format(Locale.US, " L %.6f %.6f",
-                cx + innerR * Math.cos(endAngle), cy + innerR * Math.sin(endAngle)));
-
-            // Inner arc (reverse direction)
-            for (int i = segments - 1; i >= 0; i--) {
-                double angle = baseAngle + arcAngle * i / segments;
-                double x = cx + innerR * Math.cos(angle);
-                double y = cy + innerR * Math.sin(angle);
-                path.append(String.format(Locale.US, " L %.6f %.6f", x, y));
-            }
+            // Line to inner arc, then the inner arc (reverse direction)
+            rotatingArc(path, " L ", cx, cy, innerR, baseAngle, step, segments, segments + 1, -1);
 
             path.append(" Z");
         }
 
         return path.toString();
     }
+
+    // --- Vertices ---
+
+    /** Cosines and sines of {@code 2 * PI * i / segments}, interleaved. */
+    static double[] unitCircle(int segments) {
+        double[] table = segments <= MAX_SEGMENTS ? UNIT_CIRCLES.get(segments) : null;
+        if (table != null) return table;
+        table = new double[2 * segments];
+        for (int i = 0; i < segments; i++) {
+            double angle = 2 * Math.PI * i / segments;
+            table[2 * i] = Math.cos(angle);
+            table[2 * i + 1] = Math.sin(angle);
+        }
+        if (segments <= MAX_SEGMENTS) {
+            UNIT_CIRCLES.compareAndSet(segments, null, table);
+        }
+        return table;
+    }
+
+    /** A whole circle from angle 0, or backwards from its last vertex. */
+    private static void circle(StringBuilder path, String firstCommand, double cx, double cy, double radius,
+                               int segments, boolean reverse) {
+        if (reverse) {
+            tableArc(path, firstCommand, cx, cy, radius, 0, segments, segments - 1, segments, -1);
+        } else {
+            tableArc(path, firstCommand, cx, cy, radius, 0, segments, 0, segments, 1);
+        }
+    }
+
+    /**
+     * Vertices at {@code startAngle + k * 2 * PI / segments} for {@code count}
+     * values of {@code k} from {@code first} in steps of {@code dir}: the unit
+     * circle table rotated by the start angle.
+     */
+    private static void tableArc(StringBuilder path, String firstCommand, double cx, double cy, double radius,
+                                 double startAngle, int segments, int first, int count, int dir) {
+        if (count <= 0) return;
+        double[] table = unitCircle(segments);
+        double cos = startAngle == 0 ? 1 : Math.cos(startAngle);
+        double sin = startAngle == 0 ? 0 : Math.sin(startAngle);
+        String command = firstCommand;
+        for (int j = 0, k = first; j < count; j++, k += dir) {
+            int i = Math.floorMod(k, segments);
+            double ux = table[2 * i];
+            double uy = table[2 * i + 1];
+            double x;
+            double y;
+            if (startAngle == 0) {
+                x = cx + radius * ux;
+                y = cy + radius * uy;
+            } else {
+                x = cx + radius * (cos * ux - sin * uy);
+                y = cy + radius * (sin * ux + cos * uy);
+            }
+            vertex(path, command, x, y);
+            command = " L ";
+        }
+    }
+
+    /**
+     * Vertices at {@code startAngle + k * step} for {@code count} values of
+     * {@code k} from {@code first} in steps of {@code dir}, each found by
+     * rotating the previous one.
+     */
+    private static void rotatingArc(StringBuilder path, String firstCommand, double cx, double cy, double radius,
+                                    double startAngle, double step, int first, int count, int dir) {
+        if (count <= 0) return;
+        double angle = startAngle + step * first;
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double stepCos = Math.cos(step * dir);
+        double stepSin = Math.sin(step * dir);
+        String command = firstCommand;
+        for (int j = 0; j < count; j++) {
+            vertex(path, command, cx + radius * cos, cy + radius * sin);
+            command = " L ";
+            double nextCos = cos * stepCos - sin * stepSin;
+            sin = sin * stepCos + cos * stepSin;
+            cos = nextCos;
+        }
+    }
+
+    private static void rectangle(StringBuilder path, double cx, double cy, double width, double height) {
+        double hw = width / 2;
+        double hh = height / 2;
+        vertex(path, "M ", cx - hw, cy - hh);   // bottom-left
+        vertex(path, " L ", cx + hw, cy - hh);  // bottom-right
+        vertex(path, " L ", cx + hw, cy + hh);  // top-right
+        vertex(path, " L ", cx - hw, cy + hh);  // top-left
+        path.append(" Z");
+    }
+
+    private static void vertex(StringBuilder path, String command, double x, double y) {
+        path.append(command);
+        SvgNumbers.append(path, x).append(' ');
+        SvgNumbers.append(path, y);
+    }
+
+    private static double averageRadius(double startX, double startY, double endX, double endY,
+                                        double centerX, double centerY) {
+        double startRadius = Math.sqrt(Math.pow(startX - centerX, 2) + Math.pow(startY - centerY, 2));
+        double endRadius = Math.sqrt(Math.pow(endX - centerX, 2) + Math.pow(endY - centerY, 2));
+        return (startRadius + endRadius) / 2;
+    }
+
+    /** Unsigned sweep from start to end in the given direction, in (0, 2 PI]. */
+    private static double sweep(double startX, double startY, double endX, double endY,
+                                double centerX, double centerY, boolean clockwise) {
+        double startAngle = Math.atan2(startY - centerY, startX - centerX);
+        double endAngle = Math.atan2(endY - centerY, endX - centerX);
+        double sweep;
+        if (clockwise) {
+            sweep = startAngle - endAngle;
+            if (sweep <= 0) sweep += 2 * Math.PI;
+        } else {
+            sweep = endAngle - startAngle;
+            if (sweep <= 0) sweep += 2 * Math.PI;
+        }
+        return sweep;
+    }
 }
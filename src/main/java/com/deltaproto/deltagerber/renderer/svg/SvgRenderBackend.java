@@ -0,0 +1,223 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.aperture.RectangleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Contour;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.renderer.RenderBackend;
+
+import java.util.Locale;
+
+/**
+ * Streams SVG elements for each object to an {@link SvgWriter}: markup or a
+ * DOM, one element per object, with colors and arc directions from the
+ * {@link SvgOptions}.
+ * <p>
+ * Aperture definitions get the id {@link SvgOptions#getApertureIdPrefix()}
+ * followed by the D code, which is what flashes refer to. Polarity is left to
+ * the caller: the SVG renderers nest clear groups in masks, which needs the
+ * whole group list up front (see {@link PolarityMaskHelper}).
+ */
+public final class SvgRenderBackend implements RenderBackend {
+
+    private final SvgWriter out;
+    private final SvgOptions options;
+
+    public SvgRenderBackend(SvgWriter out, SvgOptions options) {
+        this.out = out;
+        this.options = options;
+    }
+
+    @Override
+    public void apertureDef(Aperture aperture) {
+        aperture.writeSvgDef(out, options.getApertureIdPrefix() + aperture.getDCode(), options);
+    }
+
+    @Override
+    public void flash(Flash flash) {
+        // Flash uses <use> elements referencing aperture definitions.
+        // Fill color is set on the <use> element based on polarity, so it
+        // inherits into the aperture def shapes (which have no explicit fill).
+        String color = color(flash.getPolarity());
+        double x = flash.getX();
+        double y = flash.getY();
+        double rotation = flash.getRotation();
+        double scale = flash.getScale();
+        boolean mirrorX = flash.isMirrorX();
+        boolean mirrorY = flash.isMirrorY();
+
+        // Get aperture ID prefix from options (allows multi-layer SVGs with unique IDs)
+        String href = "#" + options.getApertureIdPrefix() + flash.getAperture().getDCode();
+        if (rotation == 0 && scale == 1.0 && !mirrorX && !mirrorY) {
+            // Simple case: just position
+            out.start("use").attr("href", href).attr("x", x).attr("y", y).attr("fill", color).end();
+            return;
+        }
+
+        // Translate to position first
+        StringBuilder transform = new StringBuilder();
+        transform.append(String.format(Locale.US, "translate(%.6f,%.6f)", x, y));
+
+        // Apply mirroring (before rotation)
+        if (mirrorX || mirrorY) {
+            double scaleX = mirrorX ? -1 : 1;
+            double scaleY = mirrorY ? -1 : 1;
+            transform.append(String.format(Locale.US, " scale(%.1f,%.1f)", scaleX, scaleY));
+        }
+
+        // Apply rotation
+        if (rotation != 0) {
+            transform.append(String.format(Locale.US, " rotate(%.6f)", rotation));
+        }
+
+        // Apply scaling
+        if (scale != 1.0) {
+            transform.append(String.format(Locale.US, " scale(%.6f)", scale));
+        }
+        out.start("use").attr("href", href).attr("fill", color).attr("transform", transform.toString()).end();
+    }
+
+    @Override
+    public void draw(Draw draw) {
+        String color = color(draw.getPolarity());
+        Aperture aperture = draw.getAperture();
+        double strokeWidth = 0;
+        if (aperture instanceof CircleAperture circle) {
+            strokeWidth = circle.getDiameter();
+        } else if (aperture instanceof RectangleAperture rect) {
+            // Use max dimension as stroke width (approximation for non-rotated lines)
+            strokeWidth = Math.max(rect.getWidth(), rect.getHeight());
+        }
+
+        if (options.isPolygonize()) {
+            // Polygonized mode: path-based stroked line (rectangle with round caps)
+            String pathData = SvgPathUtils.strokedLinePath(
+                draw.getStartX(), draw.getStartY(), draw.getEndX(), draw.getEndY(), strokeWidth, options);
+            out.start("path").attr("d", pathData).attr("fill", color).end();
+        } else {
+            // Exact mode: use native SVG line with stroke
+            out.start("line")
+                .attr("x1", draw.getStartX()).attr("y1", draw.getStartY())
+                .attr("x2", draw.getEndX()).attr("y2", draw.getEndY())
+                .attr("stroke", color).attr("stroke-width", strokeWidth).attr("stroke-linecap", "round")
+                .end();
+        }
+    }
+
+    @Override
+    public void arc(Arc arc) {
+        String color = color(arc.getPolarity());
+        double strokeWidth = arc.getAperture() instanceof CircleAperture circle ? circle.getDiameter() : 0;
+        double startX = arc.getStartX();
+        double startY = arc.getStartY();
+        double endX = arc.getEndX();
+        double endY = arc.getEndY();
+        double centerX = arc.getCenterX();
+        double centerY = arc.getCenterY();
+        boolean clockwise = arc.isClockwise();
+
+        if (options.isPolygonize()) {
+            // Polygonized mode: path-based stroked arc (filled polygon approximation)
+            String pathData = SvgPathUtils.strokedArcPath(
+                startX, startY, endX, endY, centerX, centerY, clockwise, strokeWidth, options);
+            out.start("path").attr("d", pathData).attr("fill", color).end();
+            return;
+        }
+
+        // Exact mode: use native SVG path with arc commands
+        double radius = arc.getRadius();
+
+        // sweepFlag: 0=CCW, 1=CW in SVG coordinates
+        // With Y-flip transform, visual direction is inverted:
+        // - SVG CCW (sweep=0) appears CW after flip
+        // - SVG CW (sweep=1) appears CCW after flip
+        // So for flipY: Gerber CW needs SVG CCW (0), Gerber CCW needs SVG CW (1)
+        int sweepFlag;
+        if (options.isFlipY()) {
+            sweepFlag = clockwise ? 0 : 1;
+        } else {
+            sweepFlag = clockwise ? 1 : 0;
+        }
+
+        // Check for full circle (start == end)
+        double dx = endX - startX;
+        double dy = endY - startY;
+        String pathData;
+        if (Math.sqrt(dx * dx + dy * dy) < 0.0001) {
+            // Full circle: SVG arc can't represent this in one arc, use two half-arcs
+            // through the opposite point on the circle
+            double oppositeX = 2 * centerX - startX;
+            double oppositeY = 2 * centerY - startY;
+            pathData = String.format(Locale.US,
+                "M %.6f %.6f A %.6f %.6f 0 0 %d %.6f %.6f A %.6f %.6f 0 0 %d %.6f %.6f",
+                startX, startY,
+                radius, radius, sweepFlag, oppositeX, oppositeY,
+                radius, radius, sweepFlag, startX, startY);
+        } else {
+            // Calculate sweep angle to determine large-arc-flag
+            double startAngle = Math.atan2(startY - centerY, startX - centerX);
+            double endAngle = Math.atan2(endY - centerY, endX - centerX);
+            double sweep;
+            if (clockwise) {
+                sweep = startAngle - endAngle;
+                if (sweep <= 0) sweep += 2 * Math.PI;
+            } else {
+                sweep = endAngle - startAngle;
+                if (sweep <= 0) sweep += 2 * Math.PI;
+            }
+            int largeArcFlag = sweep > Math.PI ? 1 : 0;
+
+            // SVG path with arc: M start, A radius radius x-axis-rotation large-arc-flag sweep-flag end
+            pathData = String.format(Locale.US,
+                "M %.6f %.6f A %.6f %.6f 0 %d %d %.6f %.6f",
+                startX, startY, radius, radius, largeArcFlag, sweepFlag, endX, endY);
+        }
+        out.start("path").attr("d", pathData).attr("fill", "none")
+            .attr("stroke", color).attr("stroke-width", strokeWidth).attr("stroke-linecap", "round")
+            .end();
+    }
+
+    @Override
+    public void region(Region region) {
+        if (region.getContours().isEmpty()) {
+            return;
+        }
+        StringBuilder path = new StringBuilder();
+        for (Contour contour : region.getContours()) {
+            path.append(contour.toSvgPath(options));
+            path.append(" ");
+        }
+        out.start("path").attr("d", path.toString().trim()).attr("fill", color(region.getPolarity()))
+            .attr("fill-rule", "evenodd").end();
+    }
+
+    @Override
+    public void drillHit(DrillHit hit) {
+        out.start("circle").attr("cx", hit.getX()).attr("cy", hit.getY()).attr("r", hit.getTool().getDiameter() / 2)
+            .attr("fill", "currentColor").end();
+    }
+
+    @Override
+    public void slot(DrillSlot slot) {
+        // Render slot as a path with M/L commands (line with round caps)
+        out.start("path")
+            .attr("d", String.format(Locale.US, "M %.6f %.6f L %.6f %.6f",
+                slot.getStartX(), slot.getStartY(), slot.getEndX(), slot.getEndY()))
+            .attr("stroke", "currentColor")
+            .attr("stroke-width", slot.getTool().getDiameter())
+            .attr("stroke-linecap", "round")
+            .attr("fill", "none")
+            .end();
+    }
+
+    private String color(Polarity polarity) {
+        return polarity == Polarity.DARK ? options.getDarkColor() : options.getClearColor();
+    }
+}
@@ -0,0 +1,28 @@
+package com.deltaproto.deltagerber.renderer.svg;
+
+/**
+ * Receives SVG as a sequence of elements, so the same rendering code can emit
+ * markup ({@link SvgMarkupWriter}) or build a DOM ({@link SvgDomWriter}) without
+ * going through text.
+ * <p>
+ * Calls nest like the elements they describe: {@link #start} opens a child of
+ * the current element, the new element's {@link #attr attributes} follow before
+ * any of its children, and {@link #end} closes it. Attribute values are written
+ * as given; they are generated numbers, IDs and colors that need no escaping.
+ */
+public interface SvgWriter {
+
+    /** Open a child element of the current element. */
+    SvgWriter start(String name);
+
+    /** Add an attribute to the element opened last. */
+    SvgWriter attr(String name, String value);
+
+    /** Add a numeric attribute, with the six decimals used throughout the SVG output. */
+    default SvgWriter attr(String name, double value) {
+        return attr(name, SvgNumbers.format(value));
+    }
+
+    /** Close the current element. */
+    SvgWriter end();
+}
@@ -0,0 +1,371 @@
+package com.deltaproto.deltagerber.web;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.aperture.MacroAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Contour;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Server-side cache of parsed documents keyed by the SHA-256 of the file bytes.
+ * <p>
+ * The viewer re-POSTs the whole project on every layer-type change, but most
+ * files are unchanged between requests. Parsing is by far the most expensive
+ * step, so documents are kept across requests and reused whenever the same
+ * bytes come in again.
+ * <p>
+ * Each entry's retained heap is estimated from its object counts and the cache
+ * evicts least-recently-used documents once the total exceeds the configured
+ * budget. Concurrent requests for the same content collapse into a single parse:
+ * the first caller parses, the others wait for its result. Parse failures are
+ * not cached; if the first caller's parse is cancelled, a waiting caller parses
+ * the content itself.
+ * <p>
+ * Cached documents are shared between concurrent requests and must be treated as
+ * read-only. Their bounding boxes are computed before publication so the lazy
+ * initialisation in the model never races.
+ */
+public class DocumentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentCache.class);
+
+    /** Default budget: a quarter of the maximum heap. */
+    public static final long DEFAULT_MAX_BYTES = Runtime.getRuntime().maxMemory() / 4;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // Documents don't override equals/hashCode, so this is an identity map
+    private final WeakHashMap<Object, String> contentHashes = new WeakHashMap<>();
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private volatile ServerMetrics metrics;
+
+    private static final class Entry {
+        final CompletableFuture<Object> document = new CompletableFuture<>();
+        long retainedBytes;  // 0 while the parse is in flight
+    }
+
+    public DocumentCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes estimated retained heap allowed before LRU eviction
+     */
+    public DocumentCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /** Record parse timings and object counts of cache misses in {@code metrics}. */
+    void setMetrics(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Return the parsed Gerber document for the given content, parsing it on a miss.
+     *
+     * @param contentHash SHA-256 of the file bytes (see {@link #contentHash})
+     * @param content     decodes the file content; only called on a miss
+     */
+    public GerberDocument parseGerber(String contentHash, Supplier<String> content) {
+        return (GerberDocument) get("gerber:" + contentHash,
+            () -> metrics != null ? metrics.parseGerber(content.get()) : new GerberParser().parse(content.get()));
+    }
+
+    /**
+     * Return the parsed Excellon drill document for the given content, parsing it on a miss.
+     *
+     * @param contentHash SHA-256 of the file bytes (see {@link #contentHash})
+     * @param content     decodes the file content; only called on a miss
+     */
+    public DrillDocument parseDrill(String contentHash, Supplier<String> content) {
+        return (DrillDocument) get("drill:" + contentHash,
+            () -> metrics != null ? metrics.parseDrill(content.get()) : new ExcellonParser().parse(content.get()));
+    }
+
+    /**
+     * True if a parsed (or in-flight) document for this content is cached.
+     *
+     * @param fileType "gerber" or "drill"
+     */
+    public synchronized boolean contains(String fileType, String contentHash) {
+        return entries.containsKey(fileType + ":" + contentHash);
+    }
+
+    /**
+     * Resolve a content hash to its cached document without parsing, waiting for
+     * an in-flight parse of the same content if there is one.
+     *
+     * @return the cached {@link GerberDocument} or {@link DrillDocument}, or
+     *         {@code null} if the content isn't cached (or its parse failed)
+     */
+    public Object lookup(String contentHash) {
+        Entry entry;
+        synchronized (this) {
+            String fileType = fileTypeOf(contentHash);
+            entry = fileType != null ? entries.get(fileType + ":" + contentHash) : null;
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return await(entry);
+    }
+
+    /**
+     * Resolve a content hash parsed as the given file type ("gerber" or "drill").
+     *
+     * @return the cached document, or {@code null} if not cached
+     */
+    public Object lookup(String fileType, String contentHash) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(fileType + ":" + contentHash);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return await(entry);
+    }
+
+    /**
+     * The file type a content hash is cached as, "gerber" before "drill", or
+     * {@code null} if it isn't cached. Neither a hit nor a miss.
+     */
+    public synchronized String fileTypeOf(String contentHash) {
+        if (entries.containsKey("gerber:" + contentHash)) return "gerber";
+        if (entries.containsKey("drill:" + contentHash)) return "drill";
+        return null;
+    }
+
+    /** The document of an entry, waiting for its parse; {@code null} if that failed or was cancelled. */
+    private static Object await(Entry entry) {
+        try {
+            return entry.document.join();
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The content hash a cached document was parsed from, or {@code null} if the
+     * document didn't come from this cache.
+     */
+    public synchronized String hashOf(Object document) {
+        return contentHashes.get(document);
+    }
+
+    private Object get(String key, Supplier<Object> parser) {
+        while (true) {
+            try {
+                return getOnce(key, parser);
+            } catch (CancellationException e) {
+                // Another request's parse of this content was cancelled: parse it here,
+                // unless this thread is the one being cancelled
+                if (Thread.currentThread().isInterrupted()) throw e;
+            }
+        }
+    }
+
+    private Object getOnce(String key, Supplier<Object> parser) {
+        String contentHash = key.substring(key.indexOf(':') + 1);
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+
+        if (owner) {
+            try {
+                Object doc = parser.get();
+                // Force lazy bounding-box computation before other threads see the doc
+                if (doc instanceof GerberDocument) {
+                    ((GerberDocument) doc).getBoundingBox();
+                } else if (doc instanceof DrillDocument) {
+                    ((DrillDocument) doc).getBoundingBox();
+                }
+                long size = estimateRetainedBytes(doc);
+                synchronized (this) {
+                    contentHashes.put(doc, contentHash);
+                    if (entries.get(key) == entry) {
+                        entry.retainedBytes = size;
+                        totalBytes += size;
+                        evictToBudget();
+                    }
+                }
+                entry.document.complete(doc);
+                return doc;
+            } catch (RuntimeException | Error e) {
+                synchronized (this) {
+                    entries.remove(key, entry);
+                }
+                entry.document.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return entry.document.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            Entry e = eldest.getValue();
+            if (!e.document.isDone() && e.retainedBytes == 0) {
+                continue; // still parsing — its owner will account for it
+            }
+            totalBytes -= e.retainedBytes;
+            it.remove();
+            evictions++;
+            log.debug("Evicted {} (~{} KB)", eldest.getKey(), e.retainedBytes / 1024);
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /** Number of cached (or in-flight) documents. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Estimated retained heap of all cached documents. */
+    public synchronized long getRetainedBytes() {
+        return totalBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("DocumentCache[%d docs, ~%d/%d KB, %d hits, %d misses, %d evictions]",
+            entries.size(), totalBytes / 1024, maxBytes / 1024, hits, misses, evictions);
+    }
+
+    /**
+     * SHA-256 of a byte range as lowercase hex.
+     */
+    public static String contentHash(byte[] data, int offset, int length) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(data, offset, length);
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Rough per-instance sizes on a 64-bit JVM with compressed oops, including
+    // the list slot referencing the object. Only needs to be proportional.
+    private static final long DOC_BASE_BYTES = 512;
+    private static final long APERTURE_BYTES = 112;
+    private static final long MACRO_APERTURE_BYTES = 512;
+    private static final long FLASH_BYTES = 64;
+    private static final long DRAW_BYTES = 64;
+    private static final long ARC_BYTES = 80;
+    private static final long REGION_BYTES = 72;
+    private static final long CONTOUR_BYTES = 72;
+    private static final long CONTOUR_SEGMENT_BYTES = 56;
+    private static final long DRILL_HIT_BYTES = 40;
+    private static final long DRILL_SLOT_BYTES = 56;
+
+    /**
+     * Estimate the heap retained by a parsed document from its object counts.
+     */
+    static long estimateRetainedBytes(Object doc) {
+        long bytes = DOC_BASE_BYTES;
+        if (doc instanceof GerberDocument) {
+            GerberDocument gerber = (GerberDocument) doc;
+            for (Object aperture : gerber.getApertures().values()) {
+                bytes += aperture instanceof MacroAperture ? MACRO_APERTURE_BYTES : APERTURE_BYTES;
+            }
+            for (GraphicsObject obj : gerber.getObjects()) {
+                if (obj instanceof Region) {
+                    bytes += REGION_BYTES;
+                    for (Contour contour : ((Region) obj).getContours()) {
+                        bytes += CONTOUR_BYTES + contour.getSegments().size() * CONTOUR_SEGMENT_BYTES;
+                    }
+                } else if (obj instanceof Arc) {
+                    bytes += ARC_BYTES;
+                } else if (obj instanceof Draw) {
+                    bytes += DRAW_BYTES;
+                } else {
+                    bytes += FLASH_BYTES;
+                }
+            }
+            for (String warning : gerber.getWarnings()) {
+                bytes += 40 + 2L * warning.length();
+            }
+        } else if (doc instanceof DrillDocument) {
+            DrillDocument drill = (DrillDocument) doc;
+            bytes += drill.getTools().size() * APERTURE_BYTES;
+            for (Object op : drill.getOperations()) {
+                bytes += op instanceof DrillSlot ? DRILL_SLOT_BYTES : DRILL_HIT_BYTES;
+            }
+            for (String comment : drill.getComments()) {
+                bytes += 40 + 2L * comment.length();
+            }
+        }
+        return bytes;
+    }
+}
@@ -1,85 +1,239 @@
 package com.deltaproto.deltagerber.web;
 
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import com.deltaproto.deltagerber.cli.BatchConvertCommand;
+import com.deltaproto.deltagerber.cli.ProfileCommand;
 import com.deltaproto.deltagerber.model.drill.DrillDocument;
 import com.deltaproto.deltagerber.model.gerber.GerberDocument;
-import com.deltaproto.deltagerber.parser.ExcellonParser;
-import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
+import com.deltaproto.deltagerber.renderer.raster.Java2DRenderer;
+import com.deltaproto.deltagerber.renderer.raster.TilePyramid;
 import com.deltaproto.deltagerber.renderer.svg.LayerType;
 import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.RenderFragmentCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.geom.Rectangle2D;
 import java.io.*;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Simple HTTP server for the Gerber viewer web application.
  *
  * The server is stateless — the browser owns the file data (stored in IndexedDB)
- * and sends it to the server for parsing and rendering.
+ * and sends it to the server for parsing and rendering. Parsed documents are
+ * cached by content hash ({@link DocumentCache}), so re-posting a project whose
+ * files haven't changed skips parsing entirely.
  *
  * Endpoints:
  * - GET /           — serves the HTML viewer app
  * - POST /api/gerber/render — receives files with metadata, returns multi-layer + realistic SVGs
+ * - POST /api/gerber/render?mode=layers — returns per-layer fragment IDs instead of whole SVGs
+ * - GET /api/gerber/fragment/{id} — one layer's defs + body, immutable
+ * - POST /api/gerber/render?mode=tiles — registers the project for tiling, returns its id and zoom range
+ * - GET /api/gerber/tile/{project}/{view}/{z}/{x}/{y}.png — one 256x256 map tile, immutable
+ * - POST /api/gerber/thumbnail — realistic top/bottom view as PNG
+ * - POST /api/gerber/thumbnails — PNGs for many projects, streamed back as they finish
+ * - GET /api/status — scheduler and cache statistics
+ * - GET /metrics — request, stage, cache and JVM metrics in Prometheus text format
+ *
+ * Requests run on a bounded worker pool with priority lanes ({@link RequestScheduler}):
+ * thumbnails can't starve interactive renders, and when a lane's queue is full
+ * its requests are shed with 503.
  */
 public class GerberViewerServer {
 
     private static final Logger log = LoggerFactory.getLogger(GerberViewerServer.class);
 
     private final int port;
+    private final DocumentCache documentCache;
+    private final RenderFragmentCache fragmentCache = new RenderFragmentCache();
+    private final TileCache tileCache = new TileCache();
+    private final ServerMetrics metrics = new ServerMetrics();
+    private int threads = RequestScheduler.DEFAULT_THREADS;
+    private int queueDepth = RequestScheduler.DEFAULT_QUEUE_DEPTH;
+    private final Map<RequestScheduler.Lane, Integer> laneThreads = new EnumMap<>(RequestScheduler.Lane.class);
+    private int retryAfterSeconds = 2;
+    private RequestScheduler scheduler;
+    private ExecutorService taskPool;
+    private ExecutorService batchPool;
     private HttpServer server;
 
     public GerberViewerServer(int port) {
+        this(port, DocumentCache.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param parseCacheBytes heap budget for parsed documents kept across requests
+     */
+    public GerberViewerServer(int port, long parseCacheBytes) {
         this.port = port;
+        this.documentCache = new DocumentCache(parseCacheBytes);
+        this.documentCache.setMetrics(metrics);
+    }
+
+    /** Worker threads, i.e. requests executing at once. Takes effect on {@link #start()}. */
+    public GerberViewerServer setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /** Requests allowed to wait per lane before new ones are shed with 503. */
+    public GerberViewerServer setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+        return this;
+    }
+
+    /**
+     * Cap on worker threads one lane may occupy at once, e.g. to keep thumbnail
+     * bursts from using every worker. Defaults to {@link RequestScheduler#defaultLaneThreads}.
+     */
+    public GerberViewerServer setLaneThreads(RequestScheduler.Lane lane, int maxThreads) {
+        laneThreads.put(lane, maxThreads);
+        return this;
+    }
+
+    /** {@code Retry-After} sent with 503 responses when the server is overloaded. */
+    public GerberViewerServer setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
     }
 
     public void start() throws IOException {
+        scheduler = new RequestScheduler(threads, laneThreads, queueDepth, retryAfterSeconds);
+        taskPool = newPool("gerber-task-", threads);
+        // Batch thumbnails render and stream on their own pool, as wide as the batch
+        // lane, so bulk jobs can't take the task pool interactive renders fan out on
+        int batchThreads = scheduler.getLaneStats(RequestScheduler.Lane.BATCH).getMaxConcurrent();
+        batchPool = newPool("gerber-batch-", batchThreads);
         server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.createContext("/", new StaticHandler());
-        server.createContext("/api/gerber/render", new RenderHandler());
-        server.createContext("/api/gerber/thumbnail", new ThumbnailHandler());
-        server.setExecutor(null);
+        route("/", "static", new StaticHandler(), RequestScheduler.Lane.INTERACTIVE);
+        route("/api/gerber/render", "render",
+            new RenderHandler(documentCache, fragmentCache, tileCache, taskPool, metrics),
+            RequestScheduler.Lane.INTERACTIVE);
+        route("/api/gerber/thumbnail", "thumbnail",
+            new ThumbnailHandler(documentCache, fragmentCache, metrics), RequestScheduler.Lane.THUMBNAIL);
+        route("/api/gerber/thumbnails", "thumbnails",
+            new BatchThumbnailHandler(documentCache, fragmentCache, batchPool, batchThreads, metrics),
+            RequestScheduler.Lane.THUMBNAIL);
+        route("/api/gerber/fragment/", "fragment",
+            new FragmentHandler(documentCache, fragmentCache, metrics), RequestScheduler.Lane.INTERACTIVE);
+        route("/api/gerber/tile/", "tile",
+            new TileHandler(documentCache, fragmentCache, tileCache, metrics), RequestScheduler.Lane.INTERACTIVE);
+        // Not scheduled: status and metrics are cheap and most useful exactly when overloaded
+        route("/api/status", "status", new StatusHandler(scheduler, documentCache, fragmentCache, tileCache),
+            null);
+        route("/metrics", "metrics", new MetricsHandler(metrics, scheduler, documentCache, fragmentCache), null);
+        server.setExecutor(scheduler.getIntakeExecutor());
         server.start();
-        log.info("Gerber Viewer Server started at http://localhost:{}", port);
+        log.info("Gerber Viewer Server started at http://localhost:{} ({} threads, queue {})",
+            getPort(), threads, queueDepth);
     }
 
     public void stop() {
         if (server != null) {
             server.stop(0);
         }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        if (taskPool != null) {
+            taskPool.shutdownNow();
+        }
+        if (batchPool != null) {
+            batchPool.shutdownNow();
+        }
     }
 
     /**
-     * Serves the static HTML page.
+     * Register {@code handler} at {@code path}, scheduled on {@code lane} ({@code null}
+     * runs it on the intake thread) and measured as {@code endpoint} in the metrics.
+     */
+    private HttpContext route(String path, String endpoint, HttpHandler handler, RequestScheduler.Lane lane) {
+        HttpContext context = server.createContext(path, handler);
+        if (lane != null) {
+            context.getFilters().add(scheduler.laneFilter(lane));
+        }
+        context.getFilters().add(metrics.requestFilter(endpoint));
+        return context;
+    }
+
+    /**
+     * Pool for subtasks a request fans out (per-file parses, per-view renders,
+     * batch thumbnails). Separate from the request workers so a request waiting
+     * on its subtasks can never starve them.
+     */
+    private static ExecutorService newPool(String namePrefix, int threads) {
+        AtomicInteger ids = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, namePrefix + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** The request scheduler, or {@code null} before {@link #start()}. */
+    public RequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /** The bound port — differs from the constructor argument when that was 0. */
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    /**
+     * Serves the static HTML page and the example project.
+     * <p>
+     * Both are loaded once, get content-derived ETags and are gzip-precompressed
+     * where that helps. The example ZIP is linked from the page with a content
+     * fingerprint ({@code ?v=...}), so that URL is served as immutable. The page
+     * itself lives at a fixed URL and must pick up new releases, so it is served
+     * with {@code no-cache} — revalidation is a cheap 304.
      */
     static class StaticHandler implements HttpHandler {
+        private static final String EXAMPLE_ZIP_PATH = "/api/gerber/arduino-uno-example.zip";
+        private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+        private StaticResource indexPage;
+        private StaticResource exampleZip;
+        private boolean loaded;
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
+            loadResources();
             String path = exchange.getRequestURI().getPath();
             if (path.equals("/") || path.equals("/index.html")) {
-                String html = getIndexHtml();
-                sendResponse(exchange, 200, "text/html", html);
-            } else if (path.equals("/api/gerber/arduino-uno-example.zip")) {
-                try (InputStream is = GerberViewerServer.class.getResourceAsStream("/web/arduino-uno-example.zip")) {
-                    if (is != null) {
-                        byte[] data = is.readAllBytes();
-                        exchange.getResponseHeaders().set("Content-Type", "application/zip");
-                        exchange.sendResponseHeaders(200, data.length);
-                        try (OutputStream os = exchange.getResponseBody()) { os.write(data); }
-                        return;
-                    }
-                }
-                sendResponse(exchange, 404, "text/plain", "Not Found");
+                indexPage.send(exchange, "no-cache");
+            } else if (path.equals(EXAMPLE_ZIP_PATH) && exampleZip != null) {
+                String version = parseQuery(exchange.getRequestURI().getRawQuery()).get("v");
+                exampleZip.send(exchange, exampleZip.fingerprint().equals(version) ? IMMUTABLE : "no-cache");
             } else {
                 sendResponse(exchange, 404, "text/plain", "Not Found");
             }
         }
+
+        private synchronized void loadResources() throws IOException {
+            if (loaded) return;
+            String html = getIndexHtml();
+            try (InputStream is = GerberViewerServer.class.getResourceAsStream("/web/arduino-uno-example.zip")) {
+                if (is != null) {
+                    exampleZip = new StaticResource("application/zip", is.readAllBytes());
+                    html = html.replace(EXAMPLE_ZIP_PATH, EXAMPLE_ZIP_PATH + "?v=" + exampleZip.fingerprint());
+                }
+            }
+            indexPage = new StaticResource("text/html; charset=utf-8", html.getBytes(StandardCharsets.UTF_8));
+            loaded = true;
+        }
     }
 
     /**
@@ -90,15 +244,36 @@ public class GerberViewerServer {
      * <pre>
      * FILE\tname\tfileType\tlayerType\tcontentLength\n
      * content bytes...
+     * REF\tname\tsha256\tlayerType\n
      * FILE\tname\tfileType\tlayerType\tcontentLength\n
      * content bytes...
      * </pre>
+     * A {@code REF} entry names a file by the SHA-256 of its bytes instead of
+     * uploading it again. If any referenced hash is not in the document cache the
+     * server replies {@code 409} with {@code {"missing":[...]}} and the client
+     * re-sends just those files as {@code FILE} entries.
      */
     static class RenderHandler implements HttpHandler {
         private static final Logger log = LoggerFactory.getLogger(RenderHandler.class);
 
-        private final GerberParser gerberParser = new GerberParser();
-        private final ExcellonParser drillParser = new ExcellonParser();
+        private final DocumentCache documentCache;
+        private final RenderFragmentCache fragmentCache;
+        private final TileCache tileCache;
+        private final ExecutorService taskPool;
+        private final ServerMetrics metrics;
+
+        /**
+         * @param taskPool pool for parsing files and rendering views concurrently,
+         *                 or {@code null} to do everything on the request thread
+         */
+        RenderHandler(DocumentCache documentCache, RenderFragmentCache fragmentCache, TileCache tileCache,
+                      ExecutorService taskPool, ServerMetrics metrics) {
+            this.documentCache = documentCache;
+            this.fragmentCache = fragmentCache;
+            this.tileCache = tileCache;
+            this.taskPool = taskPool;
+            this.metrics = metrics;
+        }
 
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -111,104 +286,499 @@ public class GerberViewerServer {
             log.info("Received render request");
 
             try {
-                byte[] body = exchange.getRequestBody().readAllBytes();
-                log.info("Request body: {} bytes", body.length);
-
-                List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
-                List<LayerMeta> layerMetas = new ArrayList<>();
-
-                // Parse the length-prefixed file protocol
-                int pos = 0;
-                while (pos < body.length) {
-                    // Find header line end
-                    int lineEnd = indexOf(body, (byte) '\n', pos);
-                    if (lineEnd < 0) break;
-                    String header = new String(body, pos, lineEnd - pos, StandardCharsets.UTF_8);
-                    if (!header.startsWith("FILE\t")) break;
-
-                    String[] parts = header.substring(5).split("\t");
-                    if (parts.length < 4) break;
-                    String name = parts[0];
-                    String fileType = parts[1];
-                    String layerTypeStr = parts[2];
-                    int contentLength = Integer.parseInt(parts[3]);
-
-                    pos = lineEnd + 1;
-                    String content = new String(body, pos, contentLength, StandardCharsets.UTF_8);
-                    pos += contentLength;
-                    // Skip optional trailing newline
-                    if (pos < body.length && body[pos] == '\n') pos++;
-
-                    log.debug("File: {} type={} layerType={} size={}", name, fileType, layerTypeStr, contentLength);
+                InputStream body = HttpCaching.requestBody(exchange);
+                if (body == null) {
+                    sendUnsupportedEncoding(exchange);
+                    return;
+                }
+                // Files are parsed concurrently as they arrive, overlapping with the rest of
+                // the upload. A conditional request holds parsing back until its ETag has
+                // been checked, so answering it with 304 costs hashing, not parsing.
+                LayerBody request = LayerBody.read(body, documentCache,
+                    HttpCaching.isConditional(exchange) ? null : taskPool);
+                log.info("Request body: {} entries read in {}ms",
+                    request.getEntries().size(), System.currentTimeMillis() - startTime);
 
-                    try {
-                        MultiLayerSVGRenderer.Layer layer = null;
-                        LayerType layerType = LayerType.valueOf(layerTypeStr);
-
-                        if ("drill".equals(fileType)) {
-                            DrillDocument doc = drillParser.parse(content);
-                            layer = new MultiLayerSVGRenderer.Layer(name, doc);
-                        } else if ("gerber".equals(fileType)) {
-                            GerberDocument doc = gerberParser.parse(content);
-                            layer = new MultiLayerSVGRenderer.Layer(name, doc);
-                        }
-
-                        if (layer != null) {
-                            String color = getLayerColor(name);
-                            layer.setColor(color).setOpacity(0.85).setLayerType(layerType);
-                            layers.add(layer);
-
-                            String id = name.replaceAll("[^a-zA-Z0-9._-]", "_");
-                            layerMetas.add(new LayerMeta(name, id, color, fileType, layerTypeStr));
-                        }
-                    } catch (Exception e) {
-                        log.warn("Failed to parse {}: {}", name, e.getMessage());
+                String mode = parseQuery(exchange.getRequestURI().getRawQuery()).get("mode");
+                // Strong validators must differ per content encoding
+                boolean gzip = HttpCaching.acceptsGzip(exchange);
+                String etag = request.etag("render:" + RENDER_VERSION + ":" + mode + (gzip ? ":gzip" : ""),
+                    documentCache);
+                exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+                if (HttpCaching.notModified(exchange, etag)) {
+                    log.info("Render not modified ({}ms)", System.currentTimeMillis() - startTime);
+                    HttpCaching.sendNotModified(exchange, etag);
+                    return;
+                }
+
+                // One deadline bounds parsing and rendering; on failure or timeout
+                // outstanding work is cancelled.
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RENDER_TIMEOUT_SECONDS);
+                List<MultiLayerSVGRenderer.Layer> layers = request.resolve(documentCache, taskPool, deadline);
+                long parsedTime = System.currentTimeMillis();
+                log.debug("{}", documentCache);
+
+                HttpCaching.setValidator(exchange, etag);
+                if ("layers".equals(mode)) {
+                    long jsonStart = System.nanoTime();
+                    String index = buildLayersResponse(layers);
+                    try (JsonStreamWriter json = JsonStreamWriter.open(exchange, 200, gzip)) {
+                        json.raw(index);
                     }
+                    metrics.record(ServerMetrics.Stage.JSON, System.nanoTime() - jsonStart);
+                    log.info("Layer index complete: {} layers in {}ms",
+                        layers.size(), System.currentTimeMillis() - startTime);
+                    return;
+                }
+                if ("tiles".equals(mode)) {
+                    // The id is derived from the layers, so tile URLs stay valid across
+                    // registrations and sessions
+                    String project = projectId(request, documentCache);
+                    tileCache.register(project, request.refs(documentCache));
+                    try (JsonStreamWriter json = JsonStreamWriter.open(exchange, 200, gzip)) {
+                        json.raw(buildTilesResponse(project, layers));
+                    }
+                    log.info("Tile project {} registered: {} layers in {}ms",
+                        project, layers.size(), System.currentTimeMillis() - startTime);
+                    return;
                 }
 
-                // Render all SVGs
+                // Render the three views concurrently, each on its own renderer. They
+                // share the fragment cache, so aperture defs, layer bodies, the outline
+                // path and drill content are still generated once.
                 log.info("Rendering {} layers...", layers.size());
-                MultiLayerSVGRenderer renderer = new MultiLayerSVGRenderer();
-                String svg = renderer.render(layers);
-                String realisticTop = renderRealisticSide(layers, true);
-                String realisticBottom = renderRealisticSide(layers, false);
-
-                // Build JSON response
-                StringBuilder json = new StringBuilder();
-                json.append("{\"layers\":[");
+                List<String> views = ParallelTasks.invokeAll(taskPool, List.<Callable<String>>of(
+                    () -> new MultiLayerSVGRenderer().setFragmentCache(fragmentCache).setListener(metrics)
+                        .render(layers),
+                    () -> renderRealisticSide(layers, true, fragmentCache, metrics),
+                    () -> renderRealisticSide(layers, false, fragmentCache, metrics)), deadline);
+                String svg = views.get(0);
+                String realisticTop = views.get(1);
+                String realisticBottom = views.get(2);
+
+                long renderedTime = System.currentTimeMillis();
+                long jsonStart = System.nanoTime();
+                try {
+                    writeRenderResponse(exchange, gzip, layers, svg, realisticTop, realisticBottom);
+                    metrics.record(ServerMetrics.Stage.JSON, System.nanoTime() - jsonStart);
+                } catch (IOException e) {
+                    // Headers are already out, so there is no error response left to send
+                    log.info("Render response aborted after {}ms: {}",
+                        System.currentTimeMillis() - startTime, e.getMessage());
+                    exchange.close();
+                    return;
+                }
+
+                long elapsed = System.currentTimeMillis() - startTime;
+                log.info("Render complete: {} layers in {}ms (parse {}ms, render {}ms, send {}ms)", layers.size(),
+                    elapsed, parsedTime - startTime, renderedTime - parsedTime,
+                    System.currentTimeMillis() - renderedTime);
+            } catch (LayerBody.UnknownRefsException e) {
+                sendMissingRefs(exchange, e);
+            } catch (Exception e) {
+                log.error("Error rendering", e);
+                sendResponse(exchange, 500, "application/json",
+                    "{\"error\":" + escapeJson(e.getMessage()) + "}");
+            }
+        }
+
+        /**
+         * Stream the render response. SVGs are escaped straight into the (gzip)
+         * output rather than being copied into an escaped string and an envelope.
+         */
+        private static void writeRenderResponse(HttpExchange exchange, boolean gzip,
+                                                List<MultiLayerSVGRenderer.Layer> layers, String svg,
+                                                String realisticTop, String realisticBottom) throws IOException {
+            try (JsonStreamWriter json = JsonStreamWriter.open(exchange, 200, gzip)) {
+                json.raw("{\"layers\":[");
                 boolean first = true;
-                for (LayerMeta m : layerMetas) {
-                    if (!first) json.append(",");
+                for (MultiLayerSVGRenderer.Layer layer : layers) {
+                    if (!first) json.raw(",");
                     first = false;
-                    json.append("{\"name\":").append(escapeJson(m.name));
-                    json.append(",\"id\":").append(escapeJson(m.id));
-                    json.append(",\"color\":").append(escapeJson(m.color));
-                    json.append(",\"type\":").append(escapeJson(m.type));
-                    json.append(",\"layerType\":").append(escapeJson(m.layerType));
-                    json.append("}");
+                    json.raw("{\"name\":").string(layer.getName());
+                    json.raw(",\"id\":").string(layer.getName().replaceAll("[^a-zA-Z0-9._-]", "_"));
+                    json.raw(",\"color\":").string(layer.getColor());
+                    json.raw(",\"type\":").string(layer.isDrill() ? "drill" : "gerber");
+                    json.raw(",\"layerType\":").string(layer.getLayerType().name());
+                    json.raw("}");
                 }
-                json.append("],\"svg\":").append(escapeJson(svg));
-                json.append(",\"realisticTopSvg\":");
-                json.append(realisticTop != null ? escapeJson(realisticTop) : "null");
-                json.append(",\"realisticBottomSvg\":");
-                json.append(realisticBottom != null ? escapeJson(realisticBottom) : "null");
+                json.raw("],\"svg\":").string(svg);
+                json.raw(",\"realisticTopSvg\":").string(realisticTop);
+                json.raw(",\"realisticBottomSvg\":").string(realisticBottom);
+                json.raw("}");
+            }
+        }
+
+        /**
+         * Layer index for {@code mode=layers}: the shared viewBox and viewport transform
+         * plus, per layer, its metadata and the ID of its fragment. Fragment IDs are
+         * derived from the file's content hash so they are stable across requests and
+         * sessions; the client fetches only fragments it doesn't already have.
+         */
+        private String buildLayersResponse(List<MultiLayerSVGRenderer.Layer> layers) {
+            MultiLayerSVGRenderer renderer = new MultiLayerSVGRenderer();
+            double[] vb = renderer.computeViewBox(layers);
+            StringBuilder json = new StringBuilder("{");
+            if (vb != null) {
+                json.append(String.format(Locale.US,
+                    "\"viewBox\":\"%.6f %.6f %.6f %.6f\",\"transform\":\"translate(0, %.6f) scale(1,-1)\",",
+                    vb[0], vb[1], vb[2], vb[3], vb[1] + vb[3] + vb[1]));
+            }
+            json.append("\"layers\":[");
+            boolean first = true;
+            for (MultiLayerSVGRenderer.Layer layer : layers) {
+                if (!first) json.append(",");
+                first = false;
+                String fileType = layer.isDrill() ? "drill" : "gerber";
+                String hash = documentCache.hashOf(layer.isDrill() ? layer.getDrillDoc() : layer.getGerberDoc());
+                json.append("{\"name\":").append(escapeJson(layer.getName()));
+                json.append(",\"id\":").append(escapeJson(layer.getName().replaceAll("[^a-zA-Z0-9._-]", "_")));
+                json.append(",\"color\":").append(escapeJson(layer.getColor()));
+                json.append(",\"type\":").append(escapeJson(fileType));
+                json.append(",\"layerType\":").append(escapeJson(layer.getLayerType().name()));
+                json.append(",\"fragment\":").append(hash != null ? escapeJson(fragmentId(fileType, hash)) : "null");
                 json.append("}");
+            }
+            json.append("]}");
+            return json.toString();
+        }
+    }
 
-                long elapsed = System.currentTimeMillis() - startTime;
-                log.info("Render complete: {} layers in {}ms", layerMetas.size(), elapsed);
+    /**
+     * Tile index for {@code mode=tiles}: the project id, the tile URL template and,
+     * per view that can be rendered, its bounds in mm and its deepest zoom level.
+     */
+    private static String buildTilesResponse(String project, List<MultiLayerSVGRenderer.Layer> layers) {
+        StringBuilder json = new StringBuilder("{\"project\":").append(escapeJson(project));
+        json.append(",\"tileSize\":").append(TilePyramid.DEFAULT_TILE_SIZE);
+        json.append(",\"url\":").append(escapeJson("/api/gerber/tile/" + project + "/{view}/{z}/{x}/{y}.png"));
+        json.append(",\"views\":{");
+        boolean first = true;
+        for (String view : TILE_VIEWS) {
+            TilePyramid pyramid = tilePyramid(view, layers);
+            if (pyramid == null) continue;
+            if (!first) json.append(",");
+            first = false;
+            Rectangle2D b = pyramid.getBounds();
+            json.append(String.format(Locale.US,
+                "\"%s\":{\"bounds\":[%.6f,%.6f,%.6f,%.6f],\"maxZoom\":%d,\"mirrored\":%b}",
+                view, b.getX(), b.getY(), b.getWidth(), b.getHeight(), pyramid.getMaxZoom(), pyramid.isMirrored()));
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    private static final List<String> TILE_VIEWS = List.of("layers", "top", "bottom");
+
+    /** Tile project id: a digest of the layers' names, content hashes and file and layer types. */
+    static String projectId(LayerBody request, DocumentCache documentCache) {
+        String etag = request.etag("tiles:" + RENDER_VERSION, documentCache);
+        return etag.substring(1, etag.length() - 1);
+    }
+
+    /**
+     * The pyramid of a tile view: {@code layers} for the multi-layer view,
+     * {@code top} or {@code bottom} for a realistic side (bottom mirrored).
+     *
+     * @return the pyramid, or {@code null} for an unknown view or one with nothing to render
+     */
+    static TilePyramid tilePyramid(String view, List<MultiLayerSVGRenderer.Layer> layers) {
+        try {
+            return switch (view) {
+                case "layers" -> TilePyramid.layers(layers);
+                case "top" -> TilePyramid.realistic(layers, MultiLayerSVGRenderer.Side.TOP, true);
+                case "bottom" -> TilePyramid.realistic(layers, MultiLayerSVGRenderer.Side.BOTTOM, true);
+                default -> null;
+            };
+        } catch (IllegalArgumentException e) {
+            return null;  // no Gerber outline for the realistic views
+        }
+    }
+
+    // Bump when renderer output changes so clients drop cached fragments and
+    // previously issued ETags stop matching
+    static final int RENDER_VERSION = 3;
+
+    /** Upper bound on parsing plus rendering for one render request. */
+    static final long RENDER_TIMEOUT_SECONDS = 120;
+
+    static String fragmentId(String fileType, String contentHash) {
+        return fileType + "." + contentHash + "." + RENDER_VERSION;
+    }
+
+    /**
+     * Reports scheduler load, per-lane latency histograms and cache statistics as JSON.
+     */
+    static class StatusHandler implements HttpHandler {
+        private final RequestScheduler scheduler;
+        private final DocumentCache documentCache;
+        private final RenderFragmentCache fragmentCache;
+        private final TileCache tileCache;
+
+        StatusHandler(RequestScheduler scheduler, DocumentCache documentCache, RenderFragmentCache fragmentCache,
+                      TileCache tileCache) {
+            this.scheduler = scheduler;
+            this.documentCache = documentCache;
+            this.fragmentCache = fragmentCache;
+            this.tileCache = tileCache;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "text/plain", "Method Not Allowed");
+                return;
+            }
+            StringBuilder json = new StringBuilder();
+            json.append("{\"scheduler\":{\"threads\":").append(scheduler.getThreads())
+                .append(",\"inFlight\":").append(scheduler.getInFlight())
+                .append(",\"rejected\":").append(scheduler.getRejectedCount())
+                .append(",\"lanes\":{");
+            for (RequestScheduler.Lane lane : RequestScheduler.Lane.values()) {
+                RequestScheduler.LaneStats ls = scheduler.getLaneStats(lane);
+                if (lane.ordinal() > 0) json.append(",");
+                json.append("\"").append(lane.name().toLowerCase(Locale.ROOT)).append("\":{")
+                    .append("\"maxThreads\":").append(ls.getMaxConcurrent())
+                    .append(",\"queueDepth\":").append(ls.getQueueDepth())
+                    .append(",\"inFlight\":").append(scheduler.getInFlight(lane))
+                    .append(",\"queued\":").append(scheduler.getQueued(lane))
+                    .append(",\"completed\":").append(scheduler.getCompletedCount(lane))
+                    .append(",\"rejected\":").append(scheduler.getRejectedCount(lane))
+                    .append(",\"queueWaitMs\":");
+                appendHistogram(json, ls.getQueueWait());
+                json.append(",\"serviceMs\":");
+                appendHistogram(json, ls.getServiceTime());
+                json.append("}");
+            }
+            json.append("}},");
+            json.append(String.format(Locale.US,
+                "\"parseCache\":{\"entries\":%d,\"retainedBytes\":%d,\"maxBytes\":%d,"
+                    + "\"hits\":%d,\"misses\":%d,\"evictions\":%d},"
+                    + "\"fragmentCache\":{\"entries\":%d,\"chars\":%d,\"maxChars\":%d,"
+                    + "\"hits\":%d,\"misses\":%d,\"evictions\":%d},"
+                    + "\"tileCache\":{\"entries\":%d,\"bytes\":%d,\"maxBytes\":%d,"
+                    + "\"hits\":%d,\"misses\":%d,\"evictions\":%d}}",
+                documentCache.size(), documentCache.getRetainedBytes(), documentCache.getMaxBytes(),
+                documentCache.getHitCount(), documentCache.getMissCount(), documentCache.getEvictionCount(),
+                fragmentCache.size(), fragmentCache.getCharCount(), fragmentCache.getMaxChars(),
+                fragmentCache.getHitCount(), fragmentCache.getMissCount(), fragmentCache.getEvictionCount(),
+                tileCache.size(), tileCache.getByteCount(), tileCache.getMaxBytes(),
+                tileCache.getHitCount(), tileCache.getMissCount(), tileCache.getEvictionCount()));
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            sendResponse(exchange, 200, "application/json", json.toString());
+        }
+
+        /** Count, sum, approximate percentiles and per-bucket counts keyed by upper bound ("+Inf" last). */
+        private static void appendHistogram(StringBuilder json, LatencyHistogram h) {
+            long[] bounds = LatencyHistogram.getBucketBoundsMillis();
+            long[] counts = h.getBucketCounts();
+            json.append(String.format(Locale.US, "{\"count\":%d,\"sum\":%.3f,\"p50\":%d,\"p95\":%d,\"p99\":%d,",
+                h.getCount(), h.getSumMillis(), percentile(h, 0.5), percentile(h, 0.95), percentile(h, 0.99)));
+            json.append("\"buckets\":{");
+            for (int i = 0; i < counts.length; i++) {
+                if (i > 0) json.append(",");
+                json.append("\"").append(i < bounds.length ? Long.toString(bounds[i]) : "+Inf").append("\":")
+                    .append(counts[i]);
+            }
+            json.append("}}");
+        }
+
+        private static long percentile(LatencyHistogram h, double q) {
+            long p = h.percentile(q);
+            return p == Long.MAX_VALUE ? -1 : p;
+        }
+    }
+
+    /**
+     * Exposes {@link ServerMetrics} in the Prometheus text exposition format.
+     */
+    static class MetricsHandler implements HttpHandler {
+        private final ServerMetrics metrics;
+        private final RequestScheduler scheduler;
+        private final DocumentCache documentCache;
+        private final RenderFragmentCache fragmentCache;
+
+        MetricsHandler(ServerMetrics metrics, RequestScheduler scheduler, DocumentCache documentCache,
+                       RenderFragmentCache fragmentCache) {
+            this.metrics = metrics;
+            this.scheduler = scheduler;
+            this.documentCache = documentCache;
+            this.fragmentCache = fragmentCache;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "text/plain", "Method Not Allowed");
+                return;
+            }
+            byte[] bytes = metrics.scrape(scheduler, documentCache, fragmentCache).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", ServerMetrics.CONTENT_TYPE);
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Serves a single layer fragment by ID: {@code GET /api/gerber/fragment/{fileType}.{sha256}.{version}}.
+     * Returns {@code {"id":..., "defs":..., "body":...}}. Element IDs inside the
+     * fragment are prefixed from the content hash, so fragments from different
+     * files can be combined into one SVG. The ID fully determines the content, so
+     * responses are cacheable forever. Returns 404 if the version is stale or the
+     * document is no longer cached — the client then re-posts the layers.
+     */
+    static class FragmentHandler implements HttpHandler {
+        private static final Logger log = LoggerFactory.getLogger(FragmentHandler.class);
+
+        private final DocumentCache documentCache;
+        private final RenderFragmentCache fragmentCache;
+
+        private final ServerMetrics metrics;
+
+        FragmentHandler(DocumentCache documentCache, RenderFragmentCache fragmentCache, ServerMetrics metrics) {
+            this.documentCache = documentCache;
+            this.fragmentCache = fragmentCache;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "text/plain", "Method Not Allowed");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            String[] parts = id.split("\\.");
+            if (parts.length != 3 || !String.valueOf(RENDER_VERSION).equals(parts[2])
+                    || !parts[1].matches("[0-9a-f]{64}")
+                    || !("gerber".equals(parts[0]) || "drill".equals(parts[0]))) {
+                sendResponse(exchange, 404, "application/json", "{\"error\":\"unknown fragment\"}");
+                return;
+            }
+            String etag = "\"" + id + "\"";
+            if (HttpCaching.notModified(exchange, etag)) {
+                HttpCaching.sendNotModified(exchange, etag);
+                return;
+            }
+            Object doc = documentCache.lookup(parts[0], parts[1]);
+            if (doc == null) {
+                sendResponse(exchange, 404, "application/json", "{\"error\":\"fragment not cached\"}");
+                return;
+            }
+
+            try {
+                MultiLayerSVGRenderer.Layer layer = doc instanceof DrillDocument
+                    ? new MultiLayerSVGRenderer.Layer(id, (DrillDocument) doc)
+                    : new MultiLayerSVGRenderer.Layer(id, (GerberDocument) doc);
+                MultiLayerSVGRenderer.LayerFragment fragment = new MultiLayerSVGRenderer()
+                    .setFragmentCache(fragmentCache)
+                    .setListener(metrics)
+                    .renderLayerFragment(layer, "f" + parts[1].substring(0, 16));
+                long jsonStart = System.nanoTime();
 
-                sendResponse(exchange, 200, "application/json", json.toString());
+                String json = "{\"id\":" + escapeJson(id)
+                    + ",\"defs\":" + escapeJson(fragment.getDefs())
+                    + ",\"body\":" + escapeJson(fragment.getBody()) + "}";
+                metrics.record(ServerMetrics.Stage.JSON, System.nanoTime() - jsonStart);
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.getResponseHeaders().set("Cache-Control", "public, max-age=31536000, immutable");
+                sendResponse(exchange, 200, "application/json", json);
             } catch (Exception e) {
-                log.error("Error rendering", e);
+                log.error("Fragment render failed", e);
                 sendResponse(exchange, 500, "application/json",
                     "{\"error\":" + escapeJson(e.getMessage()) + "}");
             }
         }
+    }
+
+    /**
+     * Serves one 256x256 PNG tile of a project registered with
+     * {@code POST /api/gerber/render?mode=tiles}, at
+     * {@code /api/gerber/tile/{project}/{view}/{z}/{x}/{y}.png}. The view is
+     * {@code layers}, {@code top} or {@code bottom}; zoom levels and tile numbering
+     * follow {@link TilePyramid}.
+     * <p>
+     * Tile URLs name their content (the project id covers every layer's content
+     * hash and the render version), so tiles are immutable. Rendered tiles are
+     * cached in the {@link TileCache}; a miss renders only the objects that touch
+     * the tile. Returns 404 for tiles outside the pyramid, and for projects the
+     * server no longer has registered or whose documents were evicted — the
+     * client then registers the project again, as with fragments.
+     */
+    static class TileHandler implements HttpHandler {
+        private static final Logger log = LoggerFactory.getLogger(TileHandler.class);
+
+        private final DocumentCache documentCache;
+        private final RenderFragmentCache fragmentCache;
+        private final TileCache tileCache;
+        private final ServerMetrics metrics;
+
+        TileHandler(DocumentCache documentCache, RenderFragmentCache fragmentCache, TileCache tileCache,
+                    ServerMetrics metrics) {
+            this.documentCache = documentCache;
+            this.fragmentCache = fragmentCache;
+            this.tileCache = tileCache;
+            this.metrics = metrics;
+        }
 
-        private static class LayerMeta {
-            final String name, id, color, type, layerType;
-            LayerMeta(String name, String id, String color, String type, String layerType) {
-                this.name = name; this.id = id; this.color = color; this.type = type; this.layerType = layerType;
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "text/plain", "Method Not Allowed");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String[] parts = path.substring(path.indexOf("/tile/") + 6).split("/");
+            if (parts.length != 5 || !parts[0].matches("[0-9a-f]{32}") || !TILE_VIEWS.contains(parts[1])
+                    || !parts[2].matches("\\d{1,2}") || !parts[3].matches("\\d{1,7}")
+                    || !parts[4].matches("\\d{1,7}\\.png")) {
+                sendResponse(exchange, 404, "application/json", "{\"error\":\"unknown tile\"}");
+                return;
+            }
+            String project = parts[0];
+            String view = parts[1];
+            int z = Integer.parseInt(parts[2]);
+            int x = Integer.parseInt(parts[3]);
+            int y = Integer.parseInt(parts[4].substring(0, parts[4].length() - 4));
+            String etag = "\"" + project + "/" + view + "/" + z + "/" + x + "/" + y + "\"";
+            if (HttpCaching.notModified(exchange, etag)) {
+                HttpCaching.sendNotModified(exchange, etag);
+                return;
+            }
+            LayerBody refs = tileCache.project(project);
+            if (refs == null) {
+                sendResponse(exchange, 404, "application/json", "{\"error\":\"project not registered\"}");
+                return;
+            }
+
+            try {
+                byte[] png = tileCache.get(project, view, z, x, y, () -> {
+                    List<MultiLayerSVGRenderer.Layer> layers = refs.resolve(documentCache);
+                    TilePyramid pyramid = tilePyramid(view, layers);
+                    if (pyramid == null || !pyramid.contains(z, x, y)) {
+                        throw new NoSuchElementException("no such tile");
+                    }
+                    return new Java2DRenderer().setFragmentCache(fragmentCache).setListener(metrics)
+                        .renderTilePng(layers, pyramid, z, x, y);
+                });
+                exchange.getResponseHeaders().set("Content-Type", "image/png");
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.getResponseHeaders().set("Cache-Control", "public, max-age=31536000, immutable");
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+                exchange.sendResponseHeaders(200, png.length);
+                try (OutputStream os = exchange.getResponseBody()) { os.write(png); }
+            } catch (LayerBody.UnknownRefsException e) {
+                sendResponse(exchange, 404, "application/json", "{\"error\":\"project not cached\"}");
+            } catch (NoSuchElementException e) {
+                sendResponse(exchange, 404, "application/json", "{\"error\":\"unknown tile\"}");
+            } catch (Exception e) {
+                log.error("Tile render failed", e);
+                sendResponse(exchange, 500, "application/json",
+                    "{\"error\":" + escapeJson(e.getMessage()) + "}");
             }
         }
     }
@@ -217,11 +787,23 @@ public class GerberViewerServer {
      * Returns a PNG thumbnail of the realistic top/bottom view — used by project
      * list UIs that show many boards at once. Accepts the same request body as
      * {@link RenderHandler}. Query params: {@code side=top|bottom}, {@code width=<px>}
-     * (default 400, max 2000).
+     * (default 400, max 2000). Thumbnails are drawn with Java2D; {@code backend=batik}
+     * rasterizes the realistic SVG instead.
      */
     static class ThumbnailHandler implements HttpHandler {
         private static final Logger log = LoggerFactory.getLogger(ThumbnailHandler.class);
 
+        private final DocumentCache documentCache;
+        private final RenderFragmentCache fragmentCache;
+
+        private final ServerMetrics metrics;
+
+        ThumbnailHandler(DocumentCache documentCache, RenderFragmentCache fragmentCache, ServerMetrics metrics) {
+            this.documentCache = documentCache;
+            this.fragmentCache = fragmentCache;
+            this.metrics = metrics;
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if (!"POST".equals(exchange.getRequestMethod())) {
@@ -230,31 +812,38 @@ public class GerberViewerServer {
             }
 
             try {
-                Map<String, String> q = parseQuery(exchange.getRequestURI().getRawQuery());
-                String sideStr = q.getOrDefault("side", "top").toLowerCase();
-                MultiLayerSVGRenderer.Side side = "bottom".equals(sideStr)
-                    ? MultiLayerSVGRenderer.Side.BOTTOM : MultiLayerSVGRenderer.Side.TOP;
-                int width  = parseIntOrDefault(q.get("width"),  400);
-                int height = parseIntOrDefault(q.get("height"), 0);
-                width  = clampDim(width,  0, 4000); // 0 = auto
-                height = clampDim(height, 0, 4000);
-                if (width == 0 && height == 0) width = 400;
-
-                byte[] body = exchange.getRequestBody().readAllBytes();
-                List<MultiLayerSVGRenderer.Layer> layers = parseLayerBody(body);
-
-                byte[] png = new MultiLayerSVGRenderer().renderRealisticSidePng(layers, side, width, height);
+                ThumbnailSpec spec = ThumbnailSpec.fromQuery(parseQuery(exchange.getRequestURI().getRawQuery()));
+
+                InputStream body = HttpCaching.requestBody(exchange);
+                if (body == null) {
+                    sendUnsupportedEncoding(exchange);
+                    return;
+                }
+                // Thumbnails already arrive in parallel bursts: parse each file on this
+                // thread as soon as it has arrived instead of fanning out. A conditional
+                // request defers parsing to resolve(), after its ETag has been checked.
+                LayerBody request = LayerBody.read(body, documentCache,
+                    HttpCaching.isConditional(exchange) ? null : Runnable::run);
+                String etag = request.etag("thumbnail:" + RENDER_VERSION + ":" + spec, documentCache);
+                if (HttpCaching.notModified(exchange, etag)) {
+                    HttpCaching.sendNotModified(exchange, etag);
+                    return;
+                }
+                List<MultiLayerSVGRenderer.Layer> layers = request.resolve(documentCache);
+
+                byte[] png = spec.render(layers, fragmentCache, metrics);
                 if (png == null) {
-                    sendResponse(exchange, 422, "application/json",
-                        "{\"error\":\"no outline layer or side has no content\"}");
+                    sendResponse(exchange, 422, "application/json", NO_CONTENT_ERROR);
                     return;
                 }
 
                 exchange.getResponseHeaders().set("Content-Type", "image/png");
-                exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                HttpCaching.setValidator(exchange, etag);
                 exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
                 exchange.sendResponseHeaders(200, png.length);
                 try (OutputStream os = exchange.getResponseBody()) { os.write(png); }
+            } catch (LayerBody.UnknownRefsException e) {
+                sendMissingRefs(exchange, e);
             } catch (Exception e) {
                 log.error("Thumbnail render failed", e);
                 sendResponse(exchange, 500, "application/json",
@@ -263,57 +852,287 @@ public class GerberViewerServer {
         }
     }
 
-    private static int indexOf(byte[] data, byte target, int from) {
-        for (int i = from; i < data.length; i++) {
-            if (data[i] == target) return i;
+    private static final String NO_CONTENT_ERROR = "{\"error\":\"no outline layer or side has no content\"}";
+
+    /**
+     * Side, pixel size and rasterizer of a thumbnail, from the
+     * {@code side}/{@code width}/{@code height}/{@code backend} query.
+     */
+    static final class ThumbnailSpec {
+        final MultiLayerSVGRenderer.Side side;
+        final int width;
+        final int height;
+        final boolean batik;
+
+        private ThumbnailSpec(MultiLayerSVGRenderer.Side side, int width, int height, boolean batik) {
+            this.side = side;
+            this.width = width;
+            this.height = height;
+            this.batik = batik;
+        }
+
+        static ThumbnailSpec fromQuery(Map<String, String> q) {
+            String sideStr = q.getOrDefault("side", "top").toLowerCase();
+            MultiLayerSVGRenderer.Side side = "bottom".equals(sideStr)
+                ? MultiLayerSVGRenderer.Side.BOTTOM : MultiLayerSVGRenderer.Side.TOP;
+            int width  = parseIntOrDefault(q.get("width"),  400);
+            int height = parseIntOrDefault(q.get("height"), 0);
+            width  = clampDim(width,  0, 4000); // 0 = auto
+            height = clampDim(height, 0, 4000);
+            if (width == 0 && height == 0) width = 400;
+            boolean batik = "batik".equalsIgnoreCase(q.get("backend"));
+            return new ThumbnailSpec(side, width, height, batik);
+        }
+
+        /**
+         * PNG bytes, or {@code null} if the side has nothing to render. With Batik, SVG
+         * generation and rasterization are reported to {@code metrics} as separate stages;
+         * Java2D reports a single rasterize stage.
+         */
+        byte[] render(List<MultiLayerSVGRenderer.Layer> layers, RenderFragmentCache fragmentCache,
+                      ServerMetrics metrics) {
+            if (batik) {
+                return new MultiLayerSVGRenderer().setFragmentCache(fragmentCache).setListener(metrics)
+                    .renderRealisticSidePng(layers, side, width, height);
+            }
+            return new Java2DRenderer().setFragmentCache(fragmentCache).setListener(metrics)
+                .renderRealisticSidePng(layers, side, width, height, true);
+        }
+
+        @Override
+        public String toString() {
+            return side + ":" + width + ":" + height + (batik ? ":batik" : ":java2d");
         }
-        return -1;
     }
 
     /**
-     * Parse the length-prefixed file protocol shared by /render and /thumbnail.
-     * Silently drops files that fail to parse (per-file try/catch) so a single
-     * bad layer can't take down the whole request.
+     * Renders thumbnails for many projects in one request, in parallel, streaming
+     * each result back as soon as it is ready.
+     * <p>
+     * The request body is a sequence of projects, each a {@code PROJECT} header
+     * followed by that project's entries in the usual layer protocol. Side and
+     * size come from the query string and apply to every project:
+     * <pre>
+     * PROJECT\tid\n
+     * FILE\t... / REF\t... entries
+     * </pre>
+     * The response is a stream of length-prefixed records in completion order,
+     * terminated by a {@code DONE} line:
+     * <pre>
+     * RESULT\tid\tstatus\tcontentType\tlength\n
+     * body bytes\n
+     * DONE\tcount\n
+     * </pre>
+     * Status follows the single-thumbnail endpoint: 200 with an {@code image/png}
+     * body, 409 with {@code {"missing":[...]}} for unknown {@code REF} hashes, 422 if
+     * the side has no content and 500 for errors. A failing project only fails
+     * its own record.
+     * <p>
+     * Each project is read, then parsed, rendered and written to the response on
+     * the batch pool while the next one is read. That pool is shared by all batch
+     * requests and by nothing else, so a blocked write or a burst of batches only
+     * holds up other batches, never interactive renders. At most
+     * {@code parallelism} projects per request are in progress at once, which also
+     * bounds how far reading runs ahead of rendering.
      */
-    static List<MultiLayerSVGRenderer.Layer> parseLayerBody(byte[] body) {
-        GerberParser gerberParser = new GerberParser();
-        ExcellonParser drillParser = new ExcellonParser();
-        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
-
-        int pos = 0;
-        while (pos < body.length) {
-            int lineEnd = indexOf(body, (byte) '\n', pos);
-            if (lineEnd < 0) break;
-            String header = new String(body, pos, lineEnd - pos, StandardCharsets.UTF_8);
-            if (!header.startsWith("FILE\t")) break;
-            String[] parts = header.substring(5).split("\t");
-            if (parts.length < 4) break;
-            String name = parts[0];
-            String fileType = parts[1];
-            String layerTypeStr = parts[2];
-            int contentLength = Integer.parseInt(parts[3]);
-            pos = lineEnd + 1;
-            String content = new String(body, pos, contentLength, StandardCharsets.UTF_8);
-            pos += contentLength;
-            if (pos < body.length && body[pos] == '\n') pos++;
+    static class BatchThumbnailHandler implements HttpHandler {
+        private static final Logger log = LoggerFactory.getLogger(BatchThumbnailHandler.class);
+
+        private final DocumentCache documentCache;
+        private final RenderFragmentCache fragmentCache;
+        private final ExecutorService batchPool;
+        private final int parallelism;
+        private final ServerMetrics metrics;
+
+        BatchThumbnailHandler(DocumentCache documentCache, RenderFragmentCache fragmentCache,
+                              ExecutorService batchPool, int parallelism, ServerMetrics metrics) {
+            this.documentCache = documentCache;
+            this.fragmentCache = fragmentCache;
+            this.batchPool = batchPool;
+            this.parallelism = Math.max(1, parallelism);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "text/plain", "Method Not Allowed");
+                return;
+            }
+            InputStream body = HttpCaching.requestBody(exchange);
+            if (body == null) {
+                sendUnsupportedEncoding(exchange);
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            ThumbnailSpec spec = ThumbnailSpec.fromQuery(parseQuery(exchange.getRequestURI().getRawQuery()));
+            LayerBody.ProjectReader reader = new LayerBody.ProjectReader(body);
+            ResultWriter results = new ResultWriter(exchange);
+            Semaphore slots = new Semaphore(parallelism);
+            Phaser pending = new Phaser(1);
+            int projects = 0;
             try {
-                MultiLayerSVGRenderer.Layer layer = null;
-                LayerType layerType = LayerType.valueOf(layerTypeStr);
-                if ("drill".equals(fileType)) {
-                    layer = new MultiLayerSVGRenderer.Layer(name, drillParser.parse(content));
-                } else if ("gerber".equals(fileType)) {
-                    layer = new MultiLayerSVGRenderer.Layer(name, gerberParser.parse(content));
+                LayerBody.Project project;
+                while ((project = reader.next()) != null) {
+                    projects++;
+                    slots.acquire();
+                    pending.register();
+                    LayerBody.Project p = project;
+                    try {
+                        batchPool.execute(() -> {
+                            try {
+                                results.write(p.id, renderProject(p, spec), slots);
+                            } finally {
+                                pending.arriveAndDeregister();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        slots.release();
+                        pending.arriveAndDeregister();
+                        throw e;
+                    }
                 }
-                if (layer != null) {
-                    layer.setColor(getLayerColor(name)).setOpacity(0.85).setLayerType(layerType);
-                    layers.add(layer);
+            } catch (IOException e) {
+                if (projects == 0) {
+                    exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+                    sendResponse(exchange, 400, "application/json", "{\"error\":" + escapeJson(e.getMessage()) + "}");
+                    return;
                 }
+                log.warn("Batch upload ended early after {} projects: {}", projects, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pending.arriveAndAwaitAdvance();
+            }
+            results.finish(projects);
+            log.info("Batch thumbnails: {} projects in {}ms", projects, System.currentTimeMillis() - startTime);
+        }
+
+        private Result renderProject(LayerBody.Project project, ThumbnailSpec spec) {
+            try {
+                List<MultiLayerSVGRenderer.Layer> layers = project.body.resolve(documentCache);
+                byte[] png = spec.render(layers, fragmentCache, metrics);
+                return png != null
+                    ? new Result(200, "image/png", png)
+                    : Result.json(422, NO_CONTENT_ERROR);
+            } catch (LayerBody.UnknownRefsException e) {
+                return Result.json(409, missingRefsJson(e));
             } catch (Exception e) {
-                LoggerFactory.getLogger(GerberViewerServer.class)
-                    .warn("Failed to parse {}: {}", name, e.getMessage());
+                log.warn("Batch thumbnail {} failed: {}", project.id, e.toString());
+                return Result.json(500, "{\"error\":" + escapeJson(e.getMessage()) + "}");
+            }
+        }
+
+        private static final class Result {
+            final int status;
+            final String contentType;
+            final byte[] body;
+
+            Result(int status, String contentType, byte[] body) {
+                this.status = status;
+                this.contentType = contentType;
+                this.body = body;
+            }
+
+            static Result json(int status, String json) {
+                return new Result(status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        /**
+         * Serializes result records onto the chunked response. The response starts
+         * with the first record, so a body that is unusable from the start can
+         * still be answered with 400.
+         */
+        private static final class ResultWriter {
+            private final HttpExchange exchange;
+            private OutputStream out;
+            private boolean failed;
+
+            ResultWriter(HttpExchange exchange) {
+                this.exchange = exchange;
+            }
+
+            /**
+             * Write one record. The slot is released before writing: a client that
+             * only reads the response once its upload is done must not be able to
+             * stall the upload behind blocked writes.
+             */
+            void write(String id, Result result, Semaphore slot) {
+                slot.release();
+                synchronized (this) {
+                    if (failed) return;
+                    try {
+                        start();
+                        out.write(String.format(Locale.US, "RESULT\t%s\t%d\t%s\t%d\n",
+                            id, result.status, result.contentType, result.body.length).getBytes(StandardCharsets.UTF_8));
+                        out.write(result.body);
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        failed = true;
+                        log.info("Batch response aborted: {}", e.getMessage());
+                    }
+                }
+            }
+
+            synchronized void finish(int count) {
+                try {
+                    if (!failed) {
+                        start();
+                        out.write(("DONE\t" + count + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    out.close();
+                } catch (IOException e) {
+                    log.info("Batch response aborted: {}", e.getMessage());
+                } finally {
+                    exchange.close();
+                }
+            }
+
+            private void start() throws IOException {
+                if (out != null) return;
+                exchange.getResponseHeaders().set("Content-Type", "application/x-gerber-results");
+                exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+                exchange.sendResponseHeaders(200, 0);
+                out = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
             }
         }
-        return layers;
+    }
+
+    /**
+     * Parse the length-prefixed file protocol shared by /render and /thumbnail.
+     * Silently drops files that fail to parse (per-file try/catch) so a single
+     * bad layer can't take down the whole request.
+     */
+    static List<MultiLayerSVGRenderer.Layer> parseLayerBody(byte[] body) {
+        return parseLayerBody(body, null);
+    }
+
+    /**
+     * Parse the file protocol, reusing documents from {@code documentCache}
+     * (may be {@code null}) for file contents that were parsed before.
+     *
+     * @throws LayerBody.UnknownRefsException if any {@code REF} hash is not cached
+     */
+    static List<MultiLayerSVGRenderer.Layer> parseLayerBody(byte[] body, DocumentCache documentCache) {
+        return LayerBody.scan(body).resolve(documentCache);
+    }
+
+    /** Reply 409 listing the unresolved hashes so the client uploads only those. */
+    private static void sendMissingRefs(HttpExchange exchange, LayerBody.UnknownRefsException e) throws IOException {
+        sendResponse(exchange, 409, "application/json", missingRefsJson(e));
+    }
+
+    private static String missingRefsJson(LayerBody.UnknownRefsException e) {
+        StringBuilder json = new StringBuilder("{\"missing\":[");
+        for (int i = 0; i < e.hashes.size(); i++) {
+            if (i > 0) json.append(",");
+            json.append(escapeJson(e.hashes.get(i)));
+        }
+        json.append("]}");
+        return json.toString();
     }
 
     private static Map<String, String> parseQuery(String raw) {
@@ -365,6 +1184,24 @@ public class GerberViewerServer {
     }
 
     public static String renderRealisticSide(List<MultiLayerSVGRenderer.Layer> allLayers, boolean topSide) {
+        return renderRealisticSide(allLayers, topSide, null, null);
+    }
+
+    /**
+     * Render one realistic side, reusing fragments from {@code fragmentCache}
+     * (may be {@code null}) that other views of the same documents produced.
+     */
+    public static String renderRealisticSide(List<MultiLayerSVGRenderer.Layer> allLayers, boolean topSide,
+                                             RenderFragmentCache fragmentCache) {
+        return renderRealisticSide(allLayers, topSide, fragmentCache, null);
+    }
+
+    /**
+     * Render one realistic side with a fragment cache (may be {@code null}),
+     * reporting the render to {@code listener} (may be {@code null}).
+     */
+    public static String renderRealisticSide(List<MultiLayerSVGRenderer.Layer> allLayers, boolean topSide,
+                                             RenderFragmentCache fragmentCache, PipelineListener listener) {
         try {
             List<MultiLayerSVGRenderer.Layer> sideLayers = new ArrayList<>();
             for (MultiLayerSVGRenderer.Layer layer : allLayers) {
@@ -384,7 +1221,8 @@ public class GerberViewerServer {
             }
             boolean hasOutline = sideLayers.stream().anyMatch(l -> l.getLayerType() == LayerType.OUTLINE);
             if (!hasOutline || sideLayers.size() < 2) return null;
-            return new MultiLayerSVGRenderer().renderRealistic(sideLayers);
+            return new MultiLayerSVGRenderer().setFragmentCache(fragmentCache).setListener(listener)
+                .renderRealistic(sideLayers);
         } catch (Exception e) {
             LoggerFactory.getLogger(GerberViewerServer.class)
                 .warn("Failed to render realistic {} side: {}", topSide ? "top" : "bottom", e.getMessage());
@@ -392,6 +1230,15 @@ public class GerberViewerServer {
         }
     }
 
+    /**
+     * Reply 415 to a body in an unsupported content coding. The body is drained
+     * first: closing with unread data would reset the connection and lose the reply.
+     */
+    private static void sendUnsupportedEncoding(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+        sendResponse(exchange, 415, "text/plain", "Unsupported Content-Encoding");
+    }
+
     static void sendResponse(HttpExchange exchange, int status, String contentType, String body)
             throws IOException {
         byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
@@ -405,23 +1252,12 @@ public class GerberViewerServer {
 
     static String escapeJson(String s) {
         if (s == null) return "null";
-        StringBuilder sb = new StringBuilder("\"");
-        for (char c : s.toCharArray()) {
-            switch (c) {
-                case '"' -> sb.append("\\\"");
-                case '\\' -> sb.append("\\\\");
-                case '\b' -> sb.append("\\b");
-                case '\f' -> sb.append("\\f");
-                case '\n' -> sb.append("\\n");
-                case '\r' -> sb.append("\\r");
-                case '\t' -> sb.append("\\t");
-                default -> {
-                    if (c < 32) sb.append(String.format("\\u%04x", (int) c));
-                    else sb.append(c);
-                }
-            }
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        try {
+            JsonStreamWriter.appendQuoted(sb, s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);   // StringBuilder doesn't throw
         }
-        sb.append("\"");
         return sb.toString();
     }
 
@@ -440,15 +1276,72 @@ public class GerberViewerServer {
         return "<html><body><h1>Error: index.html not found on classpath</h1></body></html>";
     }
 
+    private static final String USAGE = String.join("\n",
+        "Usage: GerberViewerServer [port] [options]",
+        "       GerberViewerServer convert [options] <zip-or-directory>...   (see convert --help)",
+        "       GerberViewerServer profile [options] <project>               (see profile --help)",
+        "  --port N               listen port (default 938)",
+        "  --threads N            worker threads (default: number of CPUs)",
+        "  --thumbnail-threads N  max workers busy with thumbnails at once (default: half the workers)",
+        "  --batch-threads N      max workers busy with batch jobs, and batch thumbnails rendering,",
+        "                         at once (default: a quarter of the workers)",
+        "  --queue N              requests allowed to wait per lane before shedding with 503 (default "
+            + RequestScheduler.DEFAULT_QUEUE_DEPTH + ")",
+        "  --parse-cache-mb N     heap budget for cached parsed documents (default: 1/4 of max heap)");
+
     public static void main(String[] args) throws IOException {
         java.util.Locale.setDefault(java.util.Locale.US);
+        if (args.length > 0 && args[0].equals("convert")) {
+            BatchConvertCommand.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("profile")) {
+            ProfileCommand.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
         int port = 938;
-        if (args.length > 0) {
-            port = Integer.parseInt(args[0]);
+        int threads = RequestScheduler.DEFAULT_THREADS;
+        int queue = RequestScheduler.DEFAULT_QUEUE_DEPTH;
+        Map<RequestScheduler.Lane, Integer> laneThreads = new EnumMap<>(RequestScheduler.Lane.class);
+        long parseCacheBytes = DocumentCache.DEFAULT_MAX_BYTES;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--thumbnail-threads" ->
+                        laneThreads.put(RequestScheduler.Lane.THUMBNAIL, Integer.parseInt(args[++i]));
+                    case "--batch-threads" -> laneThreads.put(RequestScheduler.Lane.BATCH, Integer.parseInt(args[++i]));
+                    case "--queue" -> queue = Integer.parseInt(args[++i]);
+                    case "--parse-cache-mb" -> parseCacheBytes = Long.parseLong(args[++i]) * 1024 * 1024;
+                    case "-h", "--help" -> {
+                        System.out.println(USAGE);
+                        return;
+                    }
+                    default -> {
+                        if (arg.startsWith("-")) throw new IllegalArgumentException("Unknown option: " + arg);
+                        port = Integer.parseInt(arg);   // legacy positional port
+                    }
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid arguments: " + String.join(" ", args));
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
         }
 
-        GerberViewerServer server = new GerberViewerServer(port);
+        GerberViewerServer server = new GerberViewerServer(port, parseCacheBytes)
+            .setThreads(threads)
+            .setQueueDepth(queue);
+        laneThreads.forEach(server::setLaneThreads);
         server.start();
 
         Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
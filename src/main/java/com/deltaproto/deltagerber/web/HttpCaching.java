@@ -0,0 +1,100 @@
+package com.deltaproto.deltagerber.web;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Conditional-request and content-coding helpers for the viewer server.
+ */
+final class HttpCaching {
+
+    private HttpCaching() {
+    }
+
+    /**
+     * True if the request's {@code If-None-Match} lists {@code etag} (or {@code *}).
+     * Uses the weak comparison RFC 9110 prescribes for If-None-Match.
+     */
+    static boolean notModified(HttpExchange exchange, String etag) {
+        List<String> headers = exchange.getRequestHeaders().get("If-None-Match");
+        if (headers == null) return false;
+        String opaque = stripWeak(etag);
+        for (String header : headers) {
+            for (String candidate : header.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || stripWeak(tag).equals(opaque)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True if the request carries {@code If-None-Match}, so it may be answered with
+     * 304 once its ETag is known. Work that a 304 wouldn't need should wait until then.
+     */
+    static boolean isConditional(HttpExchange exchange) {
+        return exchange.getRequestHeaders().containsKey("If-None-Match");
+    }
+
+    /** Reply 304 with the validator and no body. */
+    static void sendNotModified(HttpExchange exchange, String etag) throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().set("Access-Control-Expose-Headers", "ETag");
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
+    /** Attach a validator to a response that must be revalidated before reuse. */
+    static void setValidator(HttpExchange exchange, String etag) {
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("Access-Control-Expose-Headers", "ETag");
+    }
+
+    /** True if {@code Accept-Encoding} allows gzip (and doesn't set its q to 0). */
+    static boolean acceptsGzip(HttpExchange exchange) {
+        List<String> headers = exchange.getRequestHeaders().get("Accept-Encoding");
+        if (headers == null) return false;
+        for (String header : headers) {
+            for (String coding : header.split(",")) {
+                String[] params = coding.trim().split(";");
+                if (!params[0].trim().equalsIgnoreCase("gzip")) continue;
+                for (int i = 1; i < params.length; i++) {
+                    String p = params[i].trim().replace(" ", "");
+                    if (p.matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The request body decoded per its {@code Content-Encoding} (identity or gzip),
+     * decompressing on the fly; {@code null} if the encoding isn't supported.
+     */
+    static InputStream requestBody(HttpExchange exchange) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        InputStream body = exchange.getRequestBody();
+        if (encoding == null || encoding.isBlank() || encoding.trim().equalsIgnoreCase("identity")) {
+            return body;
+        }
+        if (encoding.trim().equalsIgnoreCase("gzip") || encoding.trim().equalsIgnoreCase("x-gzip")) {
+            return new GZIPInputStream(body, 64 * 1024);
+        }
+        return null;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
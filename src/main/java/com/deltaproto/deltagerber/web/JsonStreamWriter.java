@@ -0,0 +1,98 @@
+package com.deltaproto.deltagerber.web;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a JSON response incrementally to a chunked (optionally gzip-encoded)
+ * HTTP response body.
+ * <p>
+ * Structural JSON is written verbatim with {@link #raw}; string values are escaped
+ * on the fly by {@link #string}, straight from the source {@link CharSequence} into
+ * the encoder. Multi-megabyte SVG strings are therefore never copied into an
+ * escaped string or a response envelope, and are compressed as they are written.
+ */
+final class JsonStreamWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+
+    JsonStreamWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Send {@code status} with a chunked JSON body and return a writer for it.
+     * The caller must close the writer to finish the response.
+     *
+     * @param gzip whether to gzip-encode the body (see {@link HttpCaching#acceptsGzip})
+     */
+    static JsonStreamWriter open(HttpExchange exchange, int status, boolean gzip) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, 0);
+        OutputStream body = exchange.getResponseBody();
+        if (gzip) {
+            body = new GZIPOutputStream(body, BUFFER_SIZE);
+        }
+        return new JsonStreamWriter(
+            new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    /** Write already-valid JSON (punctuation, keys, numbers) as-is. */
+    JsonStreamWriter raw(String json) throws IOException {
+        out.write(json);
+        return this;
+    }
+
+    /** Write {@code value} as a quoted, escaped JSON string, or {@code null}. */
+    JsonStreamWriter string(CharSequence value) throws IOException {
+        appendQuoted(out, value);
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Append {@code value} as a quoted, escaped JSON string (or {@code null}).
+     * Runs of characters that need no escaping are appended in bulk.
+     */
+    static void appendQuoted(Appendable out, CharSequence value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        int run = 0;
+        int len = value.length();
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            String escape = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\b' -> "\\b";
+                case '\f' -> "\\f";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> c < 32 ? String.format("\\u%04x", (int) c) : null;
+            };
+            if (escape != null) {
+                out.append(value, run, i).append(escape);
+                run = i + 1;
+            }
+        }
+        out.append(value, run, len).append('"');
+    }
+}
@@ -0,0 +1,82 @@
+package com.deltaproto.deltagerber.web;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed, roughly logarithmic millisecond buckets.
+ * <p>
+ * Recording is a couple of atomic increments, cheap enough for every request.
+ * Percentiles are approximate — they report the upper bound of the bucket the
+ * percentile falls in.
+ */
+public final class LatencyHistogram {
+
+    /** Inclusive bucket upper bounds in milliseconds; a final overflow bucket catches the rest. */
+    private static final long[] BOUNDS_MILLIS =
+        {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+        int bucket = 0;
+        while (bucket < BOUNDS_MILLIS.length && millis > BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        count.increment();
+        sumNanos.add(Math.max(0, nanos));
+    }
+
+    /** Bucket upper bounds in milliseconds, excluding the overflow bucket. */
+    public static long[] getBucketBoundsMillis() {
+        return BOUNDS_MILLIS.clone();
+    }
+
+    /** Per-bucket (non-cumulative) counts; one longer than the bounds, last entry is overflow. */
+    public long[] getBucketCounts() {
+        long[] result = new long[counts.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSumMillis() {
+        return sumNanos.sum() / 1e6;
+    }
+
+    /**
+     * Approximate percentile in milliseconds, e.g. {@code percentile(0.99)}.
+     * Returns 0 when empty and {@code Long.MAX_VALUE} if it falls in the overflow bucket.
+     */
+    public long percentile(double q) {
+        long[] snapshot = getBucketCounts();
+        long total = 0;
+        for (long c : snapshot) total += c;
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i < BOUNDS_MILLIS.length ? BOUNDS_MILLIS[i] : Long.MAX_VALUE;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LatencyHistogram[count=%d, p50=%dms, p99=%dms]",
+            getCount(), percentile(0.5), percentile(0.99));
+    }
+}
@@ -0,0 +1,440 @@
+package com.deltaproto.deltagerber.web;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * The length-prefixed layer protocol shared by the render and thumbnail endpoints.
+ * <p>
+ * Format (tab-separated header lines):
+ * <pre>
+ * FILE\tname\tfileType\tlayerType\tcontentLength\n
+ * content bytes...\n
+ * REF\tname\tsha256\tlayerType\n
+ * </pre>
+ * Handling is split in two steps. {@link #read} (or {@link #scan} for a buffered
+ * body) walks the headers and hashes each file's bytes, which is enough to compute
+ * an ETag and answer conditional requests. {@link #resolve} then turns the entries
+ * into layers, parsing (or fetching from the {@link DocumentCache}) as needed.
+ * {@link #read} can start each file's parse as soon as its bytes have arrived, so
+ * parsing overlaps with the rest of the upload.
+ */
+final class LayerBody {
+
+    private static final Logger log = LoggerFactory.getLogger(LayerBody.class);
+
+    /** Longest header line accepted by {@link #read}; file names are the only free text. */
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    /** One FILE or REF entry of the request. */
+    static final class Entry {
+        final String name;
+        final String fileType;     // null for REF entries
+        final String layerType;
+        final String contentHash;
+        final int offset;
+        final int length;
+        private byte[] data;       // null for REF entries and once a streamed file is parsed
+        private Future<MultiLayerSVGRenderer.Layer> parsed;   // set when parsing started on arrival
+
+        Entry(String name, String fileType, String layerType, String contentHash,
+              byte[] data, int offset, int length) {
+            this.name = name;
+            this.fileType = fileType;
+            this.layerType = layerType;
+            this.contentHash = contentHash;
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        boolean isRef() {
+            return fileType == null;
+        }
+    }
+
+    private final List<Entry> entries;
+
+    private LayerBody(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Walk the entry headers and hash each file's content. Stops at the first
+     * malformed header, like the original parser did.
+     */
+    static LayerBody scan(byte[] body) {
+        List<Entry> entries = new ArrayList<>();
+        int pos = 0;
+        while (pos < body.length) {
+            int lineEnd = indexOf(body, (byte) '\n', pos);
+            if (lineEnd < 0) break;
+            String header = new String(body, pos, lineEnd - pos, StandardCharsets.UTF_8);
+            if (header.startsWith("REF\t")) {
+                String[] parts = header.substring(4).split("\t");
+                if (parts.length < 3) break;
+                entries.add(new Entry(parts[0], null, parts[2], parts[1], null, 0, 0));
+                pos = lineEnd + 1;
+                continue;
+            }
+            if (!header.startsWith("FILE\t")) break;
+            String[] parts = header.substring(5).split("\t");
+            if (parts.length < 4) break;
+            int contentLength = Integer.parseInt(parts[3]);
+            int contentStart = lineEnd + 1;
+            if (contentLength < 0 || contentStart + contentLength > body.length) break;
+            entries.add(new Entry(parts[0], parts[1], parts[2],
+                DocumentCache.contentHash(body, contentStart, contentLength), body, contentStart, contentLength));
+            pos = contentStart + contentLength;
+            // Skip optional trailing newline
+            if (pos < body.length && body[pos] == '\n') pos++;
+        }
+        return new LayerBody(entries);
+    }
+
+    /**
+     * Read the protocol incrementally from {@code in}. Each file's bytes are hashed
+     * as soon as they have arrived and its parse is handed to {@code parseExecutor}
+     * (may be {@code null} to defer parsing to {@link #resolve}). With a pool,
+     * parsing overlaps with the rest of the upload; with a direct executor, each
+     * file is parsed before the next is read. Either way only the files not yet
+     * parsed are held as raw bytes, never the whole upload. Stops at the first
+     * malformed or truncated entry, like {@link #scan}.
+     */
+    static LayerBody read(InputStream in, DocumentCache documentCache, Executor parseExecutor)
+            throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        readEntries(buffered(in), entries, documentCache, parseExecutor);
+        return new LayerBody(entries);
+    }
+
+    /**
+     * Read entries until end of stream or a line that isn't a well-formed entry.
+     *
+     * @return the line that ended the entries, or {@code null} at end of stream
+     */
+    private static String readEntries(InputStream input, List<Entry> entries, DocumentCache documentCache,
+                                      Executor parseExecutor) throws IOException {
+        String header;
+        while ((header = readLine(input)) != null) {
+            if (header.isEmpty()) continue;   // optional newline after file content
+            if (header.startsWith("REF\t")) {
+                String[] parts = header.substring(4).split("\t");
+                if (parts.length < 3) return header;
+                entries.add(new Entry(parts[0], null, parts[2], parts[1], null, 0, 0));
+                continue;
+            }
+            if (!header.startsWith("FILE\t")) return header;
+            String[] parts = header.substring(5).split("\t");
+            if (parts.length < 4) return header;
+            int contentLength = Integer.parseInt(parts[3]);
+            if (contentLength < 0) return header;
+            byte[] data = input.readNBytes(contentLength);
+            if (data.length < contentLength) return null;
+            Entry entry = new Entry(parts[0], parts[1], parts[2],
+                DocumentCache.contentHash(data, 0, data.length), data, 0, data.length);
+            if (parseExecutor != null) {
+                FutureTask<MultiLayerSVGRenderer.Layer> task = new FutureTask<>(() -> parseLayer(entry, documentCache));
+                entry.parsed = task;
+                parseExecutor.execute(task);
+            }
+            entries.add(entry);
+        }
+        return null;
+    }
+
+    private static InputStream buffered(InputStream in) {
+        return in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 64 * 1024);
+    }
+
+    /** One project section of a multi-project body. */
+    static final class Project {
+        final String id;
+        final LayerBody body;
+
+        Project(String id, LayerBody body) {
+            this.id = id;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Reads a multi-project body incrementally, one project at a time:
+     * <pre>
+     * PROJECT\tid\n
+     * FILE/REF entries of that project...
+     * PROJECT\tid\n
+     * ...
+     * </pre>
+     * Files are hashed but not parsed; {@link #resolve} parses them.
+     */
+    static final class ProjectReader {
+        private final InputStream input;
+        private String nextHeader;
+        private boolean started;
+
+        ProjectReader(InputStream in) {
+            this.input = buffered(in);
+        }
+
+        /**
+         * The next project, or {@code null} at end of stream or at the first line
+         * that is neither an entry nor a {@code PROJECT} header.
+         *
+         * @throws IOException also if the body doesn't start with a {@code PROJECT} header
+         */
+        Project next() throws IOException {
+            if (!started) {
+                started = true;
+                List<Entry> stray = new ArrayList<>();
+                nextHeader = readEntries(input, stray, null, null);
+                if (!stray.isEmpty()) {
+                    throw new IOException("Entries before the first PROJECT header");
+                }
+            }
+            if (nextHeader == null || !nextHeader.startsWith("PROJECT\t")) {
+                return null;
+            }
+            String id = nextHeader.substring(8);
+            List<Entry> entries = new ArrayList<>();
+            nextHeader = readEntries(input, entries, null, null);
+            return new Project(id, new LayerBody(entries));
+        }
+    }
+
+    /** Read one {@code \n}-terminated header line; null at end of stream. */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (line.size() >= MAX_HEADER_BYTES) {
+                throw new IOException("Header line longer than " + MAX_HEADER_BYTES + " bytes");
+            }
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) return null;
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The layers that resolved, as {@code REF} entries holding no file content:
+     * what needs keeping to resolve the project again later. Call after
+     * {@link #resolve}; files that failed to parse aren't cached and are left out.
+     * Checking the cache here doesn't count towards its hits and misses.
+     */
+    LayerBody refs(DocumentCache documentCache) {
+        List<Entry> refs = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            if (documentCache.fileTypeOf(e.contentHash) != null) {
+                refs.add(new Entry(e.name, null, e.layerType, e.contentHash, null, 0, 0));
+            }
+        }
+        return new LayerBody(refs);
+    }
+
+    /**
+     * Strong ETag for the response to this request: a digest of every entry's
+     * name, content hash, file type and layer type plus {@code variant}, which
+     * must capture the endpoint and all options that affect the output. A REF
+     * entry takes the file type its content is cached as in {@code documentCache}
+     * (may be {@code null}), so a FILE entry and a REF entry for the same bytes
+     * contribute identically.
+     */
+    String etag(String variant, DocumentCache documentCache) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(variant.getBytes(StandardCharsets.UTF_8));
+            for (Entry e : entries) {
+                String fileType = !e.isRef() ? e.fileType
+                    : documentCache != null ? documentCache.fileTypeOf(e.contentHash) : null;
+                md.update((byte) 0);
+                md.update((e.name + "\t" + e.contentHash + "\t" + fileType + "\t" + e.layerType)
+                    .getBytes(StandardCharsets.UTF_8));
+            }
+            return "\"" + HexFormat.of().formatHex(md.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Turn the entries into layers, reusing documents from {@code documentCache}
+     * (may be {@code null}) for content that was parsed before. Silently drops
+     * files that fail to parse so a single bad layer can't take down the request.
+     * <p>
+     * {@code REF} entries are resolved from the cache. All {@code FILE} entries
+     * are still parsed (and cached) before unresolved references are reported,
+     * so the client's retry only needs to upload the missing files.
+     *
+     * @throws UnknownRefsException if any {@code REF} hash is not cached
+     */
+    List<MultiLayerSVGRenderer.Layer> resolve(DocumentCache documentCache) {
+        try {
+            return resolve(documentCache, null, Long.MAX_VALUE);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Unreachable: without a pool nothing waits or times out
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Like {@link #resolve(DocumentCache)}, but parses files that {@link #read}
+     * hasn't already started on concurrently on {@code pool} (may be {@code null}),
+     * and cancels outstanding parses if {@code deadlineNanos} passes
+     * ({@code Long.MAX_VALUE} for none). Layers keep the request's order.
+     *
+     * @throws UnknownRefsException if any {@code REF} hash is not cached
+     * @throws TimeoutException if parsing doesn't finish in time
+     */
+    List<MultiLayerSVGRenderer.Layer> resolve(DocumentCache documentCache, ExecutorService pool,
+                                              long deadlineNanos) throws Exception {
+        MultiLayerSVGRenderer.Layer[] slots = new MultiLayerSVGRenderer.Layer[entries.size()];
+        List<String> missing = new ArrayList<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            int slot = i;
+            if (e.isRef()) {
+                Object doc = documentCache != null ? documentCache.lookup(e.contentHash) : null;
+                if (doc == null) {
+                    missing.add(e.contentHash);
+                } else {
+                    slots[slot] = refLayer(e, doc);
+                }
+            } else if (e.parsed == null) {
+                tasks.add(() -> {
+                    slots[slot] = parseLayer(e, documentCache);
+                    return null;
+                });
+            }
+        }
+        ParallelTasks.invokeAll(pool, tasks, deadlineNanos);
+        awaitStartedParses(slots, deadlineNanos);
+
+        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+        for (MultiLayerSVGRenderer.Layer layer : slots) {
+            if (layer != null) layers.add(layer);
+        }
+        if (!missing.isEmpty()) {
+            throw new UnknownRefsException(missing);
+        }
+        return layers;
+    }
+
+    /** Collect parses {@link #read} started on arrival, cancelling them all on timeout. */
+    private void awaitStartedParses(MultiLayerSVGRenderer.Layer[] slots, long deadlineNanos) throws Exception {
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                Future<MultiLayerSVGRenderer.Layer> parsed = entries.get(i).parsed;
+                if (parsed == null) continue;
+                slots[i] = deadlineNanos == Long.MAX_VALUE
+                    ? parsed.get()
+                    : parsed.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            for (Entry entry : entries) {
+                if (entry.parsed != null) entry.parsed.cancel(true);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    private static MultiLayerSVGRenderer.Layer refLayer(Entry e, Object doc) {
+        try {
+            MultiLayerSVGRenderer.Layer layer = doc instanceof DrillDocument
+                ? new MultiLayerSVGRenderer.Layer(e.name, (DrillDocument) doc)
+                : new MultiLayerSVGRenderer.Layer(e.name, (GerberDocument) doc);
+            layer.setColor(GerberViewerServer.getLayerColor(e.name)).setOpacity(0.85)
+                .setLayerType(LayerType.valueOf(e.layerType));
+            return layer;
+        } catch (IllegalArgumentException ex) {
+            log.warn("Bad layer type for {}: {}", e.name, e.layerType);
+            return null;
+        }
+    }
+
+    /**
+     * Parse one FILE entry; parsers are stateful, so each call uses fresh ones.
+     * Drops the entry's raw bytes afterwards unless they belong to a buffered body.
+     */
+    private static MultiLayerSVGRenderer.Layer parseLayer(Entry e, DocumentCache documentCache) {
+        log.debug("File: {} type={} layerType={} size={}", e.name, e.fileType, e.layerType, e.length);
+        byte[] data = e.data;
+        Supplier<String> content = () -> new String(data, e.offset, e.length, StandardCharsets.UTF_8);
+        try {
+            MultiLayerSVGRenderer.Layer layer = null;
+            LayerType layerType = LayerType.valueOf(e.layerType);
+            if ("drill".equals(e.fileType)) {
+                layer = new MultiLayerSVGRenderer.Layer(e.name, documentCache != null
+                    ? documentCache.parseDrill(e.contentHash, content) : new ExcellonParser().parse(content.get()));
+            } else if ("gerber".equals(e.fileType)) {
+                layer = new MultiLayerSVGRenderer.Layer(e.name, documentCache != null
+                    ? documentCache.parseGerber(e.contentHash, content) : new GerberParser().parse(content.get()));
+            }
+            if (layer != null) {
+                layer.setColor(GerberViewerServer.getLayerColor(e.name)).setOpacity(0.85).setLayerType(layerType);
+            }
+            return layer;
+        } catch (Exception ex) {
+            log.warn("Failed to parse {}: {}", e.name, ex.getMessage());
+            return null;
+        } finally {
+            if (e.parsed != null) {
+                e.data = null;
+            }
+        }
+    }
+
+    private static int indexOf(byte[] data, byte target, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == target) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Thrown when a request references file content by hash that the server
+     * no longer (or never) had cached.
+     */
+    static class UnknownRefsException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final List<String> hashes;
+
+        UnknownRefsException(List<String> hashes) {
+            super(hashes.size() + " unknown content hash(es)");
+            this.hashes = hashes;
+        }
+    }
+}
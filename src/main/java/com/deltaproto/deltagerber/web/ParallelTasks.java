@@ -0,0 +1,67 @@
+package com.deltaproto.deltagerber.web;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Fork/join of independent subtasks within one request.
+ * <p>
+ * All tasks run on the shared task pool while the calling thread waits, so the
+ * deadline bounds the whole call. The pool is separate from the request workers,
+ * so a request waiting on it can't starve the tasks it waits for. If any task
+ * fails or the deadline passes, the tasks that haven't finished are cancelled and
+ * the failure is rethrown: queued ones are dropped and running ones interrupted,
+ * which stops parsers and {@link com.deltaproto.deltagerber.renderer.RenderTraversal}
+ * at their next check.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Run {@code tasks} concurrently and return their results in task order
+     * (results may be {@code null}).
+     *
+     * @param pool          executor for the tasks; {@code null} runs them inline, without a deadline
+     * @param deadlineNanos {@link System#nanoTime()} value after which remaining work is cancelled
+     * @throws TimeoutException if the deadline passes first
+     * @throws Exception        the first failure of any task
+     */
+    static <T> List<T> invokeAll(ExecutorService pool, List<? extends Callable<T>> tasks, long deadlineNanos)
+            throws Exception {
+        List<T> results = new ArrayList<>(Collections.nCopies(tasks.size(), null));
+        if (pool == null) {
+            for (int i = 0; i < tasks.size(); i++) {
+                results.set(i, tasks.get(i).call());
+            }
+            return results;
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(pool);
+        Map<Future<T>, Integer> index = new HashMap<>();
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                index.put(completion.submit(tasks.get(i)), i);
+            }
+            for (int remaining = index.size(); remaining > 0; remaining--) {
+                Future<T> done = completion.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new TimeoutException("Timed out waiting for " + remaining + " of " + tasks.size() + " tasks");
+                }
+                results.set(index.remove(done), done.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        } finally {
+            // No-op for completed futures; cancels the rest after a failure or timeout
+            for (Future<T> f : index.keySet()) {
+                f.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.deltaproto.deltagerber.web;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Priority scheduler with admission control for the viewer server's requests.
+ * <p>
+ * Work is split into {@link Lane lanes}. Each lane has a concurrency cap (its
+ * share of the worker threads) and a bounded wait queue. Whenever a worker frees
+ * up it goes to the highest-priority lane that has queued work and is below its
+ * cap, so an interactive render jumps ahead of any queued thumbnails, and because
+ * the lower lanes can't take every worker, there is normally a worker left for it
+ * right away. Work that is already running is never interrupted. When a lane's
+ * queue is full, new requests for it are answered with {@code 503} and
+ * {@code Retry-After}.
+ * <p>
+ * Integration with the JDK {@code HttpServer}: the server's executor is a small
+ * intake pool ({@link #getIntakeExecutor()}) that only reads request headers and
+ * runs the context's {@link #laneFilter lane filter}. The filter hands the rest of
+ * the exchange to the lane and returns; the handler then runs and completes the
+ * exchange on a worker thread.
+ * <p>
+ * Per lane, queue wait and service time are recorded in {@link LatencyHistogram}s.
+ */
+public final class RequestScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestScheduler.class);
+
+    /** Request classes in priority order (highest first). */
+    public enum Lane {
+        /** Renders and page loads for a user looking at a board. */
+        INTERACTIVE,
+        /** Project-list thumbnails, which arrive in bursts. */
+        THUMBNAIL,
+        /** Bulk jobs nobody is waiting on interactively. */
+        BATCH
+    }
+
+    /** Request header a client can use to demote its own request to a lower lane. */
+    public static final String PRIORITY_HEADER = "X-Request-Priority";
+
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_QUEUE_DEPTH = 64;
+
+    // Shed uploads up to this size are read and discarded so the connection can
+    // carry the next request; larger ones close it instead
+    private static final long MAX_DRAIN_BYTES = 1024 * 1024;
+    // Shed requests are drained and answered off the intake pool, by a few threads
+    // with a bounded backlog; a client that takes longer than this loses its connection
+    private static final int DRAIN_THREADS = 2;
+    private static final int DRAIN_BACKLOG = 16;
+    private static final long DRAIN_TIMEOUT_MILLIS = 5000;
+    // When the drain backlog is full the 503 is written on the intake thread, unread
+    private static final long SHED_REPLY_TIMEOUT_MILLIS = 500;
+
+    /** Default concurrency cap for a lane given the total worker count. */
+    public static int defaultLaneThreads(Lane lane, int threads) {
+        return switch (lane) {
+            case INTERACTIVE -> threads;
+            case THUMBNAIL -> Math.max(1, threads / 2);
+            case BATCH -> Math.max(1, threads / 4);
+        };
+    }
+
+    /** Scheduling state and statistics of one lane. */
+    public static final class LaneStats {
+        private final Lane lane;
+        private final int maxConcurrent;
+        private final int queueDepth;
+        private final ArrayDeque<Task> queue = new ArrayDeque<>();
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final LatencyHistogram service = new LatencyHistogram();
+        private int running;
+        private long completed;
+        private long rejected;
+
+        private LaneStats(Lane lane, int maxConcurrent, int queueDepth) {
+            this.lane = lane;
+            this.maxConcurrent = maxConcurrent;
+            this.queueDepth = queueDepth;
+        }
+
+        public Lane getLane() {
+            return lane;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /** Time from submission until a worker picked the request up. */
+        public LatencyHistogram getQueueWait() {
+            return queueWait;
+        }
+
+        /** Time spent executing on a worker. */
+        public LatencyHistogram getServiceTime() {
+            return service;
+        }
+    }
+
+    private static final class Task {
+        final Runnable work;
+        final long submittedNanos = System.nanoTime();
+
+        Task(Runnable work) {
+            this.work = work;
+        }
+    }
+
+    private final int threads;
+    private final int retryAfterSeconds;
+    private final EnumMap<Lane, LaneStats> lanes = new EnumMap<>(Lane.class);
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor intake;
+    private final ThreadPoolExecutor drainer;
+    private final ScheduledThreadPoolExecutor drainTimeouts;
+    private int running;
+
+    public RequestScheduler(int threads, int queueDepth, int retryAfterSeconds) {
+        this(threads, Collections.emptyMap(), queueDepth, retryAfterSeconds);
+    }
+
+    /**
+     * @param threads           total worker threads
+     * @param laneThreads       concurrency cap per lane; missing lanes use {@link #defaultLaneThreads}
+     * @param queueDepth        requests allowed to wait per lane; 0 sheds as soon as the lane can't start one
+     * @param retryAfterSeconds value of the {@code Retry-After} header on shed requests
+     */
+    public RequestScheduler(int threads, Map<Lane, Integer> laneThreads, int queueDepth, int retryAfterSeconds) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1: " + threads);
+        if (queueDepth < 0) throw new IllegalArgumentException("queueDepth must be >= 0: " + queueDepth);
+        this.threads = threads;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        for (Lane lane : Lane.values()) {
+            int max = laneThreads.getOrDefault(lane, defaultLaneThreads(lane, threads));
+            lanes.put(lane, new LaneStats(lane, Math.max(1, Math.min(threads, max)), queueDepth));
+        }
+        // Never holds more than `threads` tasks: dispatch() only hands out free slots
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), daemonThreads("gerber-worker-"));
+        this.intake = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), daemonThreads("gerber-intake-"));
+        this.drainer = new ThreadPoolExecutor(DRAIN_THREADS, DRAIN_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(DRAIN_BACKLOG), daemonThreads("gerber-drain-"));
+        this.drainTimeouts = new ScheduledThreadPoolExecutor(1, daemonThreads("gerber-drain-timeout-"));
+        this.drainTimeouts.setRemoveOnCancelPolicy(true);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger ids = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** Executor to install on the {@code HttpServer}; only reads headers and routes to lanes. */
+    public Executor getIntakeExecutor() {
+        return intake;
+    }
+
+    /**
+     * Queue {@code work} on {@code lane}.
+     *
+     * @return false if the lane's queue is full and the work was rejected
+     */
+    public synchronized boolean submit(Lane lane, Runnable work) {
+        LaneStats ls = lanes.get(lane);
+        boolean startsNow = ls.queue.isEmpty() && ls.running < ls.maxConcurrent && running < threads;
+        if (!startsNow && ls.queue.size() >= ls.queueDepth) {
+            ls.rejected++;
+            return false;
+        }
+        ls.queue.add(new Task(work));
+        dispatch();
+        return true;
+    }
+
+    /** Hand free worker slots to queued tasks, highest-priority lane first. Caller holds the lock. */
+    private void dispatch() {
+        for (LaneStats ls : lanes.values()) {
+            while (running < threads && ls.running < ls.maxConcurrent && !ls.queue.isEmpty()) {
+                Task task = ls.queue.poll();
+                if (workers.isShutdown()) {
+                    ls.queue.clear();
+                    return;
+                }
+                running++;
+                ls.running++;
+                workers.execute(() -> runTask(ls, task));
+            }
+            if (running >= threads) return;
+        }
+    }
+
+    private void runTask(LaneStats ls, Task task) {
+        long start = System.nanoTime();
+        ls.queueWait.record(start - task.submittedNanos);
+        try {
+            task.work.run();
+        } catch (RuntimeException e) {
+            log.error("Uncaught exception in {} request", ls.lane, e);
+        } finally {
+            ls.service.record(System.nanoTime() - start);
+            synchronized (this) {
+                running--;
+                ls.running--;
+                ls.completed++;
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Filter that runs the rest of the exchange on {@code lane}, or answers 503 if
+     * the lane is full. Clients may demote a request (never promote it) with the
+     * {@value #PRIORITY_HEADER} header, e.g. {@code X-Request-Priority: batch}.
+     */
+    public Filter laneFilter(Lane lane) {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                Lane effective = requestedLane(exchange, lane);
+                boolean accepted = submit(effective, () -> {
+                    try {
+                        chain.doFilter(exchange);
+                    } catch (IOException | RuntimeException e) {
+                        log.warn("Request {} failed: {}", exchange.getRequestURI(), e.toString());
+                        exchange.close();
+                    }
+                });
+                if (!accepted) {
+                    sendBusy(exchange);
+                }
+            }
+
+            @Override
+            public String description() {
+                return "Schedules the request on the " + lane + " lane";
+            }
+        };
+    }
+
+    private static Lane requestedLane(HttpExchange exchange, Lane lane) {
+        String requested = exchange.getRequestHeaders().getFirst(PRIORITY_HEADER);
+        if (requested == null) return lane;
+        try {
+            Lane demoted = Lane.valueOf(requested.trim().toUpperCase(Locale.ROOT));
+            return demoted.compareTo(lane) > 0 ? demoted : lane;
+        } catch (IllegalArgumentException e) {
+            return lane;
+        }
+    }
+
+    /**
+     * Reply 503 without holding up the intake pool. The unread request body is drained
+     * first, up to {@link #MAX_DRAIN_BYTES}, on the drain threads; left unread it would
+     * stall the client's upload or be taken for the next request on a kept-alive
+     * connection. A longer body closes the connection instead, and a client still
+     * sending after {@link #DRAIN_TIMEOUT_MILLIS} is disconnected. If the drain threads
+     * are backed up, the 503 goes out at once with {@code Connection: close}.
+     */
+    private void sendBusy(HttpExchange exchange) {
+        try {
+            drainer.execute(() -> replyBusy(exchange, true, DRAIN_TIMEOUT_MILLIS));
+        } catch (RejectedExecutionException e) {
+            replyBusy(exchange, false, SHED_REPLY_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * Answer 503 on this thread, giving up after {@code timeoutMillis}. The exchange
+     * reads from a blocking socket channel, so interrupting this thread closes the
+     * connection and ends a read or write that is stuck on a slow client.
+     */
+    private void replyBusy(HttpExchange exchange, boolean drainFirst, long timeoutMillis) {
+        Thread self = Thread.currentThread();
+        AtomicBoolean finished = new AtomicBoolean();
+        ScheduledFuture<?> timeout = drainTimeouts.schedule(() -> {
+            synchronized (finished) {
+                if (!finished.get()) self.interrupt();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            boolean drained = drainFirst && drain(exchange.getRequestBody(), MAX_DRAIN_BYTES);
+            byte[] bytes = "{\"error\":\"Server busy, retry later\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            if (!drained) {
+                exchange.getResponseHeaders().set("Connection", "close");
+            }
+            exchange.sendResponseHeaders(503, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        } catch (IOException e) {
+            log.debug("Dropped shed request {}: {}", exchange.getRequestURI(), e.toString());
+            exchange.close();
+        } finally {
+            synchronized (finished) {
+                finished.set(true);
+            }
+            timeout.cancel(false);
+            Thread.interrupted();
+        }
+    }
+
+    /** Read and discard {@code in} to its end, unless that is more than {@code limit} bytes. */
+    private static boolean drain(InputStream in, long limit) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+            if (total > limit) return false;
+        }
+        return true;
+    }
+
+    /** Stop accepting work and interrupt running requests. */
+    public void shutdown() {
+        intake.shutdownNow();
+        workers.shutdownNow();
+        drainer.shutdownNow();
+        drainTimeouts.shutdownNow();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public LaneStats getLaneStats(Lane lane) {
+        return lanes.get(lane);
+    }
+
+    /** Requests currently executing, across all lanes. */
+    public synchronized int getInFlight() {
+        return running;
+    }
+
+    public synchronized int getInFlight(Lane lane) {
+        return lanes.get(lane).running;
+    }
+
+    public synchronized int getQueued(Lane lane) {
+        return lanes.get(lane).queue.size();
+    }
+
+    public synchronized long getCompletedCount(Lane lane) {
+        return lanes.get(lane).completed;
+    }
+
+    public synchronized long getRejectedCount(Lane lane) {
+        return lanes.get(lane).rejected;
+    }
+
+    public synchronized long getRejectedCount() {
+        long total = 0;
+        for (LaneStats ls : lanes.values()) total += ls.rejected;
+        return total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("RequestScheduler[threads=").append(threads).append(", inFlight=")
+            .append(running);
+        for (LaneStats ls : lanes.values()) {
+            sb.append(", ").append(ls.lane).append("=").append(ls.running).append("/").append(ls.maxConcurrent)
+                .append(" queued ").append(ls.queue.size());
+        }
+        return sb.append("]").toString();
+    }
+}
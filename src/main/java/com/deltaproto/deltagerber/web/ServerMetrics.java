@@ -0,0 +1,327 @@
+package com.deltaproto.deltagerber.web;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
+import com.deltaproto.deltagerber.renderer.svg.RenderFragmentCache;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request, pipeline-stage and JVM metrics of the viewer server, exported in the
+ * Prometheus text exposition format by {@code GET /metrics}.
+ * <p>
+ * Latencies are kept in {@link LatencyHistogram}s and exported as cumulative
+ * histograms in seconds. Request latency is measured per endpoint from the moment
+ * a worker picks the request up until its handler returns; time spent waiting
+ * for a worker is exported separately per scheduler lane. Cache and scheduler
+ * counters are read from their owners at scrape time rather than duplicated here.
+ * <p>
+ * Parse and render stages are reported by the parsers and renderers themselves:
+ * the server passes this object to them as their {@link PipelineListener}.
+ */
+final class ServerMetrics implements PipelineListener {
+
+    /** Pipeline stages timed within requests. */
+    enum Stage {
+        /** Tokenizing Gerber source. */
+        LEX,
+        /** Building documents from tokens (Gerber) or lines (Excellon). */
+        PARSE,
+        /** Generating SVG for a view, fragment or thumbnail. */
+        SVG,
+        /** Rasterizing thumbnail SVG to PNG with Batik. */
+        RASTERIZE,
+        /** Encoding and writing JSON responses. */
+        JSON
+    }
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final EnumMap<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<String, LatencyHistogram> requests = new ConcurrentHashMap<>();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder gerberFiles = new LongAdder();
+    private final LongAdder drillFiles = new LongAdder();
+    private final LongAdder gerberObjects = new LongAdder();
+    private final LongAdder drillOperations = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+
+    ServerMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    @Override
+    public void stageFinished(PipelineListener.Stage stage, long nanos) {
+        record(switch (stage) {
+            case LEX -> Stage.LEX;
+            case PARSE -> Stage.PARSE;
+            case SVG_RENDER -> Stage.SVG;
+            case RASTERIZE -> Stage.RASTERIZE;
+        }, nanos);
+    }
+
+    @Override
+    public void tokensLexed(int count) {
+        tokens.add(count);
+    }
+
+    /** Parse Gerber source, recording lex and parse time and the object count. */
+    GerberDocument parseGerber(String content) {
+        GerberDocument doc = new GerberParser().setListener(this).parse(content);
+        gerberFiles.increment();
+        gerberObjects.add(doc.getObjects().size());
+        return doc;
+    }
+
+    /** Parse Excellon source, recording parse time and the operation count. */
+    DrillDocument parseDrill(String content) {
+        DrillDocument doc = new ExcellonParser().setListener(this).parse(content);
+        drillFiles.increment();
+        drillOperations.add(doc.getOperations().size());
+        return doc;
+    }
+
+    /**
+     * Filter that times the rest of the exchange as a request to {@code endpoint}
+     * and counts the bytes read from and written to the connection (after any
+     * content coding). Belongs after the lane filter, so it runs on the worker.
+     */
+    Filter requestFilter(String endpoint) {
+        LatencyHistogram latency = requests.computeIfAbsent(endpoint, e -> new LatencyHistogram());
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                long start = System.nanoTime();
+                exchange.setStreams(new CountingInputStream(exchange.getRequestBody(), bytesIn),
+                    new CountingOutputStream(exchange.getResponseBody(), bytesOut));
+                try {
+                    chain.doFilter(exchange);
+                } finally {
+                    latency.record(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public String description() {
+                return "Records latency and bytes of " + endpoint + " requests";
+            }
+        };
+    }
+
+    /** Render all metrics in the Prometheus text format. */
+    String scrape(RequestScheduler scheduler, DocumentCache documentCache, RenderFragmentCache fragmentCache) {
+        StringBuilder out = new StringBuilder(16 * 1024);
+
+        header(out, "gerber_http_request_duration_seconds", "histogram",
+            "Time from a worker picking a request up until its handler returned.");
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(requests).entrySet()) {
+            histogram(out, "gerber_http_request_duration_seconds", label("endpoint", e.getKey()), e.getValue());
+        }
+        header(out, "gerber_stage_duration_seconds", "histogram",
+            "Time spent in each pipeline stage: lex, parse, svg, rasterize, json.");
+        for (Stage stage : Stage.values()) {
+            histogram(out, "gerber_stage_duration_seconds", label("stage", name(stage)), stages.get(stage));
+        }
+        counter(out, "gerber_http_request_bytes_total", "Request body bytes received.", bytesIn.sum());
+        counter(out, "gerber_http_response_bytes_total", "Response body bytes sent.", bytesOut.sum());
+
+        header(out, "gerber_parsed_files_total", "counter", "Files parsed (cache misses only).");
+        sample(out, "gerber_parsed_files_total", label("format", "gerber"), gerberFiles.sum());
+        sample(out, "gerber_parsed_files_total", label("format", "drill"), drillFiles.sum());
+        header(out, "gerber_parsed_objects_total", "counter",
+            "Graphics objects (Gerber) and operations (Excellon) parsed.");
+        sample(out, "gerber_parsed_objects_total", label("format", "gerber"), gerberObjects.sum());
+        sample(out, "gerber_parsed_objects_total", label("format", "drill"), drillOperations.sum());
+        counter(out, "gerber_lexed_tokens_total", "Tokens produced by the Gerber lexer.", tokens.sum());
+
+        header(out, "gerber_cache_hits_total", "counter", "Cache lookups served from the cache.");
+        sample(out, "gerber_cache_hits_total", label("cache", "document"), documentCache.getHitCount());
+        sample(out, "gerber_cache_hits_total", label("cache", "fragment"), fragmentCache.getHitCount());
+        header(out, "gerber_cache_misses_total", "counter", "Cache lookups that had to parse or render.");
+        sample(out, "gerber_cache_misses_total", label("cache", "document"), documentCache.getMissCount());
+        sample(out, "gerber_cache_misses_total", label("cache", "fragment"), fragmentCache.getMissCount());
+        header(out, "gerber_cache_evictions_total", "counter", "Entries evicted to stay within budget.");
+        sample(out, "gerber_cache_evictions_total", label("cache", "document"), documentCache.getEvictionCount());
+        sample(out, "gerber_cache_evictions_total", label("cache", "fragment"), fragmentCache.getEvictionCount());
+        header(out, "gerber_cache_entries", "gauge", "Entries currently cached.");
+        sample(out, "gerber_cache_entries", label("cache", "document"), documentCache.size());
+        sample(out, "gerber_cache_entries", label("cache", "fragment"), fragmentCache.size());
+
+        writeScheduler(out, scheduler);
+        writeJvm(out);
+        return out.toString();
+    }
+
+    private static void writeScheduler(StringBuilder out, RequestScheduler scheduler) {
+        RequestScheduler.Lane[] lanes = RequestScheduler.Lane.values();
+        header(out, "gerber_scheduler_threads", "gauge", "Request worker threads.");
+        sample(out, "gerber_scheduler_threads", "", scheduler.getThreads());
+        header(out, "gerber_scheduler_lane_max_threads", "gauge", "Workers a lane may occupy at once.");
+        for (RequestScheduler.Lane lane : lanes) {
+            sample(out, "gerber_scheduler_lane_max_threads", label("lane", name(lane)),
+                scheduler.getLaneStats(lane).getMaxConcurrent());
+        }
+        header(out, "gerber_scheduler_in_flight", "gauge", "Requests executing.");
+        for (RequestScheduler.Lane lane : lanes) {
+            sample(out, "gerber_scheduler_in_flight", label("lane", name(lane)), scheduler.getInFlight(lane));
+        }
+        header(out, "gerber_scheduler_queued", "gauge", "Requests waiting for a worker.");
+        for (RequestScheduler.Lane lane : lanes) {
+            sample(out, "gerber_scheduler_queued", label("lane", name(lane)), scheduler.getQueued(lane));
+        }
+        header(out, "gerber_requests_rejected_total", "counter", "Requests shed with 503 because the lane was full.");
+        for (RequestScheduler.Lane lane : lanes) {
+            sample(out, "gerber_requests_rejected_total", label("lane", name(lane)), scheduler.getRejectedCount(lane));
+        }
+        header(out, "gerber_scheduler_queue_wait_seconds", "histogram", "Time requests waited for a worker.");
+        for (RequestScheduler.Lane lane : lanes) {
+            histogram(out, "gerber_scheduler_queue_wait_seconds", label("lane", name(lane)),
+                scheduler.getLaneStats(lane).getQueueWait());
+        }
+    }
+
+    private static void writeJvm(StringBuilder out) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        header(out, "jvm_memory_bytes_used", "gauge", "Used bytes of a JVM memory area.");
+        sample(out, "jvm_memory_bytes_used", label("area", "heap"), heap.getUsed());
+        sample(out, "jvm_memory_bytes_used", label("area", "nonheap"), nonHeap.getUsed());
+        header(out, "jvm_memory_bytes_committed", "gauge", "Committed bytes of a JVM memory area.");
+        sample(out, "jvm_memory_bytes_committed", label("area", "heap"), heap.getCommitted());
+        sample(out, "jvm_memory_bytes_committed", label("area", "nonheap"), nonHeap.getCommitted());
+        header(out, "jvm_memory_bytes_max", "gauge", "Maximum bytes of a JVM memory area, -1 if undefined.");
+        sample(out, "jvm_memory_bytes_max", label("area", "heap"), heap.getMax());
+        sample(out, "jvm_memory_bytes_max", label("area", "nonheap"), nonHeap.getMax());
+
+        header(out, "jvm_gc_collection_seconds", "summary", "Time spent in a garbage collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String labels = label("gc", gc.getName());
+            sample(out, "jvm_gc_collection_seconds_count", labels, Math.max(0, gc.getCollectionCount()));
+            sample(out, "jvm_gc_collection_seconds_sum", labels, Math.max(0, gc.getCollectionTime()) / 1000.0);
+        }
+        header(out, "jvm_threads_current", "gauge", "Live JVM threads.");
+        sample(out, "jvm_threads_current", "", ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    // --- Exposition format ---
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        sample(out, name, "", value);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+
+    /** Cumulative {@code _bucket} series plus {@code _sum} and {@code _count}, in seconds. */
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram h) {
+        long[] bounds = LatencyHistogram.getBucketBoundsMillis();
+        long[] counts = h.getBucketCounts();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String le = i < bounds.length ? BigDecimal.valueOf(bounds[i], 3).stripTrailingZeros().toPlainString()
+                : "+Inf";
+            sample(out, name + "_bucket", prefix + label("le", le), cumulative);
+        }
+        sample(out, name + "_sum", labels, h.getSumMillis() / 1000.0);
+        // From the bucket snapshot, so _count always equals the +Inf bucket
+        sample(out, name + "_count", labels, cumulative);
+    }
+
+    private static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    // --- Byte counting ---
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final LongAdder bytes;
+
+        CountingInputStream(InputStream in, LongAdder bytes) {
+            super(in);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) bytes.increment();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) bytes.add(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytes.add(skipped);
+            return skipped;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final LongAdder bytes;
+
+        CountingOutputStream(OutputStream out, LongAdder bytes) {
+            super(out);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream would write byte by byte
+            out.write(b, off, len);
+            bytes.add(len);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.deltaproto.deltagerber.web;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An in-memory static response with a content-derived strong ETag and a gzip
+ * variant compressed once up front.
+ * <p>
+ * The gzip variant is only kept when it is meaningfully smaller — already
+ * compressed payloads such as ZIP files are always served as-is. Each
+ * representation gets its own ETag, as strong validators must differ per encoding.
+ */
+final class StaticResource {
+
+    private final String contentType;
+    private final byte[] data;
+    private final byte[] gzipped;
+    private final String etag;
+
+    StaticResource(String contentType, byte[] data) {
+        this.contentType = contentType;
+        this.data = data;
+        this.etag = "\"" + DocumentCache.contentHash(data, 0, data.length).substring(0, 32) + "\"";
+        byte[] gz = gzip(data);
+        this.gzipped = gz.length < data.length * 0.9 ? gz : null;
+    }
+
+    /** Short content fingerprint, e.g. for cache-busting query parameters. */
+    String fingerprint() {
+        return etag.substring(1, 17);
+    }
+
+    /**
+     * Send the resource (or a 304) with the given {@code Cache-Control} policy,
+     * choosing the gzip variant when the client accepts it.
+     */
+    void send(HttpExchange exchange, String cacheControl) throws IOException {
+        boolean gzip = gzipped != null && HttpCaching.acceptsGzip(exchange);
+        String tag = gzip ? etag.substring(0, etag.length() - 1) + "-gz\"" : etag;
+
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        if (gzipped != null) {
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        }
+        if (HttpCaching.notModified(exchange, tag)) {
+            HttpCaching.sendNotModified(exchange, tag);
+            return;
+        }
+
+        byte[] payload = gzip ? gzipped : data;
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("ETag", tag);
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, payload.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(payload);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
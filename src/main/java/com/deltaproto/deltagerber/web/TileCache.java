@@ -0,0 +1,204 @@
+package com.deltaproto.deltagerber.web;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Projects registered for tiling and the PNG tiles rendered from them.
+ * <p>
+ * A project is the layer list of a render request with every file replaced by
+ * a reference to its content hash, so holding it costs a few strings; the
+ * documents themselves stay in the {@link DocumentCache}. Projects are kept for
+ * the {@link #MAX_PROJECTS} most recently used ids. When one has been dropped,
+ * or its documents were evicted, the tile endpoint answers 404 and the client
+ * registers the project again.
+ * <p>
+ * Tiles are keyed by (project, view, z, x, y) and bounded by their total PNG
+ * size, evicting least-recently-used tiles first. Rendering runs outside the
+ * lock, so tiles render in parallel on the request workers; requests for a tile
+ * another thread is rendering wait for that result instead of rendering it again.
+ */
+final class TileCache {
+
+    /** Default capacity: 64 MB of PNG data, about 2000 typical tiles. */
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** Registered projects kept before the least recently used is dropped. */
+    static final int MAX_PROJECTS = 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, LayerBody> projects = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LayerBody> eldest) {
+            return size() > MAX_PROJECTS;
+        }
+    };
+    private final LinkedHashMap<Key, byte[]> tiles = new LinkedHashMap<>(256, 0.75f, true);
+    private final HashMap<Key, CompletableFuture<byte[]>> inFlight = new HashMap<>();
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    TileCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes total PNG size held before least-recently-used tiles are evicted
+     */
+    TileCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /** Register a project's layers (REF entries only) under its id. */
+    synchronized void register(String project, LayerBody refs) {
+        projects.put(project, refs);
+    }
+
+    /** The layers registered under {@code project}, or {@code null} if unknown. */
+    synchronized LayerBody project(String project) {
+        return projects.get(project);
+    }
+
+    /**
+     * Return the cached tile, rendering and storing it on a miss.
+     *
+     * @param render produces the PNG on a miss; its exceptions propagate and
+     *               nothing is cached
+     */
+    byte[] get(String project, String view, int z, int x, int y, Callable<byte[]> render) throws Exception {
+        Key key = new Key(project, view, z, x, y);
+        CompletableFuture<byte[]> pending;
+        synchronized (this) {
+            byte[] cached = tiles.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            pending = inFlight.get(key);
+            if (pending != null) {
+                hits++;
+            } else {
+                misses++;
+                inFlight.put(key, new CompletableFuture<>());
+            }
+        }
+        if (pending != null) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
+            }
+        }
+
+        byte[] png;
+        try {
+            png = render.call();
+        } catch (Exception | Error e) {
+            CompletableFuture<byte[]> failed;
+            synchronized (this) {
+                failed = inFlight.remove(key);
+            }
+            failed.completeExceptionally(e);
+            throw e;
+        }
+
+        CompletableFuture<byte[]> done;
+        synchronized (this) {
+            done = inFlight.remove(key);
+            if (png.length <= maxBytes) {
+                byte[] previous = tiles.put(key, png);
+                if (previous != null) {
+                    totalBytes -= previous.length;
+                }
+                totalBytes += png.length;
+                evictToCapacity();
+            }
+        }
+        done.complete(png);
+        return png;
+    }
+
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    synchronized long getMissCount() {
+        return misses;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /** Number of tiles currently cached. */
+    synchronized int size() {
+        return tiles.size();
+    }
+
+    /** Total size of all cached tiles in bytes. */
+    synchronized long getByteCount() {
+        return totalBytes;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private void evictToCapacity() {
+        Iterator<Map.Entry<Key, byte[]>> it = tiles.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TileCache[%d projects, %d tiles, %d/%d bytes, %d hits, %d misses]",
+            projects.size(), tiles.size(), totalBytes, maxBytes, hits, misses);
+    }
+
+    private static final class Key {
+        private final String project;
+        private final String view;
+        private final int z;
+        private final int x;
+        private final int y;
+
+        Key(String project, String view, int z, int x, int y) {
+            this.project = project;
+            this.view = view;
+            this.z = z;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return z == other.z && x == other.x && y == other.y
+                && project.equals(other.project) && view.equals(other.view);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(project, view, z, x, y);
+        }
+    }
+}
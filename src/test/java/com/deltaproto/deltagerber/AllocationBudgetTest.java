@@ -0,0 +1,164 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Allocation budgets for the parse and render hot paths.
+ * <p>
+ * Wall-clock tests do not notice a {@code String.format} or regex added to a
+ * per-coordinate path, but the allocation rate does. Each test measures the
+ * bytes allocated by the calling thread, after warm-up so the JIT has settled,
+ * and fails when a board goes over its budget per input byte (parsers) or per
+ * graphics object (renderers).
+ * <p>
+ * The budgets are the values measured when they were recorded plus about 30%
+ * headroom for JDK differences. When an optimization lowers allocation, lower
+ * the budget with it; raising one needs a reason in the commit message.
+ */
+public class AllocationBudgetTest {
+
+    private static final Path DEPR_DIR = Path.of("testdata/DEPR PR31 GBDR V04");
+    private static final Path ARDUINO_DIR = Path.of("testdata/arduino-uno");
+
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 3;
+
+    private static final Set<String> DRILL_EXTENSIONS = Set.of("txt", "drd", "drl");
+    private static final Set<String> GERBER_EXTENSIONS = Set.of(
+        "gtl", "gbl", "gts", "gbs", "gto", "gbo", "gtp", "gbp", "gko", "g1", "g2", "gm1",
+        "cmp", "sol", "stc", "sts", "plc");
+
+    // Bytes allocated per input byte when parsing every file of a board (recorded: DEPR 108, Arduino 96)
+    private static final Map<Path, Double> GERBER_PARSE_BUDGET = Map.of(DEPR_DIR, 140.0, ARDUINO_DIR, 125.0);
+    // (recorded: DEPR 119, Arduino 138)
+    private static final Map<Path, Double> EXCELLON_PARSE_BUDGET = Map.of(DEPR_DIR, 155.0, ARDUINO_DIR, 180.0);
+    // Bytes allocated per graphics object (drill hits included) when rendering a board
+    // (recorded: DEPR 4190, Arduino 560)
+    private static final Map<Path, Double> SVG_RENDER_BUDGET = Map.of(DEPR_DIR, 5450.0, ARDUINO_DIR, 750.0);
+    // (recorded: DEPR 4850, Arduino 940)
+    private static final Map<Path, Double> MULTI_LAYER_RENDER_BUDGET = Map.of(DEPR_DIR, 6300.0, ARDUINO_DIR, 1250.0);
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    static void checkAllocationCounting() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+            "Thread allocation counting not available");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation counting not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    @DisplayName("GerberParser stays within its allocation budget per input byte")
+    void testGerberParserBudget() throws IOException {
+        for (Path board : List.of(DEPR_DIR, ARDUINO_DIR)) {
+            List<String> files = read(board, GERBER_EXTENSIONS);
+            long inputBytes = files.stream().mapToLong(String::length).sum();
+            long allocated = allocatedBytes(() -> files.forEach(f -> new GerberParser().parse(f)));
+            assertWithinBudget("GerberParser", board, (double) allocated / inputBytes, "input byte",
+                GERBER_PARSE_BUDGET.get(board));
+        }
+    }
+
+    @Test
+    @DisplayName("ExcellonParser stays within its allocation budget per input byte")
+    void testExcellonParserBudget() throws IOException {
+        for (Path board : List.of(DEPR_DIR, ARDUINO_DIR)) {
+            List<String> files = read(board, DRILL_EXTENSIONS);
+            long inputBytes = files.stream().mapToLong(String::length).sum();
+            long allocated = allocatedBytes(() -> files.forEach(f -> new ExcellonParser().parse(f)));
+            assertWithinBudget("ExcellonParser", board, (double) allocated / inputBytes, "input byte",
+                EXCELLON_PARSE_BUDGET.get(board));
+        }
+    }
+
+    @Test
+    @DisplayName("SVGRenderer stays within its allocation budget per object")
+    void testSvgRendererBudget() throws IOException {
+        for (Path board : List.of(DEPR_DIR, ARDUINO_DIR)) {
+            List<GerberDocument> docs = read(board, GERBER_EXTENSIONS).stream()
+                .map(f -> new GerberParser().parse(f)).toList();
+            long objects = docs.stream().mapToLong(d -> d.getObjects().size()).sum();
+            long allocated = allocatedBytes(() -> docs.forEach(d -> new SVGRenderer().render(d)));
+            assertWithinBudget("SVGRenderer", board, (double) allocated / objects, "object",
+                SVG_RENDER_BUDGET.get(board));
+        }
+    }
+
+    @Test
+    @DisplayName("MultiLayerSVGRenderer stays within its allocation budget per object")
+    void testMultiLayerRendererBudget() throws IOException {
+        for (Path board : List.of(DEPR_DIR, ARDUINO_DIR)) {
+            List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+            long objects = 0;
+            int i = 0;
+            for (String f : read(board, GERBER_EXTENSIONS)) {
+                GerberDocument doc = new GerberParser().parse(f);
+                objects += doc.getObjects().size();
+                layers.add(new MultiLayerSVGRenderer.Layer("layer" + i++, doc));
+            }
+            for (String f : read(board, DRILL_EXTENSIONS)) {
+                DrillDocument doc = new ExcellonParser().parse(f);
+                objects += doc.getOperations().size();
+                layers.add(new MultiLayerSVGRenderer.Layer("layer" + i++, doc));
+            }
+            long allocated = allocatedBytes(() -> new MultiLayerSVGRenderer().render(layers));
+            assertWithinBudget("MultiLayerSVGRenderer", board, (double) allocated / objects, "object",
+                MULTI_LAYER_RENDER_BUDGET.get(board));
+        }
+    }
+
+    /** Fewest bytes allocated by the current thread over the measured runs, after warm-up. */
+    private static long allocatedBytes(Runnable action) {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            action.run();
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            action.run();
+            min = Math.min(min, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+        return min;
+    }
+
+    private static void assertWithinBudget(String component, Path board, double perUnit, String unit, double budget) {
+        System.out.printf("%s on %s: %.1f bytes per %s (budget %.1f)%n",
+            component, board.getFileName(), perUnit, unit, budget);
+        assertTrue(perUnit <= budget, String.format(Locale.ROOT,
+            "%s allocated %.1f bytes per %s on %s, over the budget of %.1f",
+            component, perUnit, unit, board.getFileName(), budget));
+    }
+
+    private static List<String> read(Path board, Set<String> extensions) throws IOException {
+        Assumptions.assumeTrue(Files.isDirectory(board), "Test data not found: " + board);
+        List<String> contents = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(board)) {
+            for (Path p : paths.sorted().toList()) {
+                String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+                String ext = name.substring(name.lastIndexOf('.') + 1);
+                if (extensions.contains(ext)) {
+                    contents.add(Files.readString(p));
+                }
+            }
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,101 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.cli.BatchConvertCommand;
+import com.deltaproto.deltagerber.cli.LayerClassifier;
+import com.deltaproto.deltagerber.cli.LayerClassifier.FileType;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the headless batch converter and the layer classification it shares
+ * with the web viewer.
+ */
+public class BatchConvertCommandTest {
+
+    private static final Path ARDUINO_TEST_DIR = Path.of("testdata/arduino-uno");
+
+    @Test
+    @DisplayName("Layers are classified by name and content like the viewer does")
+    void testLayerClassifier() {
+        assertEquals(FileType.DRILL, LayerClassifier.detectFileType("board.drd", ""));
+        assertEquals(FileType.DRILL, LayerClassifier.detectFileType("holes.TXT", "M48\nMETRIC\n"));
+        assertEquals(FileType.GERBER, LayerClassifier.detectFileType("board.GTL", ""));
+        assertEquals(FileType.GERBER, LayerClassifier.detectFileType("readme", "G04 comment*\n%FSLAX26Y26*%"));
+        assertEquals(FileType.UNKNOWN, LayerClassifier.detectFileType("notes.txt", "hello"));
+
+        assertEquals(LayerType.COPPER_TOP, LayerClassifier.detectLayerType("board.cmp", FileType.GERBER, null));
+        assertEquals(LayerType.SOLDERMASK_BOTTOM, LayerClassifier.detectLayerType("board.GBS", FileType.GERBER, null));
+        assertEquals(LayerType.SILKSCREEN_TOP, LayerClassifier.detectLayerType("proj-F_Silkscreen.gbr", FileType.GERBER, null));
+        assertEquals(LayerType.COPPER_BOTTOM, LayerClassifier.detectLayerType("proj-B.Cu.gbr", FileType.GERBER, null));
+        assertEquals(LayerType.DRILL, LayerClassifier.detectLayerType("board.drd", FileType.DRILL, null));
+        assertEquals(LayerType.OTHER, LayerClassifier.detectLayerType("board.G1", FileType.GERBER, null));
+
+        // Gerber X2 drill data: the FileFunction attribute wins over the name
+        assertEquals(LayerType.DRILL_NON_PLATED, LayerClassifier.detectLayerType("proj.gbr", FileType.GERBER,
+            "%TF.FileFunction,NonPlated,1,2,NPTH*%"));
+        assertEquals(LayerType.DRILL_PLATED, LayerClassifier.detectLayerType("proj-PTH-drl.gbr", FileType.GERBER, null));
+
+        // An outline-named file needs connected draws to count as the outline
+        assertEquals(LayerType.OUTLINE, LayerClassifier.detectLayerType("board.gko", FileType.GERBER,
+            "X0Y0D02*\nX100Y0D01*\nX100Y100D01*\n"));
+        assertEquals(LayerType.OTHER, LayerClassifier.detectLayerType("board.gko", FileType.GERBER,
+            "X0Y0D02*\nX1Y0D01*\nX100Y100D02*\nX101Y100D01*\n"));
+    }
+
+    @Test
+    @DisplayName("Boards convert in parallel, a broken board fails alone and a rerun resumes")
+    void testConvertAndResume(@TempDir Path temp) throws IOException {
+        Assumptions.assumeTrue(Files.exists(ARDUINO_TEST_DIR), "Arduino Uno test data not found");
+        Path input = temp.resolve("input");
+        Path board = input.resolve("arduino-uno");
+        Files.createDirectories(board);
+        try (Stream<Path> files = Files.list(ARDUINO_TEST_DIR)) {
+            for (Path f : files.toList()) {
+                Files.copy(f, board.resolve(f.getFileName()));
+            }
+        }
+        Files.writeString(input.resolve("broken.zip"), "not a zip");
+        Path output = temp.resolve("output");
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        BatchConvertCommand command = new BatchConvertCommand()
+            .setOutputDir(output)
+            .setThreads(2)
+            .setPngWidth(100)
+            .setConsole(new PrintStream(console, true));
+
+        BatchConvertCommand.Summary first = command.run(List.of(input));
+        assertEquals(1, first.converted);
+        assertEquals(1, first.failures.size());
+        assertTrue(first.failures.get(0).startsWith("broken:"), first.failures.toString());
+        for (String name : List.of("layers.svg", "top.svg", "bottom.svg", "top.png", "bottom.png")) {
+            assertTrue(Files.size(output.resolve("arduino-uno").resolve(name)) > 0, name);
+        }
+        assertTrue(Files.readString(output.resolve("arduino-uno/top.svg")).startsWith("<svg"));
+        assertTrue(console.toString().contains("boards/s"), console.toString());
+
+        // Finished boards are skipped on the next run
+        command.setOutputs(EnumSet.of(BatchConvertCommand.Output.SVG));
+        BatchConvertCommand.Summary second = command.run(List.of(input));
+        assertEquals(0, second.converted);
+        assertEquals(1, second.skipped);
+        assertEquals(1, second.failures.size());
+
+        // ...until their source changes
+        Path outline = board.resolve("arduino-uno.gko");
+        Files.setLastModifiedTime(outline, FileTime.fromMillis(Files.getLastModifiedTime(outline).toMillis() + 5000));
+        assertEquals(1, command.run(List.of(input)).converted);
+    }
+}
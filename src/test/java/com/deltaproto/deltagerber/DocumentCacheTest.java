@@ -0,0 +1,136 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.web.DocumentCache;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the content-hash keyed parse cache used by the viewer server.
+ */
+public class DocumentCacheTest {
+
+    private static final String GERBER =
+        "%FSLAX26Y26*%\n%MOMM*%\n%ADD10C,0.1*%\nD10*\nX0Y0D03*\nX1000000Y0D03*\nM02*\n";
+
+    private static String hash(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return DocumentCache.contentHash(bytes, 0, bytes.length);
+    }
+
+    @Test
+    @DisplayName("Same content returns the cached document without re-parsing")
+    void testHitReturnsSameInstance() {
+        DocumentCache cache = new DocumentCache(1024 * 1024);
+        AtomicInteger decodes = new AtomicInteger();
+
+        GerberDocument first = cache.parseGerber(hash(GERBER), () -> { decodes.incrementAndGet(); return GERBER; });
+        GerberDocument second = cache.parseGerber(hash(GERBER), () -> { decodes.incrementAndGet(); return GERBER; });
+
+        assertSame(first, second);
+        assertEquals(1, decodes.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertTrue(cache.getRetainedBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("Concurrent requests for the same content collapse into one parse")
+    void testSingleFlight() throws Exception {
+        DocumentCache cache = new DocumentCache(1024 * 1024);
+        AtomicInteger decodes = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<GerberDocument>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> cache.parseGerber(hash(GERBER), () -> {
+                    decodes.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return GERBER;
+                })));
+            }
+            // Give every thread time to reach the cache before the parse finishes
+            Thread.sleep(200);
+            release.countDown();
+
+            GerberDocument expected = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<GerberDocument> f : results) {
+                assertSame(expected, f.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, decodes.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Documents are evicted LRU once the heap budget is exceeded")
+    void testEvictionAgainstBudget() {
+        String other = GERBER.replace("X1000000Y0D03*\n", "X2000000Y0D03*\n");
+        DocumentCache cache = new DocumentCache(1);
+
+        cache.parseGerber(hash(GERBER), () -> GERBER);
+        cache.parseGerber(hash(other), () -> other);
+
+        assertTrue(cache.getEvictionCount() >= 1);
+        assertFalse(cache.contains("gerber", hash(GERBER)));
+        // Each document alone exceeds a 1-byte budget, so nothing stays resident
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getRetainedBytes());
+    }
+
+    @Test
+    @DisplayName("Parse failures are not cached")
+    void testFailureNotCached() {
+        DocumentCache cache = new DocumentCache(1024 * 1024);
+        assertThrows(IllegalStateException.class,
+            () -> cache.parseGerber(hash(GERBER), () -> { throw new IllegalStateException("boom"); }));
+        assertFalse(cache.contains("gerber", hash(GERBER)));
+
+        assertNotNull(cache.parseGerber(hash(GERBER), () -> GERBER));
+    }
+
+    @Test
+    @DisplayName("Gerber and drill parses of the same bytes are cached separately")
+    void testFileTypeIsPartOfKey() {
+        DocumentCache cache = new DocumentCache(1024 * 1024);
+        cache.parseGerber(hash(GERBER), () -> GERBER);
+        assertTrue(cache.contains("gerber", hash(GERBER)));
+        assertFalse(cache.contains("drill", hash(GERBER)));
+    }
+
+    @Test
+    @DisplayName("A lookup by hash alone counts one hit or one miss, whatever the file type")
+    void testLookupCountsOnce() {
+        String drill = "M48\nMETRIC\nT1C0.8\n%\nT1\nX1.0Y1.0\nM30\n";
+        DocumentCache cache = new DocumentCache(1024 * 1024);
+        cache.parseDrill(hash(drill), () -> drill);
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+
+        assertEquals("drill", cache.fileTypeOf(hash(drill)));
+        assertNull(cache.fileTypeOf(hash(GERBER)));
+        assertEquals(hits, cache.getHitCount());
+        assertEquals(misses, cache.getMissCount());
+
+        assertNotNull(cache.lookup(hash(drill)));
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(misses, cache.getMissCount());
+
+        assertNull(cache.lookup(hash(GERBER)));
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+}
@@ -0,0 +1,557 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.web.DocumentCache;
+import com.deltaproto.deltagerber.web.GerberViewerServer;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end tests of the viewer server's HTTP endpoints on an ephemeral port.
+ */
+public class GerberViewerServerTest {
+
+    private static final Path ARDUINO_TEST_DIR = Path.of("testdata/arduino-uno");
+
+    private static GerberViewerServer server;
+    private static HttpClient client;
+    private static String outline;
+    private static String copper;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        Assumptions.assumeTrue(Files.exists(ARDUINO_TEST_DIR), "Arduino Uno test data not found");
+        outline = Files.readString(ARDUINO_TEST_DIR.resolve("arduino-uno.gko"));
+        copper = Files.readString(ARDUINO_TEST_DIR.resolve("arduino-uno.cmp"));
+        server = new GerberViewerServer(0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (server != null) server.stop();
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    static String hash(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return DocumentCache.contentHash(bytes, 0, bytes.length);
+    }
+
+    static void fileEntry(ByteArrayOutputStream out, String name, String layerType, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        out.writeBytes(("FILE\t" + name + "\tgerber\t" + layerType + "\t" + bytes.length + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(bytes);
+        out.writeBytes("\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void refEntry(ByteArrayOutputStream out, String name, String layerType, String content) {
+        out.writeBytes(("REF\t" + name + "\t" + hash(content) + "\t" + layerType + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private HttpResponse<String> post(String path, byte[] body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("mode=tiles registers the project and its tiles are served as immutable PNGs")
+    void testTiles() throws Exception {
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        fileEntry(full, "arduino-uno.gko", "OUTLINE", outline);
+        fileEntry(full, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<String> index = post("/api/gerber/render?mode=tiles", full.toByteArray());
+        assertEquals(200, index.statusCode());
+        java.util.regex.Matcher m = java.util.regex.Pattern.compile("\"project\":\"([0-9a-f]{32})\"")
+            .matcher(index.body());
+        assertTrue(m.find(), index.body());
+        String project = m.group(1);
+        assertTrue(index.body().contains("\"layers\":{\"bounds\""), index.body());
+        assertTrue(index.body().contains("\"top\":{"), index.body());
+
+        // Registering the same layers by reference yields the same id
+        ByteArrayOutputStream refs = new ByteArrayOutputStream();
+        refEntry(refs, "arduino-uno.gko", "OUTLINE", outline);
+        refEntry(refs, "arduino-uno.cmp", "COPPER_TOP", copper);
+        assertTrue(post("/api/gerber/render?mode=tiles", refs.toByteArray()).body().contains(project));
+
+        for (String view : new String[] {"layers", "top"}) {
+            HttpResponse<byte[]> tile = client.send(
+                HttpRequest.newBuilder(uri("/api/gerber/tile/" + project + "/" + view + "/1/0/1.png")).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, tile.statusCode());
+            assertEquals("image/png", tile.headers().firstValue("Content-Type").orElse(""));
+            assertTrue(tile.headers().firstValue("Cache-Control").orElse("").contains("immutable"));
+            java.awt.image.BufferedImage image = javax.imageio.ImageIO.read(
+                new java.io.ByteArrayInputStream(tile.body()));
+            assertEquals(256, image.getWidth());
+            assertEquals(256, image.getHeight());
+
+            String etag = tile.headers().firstValue("ETag").orElseThrow();
+            HttpResponse<byte[]> revalidated = client.send(
+                HttpRequest.newBuilder(uri("/api/gerber/tile/" + project + "/" + view + "/1/0/1.png"))
+                    .header("If-None-Match", etag).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(304, revalidated.statusCode());
+        }
+
+        for (String path : new String[] {project + "/layers/1/2/0.png", project + "/layers/30/0/0.png",
+                project + "/front/0/0/0.png", "0".repeat(32) + "/layers/0/0/0.png"}) {
+            HttpResponse<String> missing = client.send(
+                HttpRequest.newBuilder(uri("/api/gerber/tile/" + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, missing.statusCode(), path);
+        }
+    }
+
+    @Test
+    @DisplayName("REF entries for unknown content are answered with 409 and the missing hashes")
+    void testUnknownRefReturns409() throws Exception {
+        String unknown = copper + "\n%TF.Comment,never uploaded*%\n";
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        refEntry(body, "arduino-uno.cmp", "COPPER_TOP", unknown);
+
+        HttpResponse<String> resp = post("/api/gerber/render", body.toByteArray());
+
+        assertEquals(409, resp.statusCode());
+        assertTrue(resp.body().contains(hash(unknown)), resp.body());
+    }
+
+    @Test
+    @DisplayName("REF entries resolve to previously uploaded files and render identically")
+    void testRefResolvesCachedContent() throws Exception {
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        fileEntry(full, "arduino-uno.gko", "OUTLINE", outline);
+        fileEntry(full, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<String> first = post("/api/gerber/render", full.toByteArray());
+        assertEquals(200, first.statusCode());
+
+        ByteArrayOutputStream refs = new ByteArrayOutputStream();
+        refEntry(refs, "arduino-uno.gko", "OUTLINE", outline);
+        refEntry(refs, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<String> second = post("/api/gerber/render", refs.toByteArray());
+
+        assertEquals(200, second.statusCode());
+        assertTrue(refs.size() < 400, "REF request should be tiny: " + refs.size());
+        assertEquals(first.body(), second.body());
+    }
+
+    @Test
+    @DisplayName("mode=layers returns content-derived fragment IDs that can be fetched individually")
+    void testLayerFragments() throws Exception {
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        fileEntry(full, "arduino-uno.gko", "OUTLINE", outline);
+        fileEntry(full, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<String> index = post("/api/gerber/render?mode=layers", full.toByteArray());
+
+        assertEquals(200, index.statusCode());
+        String fragmentId = "gerber." + hash(copper) + ".3";
+        assertTrue(index.body().contains("\"fragment\":\"" + fragmentId + "\""), index.body());
+        assertTrue(index.body().contains("\"viewBox\""));
+        assertFalse(index.body().contains("<svg"), "layer index must not inline SVG");
+
+        HttpResponse<String> fragment = client.send(
+            HttpRequest.newBuilder(uri("/api/gerber/fragment/" + fragmentId)).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, fragment.statusCode());
+        assertTrue(fragment.headers().firstValue("Cache-Control").orElse("").contains("immutable"));
+        String prefix = "f" + hash(copper).substring(0, 16) + "_ap";
+        assertTrue(fragment.body().contains("\"defs\":"));
+        assertTrue(fragment.body().contains(prefix), "aperture IDs should use the content prefix");
+
+        HttpResponse<String> missing = client.send(
+            HttpRequest.newBuilder(uri("/api/gerber/fragment/gerber." + "0".repeat(64) + ".3")).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, missing.statusCode());
+    }
+
+    @Test
+    @DisplayName("Render responses carry a content-derived ETag and revalidate with 304")
+    void testRenderEtagRevalidation() throws Exception {
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        fileEntry(full, "arduino-uno.gko", "OUTLINE", outline);
+        fileEntry(full, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<String> first = post("/api/gerber/render", full.toByteArray());
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        // A REF body for the same content must produce the same validator
+        ByteArrayOutputStream refs = new ByteArrayOutputStream();
+        refEntry(refs, "arduino-uno.gko", "OUTLINE", outline);
+        refEntry(refs, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<String> revalidated = client.send(HttpRequest.newBuilder(uri("/api/gerber/render"))
+                .header("If-None-Match", "\"stale\", " + etag)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(refs.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, revalidated.statusCode());
+        assertEquals("", revalidated.body());
+
+        // Different options are a different representation
+        HttpResponse<String> layers = client.send(HttpRequest.newBuilder(uri("/api/gerber/render?mode=layers"))
+                .header("If-None-Match", etag)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(full.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, layers.statusCode());
+        assertNotEquals(etag, layers.headers().firstValue("ETag").orElseThrow());
+
+        // The same bytes posted as a drill file render differently
+        ByteArrayOutputStream asDrill = new ByteArrayOutputStream();
+        fileEntry(asDrill, "arduino-uno.gko", "OUTLINE", outline);
+        byte[] copperBytes = copper.getBytes(StandardCharsets.UTF_8);
+        asDrill.writeBytes(("FILE\tarduino-uno.cmp\tdrill\tCOPPER_TOP\t" + copperBytes.length + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+        asDrill.writeBytes(copperBytes);
+        HttpResponse<String> drill = client.send(HttpRequest.newBuilder(uri("/api/gerber/render"))
+                .header("If-None-Match", etag)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(asDrill.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, drill.statusCode());
+        assertNotEquals(etag, drill.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Conditional requests are answered with 304 before any file is parsed")
+    void testNotModifiedSkipsParsing() throws Exception {
+        // A 1-byte parse cache keeps nothing, so every parse would show up as a miss
+        GerberViewerServer cold = new GerberViewerServer(0, 1);
+        cold.start();
+        try {
+            ByteArrayOutputStream full = new ByteArrayOutputStream();
+            fileEntry(full, "arduino-uno.gko", "OUTLINE", outline);
+            fileEntry(full, "arduino-uno.cmp", "COPPER_TOP", copper);
+            for (String path : new String[] {"/api/gerber/render", "/api/gerber/thumbnail?width=120"}) {
+                URI target = URI.create("http://localhost:" + cold.getPort() + path);
+                HttpResponse<byte[]> first = client.send(HttpRequest.newBuilder(target)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(full.toByteArray())).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+                assertEquals(200, first.statusCode());
+                String etag = first.headers().firstValue("ETag").orElseThrow();
+
+                double misses = documentMisses(cold);
+                HttpResponse<byte[]> revalidated = client.send(HttpRequest.newBuilder(target)
+                        .header("If-None-Match", etag)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(full.toByteArray())).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+                assertEquals(304, revalidated.statusCode(), path);
+                assertEquals(misses, documentMisses(cold), path + " must not parse");
+            }
+        } finally {
+            cold.stop();
+        }
+    }
+
+    private static double documentMisses(GerberViewerServer target) throws Exception {
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:" + target.getPort() + "/metrics")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        return metric(resp.body(), "gerber_cache_misses_total{cache=\"document\"}");
+    }
+
+    @Test
+    @DisplayName("Static page is served gzipped with a validator, example ZIP is fingerprinted and immutable")
+    void testStaticResourceCaching() throws Exception {
+        HttpResponse<byte[]> page = client.send(HttpRequest.newBuilder(uri("/"))
+                .header("Accept-Encoding", "gzip").GET().build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, page.statusCode());
+        assertEquals("gzip", page.headers().firstValue("Content-Encoding").orElse(""));
+        assertEquals("no-cache", page.headers().firstValue("Cache-Control").orElse(""));
+        String etag = page.headers().firstValue("ETag").orElseThrow();
+        String html;
+        try (var in = new java.util.zip.GZIPInputStream(new java.io.ByteArrayInputStream(page.body()))) {
+            html = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        HttpResponse<String> revalidated = client.send(HttpRequest.newBuilder(uri("/"))
+                .header("Accept-Encoding", "gzip").header("If-None-Match", etag).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, revalidated.statusCode());
+
+        java.util.regex.Matcher m = java.util.regex.Pattern
+            .compile("/api/gerber/arduino-uno-example\\.zip\\?v=([0-9a-f]{16})").matcher(html);
+        assertTrue(m.find(), "page should link the example ZIP with a content fingerprint");
+        HttpResponse<byte[]> zip = client.send(HttpRequest.newBuilder(uri(m.group())).GET().build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, zip.statusCode());
+        assertTrue(zip.headers().firstValue("Cache-Control").orElse("").contains("immutable"));
+        assertFalse(zip.headers().firstValue("Content-Encoding").isPresent(), "ZIP must not be re-compressed");
+
+        HttpResponse<byte[]> unversioned = client.send(
+            HttpRequest.newBuilder(uri("/api/gerber/arduino-uno-example.zip")).GET().build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("no-cache", unversioned.headers().firstValue("Cache-Control").orElse(""));
+    }
+
+    @Test
+    @DisplayName("Requests beyond the worker pool and queue are shed with 503 and Retry-After")
+    void testOverloadIsShed() throws Exception {
+        GerberViewerServer small = new GerberViewerServer(0).setThreads(1).setQueueDepth(0);
+        small.start();
+        // Occupy the only worker with a request whose body doesn't finish arriving
+        try (Socket slow = new Socket("localhost", small.getPort())) {
+            URI base = URI.create("http://localhost:" + small.getPort());
+            OutputStream out = slow.getOutputStream();
+            out.write(("POST /api/gerber/render HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1000\r\n\r\nFILE")
+                .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (small.getScheduler().getInFlight() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, small.getScheduler().getInFlight());
+
+            HttpResponse<String> shed = client.send(HttpRequest.newBuilder(base.resolve("/api/gerber/render"))
+                    .POST(HttpRequest.BodyPublishers.ofString("")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals(503, shed.statusCode());
+            assertTrue(shed.headers().firstValue("Retry-After").isPresent());
+
+            // A shed upload is drained, so the connection carries the next request
+            try (Socket keepAlive = new Socket("localhost", small.getPort())) {
+                OutputStream ka = keepAlive.getOutputStream();
+                int length = 200_000;
+                ka.write(("POST /api/gerber/render HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + length
+                    + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                ka.write(new byte[length]);
+                ka.write("GET /api/status HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                ka.flush();
+                var in = new java.io.DataInputStream(keepAlive.getInputStream());
+                assertTrue(readLine(in).startsWith("HTTP/1.1 503"));
+                int contentLength = 0;
+                for (String header = readLine(in).trim(); !header.isEmpty(); header = readLine(in).trim()) {
+                    if (header.toLowerCase(java.util.Locale.ROOT).startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(header.substring(15).trim());
+                    }
+                }
+                in.readFully(new byte[contentLength]);
+                assertTrue(readLine(in).startsWith("HTTP/1.1 200"));
+            }
+
+            HttpResponse<String> status = client.send(HttpRequest.newBuilder(base.resolve("/api/status")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, status.statusCode());
+            assertTrue(status.body().contains("\"inFlight\":1"), status.body());
+            assertTrue(status.body().contains("\"rejected\":"), status.body());
+            assertTrue(small.getScheduler().getRejectedCount() >= 1);
+        } finally {
+            small.stop();
+        }
+    }
+    @Test
+    @DisplayName("Shed uploads from slow clients don't hold up the intake threads")
+    void testSlowShedUploadsDontBlockIntake() throws Exception {
+        GerberViewerServer small = new GerberViewerServer(0).setThreads(1).setQueueDepth(0);
+        small.start();
+        List<Socket> slow = new ArrayList<>();
+        try {
+            // One upload occupies the worker, the rest are shed but never finish sending
+            for (int i = 0; i < 4; i++) {
+                Socket socket = new Socket("localhost", small.getPort());
+                slow.add(socket);
+                socket.getOutputStream().write(("POST /api/gerber/render HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: 1000\r\n\r\nFILE").getBytes(StandardCharsets.US_ASCII));
+                socket.getOutputStream().flush();
+                if (i == 0) {
+                    long deadline = System.currentTimeMillis() + 5000;
+                    while (small.getScheduler().getInFlight() == 0 && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(10);
+                    }
+                }
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (small.getScheduler().getRejectedCount() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, small.getScheduler().getRejectedCount());
+
+            HttpResponse<String> status = client.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + small.getPort() + "/api/status"))
+                    .timeout(Duration.ofSeconds(2)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, status.statusCode());
+        } finally {
+            for (Socket socket : slow) {
+                socket.close();
+            }
+            small.stop();
+        }
+    }
+
+
+    @Test
+    @DisplayName("Render responses are streamed gzip-encoded when the client accepts gzip")
+    void testGzipRenderResponse() throws Exception {
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        fileEntry(full, "arduino-uno.gko", "OUTLINE", outline);
+        fileEntry(full, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<String> plain = post("/api/gerber/render", full.toByteArray());
+        HttpResponse<byte[]> gzipped = client.send(HttpRequest.newBuilder(uri("/api/gerber/render"))
+                .header("Accept-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(full.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, gzipped.statusCode());
+        assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(""));
+        String decoded;
+        try (var in = new java.util.zip.GZIPInputStream(new java.io.ByteArrayInputStream(gzipped.body()))) {
+            decoded = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals(plain.body(), decoded);
+        assertTrue(decoded.startsWith("{\"layers\":[") && decoded.contains("\"svg\":\"<svg"), decoded.substring(0, 200));
+        assertTrue(gzipped.body().length * 4 < decoded.length(),
+            "SVG JSON should compress well: " + gzipped.body().length + " of " + decoded.length());
+        assertNotEquals(plain.headers().firstValue("ETag").orElseThrow(),
+            gzipped.headers().firstValue("ETag").orElseThrow(), "each encoding needs its own strong ETag");
+    }
+
+    @Test
+    @DisplayName("Gzip-encoded uploads are decompressed while streaming and render identically")
+    void testGzipUpload() throws Exception {
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        fileEntry(full, "arduino-uno.gko", "OUTLINE", outline);
+        fileEntry(full, "arduino-uno.cmp", "COPPER_TOP", copper);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (var gz = new java.util.zip.GZIPOutputStream(compressed)) {
+            full.writeTo(gz);
+        }
+
+        HttpResponse<String> plain = post("/api/gerber/render", full.toByteArray());
+        HttpResponse<String> gzipped = client.send(HttpRequest.newBuilder(uri("/api/gerber/render"))
+                .header("Content-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(compressed.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, gzipped.statusCode());
+        assertEquals(plain.body(), gzipped.body());
+        assertEquals(plain.headers().firstValue("ETag"), gzipped.headers().firstValue("ETag"));
+
+        HttpResponse<String> unsupported = client.send(HttpRequest.newBuilder(uri("/api/gerber/thumbnail"))
+                .header("Content-Encoding", "br")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(full.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(415, unsupported.statusCode());
+    }
+
+    @Test
+    @DisplayName("Batch thumbnails stream one record per project and isolate failures")
+    void testBatchThumbnails() throws Exception {
+        ByteArrayOutputStream board = new ByteArrayOutputStream();
+        fileEntry(board, "arduino-uno.gko", "OUTLINE", outline);
+        fileEntry(board, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<byte[]> single = client.send(HttpRequest.newBuilder(uri("/api/gerber/thumbnail?width=120"))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(board.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, single.statusCode());
+
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        batch.writeBytes("PROJECT\tboard\n".getBytes(StandardCharsets.UTF_8));
+        board.writeTo(batch);
+        batch.writeBytes("PROJECT\tunknown\n".getBytes(StandardCharsets.UTF_8));
+        refEntry(batch, "x.gtl", "COPPER_TOP", copper + "\n%TF.Comment,not uploaded*%\n");
+        batch.writeBytes("PROJECT\tno-outline\n".getBytes(StandardCharsets.UTF_8));
+        fileEntry(batch, "arduino-uno.cmp", "COPPER_TOP", copper);
+        HttpResponse<byte[]> resp = client.send(HttpRequest.newBuilder(uri("/api/gerber/thumbnails?width=120"))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(batch.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, resp.statusCode());
+
+        Map<String, Integer> statuses = new HashMap<>();
+        Map<String, byte[]> bodies = new HashMap<>();
+        var in = new java.io.DataInputStream(new java.io.ByteArrayInputStream(resp.body()));
+        String done = null;
+        while (done == null) {
+            String header = readLine(in);
+            if (header.startsWith("DONE\t")) {
+                done = header;
+                break;
+            }
+            String[] parts = header.split("\t");
+            assertEquals("RESULT", parts[0], header);
+            byte[] body = new byte[Integer.parseInt(parts[4])];
+            in.readFully(body);
+            assertEquals('\n', in.read());
+            statuses.put(parts[1], Integer.parseInt(parts[2]));
+            bodies.put(parts[1], body);
+        }
+        assertEquals("DONE\t3", done);
+        assertEquals(Map.of("board", 200, "unknown", 409, "no-outline", 422), statuses);
+        assertArrayEquals(single.body(), bodies.get("board"));
+
+        HttpResponse<String> malformed = post("/api/gerber/thumbnails", board.toByteArray());
+        assertEquals(400, malformed.statusCode());
+    }
+
+    @Test
+    @DisplayName("/metrics exports request, stage, cache and JVM metrics in Prometheus text format")
+    void testMetrics() throws Exception {
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        fileEntry(full, "arduino-uno.gko", "OUTLINE", outline + "\n%TF.Comment,metrics*%\n");
+        fileEntry(full, "arduino-uno.cmp", "COPPER_TOP", copper + "\n%TF.Comment,metrics*%\n");
+        assertEquals(200, post("/api/gerber/render", full.toByteArray()).statusCode());
+        assertEquals(200, client.send(HttpRequest.newBuilder(uri("/api/gerber/thumbnail?width=120"))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(full.toByteArray())).build(),
+            HttpResponse.BodyHandlers.ofByteArray()).statusCode());
+
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder(uri("/metrics")).build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        String metrics = resp.body();
+        for (String stage : new String[] {"lex", "parse", "svg", "rasterize", "json"}) {
+            assertTrue(metric(metrics, "gerber_stage_duration_seconds_count{stage=\"" + stage + "\"}") > 0, stage);
+        }
+        assertTrue(metric(metrics, "gerber_http_request_duration_seconds_count{endpoint=\"render\"}") > 0);
+        assertEquals(metric(metrics, "gerber_http_request_duration_seconds_count{endpoint=\"render\"}"),
+            metric(metrics, "gerber_http_request_duration_seconds_bucket{endpoint=\"render\",le=\"+Inf\"}"));
+        assertTrue(metrics.contains("gerber_stage_duration_seconds_bucket{stage=\"lex\",le=\"0.001\"} "));
+        assertTrue(metric(metrics, "gerber_http_request_bytes_total") >= full.size());
+        assertTrue(metric(metrics, "gerber_http_response_bytes_total") > 0);
+        assertTrue(metric(metrics, "gerber_parsed_objects_total{format=\"gerber\"}") > 0);
+        assertTrue(metric(metrics, "gerber_cache_misses_total{cache=\"document\"}") >= 2);
+        assertTrue(metrics.contains("gerber_requests_rejected_total{lane=\"thumbnail\"} "));
+        assertTrue(metric(metrics, "jvm_memory_bytes_used{area=\"heap\"}") > 0);
+        assertTrue(metrics.contains("# TYPE jvm_gc_collection_seconds summary"));
+    }
+
+    /** Value of the sample with exactly this name and label set. */
+    private static double metric(String exposition, String series) {
+        for (String line : exposition.split("\n")) {
+            if (line.startsWith(series + " ")) {
+                return Double.parseDouble(line.substring(series.length() + 1));
+            }
+        }
+        fail("No sample " + series);
+        return 0;
+    }
+
+    private static String readLine(java.io.DataInputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') sb.append((char) b);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,239 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillOperation;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.raster.Java2DRenderer;
+import com.deltaproto.deltagerber.renderer.raster.TilePyramid;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer.Layer;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer.Side;
+import org.junit.jupiter.api.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the Java2D thumbnail backend against Batik's rendering of the realistic SVG.
+ */
+public class Java2DRendererTest {
+
+    private static final Path ARDUINO_TEST_DIR = Path.of("testdata/arduino-uno");
+    private static final Path DEPR_TEST_DIR = Path.of("testdata/DEPR PR31 GBDR V04");
+    private static final Path OUTPUT_DIR = Path.of("target/java2d-render-validation");
+    private static final String DEPR_PREFIX = "uP-H Main PCBA Assy V04";
+
+    /** Per-channel difference above which two pixels count as differing. */
+    private static final int CHANNEL_TOLERANCE = 64;
+    /** Share of pixels allowed to differ from every Batik pixel within one pixel of them. */
+    private static final double MAX_DIFFERING_FRACTION = 0.005;
+
+    private final GerberParser gerberParser = new GerberParser();
+    private final ExcellonParser drillParser = new ExcellonParser();
+
+    @BeforeAll
+    static void setup() throws IOException {
+        Files.createDirectories(OUTPUT_DIR);
+    }
+
+    @Test
+    @DisplayName("Arduino Uno thumbnails match Batik on both sides")
+    void testArduinoMatchesBatik() throws IOException {
+        Assumptions.assumeTrue(Files.exists(ARDUINO_TEST_DIR), "Arduino Uno test data not found");
+        List<Layer> layers = new ArrayList<>();
+        layers.add(gerber(ARDUINO_TEST_DIR.resolve("arduino-uno.gko"), LayerType.OUTLINE));
+        layers.add(gerber(ARDUINO_TEST_DIR.resolve("arduino-uno.cmp"), LayerType.COPPER_TOP));
+        layers.add(gerber(ARDUINO_TEST_DIR.resolve("arduino-uno.stc"), LayerType.SOLDERMASK_TOP));
+        layers.add(gerber(ARDUINO_TEST_DIR.resolve("arduino-uno.plc"), LayerType.SILKSCREEN_TOP));
+        layers.add(gerber(ARDUINO_TEST_DIR.resolve("arduino-uno.sol"), LayerType.COPPER_BOTTOM));
+        layers.add(gerber(ARDUINO_TEST_DIR.resolve("arduino-uno.sts"), LayerType.SOLDERMASK_BOTTOM));
+        layers.add(drill(ARDUINO_TEST_DIR.resolve("arduino-uno.drd")));
+
+        assertMatchesBatik("arduino-uno", layers, Side.TOP);
+        assertMatchesBatik("arduino-uno", layers, Side.BOTTOM);
+    }
+
+    @Test
+    @DisplayName("DEPR thumbnails with macros and slots match Batik on both sides")
+    void testDeprMatchesBatik() throws IOException {
+        Assumptions.assumeTrue(Files.exists(DEPR_TEST_DIR), "DEPR test data not found");
+        List<Layer> layers = new ArrayList<>();
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GKO"), LayerType.OUTLINE));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GTL"), LayerType.COPPER_TOP));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GTS"), LayerType.SOLDERMASK_TOP));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GTO"), LayerType.SILKSCREEN_TOP));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GBL"), LayerType.COPPER_BOTTOM));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GBS"), LayerType.SOLDERMASK_BOTTOM));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GBO"), LayerType.SILKSCREEN_BOTTOM));
+        layers.add(drill(DEPR_TEST_DIR.resolve(DEPR_PREFIX + "-RoundHoles.TXT")));
+        layers.add(drill(DEPR_TEST_DIR.resolve(DEPR_PREFIX + "-SlotHoles.TXT")));
+
+        assertMatchesBatik("depr", layers, Side.TOP);
+        assertMatchesBatik("depr", layers, Side.BOTTOM);
+    }
+
+    @Test
+    @DisplayName("Drill holes are transparent in the thumbnail")
+    void testDrillHolesTransparent() throws IOException {
+        Assumptions.assumeTrue(Files.exists(ARDUINO_TEST_DIR), "Arduino Uno test data not found");
+        Layer outline = gerber(ARDUINO_TEST_DIR.resolve("arduino-uno.gko"), LayerType.OUTLINE);
+        Layer drill = drill(ARDUINO_TEST_DIR.resolve("arduino-uno.drd"));
+        List<Layer> layers = List.of(outline,
+            gerber(ARDUINO_TEST_DIR.resolve("arduino-uno.cmp"), LayerType.COPPER_TOP), drill);
+
+        // Unmirrored top view: pixel = (x - minX) * scale, (maxY - y) * scale
+        int width = 800;
+        BufferedImage image = new Java2DRenderer().renderRealisticSide(layers, Side.TOP, width, 0, false);
+        assertNotNull(image);
+        double margin = MultiLayerSVGRenderer.computeThumbnailMargin(layers);
+        double minX = outline.getBoundingBox().getMinX() - margin;
+        double maxY = outline.getBoundingBox().getMaxY() + margin;
+        double scale = width / (outline.getBoundingBox().getWidth() + 2 * margin);
+
+        DrillHit largest = null;
+        for (DrillOperation op : drill.getDrillDoc().getOperations()) {
+            if (op instanceof DrillHit hit
+                && (largest == null || hit.getTool().getDiameter() > largest.getTool().getDiameter())) {
+                largest = hit;
+            }
+        }
+        assertNotNull(largest);
+        int px = (int) ((largest.getX() - minX) * scale);
+        int py = (int) ((maxY - largest.getY()) * scale);
+        assertEquals(0, image.getRGB(px, py) >>> 24, "Drill hole center should be transparent");
+
+        // The board itself is opaque
+        int boardX = (int) ((outline.getBoundingBox().getMinX() + outline.getBoundingBox().getWidth() / 2 - minX) * scale);
+        int boardY = (int) ((maxY - outline.getBoundingBox().getMinY() - 1) * scale);
+        assertEquals(255, image.getRGB(boardX, boardY) >>> 24, "Board should be opaque");
+    }
+
+    @Test
+    @DisplayName("Tiles, drawn with culling, match the same region of one render of the whole view")
+    void testTilesMatchWholeView() throws IOException {
+        Assumptions.assumeTrue(Files.exists(DEPR_TEST_DIR), "DEPR test data not found");
+        List<Layer> layers = new ArrayList<>();
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GKO"), LayerType.OUTLINE).setColor("#ffff00"));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GTL"), LayerType.COPPER_TOP).setColor("#e94560"));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GTS"), LayerType.SOLDERMASK_TOP));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GBL"), LayerType.COPPER_BOTTOM));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GBS"), LayerType.SOLDERMASK_BOTTOM));
+        layers.add(gerber(DEPR_TEST_DIR.resolve(DEPR_PREFIX + ".GBO"), LayerType.SILKSCREEN_BOTTOM));
+        layers.add(drill(DEPR_TEST_DIR.resolve(DEPR_PREFIX + "-SlotHoles.TXT")).setColor("#00ffff"));
+
+        Java2DRenderer renderer = new Java2DRenderer();
+        for (TilePyramid pyramid : List.of(TilePyramid.layers(layers),
+                TilePyramid.realistic(layers, Side.TOP, true), TilePyramid.realistic(layers, Side.BOTTOM, true))) {
+            assertNotNull(pyramid);
+            assertTrue(pyramid.getMaxZoom() >= 2);
+            int z = 2;
+            int tiles = 1 << z;
+            int size = pyramid.getTileSize();
+            // Level 0 of a pyramid with 4x the tile size is the same picture as level 2
+            BufferedImage whole = renderer.renderTile(layers, pyramid.withTileSize(size * tiles), 0, 0, 0);
+            long painted = 0;
+            for (int ty = 0; ty < tiles; ty++) {
+                for (int tx = 0; tx < tiles; tx++) {
+                    BufferedImage tile = renderer.renderTile(layers, pyramid, z, tx, ty);
+                    assertEquals(size, tile.getWidth());
+                    long differing = 0;
+                    for (int y = 0; y < size; y++) {
+                        for (int x = 0; x < size; x++) {
+                            int argb = tile.getRGB(x, y);
+                            if (argb >>> 24 != 0) painted++;
+                            if (maxChannelDifference(whole.getRGB(tx * size + x, ty * size + y), argb) > 8) {
+                                differing++;
+                            }
+                        }
+                    }
+                    assertTrue(differing <= size * size / 1000, String.format(
+                        "%s tile %d/%d/%d: %d pixels differ", pyramid.getSide(), z, tx, ty, differing));
+                }
+            }
+            assertTrue(painted > tiles * tiles * size * size / 10, "Tiles show the board");
+        }
+        assertFalse(TilePyramid.layers(layers).contains(2, 4, 0));
+    }
+
+    private void assertMatchesBatik(String name, List<Layer> layers, Side side) throws IOException {
+        int width = 600;
+        long start = System.nanoTime();
+        byte[] batik = new MultiLayerSVGRenderer().renderRealisticSidePng(layers, side, width);
+        long batikNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        byte[] java2d = new Java2DRenderer().renderRealisticSidePng(layers, side, width);
+        long java2dNanos = System.nanoTime() - start;
+        assertNotNull(batik);
+        assertNotNull(java2d);
+
+        String file = name + "-" + side.name().toLowerCase();
+        Files.write(OUTPUT_DIR.resolve(file + "-batik.png"), batik);
+        Files.write(OUTPUT_DIR.resolve(file + "-java2d.png"), java2d);
+
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(batik));
+        BufferedImage actual = ImageIO.read(new ByteArrayInputStream(java2d));
+        assertEquals(expected.getWidth(), actual.getWidth(), "width");
+        assertEquals(expected.getHeight(), actual.getHeight(), "height");
+
+        // Antialiased edges may land a pixel apart between the two rasterizers
+        long differing = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (!matchesNear(expected, x, y, actual.getRGB(x, y))) {
+                    differing++;
+                }
+            }
+        }
+        double fraction = (double) differing / ((long) expected.getWidth() * expected.getHeight());
+        System.out.printf("%s %s: %.2f%% pixels differ, batik %d ms, java2d %d ms%n",
+            name, side, fraction * 100, batikNanos / 1_000_000, java2dNanos / 1_000_000);
+        assertTrue(fraction <= MAX_DIFFERING_FRACTION,
+            String.format("%s %s: %.2f%% of pixels differ from Batik", name, side, fraction * 100));
+    }
+
+    /** Whether any pixel of {@code image} within one pixel of (x, y) is close to {@code argb}. */
+    private static boolean matchesNear(BufferedImage image, int x, int y, int argb) {
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(image.getHeight() - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(image.getWidth() - 1, x + 1); nx++) {
+                if (maxChannelDifference(image.getRGB(nx, ny), argb) <= CHANNEL_TOLERANCE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Largest difference over the alpha and the alpha-weighted color channels. */
+    private static int maxChannelDifference(int a, int b) {
+        int alphaA = a >>> 24;
+        int alphaB = b >>> 24;
+        int max = Math.abs(alphaA - alphaB);
+        for (int shift = 0; shift < 24; shift += 8) {
+            int ca = ((a >> shift) & 0xff) * alphaA / 255;
+            int cb = ((b >> shift) & 0xff) * alphaB / 255;
+            max = Math.max(max, Math.abs(ca - cb));
+        }
+        return max;
+    }
+
+    private Layer gerber(Path file, LayerType type) throws IOException {
+        return new Layer(file.getFileName().toString(), gerberParser.parse(Files.readString(file)))
+            .setLayerType(type);
+    }
+
+    private Layer drill(Path file) throws IOException {
+        DrillDocument doc = drillParser.parse(Files.readString(file));
+        return new Layer(file.getFileName().toString(), doc).setLayerType(LayerType.DRILL);
+    }
+}
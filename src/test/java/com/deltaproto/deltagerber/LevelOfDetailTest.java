@@ -0,0 +1,141 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.gerber.BoundingBox;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.CircleAperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.LevelOfDetail;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the level-of-detail decimation used by overview renders.
+ */
+public class LevelOfDetailTest {
+
+    private static final CircleAperture PAD = new CircleAperture(10, 2.0);
+    private static final CircleAperture DOT = new CircleAperture(11, 0.05);
+    private static final CircleAperture PEN = new CircleAperture(12, 0.1);
+
+    @Test
+    @DisplayName("Sub-pixel dark objects merge per cell, sub-pixel clear ones are dropped")
+    void testSubPixelObjects() {
+        List<GraphicsObject> objects = new ArrayList<>();
+        Flash pad = new Flash(0, 0, PAD);
+        objects.add(pad);
+        Flash first = new Flash(5.1, 5.1, DOT);
+        objects.add(first);
+        objects.add(new Flash(5.2, 5.2, DOT));       // same 1 mm cell as the first
+        Flash neighbour = new Flash(6.5, 5.1, DOT);  // next cell
+        objects.add(neighbour);
+        Flash clearDot = new Flash(0, 0, DOT);
+        clearDot.setPolarity(Polarity.CLEAR);
+        objects.add(clearDot);
+
+        List<GraphicsObject> kept = LevelOfDetail.forPixelSize(1.0).apply(objects, null);
+        assertEquals(List.of(pad, first, neighbour), kept);
+    }
+
+    @Test
+    @DisplayName("A clear object restarts merging, so dark objects after it are drawn again")
+    void testClearRestartsMerging() {
+        Flash before = new Flash(5.1, 5.1, DOT);
+        Flash clearPad = new Flash(5, 5, PAD);
+        clearPad.setPolarity(Polarity.CLEAR);
+        Flash after = new Flash(5.2, 5.2, DOT);
+
+        List<GraphicsObject> objects = List.of(before, clearPad, after);
+        assertSame(objects, LevelOfDetail.forPixelSize(1.0).apply(objects, null),
+            "Nothing is dropped, so the list is returned as it is");
+    }
+
+    @Test
+    @DisplayName("A run of small strokes becomes one stroke through its bounds")
+    void testTextRunCollapsed() {
+        // Four letters of 0.8 x 1 mm strokes drawn with a 0.1 mm pen
+        List<GraphicsObject> objects = new ArrayList<>();
+        BoundingBox text = new BoundingBox();
+        for (int letter = 0; letter < 4; letter++) {
+            double x = letter * 1.0;
+            objects.add(new Draw(x, 0, x, 1, PEN));
+            objects.add(new Draw(x, 1, x + 0.8, 1, PEN));
+            objects.add(new Draw(x + 0.8, 1, x + 0.8, 0, PEN));
+        }
+        for (GraphicsObject obj : objects) {
+            text.include(obj.getBoundingBox());
+        }
+        Flash pad = new Flash(20, 20, PAD);
+        objects.add(pad);
+
+        List<GraphicsObject> kept = LevelOfDetail.forPixelSize(0.5).apply(objects, null);
+        assertEquals(2, kept.size());
+        Draw stroke = assertInstanceOf(Draw.class, kept.get(0));
+        assertEquals(Polarity.DARK, stroke.getPolarity());
+        assertEquals(text.getCenterY(), stroke.getStartY(), 1e-9);
+        assertEquals(text.getCenterY(), stroke.getEndY(), 1e-9);
+        BoundingBox bounds = stroke.getBoundingBox();
+        assertEquals(text.getMinX(), bounds.getMinX(), 1e-9);
+        assertEquals(text.getMaxX(), bounds.getMaxX(), 1e-9);
+        assertSame(pad, kept.get(1));
+
+        // At a finer pixel size the pen is visible and every stroke is kept
+        assertSame(objects, LevelOfDetail.forPixelSize(0.05).apply(objects, null));
+    }
+
+    @Test
+    @DisplayName("An element budget bounds the small objects drawn of a dense board")
+    void testElementBudget() {
+        GerberDocument doc = new GerberParser().parse(new SyntheticBoard().scaled(8).gerber());
+        int budget = 500;
+        LevelOfDetail lod = LevelOfDetail.forElementBudget(budget);
+        double cell = lod.cellSize(doc.getBoundingBox());
+        List<GraphicsObject> kept = lod.apply(doc);
+
+        int small = 0;
+        for (GraphicsObject obj : kept) {
+            BoundingBox box = obj.getBoundingBox();
+            if (Math.max(box.getWidth(), box.getHeight()) < cell) small++;
+        }
+        assertTrue(kept.size() < doc.getObjects().size(), "Dense board is decimated");
+        // At most one per cell, and the cells a budget spreads over the board
+        // can straddle its edges
+        assertTrue(small <= budget + budget / 2,
+            "Small objects are bounded by the cells: " + small + " of " + kept.size() + " kept");
+    }
+
+    @Test
+    @DisplayName("SVG options with a level of detail write fewer elements and key a separate fragment")
+    void testSvgOptions() {
+        GerberDocument doc = new GerberParser().parse(new SyntheticBoard().gerber());
+        SvgOptions coarse = SvgOptions.exact().setLevelOfDetail(LevelOfDetail.forOutput(100, 64));
+        assertNotEquals(SvgOptions.exact(), coarse);
+        assertEquals(coarse, coarse.copy());
+        assertEquals(coarse.hashCode(), coarse.copy().hashCode());
+
+        List<MultiLayerSVGRenderer.Layer> layers =
+            List.of(new MultiLayerSVGRenderer.Layer("copper", doc).setColor("#b87333"));
+        String full = new MultiLayerSVGRenderer().render(layers);
+        String reduced = new MultiLayerSVGRenderer().setSvgOptions(coarse).render(layers);
+        assertTrue(countElements(reduced) < countElements(full),
+            countElements(reduced) + " elements at 64 px, " + countElements(full) + " in full");
+    }
+
+    private static int countElements(String svg) {
+        int count = 0;
+        for (int i = svg.indexOf('<'); i >= 0; i = svg.indexOf('<', i + 1)) {
+            if (i + 1 < svg.length() && svg.charAt(i + 1) != '/') count++;
+        }
+        return count;
+    }
+}
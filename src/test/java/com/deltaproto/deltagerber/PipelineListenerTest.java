@@ -0,0 +1,167 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.pipeline.PipelineListener;
+import com.deltaproto.deltagerber.pipeline.PipelineListener.Stage;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the pipeline instrumentation: listener callbacks from the parsers and
+ * renderers, and the JFR events they emit.
+ */
+public class PipelineListenerTest {
+
+    private static final Path ARDUINO_TEST_DIR = Path.of("testdata/arduino-uno");
+
+    /** Records callbacks as strings, e.g. "start LEX", "tokens 1234". */
+    private static final class RecordingListener implements PipelineListener {
+        final List<String> calls = new ArrayList<>();
+        final Map<Stage, Long> bytes = new EnumMap<>(Stage.class);
+        final List<String> warnings = new ArrayList<>();
+        int tokens;
+        int objects;
+
+        @Override
+        public void stageStarted(Stage stage) {
+            calls.add("start " + stage);
+        }
+
+        @Override
+        public void stageFinished(Stage stage, long nanos) {
+            assertTrue(nanos >= 0);
+            calls.add("end " + stage);
+        }
+
+        @Override
+        public void tokensLexed(int tokens) {
+            this.tokens += tokens;
+        }
+
+        @Override
+        public void objectsParsed(int objects) {
+            this.objects += objects;
+        }
+
+        @Override
+        public void bytesEmitted(Stage stage, long bytes) {
+            this.bytes.merge(stage, bytes, Long::sum);
+        }
+
+        @Override
+        public void warning(Stage stage, String message) {
+            warnings.add(stage + ": " + message);
+        }
+    }
+
+    @Test
+    @DisplayName("Parsers report lex and parse stages with token, object and warning counts")
+    void testParserCallbacks() {
+        RecordingListener listener = new RecordingListener();
+        GerberDocument doc = new GerberParser().setListener(listener).parse("""
+            %FSLAX26Y26*%
+            %MOMM*%
+            %IPNEG*%
+            %ADD10C,0.5*%
+            D10*
+            X1000000Y1000000D03*
+            M02*
+            """);
+
+        assertEquals(List.of("start LEX", "end LEX", "start PARSE", "end PARSE"), listener.calls);
+        assertTrue(listener.tokens > 0);
+        assertEquals(doc.getObjects().size(), listener.objects);
+        assertEquals(doc.getWarnings().size(), listener.warnings.size());
+        assertTrue(listener.warnings.get(0).startsWith("PARSE: Image polarity NEG"), listener.warnings.toString());
+
+        RecordingListener drill = new RecordingListener();
+        DrillDocument drillDoc = new ExcellonParser().setListener(drill).parse("""
+            M48
+            METRIC,LZ
+            T1C0.8
+            %
+            T1
+            X1.0Y1.0
+            X2.0Y2.0
+            M30
+            """);
+        assertEquals(List.of("start PARSE", "end PARSE"), drill.calls);
+        assertEquals(drillDoc.getOperations().size(), drill.objects);
+    }
+
+    @Test
+    @DisplayName("Each public render call is one SVG stage; thumbnails add a rasterize stage")
+    void testRendererCallbacks() throws Exception {
+        Assumptions.assumeTrue(Files.exists(ARDUINO_TEST_DIR), "Arduino Uno test data not found");
+        GerberDocument outline = new GerberParser().parse(Files.readString(ARDUINO_TEST_DIR.resolve("arduino-uno.gko")));
+        GerberDocument copper = new GerberParser().parse(Files.readString(ARDUINO_TEST_DIR.resolve("arduino-uno.cmp")));
+        List<MultiLayerSVGRenderer.Layer> layers = List.of(
+            new MultiLayerSVGRenderer.Layer("outline", outline).setLayerType(LayerType.OUTLINE),
+            new MultiLayerSVGRenderer.Layer("copper", copper).setLayerType(LayerType.COPPER_TOP));
+
+        RecordingListener listener = new RecordingListener();
+        String svg = new SVGRenderer().setListener(listener).render(copper);
+        assertEquals(List.of("start SVG_RENDER", "end SVG_RENDER"), listener.calls);
+        assertEquals(svg.length(), listener.bytes.get(Stage.SVG_RENDER));
+
+        listener = new RecordingListener();
+        byte[] png = new MultiLayerSVGRenderer().setListener(listener)
+            .renderRealisticSidePng(layers, MultiLayerSVGRenderer.Side.TOP, 100);
+        assertNotNull(png);
+        assertEquals(List.of("start SVG_RENDER", "end SVG_RENDER", "start RASTERIZE", "end RASTERIZE"),
+            listener.calls);
+        assertEquals(png.length, listener.bytes.get(Stage.RASTERIZE));
+    }
+
+    @Test
+    @DisplayName("Lex, parse, render and rasterize are recorded as JFR events")
+    void testFlightRecorderEvents() throws Exception {
+        Assumptions.assumeTrue(Files.exists(ARDUINO_TEST_DIR), "Arduino Uno test data not found");
+        Path file = Files.createTempFile("pipeline", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("GerberLex", "GerberParse", "SvgRender", "Rasterize")) {
+                recording.enable("com.deltaproto.deltagerber." + name);
+            }
+            recording.start();
+            GerberDocument outline = new GerberParser()
+                .parse(Files.readString(ARDUINO_TEST_DIR.resolve("arduino-uno.gko")));
+            new ExcellonParser().parse(Files.readString(ARDUINO_TEST_DIR.resolve("arduino-uno.drd")));
+            String svg = new SVGRenderer().render(outline);
+            MultiLayerSVGRenderer.rasterizeSvgToPng(svg, 50);
+            recording.stop();
+            recording.dump(file);
+
+            Map<String, List<RecordedEvent>> byType = new HashMap<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                byType.computeIfAbsent(event.getEventType().getName(), k -> new ArrayList<>()).add(event);
+            }
+            RecordedEvent lex = byType.get("com.deltaproto.deltagerber.GerberLex").get(0);
+            assertTrue(lex.getInt("tokens") > 0);
+            List<String> formats = new ArrayList<>();
+            for (RecordedEvent parse : byType.get("com.deltaproto.deltagerber.GerberParse")) {
+                formats.add(parse.getString("format"));
+                assertTrue(parse.getInt("objects") > 0);
+            }
+            assertEquals(List.of("gerber", "excellon"), formats);
+            RecordedEvent render = byType.get("com.deltaproto.deltagerber.SvgRender").get(0);
+            assertEquals("layer", render.getString("kind"));
+            assertEquals(svg.length(), render.getLong("characters"));
+            assertTrue(byType.get("com.deltaproto.deltagerber.Rasterize").get(0).getLong("pngBytes") > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.cli.ProfileCommand;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the per-stage profiling report.
+ */
+public class ProfileCommandTest {
+
+    private static final Path ARDUINO_TEST_DIR = Path.of("testdata/arduino-uno");
+
+    @Test
+    @DisplayName("Every stage and render section gets a row and the JFR recording is written")
+    void testProfileReport(@TempDir Path temp) throws IOException {
+        Assumptions.assumeTrue(Files.exists(ARDUINO_TEST_DIR), "Arduino Uno test data not found");
+        Path jfr = temp.resolve("profile.jfr");
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        new ProfileCommand()
+            .setWarmup(0)
+            .setIterations(1)
+            .setPngWidth(100)
+            .setJfrFile(jfr)
+            .setConsole(new PrintStream(console, true))
+            .run(ARDUINO_TEST_DIR);
+
+        String report = console.toString();
+        for (String stage : List.of("lex", "parse", "defs", "masks", "bodies", "outline", "svg", "rasterize")) {
+            assertTrue(report.lines().anyMatch(l -> l.startsWith("total") && l.contains(" " + stage + " ")),
+                "No total for " + stage + ":\n" + report);
+        }
+        // Sections are attributed to the layer they were generated from
+        assertTrue(report.lines().anyMatch(l -> l.startsWith("arduino-uno.cmp") && l.contains(" bodies ")), report);
+        assertTrue(report.lines().anyMatch(l -> l.startsWith("arduino-uno.gko") && l.contains(" outline ")), report);
+        assertTrue(report.lines().anyMatch(l -> l.startsWith("top thumbnail") && l.contains(" rasterize ")), report);
+        assertTrue(Files.size(jfr) > 0);
+    }
+}
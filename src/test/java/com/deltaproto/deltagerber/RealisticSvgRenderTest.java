@@ -2,6 +2,8 @@ package com.deltaproto.deltagerber;
 
 import com.deltaproto.deltagerber.model.drill.DrillDocument;
 import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
 import com.deltaproto.deltagerber.parser.ExcellonParser;
 import com.deltaproto.deltagerber.parser.GerberParser;
 import com.deltaproto.deltagerber.renderer.svg.LayerType;
@@ -600,6 +602,58 @@ public class RealisticSvgRenderTest {
         assertNull(renderer.renderRealisticSidePng(layers, MultiLayerSVGRenderer.Side.TOP, 300));
     }
 
+    @Test
+    @Order(14)
+    @DisplayName("renderRealisticSidePng draws the same pixels as rasterizing the thumbnail SVG")
+    void testRealisticSidePngMatchesThumbnailSvg() throws Exception {
+        if (!Files.exists(DEPR_TEST_DIR)) return;
+
+        List<MultiLayerSVGRenderer.Layer> layers = loadDeprThumbnailLayers();
+        // The thumbnail SVG keeps full detail, so compare against a full-detail PNG
+        MultiLayerSVGRenderer renderer = new MultiLayerSVGRenderer().setThumbnailLevelOfDetail(false);
+        for (MultiLayerSVGRenderer.Side side : MultiLayerSVGRenderer.Side.values()) {
+            // The PNG is rasterized from a DOM built directly, the reference from the SVG text
+            byte[] png = renderer.renderRealisticSidePng(layers, side, 400);
+            byte[] reference = renderer.rasterizeThumbnail(
+                renderer.renderThumbnailSvg(layers, side, true), 400, 0);
+
+            java.awt.image.BufferedImage actual = javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(png));
+            java.awt.image.BufferedImage expected = javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(reference));
+            assertEquals(expected.getWidth(), actual.getWidth(), side + " width");
+            assertEquals(expected.getHeight(), actual.getHeight(), side + " height");
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), side + " pixel " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("Concurrent renderRealisticSidePng calls produce the same PNGs")
+    void testRealisticSidePngConcurrent() throws Exception {
+        if (!Files.exists(DEPR_TEST_DIR)) return;
+
+        List<MultiLayerSVGRenderer.Layer> layers = loadDeprThumbnailLayers();
+        byte[] top = new MultiLayerSVGRenderer().renderRealisticSidePng(layers, MultiLayerSVGRenderer.Side.TOP, 200);
+        byte[] bottom = new MultiLayerSVGRenderer().renderRealisticSidePng(layers, MultiLayerSVGRenderer.Side.BOTTOM, 200);
+
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(4);
+        try {
+            List<java.util.concurrent.Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                MultiLayerSVGRenderer.Side side = i % 2 == 0 ? MultiLayerSVGRenderer.Side.TOP : MultiLayerSVGRenderer.Side.BOTTOM;
+                results.add(pool.submit(() -> new MultiLayerSVGRenderer().renderRealisticSidePng(layers, side, 200)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertArrayEquals(i % 2 == 0 ? top : bottom, results.get(i).get(), "render " + i);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Test
     @Order(10)
     @DisplayName("Outline built from short (<tolerance) segments still chains into one loop")
@@ -641,6 +695,130 @@ public class RealisticSvgRenderTest {
         assertEquals(40, lineCount, "Expected all 40 segments chained in, got " + lineCount);
     }
 
+    @Test
+    @Order(11)
+    @DisplayName("Outline chaining through the endpoint grid matches a scan of every segment")
+    void testOutlineChainingMatchesScan() {
+        // Two loops written in shuffled order and mixed directions, with endpoint
+        // gaps below the tolerance, branches tied with the loop at a shared start,
+        // and stray segments
+        Random random = new Random(42);
+        List<int[]> draws = new ArrayList<>();
+        draws.addAll(polygonOutline(random, 600000, 400000, 200000, 1500, 300));
+        draws.addAll(polygonOutline(random, 600000, 400000, 50000, 400, 300));
+        for (int i = 0; i < 40; i++) {
+            int[] d = draws.get(random.nextInt(draws.size()));
+            draws.add(new int[] {d[0], d[1], d[0] + 5000 - random.nextInt(10000), d[1] + 5000 - random.nextInt(10000)});
+        }
+        for (int i = 0; i < 40; i++) {
+            int x = random.nextInt(1200000), y = random.nextInt(800000);
+            draws.add(new int[] {x, y, x + random.nextInt(3000), y + random.nextInt(3000)});
+        }
+        Collections.shuffle(draws, random);
+        GerberDocument outlineDoc = gerberParser.parse(outlineGerber(draws));
+
+        assertEquals(scanChain(outlineDoc), new MultiLayerSVGRenderer().renderOutlinePath(outlineDoc));
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("A 50k-segment outline chains into one loop")
+    void testLargeOutlineChains() {
+        List<int[]> draws = polygonOutline(new Random(7), 1000000, 1000000, 800000, 50000, 0);
+        Collections.shuffle(draws, new Random(7));
+        GerberDocument outlineDoc = gerberParser.parse(outlineGerber(draws));
+
+        String d = new MultiLayerSVGRenderer().renderOutlinePath(outlineDoc);
+        assertEquals(1, countOccurrences(d, "M "));
+        assertEquals(1, countOccurrences(d, "Z"));
+        assertEquals(50000, countOccurrences(d, "L "));
+    }
+
+    /**
+     * A closed polygon around (cx, cy) as draws, about half of them reversed and
+     * each start moved by up to {@code jitter} from the previous end (4.4 units).
+     */
+    private static List<int[]> polygonOutline(Random random, int cx, int cy, int r, int sides, int jitter) {
+        List<int[]> draws = new ArrayList<>();
+        int[] first = null;
+        int[] previous = null;
+        for (int i = 0; i <= sides; i++) {
+            double angle = 2 * Math.PI * i / sides;
+            int[] vertex = i == sides ? first
+                : new int[] {cx + (int) Math.round(r * Math.cos(angle)), cy + (int) Math.round(r * Math.sin(angle))};
+            if (previous != null) {
+                int sx = previous[0] + (jitter > 0 ? random.nextInt(jitter) : 0);
+                int sy = previous[1] + (jitter > 0 ? random.nextInt(jitter) : 0);
+                draws.add(random.nextBoolean()
+                    ? new int[] {sx, sy, vertex[0], vertex[1]}
+                    : new int[] {vertex[0], vertex[1], sx, sy});
+            } else {
+                first = vertex;
+            }
+            previous = vertex;
+        }
+        return draws;
+    }
+
+    private static String outlineGerber(List<int[]> draws) {
+        StringBuilder g = new StringBuilder();
+        g.append("%FSLAX44Y44*%\n%MOMM*%\nG01*\n%ADD10C,0.1000*%\nD10*\n");
+        for (int[] d : draws) {
+            appendLine(g, d[0], d[1], d[2], d[3]);
+        }
+        g.append("M02*\n");
+        return g.toString();
+    }
+
+    /** Chains an outline of draws by scanning every unused segment at each step. */
+    private static String scanChain(GerberDocument outlineDoc) {
+        List<Draw> segments = new ArrayList<>();
+        for (GraphicsObject obj : outlineDoc.getObjects()) {
+            if (obj instanceof Draw draw) segments.add(draw);
+        }
+        double toleranceSq = 0.1 * 0.1;
+        boolean[] used = new boolean[segments.size()];
+        StringBuilder path = new StringBuilder();
+        for (int seed = 0; seed < segments.size(); seed++) {
+            if (used[seed]) continue;
+            used[seed] = true;
+            Draw s0 = segments.get(seed);
+            double startX = s0.getStartX(), startY = s0.getStartY();
+            double headX = s0.getEndX(), headY = s0.getEndY();
+            path.append(String.format(Locale.US, " M %.6f %.6f L %.6f %.6f", startX, startY, headX, headY));
+            boolean left = false;
+            while (true) {
+                int next = -1;
+                boolean reverse = false;
+                double bestSq = toleranceSq;
+                for (int i = 0; i < segments.size(); i++) {
+                    if (used[i]) continue;
+                    Draw s = segments.get(i);
+                    double d1 = distSq(s.getStartX(), s.getStartY(), headX, headY);
+                    if (d1 < bestSq) { bestSq = d1; next = i; reverse = false; }
+                    double d2 = distSq(s.getEndX(), s.getEndY(), headX, headY);
+                    if (d2 < bestSq) { bestSq = d2; next = i; reverse = true; }
+                }
+                double headDistSq = distSq(headX, headY, startX, startY);
+                if (left && headDistSq <= toleranceSq && (next < 0 || bestSq >= headDistSq)) break;
+                if (next < 0) break;
+                used[next] = true;
+                Draw s = segments.get(next);
+                headX = reverse ? s.getStartX() : s.getEndX();
+                headY = reverse ? s.getStartY() : s.getEndY();
+                path.append(String.format(Locale.US, " L %.6f %.6f", headX, headY));
+                if (distSq(headX, headY, startX, startY) > toleranceSq) left = true;
+            }
+            path.append(" Z");
+        }
+        return path.toString().trim();
+    }
+
+    private static double distSq(double ax, double ay, double bx, double by) {
+        double dx = ax - bx, dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
     /**
      * Builds a rectangular outline assembled from 40 short straight segments
      * (10 per side, each ~0.05 mm long). Every segment on its own is shorter than
@@ -814,6 +992,37 @@ public class RealisticSvgRenderTest {
 
     // --- Helpers ---
 
+    /** Both sides of the DEPR board with drills, for thumbnail tests. */
+    private List<MultiLayerSVGRenderer.Layer> loadDeprThumbnailLayers() throws Exception {
+        Map<String, GerberDocument> docs = loadGerberFiles(
+            "uP-H Main PCBA Assy V04.GKO",
+            "uP-H Main PCBA Assy V04.GTL",
+            "uP-H Main PCBA Assy V04.GTS",
+            "uP-H Main PCBA Assy V04.GTO",
+            "uP-H Main PCBA Assy V04.GBL",
+            "uP-H Main PCBA Assy V04.GBS"
+        );
+        DrillDocument drillDoc = drillParser.parse(
+            Files.readString(DEPR_TEST_DIR.resolve("uP-H Main PCBA Assy V04-RoundHoles.TXT")));
+
+        List<MultiLayerSVGRenderer.Layer> layers = new ArrayList<>();
+        layers.add(new MultiLayerSVGRenderer.Layer("outline", docs.get("GKO"))
+            .setLayerType(LayerType.OUTLINE));
+        layers.add(new MultiLayerSVGRenderer.Layer("copper-top", docs.get("GTL"))
+            .setLayerType(LayerType.COPPER_TOP));
+        layers.add(new MultiLayerSVGRenderer.Layer("sm-top", docs.get("GTS"))
+            .setLayerType(LayerType.SOLDERMASK_TOP));
+        layers.add(new MultiLayerSVGRenderer.Layer("ss-top", docs.get("GTO"))
+            .setLayerType(LayerType.SILKSCREEN_TOP));
+        layers.add(new MultiLayerSVGRenderer.Layer("copper-bot", docs.get("GBL"))
+            .setLayerType(LayerType.COPPER_BOTTOM));
+        layers.add(new MultiLayerSVGRenderer.Layer("sm-bot", docs.get("GBS"))
+            .setLayerType(LayerType.SOLDERMASK_BOTTOM));
+        layers.add(new MultiLayerSVGRenderer.Layer("drill", drillDoc)
+            .setLayerType(LayerType.DRILL));
+        return layers;
+    }
+
     private Map<String, GerberDocument> loadGerberFiles(String... filenames) throws Exception {
         return loadGerberFilesFrom(DEPR_TEST_DIR, filenames);
     }
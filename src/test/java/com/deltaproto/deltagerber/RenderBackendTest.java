@@ -0,0 +1,220 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.drill.DrillHit;
+import com.deltaproto.deltagerber.model.drill.DrillOperation;
+import com.deltaproto.deltagerber.model.drill.DrillSlot;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.aperture.Aperture;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Draw;
+import com.deltaproto.deltagerber.model.gerber.operation.Flash;
+import com.deltaproto.deltagerber.model.gerber.operation.GraphicsObject;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.RenderBackend;
+import com.deltaproto.deltagerber.renderer.RenderTraversal;
+import com.deltaproto.deltagerber.renderer.geometry.BinaryGeometryBackend;
+import com.deltaproto.deltagerber.renderer.svg.SvgMarkupWriter;
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgRenderBackend;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the render traversal and the backends driven by it.
+ */
+public class RenderBackendTest {
+
+    private static final Path POLARITY_FILE = Path.of("test-gerber-suite/polarity/01_polarity_basic.gbr");
+    private static final Path COMPREHENSIVE_FILE = Path.of("test-gerber-suite/combined/all_features_comprehensive.gbr");
+    private static final Path DEPR_DRILL = Path.of("testdata/DEPR PR31 GBDR V04/uP-H Main PCBA Assy V04-SlotHoles.TXT");
+
+    @Test
+    @DisplayName("Traversal yields apertures first, then every object in polarity groups")
+    void testTraversalOrder() throws IOException {
+        GerberDocument doc = new GerberParser().parse(Files.readString(POLARITY_FILE));
+        List<String> calls = new ArrayList<>();
+        RenderTraversal.traverse(doc, new RenderBackend() {
+            @Override public void apertureDef(Aperture aperture) { calls.add("aperture"); }
+            @Override public void beginPolarityGroup(Polarity polarity) { calls.add("begin " + polarity); }
+            @Override public void endPolarityGroup(Polarity polarity) { calls.add("end " + polarity); }
+            @Override public void flash(Flash flash) { calls.add("object " + flash.getPolarity()); }
+            @Override public void draw(Draw draw) { calls.add("object " + draw.getPolarity()); }
+            @Override public void arc(Arc arc) { calls.add("object " + arc.getPolarity()); }
+            @Override public void region(Region region) { calls.add("object " + region.getPolarity()); }
+        });
+
+        int apertures = doc.getApertures().size();
+        for (int i = 0; i < apertures; i++) {
+            assertEquals("aperture", calls.get(i));
+        }
+        Polarity open = null;
+        int objects = 0;
+        int groups = 0;
+        for (String call : calls.subList(apertures, calls.size())) {
+            if (call.startsWith("begin ")) {
+                assertNull(open, "Polarity groups don't nest");
+                Polarity polarity = Polarity.valueOf(call.substring(6));
+                assertEquals(groups % 2 == 0 ? Polarity.DARK : Polarity.CLEAR, polarity,
+                    "Groups alternate, starting dark in this file");
+                open = polarity;
+                groups++;
+            } else if (call.startsWith("end ")) {
+                assertEquals(open, Polarity.valueOf(call.substring(4)));
+                open = null;
+            } else {
+                assertNotNull(open, "Objects are inside a polarity group");
+                assertEquals("object " + doc.getObjects().get(objects).getPolarity(), call);
+                assertEquals(open, doc.getObjects().get(objects).getPolarity());
+                objects++;
+            }
+        }
+        assertNull(open);
+        assertEquals(doc.getObjects().size(), objects);
+        assertTrue(groups > 2, "Test file alternates polarity");
+    }
+
+    @Test
+    @DisplayName("SVG backend writes what the model's toSvg returns")
+    void testSvgBackendMatchesToSvg() throws IOException {
+        GerberDocument doc = new GerberParser().parse(Files.readString(COMPREHENSIVE_FILE));
+        for (SvgOptions options : List.of(SvgOptions.exact(), SvgOptions.polygonized())) {
+            StringBuilder expected = new StringBuilder();
+            for (GraphicsObject obj : doc.getObjects()) {
+                expected.append(obj.toSvg(options));
+            }
+            StringBuilder actual = new StringBuilder();
+            RenderTraversal.objects(doc.getObjects(), new SvgRenderBackend(SvgMarkupWriter.compact(actual), options));
+            assertEquals(expected.toString(), actual.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Binary geometry has one record per aperture, polarity group and object")
+    void testBinaryGeometryGerber() throws IOException {
+        GerberDocument doc = new GerberParser().parse(Files.readString(COMPREHENSIVE_FILE));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(BinaryGeometryBackend.encode(doc)));
+        assertEquals(BinaryGeometryBackend.MAGIC, in.readInt());
+        assertEquals(BinaryGeometryBackend.VERSION, in.readShort());
+
+        int apertures = 0;
+        List<GraphicsObject> objects = doc.getObjects();
+        int index = 0;
+        Polarity polarity = null;
+        for (byte tag = in.readByte(); tag != BinaryGeometryBackend.END; tag = in.readByte()) {
+            switch (tag) {
+                case BinaryGeometryBackend.APERTURE -> {
+                    assertEquals(0, index, "Apertures come before objects");
+                    assertNotNull(doc.getApertures().get(in.readInt()));
+                    readPolygon(in);
+                    apertures++;
+                }
+                case BinaryGeometryBackend.POLARITY ->
+                    polarity = in.readByte() == 0 ? Polarity.DARK : Polarity.CLEAR;
+                case BinaryGeometryBackend.FLASH -> {
+                    Flash flash = assertInstanceOf(Flash.class, objects.get(index++));
+                    assertEquals(flash.getAperture().getDCode(), in.readInt());
+                    assertEquals((float) flash.getX(), in.readFloat());
+                    assertEquals((float) flash.getY(), in.readFloat());
+                    in.readFloat();
+                    in.readFloat();
+                    in.readByte();
+                    assertEquals(flash.getPolarity(), polarity);
+                }
+                case BinaryGeometryBackend.LINE -> {
+                    Draw draw = assertInstanceOf(Draw.class, objects.get(index++));
+                    assertEquals((float) draw.getStartX(), in.readFloat());
+                    in.skipBytes(4 * 4);
+                    assertEquals(draw.getPolarity(), polarity);
+                }
+                case BinaryGeometryBackend.ARC -> {
+                    Arc arc = assertInstanceOf(Arc.class, objects.get(index++));
+                    assertEquals((float) arc.getCenterX(), readFloats(in, 5));
+                    in.skipBytes(2 * 4);
+                    assertEquals(arc.isClockwise() ? 1 : 0, in.readByte());
+                    assertEquals(arc.getPolarity(), polarity);
+                }
+                case BinaryGeometryBackend.REGION -> {
+                    Region region = assertInstanceOf(Region.class, objects.get(index++));
+                    assertEquals(region.getContours().size(), readPolygon(in));
+                    assertEquals(region.getPolarity(), polarity);
+                }
+                default -> fail("Unexpected tag " + tag);
+            }
+        }
+        assertEquals(doc.getApertures().size(), apertures);
+        assertEquals(objects.size(), index);
+        assertEquals(0, in.available(), "Nothing follows the end record");
+    }
+
+    @Test
+    @DisplayName("Binary geometry of a drill file has a record per hit and slot")
+    void testBinaryGeometryDrill() throws IOException {
+        DrillDocument doc = new ExcellonParser().parse(Files.readString(DEPR_DRILL));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(BinaryGeometryBackend.encode(doc)));
+        in.skipBytes(6);
+        for (DrillOperation op : doc.getOperations()) {
+            if (op instanceof DrillHit hit) {
+                assertEquals(BinaryGeometryBackend.HIT, in.readByte());
+                assertEquals((float) hit.getX(), in.readFloat());
+                assertEquals((float) hit.getY(), in.readFloat());
+                assertEquals((float) hit.getTool().getDiameter(), in.readFloat());
+            } else if (op instanceof DrillSlot slot) {
+                assertEquals(BinaryGeometryBackend.SLOT, in.readByte());
+                assertEquals((float) slot.getStartX(), in.readFloat());
+                in.skipBytes(3 * 4);
+                assertEquals((float) slot.getTool().getDiameter(), in.readFloat());
+            }
+        }
+        assertEquals(BinaryGeometryBackend.END, in.readByte());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    @DisplayName("Parsing and traversal stop once the thread is interrupted")
+    void testInterruptStopsWork() {
+        String gerber = new SyntheticBoard().gerber();
+        GerberDocument doc = new GerberParser().parse(gerber);
+        assertTrue(doc.getObjects().size() > 256);
+        try {
+            Thread.currentThread().interrupt();
+            assertThrows(CancellationException.class, () -> new GerberParser().parse(gerber));
+            assertThrows(CancellationException.class, () -> RenderTraversal.traverse(doc,
+                new SvgRenderBackend(SvgMarkupWriter.compact(new StringBuilder()), SvgOptions.exact())));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    /** Read a polygon, returning its ring count. */
+    private static int readPolygon(DataInputStream in) throws IOException {
+        in.readByte();
+        int rings = in.readInt();
+        for (int r = 0; r < rings; r++) {
+            int points = in.readInt();
+            assertTrue(points >= 3);
+            in.skipBytes(points * 2 * 4);
+        }
+        return rings;
+    }
+
+    /** Skip {@code n} floats and read the next. */
+    private static float readFloats(DataInputStream in, int n) throws IOException {
+        in.skipBytes(n * 4 - 4);
+        return in.readFloat();
+    }
+}
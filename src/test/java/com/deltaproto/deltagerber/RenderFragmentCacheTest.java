@@ -0,0 +1,204 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.LayerType;
+import com.deltaproto.deltagerber.renderer.svg.MultiLayerSVGRenderer;
+import com.deltaproto.deltagerber.renderer.svg.RenderFragmentCache;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the shared render fragment cache produces byte-identical output
+ * and actually reuses fragments across the three views of one board.
+ */
+public class RenderFragmentCacheTest {
+
+    private static final Path ARDUINO_TEST_DIR = Path.of("testdata/arduino-uno");
+
+    private static List<MultiLayerSVGRenderer.Layer> layers;
+
+    @BeforeAll
+    static void loadBoard() throws Exception {
+        Assumptions.assumeTrue(Files.exists(ARDUINO_TEST_DIR), "Arduino Uno test data not found");
+        GerberParser gerberParser = new GerberParser();
+        ExcellonParser drillParser = new ExcellonParser();
+        layers = new ArrayList<>();
+        addGerber(gerberParser, "arduino-uno.gko", LayerType.OUTLINE);
+        addGerber(gerberParser, "arduino-uno.cmp", LayerType.COPPER_TOP);
+        addGerber(gerberParser, "arduino-uno.stc", LayerType.SOLDERMASK_TOP);
+        addGerber(gerberParser, "arduino-uno.plc", LayerType.SILKSCREEN_TOP);
+        addGerber(gerberParser, "arduino-uno.sol", LayerType.COPPER_BOTTOM);
+        addGerber(gerberParser, "arduino-uno.sts", LayerType.SOLDERMASK_BOTTOM);
+        layers.add(new MultiLayerSVGRenderer.Layer("arduino-uno.drd",
+                drillParser.parse(Files.readString(ARDUINO_TEST_DIR.resolve("arduino-uno.drd"))))
+            .setLayerType(LayerType.DRILL));
+    }
+
+    private static void addGerber(GerberParser parser, String file, LayerType type) throws Exception {
+        layers.add(new MultiLayerSVGRenderer.Layer(file,
+                parser.parse(Files.readString(ARDUINO_TEST_DIR.resolve(file))))
+            .setLayerType(type).setColor("#ff0000"));
+    }
+
+    @Test
+    @DisplayName("Cached render, realistic top and bottom are identical to uncached output")
+    void testCachedOutputIdentical() {
+        String svg = new MultiLayerSVGRenderer().render(layers);
+        String top = new MultiLayerSVGRenderer().renderRealisticSide(layers, MultiLayerSVGRenderer.Side.TOP);
+        String bottom = new MultiLayerSVGRenderer().renderRealisticSide(layers, MultiLayerSVGRenderer.Side.BOTTOM);
+
+        RenderFragmentCache cache = new RenderFragmentCache();
+        assertEquals(svg, new MultiLayerSVGRenderer().setFragmentCache(cache).render(layers));
+        assertEquals(top, new MultiLayerSVGRenderer().setFragmentCache(cache)
+            .renderRealisticSide(layers, MultiLayerSVGRenderer.Side.TOP));
+        assertEquals(bottom, new MultiLayerSVGRenderer().setFragmentCache(cache)
+            .renderRealisticSide(layers, MultiLayerSVGRenderer.Side.BOTTOM));
+
+        // Outline path, drill body and copper body (reused by the finish pass) are shared
+        assertTrue(cache.getHitCount() > 0, "expected fragment reuse across views: " + cache);
+
+        // A second full pass is served entirely from cache
+        long misses = cache.getMissCount();
+        new MultiLayerSVGRenderer().setFragmentCache(cache).render(layers);
+        new MultiLayerSVGRenderer().setFragmentCache(cache)
+            .renderRealisticSide(layers, MultiLayerSVGRenderer.Side.TOP);
+        assertEquals(misses, cache.getMissCount(), "second pass should not regenerate fragments");
+    }
+
+    @Test
+    @DisplayName("Cache stays within its character budget and evicts LRU fragments")
+    void testBoundedByChars() {
+        String expected = new MultiLayerSVGRenderer().render(layers);
+
+        RenderFragmentCache cache = new RenderFragmentCache(64 * 1024);
+        String svg = new MultiLayerSVGRenderer().setFragmentCache(cache).render(layers);
+
+        assertEquals(expected, svg);
+        assertTrue(cache.getCharCount() <= cache.getMaxChars());
+        assertTrue(cache.getEvictionCount() > 0, "small cache should have evicted: " + cache);
+    }
+
+    @Test
+    @DisplayName("Concurrent requests for one fragment generate it once")
+    void testConcurrentGenerationIsShared() throws Exception {
+        RenderFragmentCache cache = new RenderFragmentCache();
+        Object document = new Object();
+        AtomicInteger generations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> cache.get(document, RenderFragmentCache.Kind.OUTLINE_PATH, null, null,
+                    () -> {
+                        generations.incrementAndGet();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "M0 0Z";
+                    })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> f : results) {
+                assertEquals("M0 0Z", f.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, generations.get());
+            assertEquals(1, cache.getMissCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A cancelled generation hands the fragment to its waiters, and waiters can be interrupted")
+    void testCancelledGenerationIsRetried() throws Exception {
+        RenderFragmentCache cache = new RenderFragmentCache();
+        Object document = new Object();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Future<String> owner = pool.submit(() -> cache.get(document, RenderFragmentCache.Kind.OUTLINE_PATH,
+                null, null, () -> {
+                    started.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new CancellationException("Render timed out");
+                }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = pool.submit(() -> cache.get(document, RenderFragmentCache.Kind.OUTLINE_PATH,
+                null, null, () -> "M0 0Z"));
+            Future<String> interrupted = pool.submit(() -> cache.get(document, RenderFragmentCache.Kind.OUTLINE_PATH,
+                null, null, () -> "M1 1Z"));
+            Thread.sleep(200);
+            interrupted.cancel(true);
+            release.countDown();
+
+            assertThrows(ExecutionException.class, () -> owner.get(5, TimeUnit.SECONDS));
+            assertEquals("M0 0Z", waiter.get(5, TimeUnit.SECONDS));
+            assertEquals("M0 0Z", cache.get(document, RenderFragmentCache.Kind.OUTLINE_PATH, null, null,
+                () -> fail("Fragment should be cached")));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Fragments of a null document are generated uncached and failures surface as thrown")
+    void testNullDocumentBypassesCache() {
+        RenderFragmentCache cache = new RenderFragmentCache();
+        AtomicInteger generations = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            assertEquals("M0 0Z", cache.get(null, RenderFragmentCache.Kind.LAYER_BODY, null, null, () -> {
+                generations.incrementAndGet();
+                return "M0 0Z";
+            }));
+        }
+        assertEquals(2, generations.get());
+        assertEquals(0, cache.size());
+
+        IllegalStateException failure = new IllegalStateException("bad layer");
+        assertSame(failure, assertThrows(IllegalStateException.class,
+            () -> cache.get(null, RenderFragmentCache.Kind.LAYER_BODY, null, null, () -> { throw failure; })));
+        // A failed generation leaves nothing in flight, so the next request generates again
+        Object document = new Object();
+        assertThrows(IllegalStateException.class,
+            () -> cache.get(document, RenderFragmentCache.Kind.LAYER_BODY, null, null, () -> { throw failure; }));
+        assertEquals("M0 0Z", cache.get(document, RenderFragmentCache.Kind.LAYER_BODY, null, null, () -> "M0 0Z"));
+    }
+
+    @Test
+    @DisplayName("Views rendered concurrently against one cache match sequential renders")
+    void testConcurrentViewsMatchSequential() throws Exception {
+        String expectedSvg = new MultiLayerSVGRenderer().render(layers);
+        String expectedTop = new MultiLayerSVGRenderer().renderRealistic(layers);
+
+        RenderFragmentCache cache = new RenderFragmentCache();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> svgs = new ArrayList<>();
+            List<Future<String>> tops = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                svgs.add(pool.submit(() -> new MultiLayerSVGRenderer().setFragmentCache(cache).render(layers)));
+                tops.add(pool.submit(() -> new MultiLayerSVGRenderer().setFragmentCache(cache).renderRealistic(layers)));
+            }
+            for (Future<String> f : svgs) assertEquals(expectedSvg, f.get(30, TimeUnit.SECONDS));
+            for (Future<String> f : tops) assertEquals(expectedTop, f.get(30, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
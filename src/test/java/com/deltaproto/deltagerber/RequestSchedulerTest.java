@@ -0,0 +1,100 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.web.RequestScheduler;
+import com.deltaproto.deltagerber.web.RequestScheduler.Lane;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests lane priority, concurrency caps and shedding of the viewer's request scheduler.
+ */
+public class RequestSchedulerTest {
+
+    private RequestScheduler scheduler;
+
+    @AfterEach
+    void shutdown() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    private static Runnable blockUntil(CountDownLatch started, CountDownLatch release) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Queued interactive work runs before thumbnails queued earlier")
+    void testInteractivePreemptsQueuedThumbnails() throws Exception {
+        scheduler = new RequestScheduler(1, 16, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(scheduler.submit(Lane.THUMBNAIL, blockUntil(started, release)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(4);
+        for (int i = 0; i < 3; i++) {
+            int n = i;
+            scheduler.submit(Lane.THUMBNAIL, () -> { order.add("thumb" + n); done.countDown(); });
+        }
+        scheduler.submit(Lane.INTERACTIVE, () -> { order.add("render"); done.countDown(); });
+        assertEquals(3, scheduler.getQueued(Lane.THUMBNAIL));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("render", "thumb0", "thumb1", "thumb2"), order);
+
+        // Timings are recorded just after each task body returns
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getCompletedCount(Lane.THUMBNAIL) < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        RequestScheduler.LaneStats thumbs = scheduler.getLaneStats(Lane.THUMBNAIL);
+        assertEquals(4, thumbs.getServiceTime().getCount());
+        assertEquals(4, thumbs.getQueueWait().getCount());
+    }
+
+    @Test
+    @DisplayName("A lane can't take more workers than its share, leaving room for interactive work")
+    void testLaneConcurrencyCap() throws Exception {
+        scheduler = new RequestScheduler(2, Map.of(Lane.THUMBNAIL, 1), 16, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(Lane.THUMBNAIL, blockUntil(started, release));
+        scheduler.submit(Lane.THUMBNAIL, () -> { });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getInFlight(Lane.THUMBNAIL));
+        assertEquals(1, scheduler.getQueued(Lane.THUMBNAIL));
+
+        CountDownLatch interactive = new CountDownLatch(1);
+        scheduler.submit(Lane.INTERACTIVE, interactive::countDown);
+        assertTrue(interactive.await(5, TimeUnit.SECONDS), "interactive work should start on the free worker");
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Work beyond a lane's queue depth is rejected")
+    void testFullLaneRejects() throws Exception {
+        scheduler = new RequestScheduler(1, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(scheduler.submit(Lane.BATCH, blockUntil(started, release)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.submit(Lane.BATCH, () -> { }));
+        assertFalse(scheduler.submit(Lane.BATCH, () -> { }));
+        // Other lanes have their own queues
+        assertTrue(scheduler.submit(Lane.INTERACTIVE, () -> { }));
+        assertEquals(1, scheduler.getRejectedCount(Lane.BATCH));
+        release.countDown();
+    }
+}
@@ -0,0 +1,43 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.renderer.svg.SvgNumbers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that SvgNumbers writes numbers exactly as {@code %.6f} does.
+ */
+public class SvgNumbersTest {
+
+    @Test
+    @DisplayName("Random coordinates format as %.6f does")
+    void testMatchesFormatter() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            double value = switch (i % 4) {
+                case 0 -> (random.nextDouble() - 0.5) * 2000;
+                case 1 -> (random.nextDouble() - 0.5) * 2e-5;
+                // Seven decimals: many land exactly on a rounding tie
+                case 2 -> Math.round((random.nextDouble() - 0.5) * 2e9) / 1e7;
+                default -> Double.longBitsToDouble(random.nextLong());
+            };
+            assertEquals(String.format(Locale.US, "%.6f", value), SvgNumbers.format(value), "value " + value);
+        }
+    }
+
+    @Test
+    @DisplayName("Signs, ties and non-finite values format as %.6f does")
+    void testEdgeCases() {
+        for (double value : new double[] {0.0, -0.0, 1e-7, -1e-9, 5e-7, -5e-7, 2.5e-6, 0.1 + 0.2,
+                999.9999995, 999.9999994, 1000, 123456.789, Double.MIN_VALUE, Double.MAX_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            assertEquals(String.format(Locale.US, "%.6f", value), SvgNumbers.format(value), "value " + value);
+        }
+        assertEquals("x=-0.000000", SvgNumbers.append(new StringBuilder("x="), -1e-9).toString());
+    }
+}
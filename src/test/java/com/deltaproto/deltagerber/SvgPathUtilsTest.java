@@ -0,0 +1,125 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.renderer.svg.SvgOptions;
+import com.deltaproto.deltagerber.renderer.svg.SvgPathUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the polygonized paths: vertex placement from the unit-circle tables and
+ * incremental rotation, and segment counts under a chord tolerance.
+ */
+public class SvgPathUtilsTest {
+
+    private static final double TOLERANCE = 0.001;
+    /** Coordinates are written with six decimals. */
+    private static final double ROUNDING = 1e-6;
+
+    @Test
+    @DisplayName("Fixed segment counts put every vertex where the trigonometry says")
+    void testFixedSegmentVertices() {
+        List<double[]> circle = vertices(SvgPathUtils.circlePath(1.5, -2, 0.8, 32));
+        assertEquals(32, circle.size());
+        for (int i = 0; i < 32; i++) {
+            double angle = 2 * Math.PI * i / 32;
+            assertEquals(1.5 + 0.8 * Math.cos(angle), circle.get(i)[0], ROUNDING);
+            assertEquals(-2 + 0.8 * Math.sin(angle), circle.get(i)[1], ROUNDING);
+        }
+
+        // A quarter arc, counter-clockwise from (r, 0): about 10 segments per mm
+        double r = 5;
+        List<double[]> arc = vertices(SvgPathUtils.arcPath(r, 0, 0, r, 0, 0, false));
+        int segments = (int) (Math.PI / 2 * r * 10);
+        assertEquals(segments + 1, arc.size());
+        for (int i = 0; i <= segments; i++) {
+            double angle = Math.PI / 2 * i / segments;
+            assertEquals(r * Math.cos(angle), arc.get(i)[0], ROUNDING);
+            assertEquals(r * Math.sin(angle), arc.get(i)[1], ROUNDING);
+        }
+    }
+
+    @Test
+    @DisplayName("A chord tolerance bounds the distance between chords and the curve")
+    void testChordTolerance() {
+        SvgOptions options = SvgOptions.polygonizedWithTolerance(TOLERANCE);
+        for (double r : new double[] {0.05, 0.3, 1, 10, 50}) {
+            int segments = options.circleSegments(r);
+            assertEquals(0, segments % 4, "Quarters split evenly");
+            assertTrue(r * (1 - Math.cos(Math.PI / segments)) <= TOLERANCE + 1e-12,
+                segments + " segments for radius " + r);
+
+            List<double[]> circle = vertices(SvgPathUtils.circlePath(0, 0, r, options));
+            assertEquals(segments, circle.size());
+            for (double[] v : circle) {
+                assertEquals(r, Math.hypot(v[0], v[1]), ROUNDING);
+            }
+        }
+
+        // Small pads get fewer segments than the fixed 32, large arcs far fewer than by length
+        assertTrue(options.circleSegments(0.1) < 32);
+        assertTrue(options.arcSegments(50, Math.PI) < new SvgOptions().arcSegments(50, Math.PI) / 4);
+    }
+
+    @Test
+    @DisplayName("Stroked arcs and region arcs under a tolerance stay on their circles")
+    void testArcsUnderTolerance() {
+        SvgOptions options = SvgOptions.polygonizedWithTolerance(TOLERANCE);
+        double r = 20;
+        double hw = 0.25;
+        // Clockwise half circle from (r, 0) to (-r, 0) through (0, r)
+        List<double[]> stroke = vertices(SvgPathUtils.strokedArcPath(r, 0, -r, 0, 0, 0, true, 2 * hw, options));
+        int outer = 0;
+        int inner = 0;
+        for (double[] v : stroke) {
+            double d = Math.hypot(v[0], v[1]);
+            if (Math.abs(d - (r + hw)) < ROUNDING * 2) outer++;
+            else if (Math.abs(d - (r - hw)) < ROUNDING * 2) inner++;
+            else {
+                // Cap vertices lie on a circle around one of the ends
+                double cap = Math.min(Math.hypot(v[0] - r, v[1]), Math.hypot(v[0] + r, v[1]));
+                assertEquals(hw, cap, ROUNDING * 2);
+            }
+        }
+        int segments = options.arcSegments(r + hw, Math.PI);
+        assertTrue(outer >= segments + 1 && inner >= segments + 1, outer + " outer, " + inner + " inner");
+
+        StringBuilder path = new StringBuilder("M 20.000000 0.000000");
+        SvgPathUtils.appendArc(path, 0, 0, r, 0, -Math.PI, options.arcSegments(r, Math.PI));
+        List<double[]> arc = vertices(path.toString());
+        assertEquals(options.arcSegments(r, Math.PI) + 1, arc.size());
+        assertEquals(-r, arc.get(arc.size() - 1)[0], ROUNDING);
+        assertEquals(0, arc.get(arc.size() - 1)[1], ROUNDING);
+        for (double[] v : arc) {
+            assertEquals(r, Math.hypot(v[0], v[1]), ROUNDING);
+            assertTrue(v[1] <= ROUNDING, "Clockwise from (r, 0) goes below the axis");
+        }
+    }
+
+    @Test
+    @DisplayName("The chord tolerance is part of the options' identity")
+    void testOptionsIdentity() {
+        SvgOptions options = SvgOptions.polygonizedWithTolerance(TOLERANCE);
+        assertEquals(options, options.copy());
+        assertEquals(options.hashCode(), options.copy().hashCode());
+        assertNotEquals(SvgOptions.polygonized(), options);
+        assertThrows(IllegalArgumentException.class, () -> new SvgOptions().setChordTolerance(-1));
+    }
+
+    /** The vertices of M/L path data, in order. */
+    private static List<double[]> vertices(String path) {
+        List<double[]> vertices = new ArrayList<>();
+        String[] tokens = path.trim().split("\\s+");
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i].equals("M") || tokens[i].equals("L")) {
+                vertices.add(new double[] {Double.parseDouble(tokens[i + 1]), Double.parseDouble(tokens[i + 2])});
+                i += 2;
+            }
+        }
+        return vertices;
+    }
+}
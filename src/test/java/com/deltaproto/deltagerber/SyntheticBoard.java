@@ -0,0 +1,304 @@
+package com.deltaproto.deltagerber;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic generator for large, valid RS-274X and Excellon files.
+ * <p>
+ * The same settings and seed always produce the same output, so runs can be
+ * compared across commits. The defaults give a 1x board of roughly 50 KB of
+ * Gerber; {@link #scaled(int)} multiplies every count and grows the board so
+ * the density stays the same.
+ * <p>
+ * Knobs:
+ * - Flashes, cycling through round, rectangle, obround, polygon and macro apertures
+ * - Draws, as short traces of linear segments with every eighth segment an arc
+ * - Regions and their vertex count
+ * - Polarity toggles, splitting the image into alternating dark/clear runs
+ * - Macro apertures (circle plus rotated center line)
+ * - A step-repeat grid around the whole image
+ * - Drill hits, spread over a number of tools
+ */
+public class SyntheticBoard {
+
+    private static final int SEGMENTS_PER_TRACE = 4;
+    private static final int STANDARD_APERTURES = 4;
+    private static final int FIRST_MACRO_DCODE = 20;
+
+    private long seed = 1;
+    private double width = 100;
+    private double height = 80;
+    private int flashes = 500;
+    private int draws = 1000;
+    private int regions = 10;
+    private int regionVertices = 32;
+    private int polarityToggles = 4;
+    private int macroApertures = 4;
+    private int stepRepeatX = 1;
+    private int stepRepeatY = 1;
+    private int drillHits = 250;
+    private int drillTools = 5;
+
+    public SyntheticBoard setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public SyntheticBoard setSize(double widthMm, double heightMm) {
+        this.width = widthMm;
+        this.height = heightMm;
+        return this;
+    }
+
+    public SyntheticBoard setFlashes(int flashes) {
+        this.flashes = flashes;
+        return this;
+    }
+
+    public SyntheticBoard setDraws(int draws) {
+        this.draws = draws;
+        return this;
+    }
+
+    public SyntheticBoard setRegions(int regions, int verticesPerRegion) {
+        if (verticesPerRegion < 3) {
+            throw new IllegalArgumentException("A region needs at least 3 vertices");
+        }
+        this.regions = regions;
+        this.regionVertices = verticesPerRegion;
+        return this;
+    }
+
+    public SyntheticBoard setPolarityToggles(int toggles) {
+        this.polarityToggles = toggles;
+        return this;
+    }
+
+    public SyntheticBoard setMacroApertures(int macros) {
+        this.macroApertures = macros;
+        return this;
+    }
+
+    public SyntheticBoard setStepRepeat(int countX, int countY) {
+        if (countX < 1 || countY < 1) {
+            throw new IllegalArgumentException("Step-repeat counts must be at least 1");
+        }
+        this.stepRepeatX = countX;
+        this.stepRepeatY = countY;
+        return this;
+    }
+
+    public SyntheticBoard setDrillHits(int hits, int tools) {
+        if (tools < 1) {
+            throw new IllegalArgumentException("At least one drill tool is required");
+        }
+        this.drillHits = hits;
+        this.drillTools = tools;
+        return this;
+    }
+
+    /**
+     * A copy with all object counts multiplied by {@code factor} and each side
+     * grown by its square root. Macros, tools and the step-repeat grid are kept.
+     */
+    public SyntheticBoard scaled(int factor) {
+        double side = Math.sqrt(factor);
+        return new SyntheticBoard()
+            .setSeed(seed)
+            .setSize(width * side, height * side)
+            .setFlashes(flashes * factor)
+            .setDraws(draws * factor)
+            .setRegions(regions * factor, regionVertices)
+            .setPolarityToggles(polarityToggles * factor)
+            .setMacroApertures(macroApertures)
+            .setStepRepeat(stepRepeatX, stepRepeatY)
+            .setDrillHits(drillHits * factor, drillTools);
+    }
+
+    /** Graphics objects the Gerber file parses to: one per flash, draw and region, per step-repeat cell. */
+    public int getExpectedObjects() {
+        return (flashes + draws + regions) * stepRepeatX * stepRepeatY;
+    }
+
+    public int getDrillHits() {
+        return drillHits;
+    }
+
+    public int getMacroApertures() {
+        return macroApertures;
+    }
+
+    /** The RS-274X copper layer. */
+    public String gerber() {
+        Random random = new Random(seed);
+        double cellWidth = width / stepRepeatX;
+        double cellHeight = height / stepRepeatY;
+        StringBuilder sb = new StringBuilder(64 * (flashes + draws) + 24 * regions * regionVertices + 1024);
+
+        sb.append("G04 Synthetic board, seed ").append(seed).append("*\n");
+        sb.append("%FSLAX46Y46*%\n");
+        sb.append("%MOMM*%\n");
+        sb.append("%TF.FileFunction,Copper,L1,Top*%\n");
+        sb.append("%ADD10C,0.250000*%\n");
+        sb.append("%ADD11R,1.200000X0.800000*%\n");
+        sb.append("%ADD12O,1.500000X0.750000*%\n");
+        sb.append("%ADD13P,1.000000X6X0*%\n");
+        for (int i = 0; i < macroApertures; i++) {
+            sb.append("%AMSYNTH").append(i).append("*\n");
+            sb.append("1,1,$1,0,0*\n");
+            sb.append("21,1,$1,$2,0,0,").append(i * 15 % 180).append("*%\n");
+            sb.append("%ADD").append(FIRST_MACRO_DCODE + i).append("SYNTH").append(i)
+                .append(",0.800000X0.300000*%\n");
+        }
+        sb.append("%LPD*%\n");
+        sb.append("G75*\n");
+        sb.append("G01*\n");
+        if (stepRepeatX > 1 || stepRepeatY > 1) {
+            sb.append(String.format(Locale.ROOT, "%%SRX%dY%dI%.6fJ%.6f*%%\n",
+                stepRepeatX, stepRepeatY, cellWidth, cellHeight));
+        }
+
+        // Spread each kind of object evenly over the polarity runs
+        int runs = polarityToggles + 1;
+        for (int run = 0; run < runs; run++) {
+            if (run > 0) {
+                sb.append(run % 2 == 1 ? "%LPC*%\n" : "%LPD*%\n");
+            }
+            int runFlashes = share(flashes, run, runs);
+            int runDraws = share(draws, run, runs);
+            int runRegions = share(regions, run, runs);
+            appendFlashes(sb, random, runFlashes, cellWidth, cellHeight);
+            appendTraces(sb, random, runDraws, cellWidth, cellHeight);
+            appendRegions(sb, random, runRegions, cellWidth, cellHeight);
+        }
+
+        if (stepRepeatX > 1 || stepRepeatY > 1) {
+            sb.append("%SR*%\n");
+        }
+        sb.append("M02*\n");
+        return sb.toString();
+    }
+
+    /** The Excellon drill file, with hits grouped by tool. */
+    public String excellon() {
+        Random random = new Random(~seed);
+        StringBuilder sb = new StringBuilder(24 * drillHits + 256);
+        sb.append("M48\n");
+        sb.append("; Synthetic board, seed ").append(seed).append('\n');
+        sb.append("METRIC,LZ\n");
+        for (int t = 1; t <= drillTools; t++) {
+            sb.append(String.format(Locale.ROOT, "T%02dC%.3f\n", t, 0.2 + 0.15 * t));
+        }
+        sb.append("%\n");
+        sb.append("G90\n");
+        sb.append("G05\n");
+        for (int t = 1; t <= drillTools; t++) {
+            sb.append(String.format(Locale.ROOT, "T%02d\n", t));
+            int hits = share(drillHits, t - 1, drillTools);
+            for (int i = 0; i < hits; i++) {
+                sb.append(String.format(Locale.ROOT, "X%.3fY%.3f\n",
+                    random.nextDouble() * width, random.nextDouble() * height));
+            }
+        }
+        sb.append("M30\n");
+        return sb.toString();
+    }
+
+    /** Write {@code synthetic.gtl} and {@code synthetic.drl} into {@code dir}. */
+    public void writeTo(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("synthetic.gtl"), gerber());
+        Files.writeString(dir.resolve("synthetic.drl"), excellon());
+    }
+
+    private void appendFlashes(StringBuilder sb, Random random, int count, double w, double h) {
+        int apertures = STANDARD_APERTURES + macroApertures;
+        int current = -1;
+        for (int i = 0; i < count; i++) {
+            int index = random.nextInt(apertures);
+            if (index != current) {
+                int dCode = index < STANDARD_APERTURES ? 10 + index : FIRST_MACRO_DCODE + index - STANDARD_APERTURES;
+                sb.append('D').append(dCode).append("*\n");
+                current = index;
+            }
+            appendXY(sb, random.nextDouble() * w, random.nextDouble() * h).append("D03*\n");
+        }
+    }
+
+    private void appendTraces(StringBuilder sb, Random random, int count, double w, double h) {
+        sb.append("D10*\n");
+        double x = 0;
+        double y = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % SEGMENTS_PER_TRACE == 0) {
+                x = random.nextDouble() * w;
+                y = random.nextDouble() * h;
+                appendXY(sb, x, y).append("D02*\n");
+            }
+            if (i % 8 == 7) {
+                // Arc around a center to the right of the current point
+                double r = 0.5 + random.nextDouble() * 1.5;
+                double a = random.nextDouble() * 2 * Math.PI;
+                double cx = x + r;
+                x = cx + r * Math.cos(a);
+                y = y + r * Math.sin(a);
+                sb.append("G02");
+                appendXY(sb, x, y).append('I').append(toUnits(r)).append("J0D01*\n");
+                sb.append("G01*\n");
+            } else {
+                x = clamp(x + (random.nextDouble() - 0.5) * 10, w);
+                y = clamp(y + (random.nextDouble() - 0.5) * 10, h);
+                appendXY(sb, x, y).append("D01*\n");
+            }
+        }
+    }
+
+    private void appendRegions(StringBuilder sb, Random random, int count, double w, double h) {
+        for (int i = 0; i < count; i++) {
+            double cx = random.nextDouble() * w;
+            double cy = random.nextDouble() * h;
+            double radius = 1 + random.nextDouble() * 4;
+            sb.append("G36*\n");
+            double firstX = 0;
+            double firstY = 0;
+            for (int v = 0; v < regionVertices; v++) {
+                // A star-like polygon: radius jitter makes it non-convex
+                double a = 2 * Math.PI * v / regionVertices;
+                double r = radius * (0.6 + 0.4 * random.nextDouble());
+                double px = cx + r * Math.cos(a);
+                double py = cy + r * Math.sin(a);
+                if (v == 0) {
+                    firstX = px;
+                    firstY = py;
+                    appendXY(sb, px, py).append("D02*\n");
+                } else {
+                    appendXY(sb, px, py).append("D01*\n");
+                }
+            }
+            appendXY(sb, firstX, firstY).append("D01*\n");
+            sb.append("G37*\n");
+        }
+    }
+
+    private static StringBuilder appendXY(StringBuilder sb, double x, double y) {
+        return sb.append('X').append(toUnits(x)).append('Y').append(toUnits(y));
+    }
+
+    /** Millimeters to the integer units of the 4.6 coordinate format. */
+    private static long toUnits(double mm) {
+        return Math.round(mm * 1_000_000);
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    /** The size of part {@code index} when {@code total} is split into {@code parts} near-equal parts. */
+    private static int share(int total, int index, int parts) {
+        return total / parts + (index < total % parts ? 1 : 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.deltaproto.deltagerber;
+
+import com.deltaproto.deltagerber.model.drill.DrillDocument;
+import com.deltaproto.deltagerber.model.gerber.GerberDocument;
+import com.deltaproto.deltagerber.model.gerber.Polarity;
+import com.deltaproto.deltagerber.model.gerber.operation.Arc;
+import com.deltaproto.deltagerber.model.gerber.operation.Region;
+import com.deltaproto.deltagerber.parser.ExcellonParser;
+import com.deltaproto.deltagerber.parser.GerberParser;
+import com.deltaproto.deltagerber.renderer.svg.SVGRenderer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the synthetic board generator is deterministic and produces
+ * files the parsers accept without warnings.
+ */
+public class SyntheticBoardTest {
+
+    @Test
+    @DisplayName("Same seed gives identical output, a different seed does not")
+    void testDeterministic() {
+        assertEquals(new SyntheticBoard().gerber(), new SyntheticBoard().gerber());
+        assertEquals(new SyntheticBoard().excellon(), new SyntheticBoard().excellon());
+        assertNotEquals(new SyntheticBoard().gerber(), new SyntheticBoard().setSeed(2).gerber());
+    }
+
+    @Test
+    @DisplayName("Generated Gerber parses to the expected objects with every feature present")
+    void testGerberParses() {
+        SyntheticBoard board = new SyntheticBoard();
+        GerberDocument doc = new GerberParser().parse(board.gerber());
+
+        assertEquals(board.getExpectedObjects(), doc.getObjects().size());
+        assertTrue(doc.getWarnings().isEmpty(), doc.getWarnings().toString());
+        assertEquals(board.getMacroApertures(), doc.getMacroTemplates().size());
+        assertTrue(doc.getObjects().stream().anyMatch(o -> o instanceof Arc));
+        assertTrue(doc.getObjects().stream().anyMatch(o -> o instanceof Region));
+        assertTrue(doc.getObjects().stream().anyMatch(o -> o.getPolarity() == Polarity.CLEAR));
+        assertTrue(new SVGRenderer().render(doc).startsWith("<svg"));
+    }
+
+    @Test
+    @DisplayName("Step-repeat replicates the image across the grid")
+    void testStepRepeat() {
+        SyntheticBoard board = new SyntheticBoard().setStepRepeat(2, 3);
+        GerberDocument doc = new GerberParser().parse(board.gerber());
+
+        assertEquals(new SyntheticBoard().getExpectedObjects() * 6, board.getExpectedObjects());
+        assertEquals(board.getExpectedObjects(), doc.getObjects().size());
+        assertEquals(100, doc.getBoundingBox().getWidth(), 10);
+    }
+
+    @Test
+    @DisplayName("Generated Excellon parses to one operation per drill hit")
+    void testExcellonParses() {
+        SyntheticBoard board = new SyntheticBoard().scaled(10);
+        DrillDocument doc = new ExcellonParser().parse(board.excellon());
+
+        assertEquals(2500, board.getDrillHits());
+        assertEquals(board.getDrillHits(), doc.getOperations().size());
+        assertEquals(5, doc.getTools().size());
+    }
+
+    @Test
+    @DisplayName("Scaling multiplies object counts")
+    void testScaled() {
+        SyntheticBoard base = new SyntheticBoard();
+        SyntheticBoard large = base.scaled(10);
+        assertEquals(base.getExpectedObjects() * 10, large.getExpectedObjects());
+        assertEquals(large.getExpectedObjects(), new GerberParser().parse(large.gerber()).getObjects().size());
+        assertTrue(large.gerber().length() > 9 * base.gerber().length());
+    }
+}